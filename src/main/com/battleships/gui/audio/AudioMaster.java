@@ -92,14 +92,45 @@ public class AudioMaster {
      * to play the sound.
      */
     public static int loadSound(String file) {
+        return loadSound(decodeSound(file));
+    }
+
+    /**
+     * Reads a sound file without using OpenAL, so it can be called by any thread.
+     * Sound files need to be in .wav format.
+     *
+     * @param file Name of the sound file to read.
+     * @return The samples of the sound file, need to be given to {@link #loadSound(WaveData)}.
+     */
+    public static WaveData decodeSound(String file) {
+        return WaveData.create("/com/battleships/gui/res/sounds/" + file + ".wav");
+    }
+
+    /**
+     * Loads a sound file that was read with {@link #decodeSound(String)}, to make it playable through a source.
+     *
+     * @param waveFile The samples of the sound file, are disposed afterwards.
+     * @return ID of the buffer containing the data for the sound file. Needs to be given to a source
+     * to play the sound.
+     */
+    public static int loadSound(WaveData waveFile) {
         int buffer = AL10.alGenBuffers();
         buffers.add(buffer);
-        WaveData waveFile = WaveData.create("/com/battleships/gui/res/sounds/" + file + ".wav");
         AL10.alBufferData(buffer, waveFile.format, waveFile.data, waveFile.samplerate);
         waveFile.dispose();
         return buffer;
     }
 
+    /**
+     * Deletes a sound that was loaded with {@link #loadSound(String)}.
+     *
+     * @param buffer ID of the buffer containing the sound.
+     */
+    public static void deleteSound(int buffer) {
+        buffers.remove(Integer.valueOf(buffer));
+        AL10.alDeleteBuffers(buffer);
+    }
+
     /**
      * Change the volume of all sources and set standard volume for new sources.
      *
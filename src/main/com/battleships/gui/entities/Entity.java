@@ -1,12 +1,17 @@
 package com.battleships.gui.entities;
 
 import com.battleships.gui.models.TexturedModel;
+import com.battleships.gui.toolbox.Maths;
+import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
 /**
  * Object that can be placed in the world, rotated and scaled.
  * All entities need to be passed to the {@link com.battleships.gui.renderingEngine.EntityRenderer} every frame,
  * so they are visible in the scene.
+ * The transformation matrix of the entity is only calculated again if its position, rotation or scale was changed
+ * using the setters or increase methods of this class. If the vectors returned by {@link #getPosition()} or
+ * {@link #getRotation()} are changed directly, they need to be passed to the setter afterwards.
  *
  * @author Tim Staudenmaier
  */
@@ -24,6 +29,15 @@ public class Entity {
      * Scale of this entity (1 = scale of the original model)
      */
     private float scale;
+    /**
+     * Transformation matrix of this entity, calculated from its position, rotation and scale.
+     */
+    private Matrix4f transformationMatrix = new Matrix4f();
+    /**
+     * {@code true} if position, rotation or scale changed since the transformation matrix was calculated.
+     * Volatile because some entities are moved by other threads than the one rendering them.
+     */
+    private volatile boolean transformationChanged = true;
 
     /**
      * Additional color the model can be overlapped with.
@@ -107,6 +121,7 @@ public class Entity {
         this.position.x += dx;
         this.position.y += dy;
         this.position.z += dz;
+        transformationChanged = true;
     }
 
     /**
@@ -120,6 +135,7 @@ public class Entity {
         this.rotation.x += dx;
         this.rotation.y += dy;
         this.rotation.z += dz;
+        transformationChanged = true;
     }
 
     /**
@@ -129,6 +145,7 @@ public class Entity {
      */
     public void increaseScale(float x) {
         this.scale += x;
+        transformationChanged = true;
     }
 
     /**
@@ -161,6 +178,7 @@ public class Entity {
      */
     public void setPosition(Vector3f position) {
         this.position = position;
+        transformationChanged = true;
     }
 
     /**
@@ -177,6 +195,7 @@ public class Entity {
      */
     public void setRotation(Vector3f rotation) {
         this.rotation = rotation;
+        transformationChanged = true;
     }
 
     /**
@@ -193,6 +212,21 @@ public class Entity {
      */
     public void setScale(float scale) {
         this.scale = scale;
+        transformationChanged = true;
+    }
+
+    /**
+     * Gets the transformation matrix of this entity, it's only calculated again if position, rotation or scale changed.
+     *
+     * @return The transformation matrix containing position, rotation and scale of this entity, must not be changed.
+     */
+    public Matrix4f getTransformationMatrix() {
+        if (transformationChanged) {
+            //reset before calculating, so changes by other threads while calculating are picked up next time
+            transformationChanged = false;
+            Maths.createTransformationMatrix(position, rotation, scale, transformationMatrix);
+        }
+        return transformationMatrix;
     }
 
     /**
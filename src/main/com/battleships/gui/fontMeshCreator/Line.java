@@ -32,7 +32,7 @@ public class Line {
      * Create an empty line
      *
      * @param spaceWidth width of a space character
-     * @param fontSize   size of the font
+     * @param fontSize   horizontal size of the font (scaled to the aspect ratio of the window)
      * @param maxLength  the maximum length of a line before a line break
      */
     protected Line(double spaceWidth, double fontSize, double maxLength) {
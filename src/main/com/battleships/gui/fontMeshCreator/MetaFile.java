@@ -1,21 +1,67 @@
 package com.battleships.gui.fontMeshCreator;
 
-import com.battleships.gui.window.WindowManager;
+import com.battleships.gui.renderingEngine.CacheWriter;
+import com.battleships.gui.renderingEngine.MeshCache;
+import com.battleships.gui.renderingEngine.OBJLoader;
+import com.battleships.logic.SaveFileManager;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * This class contains all the necessary information of a .fnt file so a {@link GUIText} can be rendered using that .fnt file.
  * All .fnt files need to be distance font files for this implementation.
+ * <p>
+ * The metrics of the characters don't depend on the aspect ratio of the screen, horizontal values are in the same unit
+ * as vertical values and are only scaled to the screen when the mesh of a text is created ({@link TextMeshCreator}).
+ * The .fnt file is only parsed once, the parsed font is compiled into its own file
+ * ({@code Cache/Fonts/<font>.font} next to the game, little endian):
+ * <ul>
+ *     <li>Header ({@value #HEADER} bytes): magic number, version, hash of the .fnt file
+ *     ({@link MeshCache#hash(ByteBuffer)}), amount of characters (highest code point + 1), 0 and the width of a space.</li>
+ *     <li>One record of {@value #RECORD} bytes for every code point: the code point (-1 if the font doesn't contain
+ *     that character), 0 and the texture coordinates, texture size, offset, size and advance of the character (doubles).</li>
+ * </ul>
+ * If the hash in the header doesn't match the .fnt file, the file is parsed again and the compiled file is replaced.
+ * Files are written in the background by the {@link CacheWriter}.
  *
  * @author Tim Staudenmaier
  */
 public class MetaFile {
 
+    /**
+     * Magic number at the start of every compiled font.
+     */
+    public static final int MAGIC = 0x42464E54;
+    /**
+     * Version of the format of the compiled fonts.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Suffix of the compiled fonts.
+     */
+    public static final String SUFFIX = ".font";
+    /**
+     * Length of the header of a compiled font in bytes.
+     */
+    public static final int HEADER = 32;
+    /**
+     * Length of the record of one character in a compiled font in bytes.
+     */
+    public static final int RECORD = 80;
+
     /**
      * Index at which the padding value of the padding above a character is stored.
      */
@@ -48,18 +94,10 @@ public class MetaFile {
     private static final String NUMBER_SEPARATOR = ",";
 
     /**
-     * Aspect ratio of the screen the text should be rendered on.
+     * How big each pixel of the font needs to be on the screen after rendering (vertically, and horizontally on a
+     * screen with an aspect ratio of 1).
      */
-    private double aspectRatio;
-
-    /**
-     * How big each pixel of the font needs to be on the screen vertically after rendering.
-     */
-    private double verticalPerPixelSize;
-    /**
-     * How big each pixel of the font needs to be on the screen horizontally after rendering.
-     */
-    private double horizontalPerPixelSize;
+    private double perPixelSize;
     /**
      * Width of a space character.
      */
@@ -78,12 +116,12 @@ public class MetaFile {
     private int paddingHeight;
 
     /**
-     * Map that contains all ASCII-Values of all characters, mapping them to their corresponding character.
+     * Array containing all characters, at the index of their code point ({@code null} if the font doesn't contain the character).
      */
-    private Map<Integer, Character> metaData = new HashMap<>();
+    private Character[] metaData = new Character[0];
 
     /**
-     * Reader to read file.
+     * Reader to read file, only used while the .fnt file is parsed.
      */
     private BufferedReader reader;
     /**
@@ -91,29 +129,45 @@ public class MetaFile {
      * First string is identifier of the value, second is the actual value.
      */
     private Map<String, String> values = new HashMap<>();
+    /**
+     * Data of all parsed characters (code point and the values stored in a record), only used while the .fnt file is parsed.
+     */
+    private List<double[]> records = new ArrayList<>();
 
     /**
      * open a font file to read it, read all needed data from it and save the read data into this Object.
+     * The compiled font is used if the .fnt file didn't change since it was compiled.
      *
      * @param file font file
      */
     protected MetaFile(String file) {
-        this.aspectRatio = (double) WindowManager.getWidth() / (double) WindowManager.getHeight();
+        ByteBuffer source;
         try {
-            reader = new BufferedReader(new InputStreamReader(MetaFile.class.getResourceAsStream("/com/battleships/gui/res/textures/font/" + file + ".fnt")));
+            source = OBJLoader.readFully(MetaFile.class.getResourceAsStream("/com/battleships/gui/res/textures/font/" + file + ".fnt"));
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("Couldn't read font meta file!");
+            return;
+        }
+        long hash = MeshCache.hash(source);
+        ByteBuffer blob = loadCompiled(file, hash);
+        if (blob == null) {
+            reader = new BufferedReader(new StringReader(StandardCharsets.ISO_8859_1.decode(source).toString()));
+            loadPaddingData();
+            loadLineSizes();
+            int imageWidth = getValueOfVariable("scaleW");
+            loadCharacterData(imageWidth);
+            close();
+            blob = compile(hash);
+            File compiled = getFile(file);
+            if (compiled != null && (compiled.getParentFile().isDirectory() || compiled.getParentFile().mkdirs()))
+                CacheWriter.write(compiled, blob.duplicate());
         }
-        loadPaddingData();
-        loadLineSizes();
-        int imageWidth = getValueOfVariable("scaleW");
-        loadCharacterData(imageWidth);
-        close();
+        readCompiled(blob);
     }
 
     /**
-     * @return the width of a space character
+     * @return the width of a space character (not scaled to the aspect ratio of the screen)
      */
     protected double getSpaceWidth() {
         return spaceWidth;
@@ -121,11 +175,99 @@ public class MetaFile {
 
     /**
      * @param ascii the ascii value of the character
-     * @return the character for the ascii value
+     * @return the character for the ascii value, {@code null} if the font doesn't contain the character
      */
 
     protected Character getCharacter(int ascii) {
-        return metaData.get(ascii);
+        return ascii >= 0 && ascii < metaData.length ? metaData[ascii] : null;
+    }
+
+    /**
+     * Loads a compiled font.
+     *
+     * @param file Name of the font.
+     * @param hash Hash of the .fnt file.
+     * @return The compiled font, {@code null} if the font wasn't compiled yet or the .fnt file was changed.
+     */
+    private static ByteBuffer loadCompiled(String file, long hash) {
+        File compiled = getFile(file);
+        if (compiled == null || !compiled.isFile())
+            return null;
+        ByteBuffer blob;
+        try (FileChannel channel = FileChannel.open(compiled.toPath(), StandardOpenOption.READ)) {
+            blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            System.err.println("Error loading compiled font " + file + "!");
+            e.printStackTrace();
+            return null;
+        }
+        if (blob.limit() < HEADER || blob.getInt(0) != MAGIC || blob.getInt(4) != VERSION || blob.getLong(8) != hash
+                || blob.getInt(16) < 0 || blob.limit() != HEADER + (long) RECORD * blob.getInt(16))
+            return null;
+        return blob;
+    }
+
+    /**
+     * Compiles the parsed characters.
+     *
+     * @param hash Hash of the .fnt file.
+     * @return The compiled font.
+     */
+    private ByteBuffer compile(long hash) {
+        int count = 0;
+        for (double[] record : records)
+            count = Math.max(count, (int) record[0] + 1);
+        ByteBuffer blob = ByteBuffer.allocate(HEADER + RECORD * count).order(ByteOrder.LITTLE_ENDIAN);
+        blob.putInt(MAGIC);
+        blob.putInt(VERSION);
+        blob.putLong(hash);
+        blob.putInt(count);
+        blob.putInt(0);
+        blob.putDouble(spaceWidth);
+        for (int i = 0; i < count; i++)
+            blob.putInt(HEADER + RECORD * i, -1);
+        for (double[] record : records) {
+            blob.position(HEADER + RECORD * (int) record[0]);
+            blob.putInt((int) record[0]);
+            blob.putInt(0);
+            for (int i = 1; i < record.length; i++)
+                blob.putDouble(record[i]);
+        }
+        blob.clear();
+        records = null;
+        return blob;
+    }
+
+    /**
+     * Creates all characters from a compiled font.
+     *
+     * @param blob The compiled font.
+     */
+    private void readCompiled(ByteBuffer blob) {
+        spaceWidth = blob.getDouble(24);
+        metaData = new Character[blob.getInt(16)];
+        for (int i = 0; i < metaData.length; i++) {
+            int record = HEADER + RECORD * i;
+            if (blob.getInt(record) < 0)
+                continue;
+            double[] v = new double[9];
+            for (int j = 0; j < v.length; j++)
+                v[j] = blob.getDouble(record + 8 + 8 * j);
+            metaData[i] = new Character(i, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8]);
+        }
+    }
+
+    /**
+     * @param file Name of the font.
+     * @return File the font is compiled into, {@code null} if the path of the game couldn't be found.
+     */
+    private static File getFile(String file) {
+        try {
+            return new File(SaveFileManager.getJarPath() + "/Cache/Fonts/" + file + SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
@@ -208,13 +350,11 @@ public class MetaFile {
     private void loadLineSizes() {
         processNextLine();
         int lineHeightPixels = getValueOfVariable("lineHeight") - paddingHeight;
-        verticalPerPixelSize = TextMeshCreator.LINE_HEIGHT / (double) lineHeightPixels;
-        horizontalPerPixelSize = verticalPerPixelSize / aspectRatio;
+        perPixelSize = TextMeshCreator.LINE_HEIGHT / (double) lineHeightPixels;
     }
 
     /**
-     * Loads in data about each character and stores the data in the {@link Character} class and in
-     * the metaData hashMap with the characters ascii value
+     * Loads in data about each character and stores the data in the records, so it can be compiled
      *
      * @param imageWidth the width of the texture atlas in pixels
      */
@@ -223,38 +363,38 @@ public class MetaFile {
         processNextLine();
         processNextLine();
         while (processNextLine()) {
-            Character c = loadCharacter(imageWidth);
-            if (c != null) {
-                metaData.put(c.getId(), c);
+            double[] record = loadCharacter(imageWidth);
+            if (record != null) {
+                records.add(record);
             }
         }
     }
 
     /**
      * Load all the data from one character in the texture atlas and convert
-     * it all from 'pixels' to 'screen-space' before storing. Also remove padding
+     * it all from 'pixels' to 'screen-space' (for an aspect ratio of 1) before storing. Also remove padding
      * between characters
      *
      * @param imageSize size of the texture atlas in pixels
-     * @return The data about the character as {@link Character}
+     * @return The data about the character in the order of the {@link Character} constructor, {@code null} for a space
      */
-    private Character loadCharacter(int imageSize) {
+    private double[] loadCharacter(int imageSize) {
         int id = getValueOfVariable("id");
         if (id == TextMeshCreator.SPACE_ASCII) {
-            this.spaceWidth = (getValueOfVariable("xadvance") - paddingWidth) * horizontalPerPixelSize;
+            this.spaceWidth = (getValueOfVariable("xadvance") - paddingWidth) * perPixelSize;
             return null;
         }
         double xTex = ((double) getValueOfVariable("x") + (padding[PAD_LEFT] - DESIRED_PADDING)) / imageSize;
         double yTex = ((double) getValueOfVariable("y") + (padding[PAD_TOP] - DESIRED_PADDING)) / imageSize;
         int width = getValueOfVariable("width") - (paddingWidth - (2 * DESIRED_PADDING));
         int height = getValueOfVariable("height") - ((paddingHeight) - (2 * DESIRED_PADDING));
-        double quadWidth = width * horizontalPerPixelSize;
-        double quadHeight = height * verticalPerPixelSize;
+        double quadWidth = width * perPixelSize;
+        double quadHeight = height * perPixelSize;
         double xTexSize = (double) width / imageSize;
         double yTexSize = (double) height / imageSize;
-        double xOff = (getValueOfVariable("xoffset") + padding[PAD_LEFT] - DESIRED_PADDING) * horizontalPerPixelSize;
-        double yOff = (getValueOfVariable("yoffset") + (padding[PAD_TOP] - DESIRED_PADDING)) * verticalPerPixelSize;
-        double xAdvance = (getValueOfVariable("xadvance") - paddingWidth) * horizontalPerPixelSize;
-        return new Character(id, xTex, yTex, xTexSize, yTexSize, xOff, yOff, quadWidth, quadHeight, xAdvance);
+        double xOff = (getValueOfVariable("xoffset") + padding[PAD_LEFT] - DESIRED_PADDING) * perPixelSize;
+        double yOff = (getValueOfVariable("yoffset") + (padding[PAD_TOP] - DESIRED_PADDING)) * perPixelSize;
+        double xAdvance = (getValueOfVariable("xadvance") - paddingWidth) * perPixelSize;
+        return new double[]{id, xTex, yTex, xTexSize, yTexSize, xOff, yOff, quadWidth, quadHeight, xAdvance};
     }
 }
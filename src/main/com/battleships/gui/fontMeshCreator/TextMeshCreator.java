@@ -1,5 +1,7 @@
 package com.battleships.gui.fontMeshCreator;
 
+import com.battleships.gui.window.WindowManager;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -74,14 +76,16 @@ public class TextMeshCreator {
     /**
      * Converts the text into {@link Line}, {@link Word} and {@link Character} components.
      * Then creates quads for each character to be rendered on.
+     * The metrics of the font are scaled to the aspect ratio the window currently has.
      *
      * @param text the text the mesh should be created for
      * @return A {@link TextMeshData} containing two float arrays one with the vertices and one with textureCoords for the quads
      */
 
     protected TextMeshData createTextMesh(GUIText text) {
-        List<Line> lines = createStructure(text);
-        TextMeshData data = createQuadVertices(text, lines);
+        double horizontalSize = text.getFontSize() * WindowManager.getHeight() / WindowManager.getWidth();
+        List<Line> lines = createStructure(text, horizontalSize);
+        TextMeshData data = createQuadVertices(text, lines, horizontalSize);
         return data;
     }
 
@@ -89,14 +93,15 @@ public class TextMeshCreator {
      * Gets the characters of the text to be displayed from {@link GUIText}
      * converts character array into lines and words
      *
-     * @param text the text to create a mesh structure for
+     * @param text           the text to create a mesh structure for
+     * @param horizontalSize size of the font horizontally, scaled to the aspect ratio of the window
      * @return A list of all lines of the text, each line containing the words in a line
      */
-    private List<Line> createStructure(GUIText text) {
+    private List<Line> createStructure(GUIText text, double horizontalSize) {
         char[] chars = text.getTextString().toCharArray();
         List<Line> lines = new ArrayList<>();
-        Line currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
-        Word currentWord = new Word(text.getFontSize());
+        Line currentLine = new Line(metaData.getSpaceWidth(), horizontalSize, text.getMaxLineSize());
+        Word currentWord = new Word(horizontalSize);
         for (char c : chars) {
             int ascii = (int) c;
             //if space character is read, word is over
@@ -105,11 +110,11 @@ public class TextMeshCreator {
                 boolean added = currentLine.attemptToAddWord(currentWord);
                 if (!added) {
                     lines.add(currentLine);
-                    currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
+                    currentLine = new Line(metaData.getSpaceWidth(), horizontalSize, text.getMaxLineSize());
                     currentLine.attemptToAddWord(currentWord);
                 }
                 //start new word
-                currentWord = new Word(text.getFontSize());
+                currentWord = new Word(horizontalSize);
                 continue;
             }
             //get character from font by ascii value
@@ -118,7 +123,7 @@ public class TextMeshCreator {
             currentWord.addCharacter(character);
         }
         //add last word (no space after last word, so needs to be added extra)
-        tryToAddWord(lines, currentLine, currentWord, text);
+        tryToAddWord(lines, currentLine, currentWord, text, horizontalSize);
         //add last line to text
         lines.add(currentLine);
         return lines;
@@ -133,14 +138,15 @@ public class TextMeshCreator {
      * @param lines       list to save the lines into
      * @param currentLine line that the words are currently written into
      * @param currentWord word that needs to be added to the line
-     * @param text        GUIText the word is from (containing font size etc.)
+     * @param text           GUIText the word is from (containing font size etc.)
+     * @param horizontalSize size of the font horizontally, scaled to the aspect ratio of the window
      */
 
-    private void tryToAddWord(List<Line> lines, Line currentLine, Word currentWord, GUIText text) {
+    private void tryToAddWord(List<Line> lines, Line currentLine, Word currentWord, GUIText text, double horizontalSize) {
         boolean added = currentLine.attemptToAddWord(currentWord);
         if (!added) {
             lines.add(currentLine);
-            currentLine = new Line(metaData.getSpaceWidth(), text.getFontSize(), text.getMaxLineSize());
+            currentLine = new Line(metaData.getSpaceWidth(), horizontalSize, text.getMaxLineSize());
             currentLine.attemptToAddWord(currentWord);
         }
 
@@ -152,10 +158,11 @@ public class TextMeshCreator {
      * for each character.
      *
      * @param text  text the quads should be created for
-     * @param lines list of lines the text contains
+     * @param lines          list of lines the text contains
+     * @param horizontalSize size of the font horizontally, scaled to the aspect ratio of the window
      * @return A {@link TextMeshData} containing two float arrays one with the vertices and one with textureCoords for the quads
      */
-    private TextMeshData createQuadVertices(GUIText text, List<Line> lines) {
+    private TextMeshData createQuadVertices(GUIText text, List<Line> lines, double horizontalSize) {
         //set number of lines of the text which are now known
         text.setNumberOfLines(lines.size());
         double cursorX = 0f;
@@ -169,12 +176,12 @@ public class TextMeshCreator {
             }
             for (Word word : line.getWords()) {
                 for (Character letter : word.getCharacters()) {
-                    addVerticesForCharacter(cursorX, cursorY, letter, text.getFontSize(), vertices);
+                    addVerticesForCharacter(cursorX, cursorY, letter, horizontalSize, text.getFontSize(), vertices);
                     addCoordinates(textureCoords, letter.getxTextureCoord(), letter.getyTextureCoord(),
                             letter.getXMaxTextureCoord(), letter.getYMaxTextureCoord());
-                    cursorX += letter.getxAdvance() * text.getFontSize();
+                    cursorX += letter.getxAdvance() * horizontalSize;
                 }
-                cursorX += metaData.getSpaceWidth() * text.getFontSize();
+                cursorX += metaData.getSpaceWidth() * horizontalSize;
             }
             cursorX = 0;
             cursorY += LINE_HEIGHT * text.getFontSize();
@@ -185,16 +192,17 @@ public class TextMeshCreator {
     /**
      * Creates a quad made of 4 vertices the character can be rendered on
      *
-     * @param cursorX   current x position of cursor
-     * @param cursorY   current y position of cursor
-     * @param character character the quad should be made for
-     * @param fontSize  size of the font
-     * @param vertices  list the vertices should be stored to
+     * @param cursorX        current x position of cursor
+     * @param cursorY        current y position of cursor
+     * @param character      character the quad should be made for
+     * @param horizontalSize size of the font horizontally, scaled to the aspect ratio of the window
+     * @param fontSize       size of the font
+     * @param vertices       list the vertices should be stored to
      */
-    private void addVerticesForCharacter(double cursorX, double cursorY, Character character, double fontSize, List<Float> vertices) {
-        double x = cursorX + (character.getxOffset() * fontSize);
+    private void addVerticesForCharacter(double cursorX, double cursorY, Character character, double horizontalSize, double fontSize, List<Float> vertices) {
+        double x = cursorX + (character.getxOffset() * horizontalSize);
         double y = cursorY + (character.getyOffset() * fontSize);
-        double maxX = x + (character.getSizeX() * fontSize);
+        double maxX = x + (character.getSizeX() * horizontalSize);
         double maxY = y + (character.getSizeY() * fontSize);
         double properX = (2 * x) - 1;
         double properY = (-2 * y) + 1;
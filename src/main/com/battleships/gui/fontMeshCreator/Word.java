@@ -19,12 +19,12 @@ public class Word {
      */
     private double width = 0;
     /**
-     * Font size of this word.
+     * Horizontal font size of this word.
      */
     private double fontSize;
 
     /**
-     * @param fontSize size of the text the word is in
+     * @param fontSize horizontal size of the text the word is in (scaled to the aspect ratio of the window)
      */
 
     protected Word(double fontSize) {
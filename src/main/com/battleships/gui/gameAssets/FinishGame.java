@@ -5,7 +5,7 @@ import com.battleships.gui.fontRendering.TextMaster;
 import com.battleships.gui.guis.GuiClickCallback;
 import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiTexture;
-import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import com.battleships.logic.Stats;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -38,14 +38,13 @@ public class FinishGame extends GuiClickCallback {
      * Gui changes depending on outcome of the game.
      * If user clicks on this gui he is returned to the main menu.
      *
-     * @param loader     Loader to load texture.
      * @param guiManager GuiManager to handle clickFunction.
      * @param won        {@code true} if the player has won.
      */
-    public void finishGame(Loader loader, GuiManager guiManager, boolean won) {
+    public void finishGame(GuiManager guiManager, boolean won) {
         if (GameManager.getSettings().isOnline())
             GameManager.getNetwork().closeConnection();
-        GuiTexture background = new GuiTexture(loader.loadTexture("EndScroll.png"), new Vector2f(0.5f, 0.5f), new Vector2f(0.5f, 0.8f));
+        GuiTexture background = new GuiTexture(ResourceRegistry.acquireTexture("EndScroll.png"), new Vector2f(0.5f, 0.5f), new Vector2f(0.5f, 0.8f));
         GameManager.getGuis().add(background);
         if (won) {
             TextMaster.addText(new GUIText("YOU WON!", 3, GameManager.getPirateFont(),
@@ -8,20 +8,26 @@ import com.battleships.gui.entities.Light;
 import com.battleships.gui.fontMeshCreator.FontType;
 import com.battleships.gui.fontRendering.TextMaster;
 import com.battleships.gui.gameAssets.MainMenuGui.*;
+import com.battleships.gui.gameAssets.grids.CannonSounds;
+import com.battleships.gui.gameAssets.grids.Fire;
 import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.gui.gameAssets.grids.GuiGrid;
 import com.battleships.gui.gameAssets.grids.ShipManager;
 import com.battleships.gui.gameAssets.ingameGui.DisableSymbols;
+import com.battleships.gui.gameAssets.ingameGui.ConnectionIndicator;
 import com.battleships.gui.gameAssets.ingameGui.ShipCounter;
 import com.battleships.gui.gameAssets.ingameGui.ShipSelector;
 import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiRenderer;
 import com.battleships.gui.guis.GuiTexture;
+import com.battleships.gui.main.StartupProfiler;
 import com.battleships.gui.particles.ParticleMaster;
 import com.battleships.gui.postProcessing.Fbo;
 import com.battleships.gui.postProcessing.PostProcessing;
+import com.battleships.gui.renderingEngine.AssetPipeline;
 import com.battleships.gui.renderingEngine.Loader;
 import com.battleships.gui.renderingEngine.MasterRenderer;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import com.battleships.gui.terrains.Terrain;
 import com.battleships.gui.terrains.TerrainTexture;
 import com.battleships.gui.terrains.TerrainTexturePack;
@@ -32,6 +38,8 @@ import com.battleships.gui.water.WaterShader;
 import com.battleships.gui.water.WaterTile;
 import com.battleships.gui.window.WindowManager;
 import com.battleships.logic.LogicManager;
+import com.battleships.logic.MatchReplay;
+import com.battleships.logic.MatchSnapshot;
 import com.battleships.logic.Settings;
 import com.battleships.network.NetworkManager;
 import org.joml.Vector2i;
@@ -105,6 +113,10 @@ public class GameManager {
      * ShipCounter gui that is used during shooting phase.
      */
     private static ShipCounter shipCounter;
+    /**
+     * Text showing the connection quality during an online game, {@code null} if there is none.
+     */
+    private static ConnectionIndicator connectionIndicator;
     /**
      * ShipSelector gui that is used during ship placing phase.
      */
@@ -247,6 +259,8 @@ public class GameManager {
             }
             if (key == GLFW.GLFW_KEY_T && action == GLFW.GLFW_PRESS)
                 camera.turnCamera();
+            if (replayPlayer != null && action == GLFW.GLFW_PRESS)
+                replayPlayer.keyPressed(key);
             if (key == GLFW.GLFW_KEY_ESCAPE && action == GLFW.GLFW_PRESS) {
                 if (GameManager.getLogic().getGameState() != GameManager.MENU && !ESCMenu.isActive()) {
                     MainMenuManager.setMenu(new ESCMenu(guiManager, loader));
@@ -264,6 +278,10 @@ public class GameManager {
      * Will be set back to 0 after the answer has benn processed.
      */
     private static int pendingAnswer;
+    /**
+     * Player that shows a recorded match, {@code null} if no replay is shown.
+     */
+    private static ReplayPlayer replayPlayer;
 
     /**
      * Initialize the GameManager and all needed components.
@@ -271,24 +289,34 @@ public class GameManager {
      */
     public static void init() {
         WindowManager.initialize();
+        StartupProfiler.phase("window");
         loader = new Loader();
+        ResourceRegistry.init(loader);
         pirateFont = new FontType(loader.loadFontTexture("font/pirate.png"), "pirate");
+        StartupProfiler.phase("font");
         renderer = new MasterRenderer(loader);
         TextMaster.init(loader);
         guiManager = new GuiManager();
         guiRenderer = new GuiRenderer(loader);
+        StartupProfiler.phase("renderers");
         AudioMaster.init();
+        StartupProfiler.phase("audio");
         waterFbos = new WaterFrameBuffers();
         waterShader = new WaterShader();
         waterRenderer = new WaterRenderer(loader, waterShader, MasterRenderer.getProjectionMatrix(), waterFbos);
+        //the particle renderer is only created when the first particle is rendered
         ParticleMaster.init(loader, MasterRenderer.getProjectionMatrix());
         loading = true;
         blur = new Fbo(WindowManager.getWidth(), WindowManager.getHeight(), Fbo.DEPTH_RENDER_BUFFER);
         PostProcessing.init(loader);
+        StartupProfiler.phase("water and post processing");
         mainMenuManager = new MainMenuManager(guiManager, loader, waterFbos);
+        StartupProfiler.phase("menu");
         settings = new Settings();
+        StartupProfiler.phase("settings");
         logic = new LogicManager();
         network = new NetworkManager();
+        StartupProfiler.phase("logic");
     }
 
     /**
@@ -338,7 +366,8 @@ public class GameManager {
         prepareGame();
         if (shipCounter != null)
             shipCounter.remove();
-        shipSelector = new ShipSelector(loader, guiManager, shipManager, guis);
+        removeConnectionIndicator();
+        shipSelector = new ShipSelector(guiManager, shipManager, guis);
     }
 
     /**
@@ -348,7 +377,19 @@ public class GameManager {
     public static void startPlayPhase() {
         if (shipSelector != null)
             shipSelector.remove();
-        shipCounter = new ShipCounter(loader, guiManager, guis);
+        shipCounter = new ShipCounter(guiManager, guis);
+        removeConnectionIndicator();
+        if (settings.isOnline())
+            connectionIndicator = new ConnectionIndicator();
+    }
+
+    /**
+     * Removes the text showing the connection quality, if it is on screen.
+     */
+    private static void removeConnectionIndicator() {
+        if (connectionIndicator != null)
+            connectionIndicator.remove();
+        connectionIndicator = null;
     }
 
     /**
@@ -357,28 +398,28 @@ public class GameManager {
      */
     public static void loadIngameScene() {
         clearScene();
+        requestIngameAssets();
+        //the assets are decoded in parallel, they are uploaded between the frames of the loading screen
+        while (!AssetPipeline.processUploads(loader, AssetPipeline.FRAME_BUDGET))
+            WindowManager.updateLoadingScreen(AssetPipeline.getProgress());
+        WindowManager.updateLoadingScreen(1);
+        StartupProfiler.phase("scene assets");
         GuiGrid.loadTexture(loader);
-        WindowManager.updateLoadingScreen();
         disableSymbols = new DisableSymbols(loader, guiManager, guis);
         camera = new Camera();
         mousePicker = new MousePicker(camera, MasterRenderer.getProjectionMatrix());
         TerrainTexture texture1 = new TerrainTexture(loader.loadTexture("Path.jpg"));
-        WindowManager.updateLoadingScreen();
         TerrainTexture texture2 = new TerrainTexture(loader.loadTexture("Gravel.jpg"));
-        WindowManager.updateLoadingScreen();
         TerrainTexture texture3 = new TerrainTexture(loader.loadTexture("Grass.jpg"));
-        WindowManager.updateLoadingScreen();
         TerrainTexture texture4 = new TerrainTexture(loader.loadTexture("WetSand.jpg"));
-        WindowManager.updateLoadingScreen();
         TerrainTexture texture5 = new TerrainTexture(loader.loadTexture("Sand.jpg"));
-        WindowManager.updateLoadingScreen();
 
         TerrainTexturePack texturePack = new TerrainTexturePack(texture1, texture2, texture3, texture4, texture5);
 
         TerrainTexture blendMap = new TerrainTexture(loader.loadTexture("BlendMapLarge.tga"));
-        WindowManager.updateLoadingScreen();
 
         terrain = new Terrain(-0.25f, -0.75f, loader, texturePack, blendMap, "HeightMapLarge.jpg");
+        StartupProfiler.phase("terrain");
 
         light = new Light(new Vector3f(20000, 20000, 2000), new Vector3f(1, 1, 1));
 
@@ -393,9 +434,31 @@ public class GameManager {
 
         camera.setStandardPos();
         WindowManager.setCallbacks(camera, waterFbos);
+        AssetPipeline.clear();
+        StartupProfiler.phase("grids and water");
         loading = false;
     }
 
+    /**
+     * Starts decoding the textures, models, sounds and the terrain the ingame scene is created from,
+     * so they are ready when {@link #loadIngameScene()} needs them.
+     */
+    private static void requestIngameAssets() {
+        for (String texture : new String[]{"Path.jpg", "Gravel.jpg", "Grass.jpg", "WetSand.jpg", "Sand.jpg", "BlendMapLarge.tga",
+                "PlayingField.png", "DisableSymbolsWood.png", "transparentBlack.png", "cannonball.png", "particles/fire.png", "white.png", "red.png"}) {
+            AssetPipeline.requestTexture(texture);
+        }
+        for (String model : new String[]{"buoy", "cannonball"}) {
+            AssetPipeline.requestModel(model);
+        }
+        AssetPipeline.requestTerrain("HeightMapLarge.jpg");
+        //the sounds of cannons and fires are played by the thread of the cannonball, so they are loaded with the scene
+        for (String sound : CannonSounds.SOUNDFILES) {
+            AssetPipeline.requestSound(sound);
+        }
+        AssetPipeline.requestSound(Fire.SOUNDFILE);
+    }
+
     /**
      * Changes the size of the grids to the size in the settings.
      */
@@ -423,6 +486,7 @@ public class GameManager {
         gridManager.getCannonball().remove();
         gridManager.getMarkers().clear();
         gridManager.getShips().clear();
+        removeConnectionIndicator();
     }
 
     /**
@@ -534,8 +598,10 @@ public class GameManager {
         blur.updateSize();
         if (MainMenuManager.getMenu() instanceof ESCMenu && MainMenuManager.getMenu().isUserInputMade())
             ((ESCMenu) MainMenuManager.getMenu()).processInput();
-        if (GLFW.glfwGetKey(WindowManager.getWindow(), GLFW.GLFW_KEY_L) == GLFW.GLFW_PRESS)
+        if (replayPlayer == null && GLFW.glfwGetKey(WindowManager.getWindow(), GLFW.GLFW_KEY_L) == GLFW.GLFW_PRESS)
             logic.advanceTurn();
+        if (replayPlayer != null)
+            replayPlayer.update(WindowManager.getDeltaTime());
         camera.move(terrain);
         mousePicker.update();
         AudioMaster.setListenerData(camera.getPosition().x, camera.getPosition().y, camera.getPosition().z, camera.getPitch(), camera.getYaw());
@@ -559,6 +625,8 @@ public class GameManager {
         blur.bindFrameBuffer();
         PostProcessing.test(blur.getColorTexture());
         renderer.updateProjectionMatrix();
+        if (connectionIndicator != null)
+            connectionIndicator.update();
         if (settings.isOnline())
             network.execute();
         if (pendingAnswer != 0 && gridManager.getCannonball().isWaiting()) {
@@ -576,9 +644,14 @@ public class GameManager {
      * Needs to be called when the ingame scene isn't needed anymore.
      */
     public static void cleanUpIngameScene() {
+        logic.closeJournal();
         if (shipCounter != null)
             shipCounter.remove();
+        removeConnectionIndicator();
         disableSymbols.remove();
+        if (ResourceRegistry.isReportEnabled())
+            ResourceRegistry.printReport(System.out);
+        ResourceRegistry.releaseScene();
         AudioMaster.cleanUp();
         waterFbos.cleanUp();
         waterShader.cleanUp();
@@ -600,6 +673,8 @@ public class GameManager {
      * @return true if the shot can be made (no ball is currently flying and cell hasn't already been shot), false else.
      */
     public static boolean shoot(int originField, Vector2i destinationIndex) {
+        if (replayPlayer != null)
+            return false;
         if (originField == GridManager.OWNFIELD && !logic.isPlayerTurn() || originField == GridManager.OPPONENTFIELD && logic.isPlayerTurn()) {
             //System.out.println("\u001B[35m" + "Shot not allowed! Field: " + originField + " Turn: " + logic.isPlayerTurn());
             return false;
@@ -648,6 +723,39 @@ public class GameManager {
         gridManager.placeMarker(shipHit, index, field);
     }
 
+    /**
+     * Rebuilds the game from a snapshot after an online match was resumed.
+     * Grids, markers and fires are replaced by the state from the snapshot.
+     *
+     * @param snapshot Snapshot of the match.
+     */
+    public static void resumeGame(MatchSnapshot snapshot) {
+        logic.resume(snapshot);
+        gridManager.rebuildMarkers(logic.getPlayerGrid(), logic.getOpponentGrid());
+        if (logic.getGameState() == SHOOTING)
+            updateAliveShip();
+    }
+
+    /**
+     * Shows a recorded match instead of playing one. The grids are set up like a loaded game,
+     * but no shots can be made, the replay is controlled by the {@link ReplayPlayer}.
+     *
+     * @param replay Replay of the match.
+     */
+    public static void startReplay(MatchReplay replay) {
+        prepareGame();
+        logic.startReplay(replay);
+        resizeGrid();
+        replayPlayer = new ReplayPlayer(replay);
+    }
+
+    /**
+     * Stops showing the recorded match, call when exiting to main menu.
+     */
+    public static void stopReplay() {
+        replayPlayer = null;
+    }
+
     /**
      * Finishes the game and shows endscreen.
      *
@@ -656,8 +764,9 @@ public class GameManager {
     public static void finishGame(boolean won) {
         if (shipCounter != null)
             shipCounter.remove();
+        removeConnectionIndicator();
         FinishGame f = new FinishGame();
-        f.finishGame(loader, guiManager, won);
+        f.finishGame(guiManager, won);
     }
 
     /**
@@ -676,6 +785,13 @@ public class GameManager {
         disableSymbols.toggleSymbol(DisableSymbols.ANIMATION);
     }
 
+    /**
+     * @return Player that shows a recorded match, {@code null} if no replay is shown.
+     */
+    public static ReplayPlayer getReplayPlayer() {
+        return replayPlayer;
+    }
+
     /**
      * @return The main font this game uses.
      */
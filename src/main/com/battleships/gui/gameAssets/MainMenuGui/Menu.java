@@ -8,6 +8,10 @@ import com.battleships.gui.guis.GuiClickCallback;
 import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiTexture;
 import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
+import com.battleships.logic.MatchJournal;
+import com.battleships.logic.MatchReplay;
+import com.battleships.logic.SaveCatalog;
 import com.battleships.logic.SaveFile;
 import com.battleships.logic.SaveFileManager;
 import org.joml.Vector2f;
@@ -16,9 +20,12 @@ import org.lwjgl.util.tinyfd.TinyFileDialogs;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
 import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -43,6 +50,10 @@ public abstract class Menu extends GuiClickCallback {
      * Texture above all buttons
      */
     protected static int icon;
+    /**
+     * Textures of the knob and the bar of all {@link com.battleships.gui.guis.Slider}s in the menus
+     */
+    protected static int sliderTexture, sliderBarTexture;
     /**
      * Standard size for all buttons
      */
@@ -124,11 +135,15 @@ public abstract class Menu extends GuiClickCallback {
         else
             this.font = GameManager.getPirateFont();
         if (buttonTexture == 0)
-            buttonTexture = loader.loadTexture("WoodButton.png");
+            buttonTexture = ResourceRegistry.acquireTexture("WoodButton.png");
         if (scrollBackground == 0)
-            scrollBackground = loader.loadTexture("scroll.png");
+            scrollBackground = ResourceRegistry.acquireTexture("scroll.png");
         if (icon == 0)
-            icon = loader.loadTexture("StartIcon.png");
+            icon = ResourceRegistry.acquireTexture("StartIcon.png");
+        if (sliderTexture == 0)
+            sliderTexture = ResourceRegistry.acquireTexture("Slider.png");
+        if (sliderBarTexture == 0)
+            sliderBarTexture = ResourceRegistry.acquireTexture("WoodenSlider.jpg");
         if (backgrounds.size() == 0)
             addBackground();
         try {
@@ -222,7 +237,7 @@ public abstract class Menu extends GuiClickCallback {
      */
     protected void openLoadGameDialog() {
         try {
-            FileNameExtensionFilter xmlfilter = new FileNameExtensionFilter("xml files (*.xml)", "xml");
+            FileNameExtensionFilter xmlfilter = new FileNameExtensionFilter("save files (*.sav, *.xml, *.journal)", "sav", "xml", "journal");
             File filepath = new File(SaveFileManager.getJarPath() + "/SaveFiles/");
             fc.setCurrentDirectory(filepath);
             fc.setFileFilter(xmlfilter);
@@ -231,9 +246,35 @@ public abstract class Menu extends GuiClickCallback {
             e.printStackTrace();
         }
         fc.setDialogTitle("Select save file");
+        if (fc.getAccessory() == null) {
+            JLabel info = new JLabel();
+            info.setVerticalAlignment(SwingConstants.TOP);
+            info.setPreferredSize(new Dimension(180, 0));
+            fc.setAccessory(info);
+            fc.addPropertyChangeListener(JFileChooser.SELECTED_FILE_CHANGED_PROPERTY, e -> info.setText(describeSaveFile((File) e.getNewValue())));
+        }
         new Thread(new SaveFilePicker()).start();
     }
 
+    /**
+     * Creates a description of a save file from the {@link SaveCatalog}, without opening the file.
+     *
+     * @param file File that is selected in the file chooser.
+     * @return Description of the save file as html, empty if the file isn't a save file.
+     */
+    private static String describeSaveFile(File file) {
+        if (file == null || !file.getName().endsWith(SaveFileManager.SUFFIX) && !file.getName().endsWith(SaveFileManager.XMLSUFFIX))
+            return "";
+        SaveCatalog.Entry entry = SaveCatalog.get(file.getName().replace(SaveFileManager.SUFFIX, "").replace(SaveFileManager.XMLSUFFIX, ""));
+        if (entry == null)
+            return "<html>Damaged save file</html>";
+        return "<html>" + entry.getSize() + "x" + entry.getSize() + " vs " + entry.getOpponentType() +
+                "<br>" + (entry.getGameState() == GameManager.SHIPLACING ? "Placing ships" : "Round " + entry.getRounds() + (entry.isPlayerTurn() ? ", your turn" : "")) +
+                "<br>Ships left: " + entry.getPlayerShipsLeft() + " : " + entry.getOpponentShipsLeft() +
+                "<br>Played " + entry.getPlayTime() / 60 + " min" +
+                "<br>" + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(entry.getTime())) + "</html>";
+    }
+
     /**
      * Loads the selected file into the game
      *
@@ -241,8 +282,25 @@ public abstract class Menu extends GuiClickCallback {
      */
     public boolean processLoadedFile() {
         filePicked = false;
+        if (fileName != null && fileName.endsWith(MatchJournal.SUFFIX)) {
+            MatchReplay replay;
+            try {
+                replay = MatchReplay.open(new File(MatchJournal.getFolder(), fileName));
+            } catch (UnsupportedEncodingException e) {
+                e.printStackTrace();
+                replay = null;
+            }
+            if (replay == null) {
+                new Thread(new ErrorMessage("Error loading the replay", "Loading Error")).start();
+                return false;
+            }
+            clearMenu();
+            cleaBackgournd();
+            GameManager.startReplay(replay);
+            return true;
+        }
         if (fileName != null) {
-            String filename = fileName.replace(".xml", "");
+            String filename = fileName.replace(SaveFileManager.SUFFIX, "").replace(SaveFileManager.XMLSUFFIX, "");
             SaveFile saveFile = SaveFileManager.loadFromFile(filename);
             if (saveFile == null) {
                 new Thread(new ErrorMessage("Error loading the file", "Loading Error")).start();
@@ -327,6 +385,8 @@ public abstract class Menu extends GuiClickCallback {
             } catch (Exception e) {
                 System.err.println("Error: " + e.getMessage());
             }
+            //files that were added without the game are put into the catalog before the chooser shows them
+            SaveCatalog.sync();
             int result = fc.showOpenDialog(null);
             if (result == JFileChooser.APPROVE_OPTION){
                 fileName = fc.getName(fc.getSelectedFile());
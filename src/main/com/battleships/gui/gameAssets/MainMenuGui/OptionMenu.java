@@ -7,6 +7,7 @@ import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiTexture;
 import com.battleships.gui.guis.Slider;
 import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector2f;
 
 import java.util.ArrayList;
@@ -72,10 +73,10 @@ public class OptionMenu extends InGameSettingsMenu {
         initResolutions();
 
         if (woodBox == 0) {
-            woodBox = loader.loadTexture("ResSelector.png");
+            woodBox = ResourceRegistry.acquireTexture("ResSelector.png");
         }
 
-        volume = new Slider(loader.loadTexture("Slider.png"), loader.loadTexture("WoodenSlider.jpg"), 0, 100,
+        volume = new Slider(sliderTexture, sliderBarTexture, 0, 100,
                 (int) (GameManager.getSettings().getVolume() * 50), new Vector2f(0.2f, 0.01f), super.standardButtonPos, guiManager, GameManager.getGuis());
         super.guiTexts.add(new GUIText("Volume: " + (int) volume.getValueAsFloat(), fontSize, font, new Vector2f(volume.getPositions().x, volume.getPositions().y - 0.06f), 0.2f, true, outlineColor, 0.0f, 0.1f, outlineColor, new Vector2f()));
 
@@ -85,7 +85,7 @@ public class WaitingConnection extends Menu {
         if (saveFile != null) {
             GameManager.prepareGame();
             String s = MainMenuManager.getMenu().getFileName();
-            s = s.replace(".xml","");
+            s = s.replace(SaveFileManager.SUFFIX, "").replace(SaveFileManager.XMLSUFFIX, "");
             GameManager.getNetwork().sendLoad(s);
             SaveFileManager.loadSaveFile(saveFile);
         } else {
@@ -0,0 +1,187 @@
+package com.battleships.gui.gameAssets;
+
+import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.logic.Grid;
+import com.battleships.logic.LogicManager;
+import com.battleships.logic.MatchReplay;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Shows a recorded match ({@link MatchReplay}) on the grids of the game.
+ * The shots are applied in the logic of the replay, the markers and fires are then created by the {@link GridManager}
+ * once per frame, no matter how many shots were made in that frame. So the replay can run at any speed,
+ * skipping to any turn (or to the end) only needs to apply the shots after the nearest checkpoint.
+ * <p>
+ * Keys: space pauses, right/left arrow go one shot forward/back, page up/down double/halve the speed,
+ * home goes to the start and end to the end of the match.
+ *
+ * @author agent
+ */
+public class ReplayPlayer {
+
+    /**
+     * Shots per second when a replay is started.
+     */
+    public static final float DEFAULT_SPEED = 2;
+    /**
+     * Slowest and fastest speed in shots per second.
+     */
+    public static final float MIN_SPEED = 0.25f, MAX_SPEED = 1024;
+
+    /**
+     * Replay that is shown.
+     */
+    private MatchReplay replay;
+    /**
+     * Speed of the replay in shots per second.
+     */
+    private float speed = DEFAULT_SPEED;
+    /**
+     * Shots that are due but haven't been made yet, fractions are kept for the next frames.
+     */
+    private float due;
+    /**
+     * {@code true} if the replay is paused.
+     */
+    private boolean paused;
+    /**
+     * Grid of the player that is currently shown, if the replay replaces its grids all entities need to be created again.
+     */
+    private Grid shownGrid;
+
+    /**
+     * Creates a new replay player and shows the state the replay is currently at.
+     *
+     * @param replay Replay that should be shown.
+     */
+    public ReplayPlayer(MatchReplay replay) {
+        this.replay = replay;
+        show();
+    }
+
+    /**
+     * Makes all shots that are due in this frame and updates the grids once.
+     *
+     * @param delta Time since the last frame in seconds.
+     */
+    public void update(float delta) {
+        if (paused || replay.getShot() >= replay.getShotCount())
+            return;
+        due += delta * speed;
+        int steps = 0;
+        while (due >= 1) {
+            due--;
+            if (!replay.step()) {
+                due = 0;
+                break;
+            }
+            steps++;
+        }
+        if (steps > 0)
+            show();
+    }
+
+    /**
+     * Moves the replay to the state after a specific amount of shots.
+     *
+     * @param shot Amount of shots that should have been made.
+     */
+    public void seek(int shot) {
+        if (!replay.seek(shot))
+            System.err.println("Error while seeking in replay!");
+        due = 0;
+        show();
+    }
+
+    /**
+     * Shows the end of the match instantly.
+     */
+    public void skipToEnd() {
+        seek(replay.getShotCount());
+    }
+
+    /**
+     * Controls the replay with the keyboard.
+     *
+     * @param key Key that was pressed (constants in {@link GLFW}).
+     */
+    public void keyPressed(int key) {
+        switch (key) {
+            case GLFW.GLFW_KEY_SPACE:
+                paused = !paused;
+                break;
+            case GLFW.GLFW_KEY_RIGHT:
+                if (replay.step())
+                    show();
+                break;
+            case GLFW.GLFW_KEY_LEFT:
+                seek(replay.getShot() - 1);
+                break;
+            case GLFW.GLFW_KEY_PAGE_UP:
+                speed = Math.min(MAX_SPEED, speed * 2);
+                break;
+            case GLFW.GLFW_KEY_PAGE_DOWN:
+                speed = Math.max(MIN_SPEED, speed / 2);
+                break;
+            case GLFW.GLFW_KEY_HOME:
+                seek(0);
+                break;
+            case GLFW.GLFW_KEY_END:
+                skipToEnd();
+        }
+    }
+
+    /**
+     * Gives the grids of the replay to the logic and updates markers, fires and ship counts.
+     * Ships are only placed again if the replay has replaced its grids (after seeking).
+     */
+    private void show() {
+        LogicManager logic = GameManager.getLogic();
+        GridManager gridManager = GameManager.getGridManager();
+        logic.setPlayerGrid(replay.getPlayerGrid());
+        logic.setOpponentGrid(replay.getOpponentGrid());
+        logic.getTurnHandler().setPlayerTurn(replay.isPlayerTurn());
+        if (replay.getPlayerGrid() != shownGrid) {
+            shownGrid = replay.getPlayerGrid();
+            gridManager.rebuildEntities(replay.getPlayerGrid(), replay.getOpponentGrid());
+        } else {
+            gridManager.rebuildMarkers(replay.getPlayerGrid(), replay.getOpponentGrid());
+        }
+        GameManager.updateAliveShip();
+    }
+
+    /**
+     * @return Replay that is shown.
+     */
+    public MatchReplay getReplay() {
+        return replay;
+    }
+
+    /**
+     * @return Speed of the replay in shots per second.
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @param speed Speed of the replay in shots per second.
+     */
+    public void setSpeed(float speed) {
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    /**
+     * @return {@code true} if the replay is paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @param paused {@code true} if the replay should be paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+}
@@ -1,7 +1,8 @@
 package com.battleships.gui.gameAssets.grids;
 
-import com.battleships.gui.audio.AudioMaster;
 import com.battleships.gui.audio.Source;
+import com.battleships.gui.renderingEngine.AssetPipeline;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector3f;
 
 /**
@@ -17,6 +18,11 @@ public class CannonSounds {
      */
     public static final int CANNONSOUND = 0, WATERSPLASH = 1, HITSOUND = 2;
 
+    /**
+     * Names of the sound files, read in the background by the {@link AssetPipeline} while the scene is loaded.
+     */
+    public static final String[] SOUNDFILES = {"Cannon", "WaterSplash2", "HitSoundShort"};
+
     /**
      * Source that can play the sound of a firing cannon.
      */
@@ -24,7 +30,7 @@ public class CannonSounds {
     /**
      * SoundBuffer of the cannonSound.
      */
-    private int cannonSound = AudioMaster.loadSound("Cannon");
+    private int cannonSound = ResourceRegistry.acquireSound(SOUNDFILES[CANNONSOUND]);
     /**
      * Source for playing either waterSplashSound or hitSound on cannonball impact.
      */
@@ -32,11 +38,11 @@ public class CannonSounds {
     /**
      * SoundBuffer for a waterSplash.
      */
-    private int waterSplashSound = AudioMaster.loadSound("WaterSplash2");
+    private int waterSplashSound = ResourceRegistry.acquireSound(SOUNDFILES[WATERSPLASH]);
     /**
      * SoundBuffer for a sound of a cannonball hitting a ship.
      */
-    private int hitSound = AudioMaster.loadSound("HitSoundShort");
+    private int hitSound = ResourceRegistry.acquireSound(SOUNDFILES[HITSOUND]);
 
     /**
      * Plays the specified sound at a position.
@@ -295,7 +295,9 @@ public class Cannonball extends Entity implements Runnable {
      * Removes the cannonball from the scene by moving under the terrain.
      */
     public void remove() {
-        super.getPosition().y = -1000;
+        Vector3f position = super.getPosition();
+        position.y = -1000;
+        super.setPosition(position);
     }
 
     /**
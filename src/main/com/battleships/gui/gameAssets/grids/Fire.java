@@ -1,10 +1,10 @@
 package com.battleships.gui.gameAssets.grids;
 
-import com.battleships.gui.audio.AudioMaster;
 import com.battleships.gui.audio.Source;
 import com.battleships.gui.particles.ParticleSystemComplex;
 import com.battleships.gui.particles.ParticleTexture;
-import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.AssetPipeline;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
@@ -16,18 +16,21 @@ import org.joml.Vector3f;
  */
 public class Fire extends ParticleSystemComplex {
 
+    /**
+     * Name of the sound file of a fire, read in the background by the {@link AssetPipeline} while the scene is loaded.
+     */
+    public static final String SOUNDFILE = "fire";
+
     /**
      * Sound of a fire.
      */
-    private int fireSound = AudioMaster.loadSound("fire");
+    private int fireSound = ResourceRegistry.acquireSound(SOUNDFILE);
 
     /**
      * Create new fire particle system.
-     *
-     * @param loader Loader to load texture.
      */
-    public Fire(Loader loader) {
-        super(new ParticleTexture(loader.loadTexture("particles/fire.png"), 8, true), 20, 3.5f, -0.05f, 2f, 17);
+    public Fire() {
+        super(new ParticleTexture(ResourceRegistry.acquireTexture("particles/fire.png"), 8, true), 20, 3.5f, -0.05f, 2f, 17);
         super.setLifeError(0.3f);
         super.setScaleError(0.3f);
         super.setSpeedError(0.15f);
@@ -5,6 +5,10 @@ import com.battleships.gui.entities.Entity;
 import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.renderingEngine.Loader;
 import com.battleships.gui.renderingEngine.MasterRenderer;
+import com.battleships.logic.Cell;
+import com.battleships.logic.Grid;
+import com.battleships.logic.OnlineGrid;
+import com.battleships.logic.Ship;
 import org.joml.Vector2f;
 import org.joml.Vector2i;
 import org.joml.Vector3f;
@@ -114,11 +118,11 @@ public class GridManager {
         initializeGrids(loader, size);
         highlighter = new Highlighter(loader, scale / (size + 1), this);
         cannonball = new Cannonball(loader, this);
-        fire = new Fire(loader);
+        fire = new Fire();
         shipManager = new ShipManager(loader, this);
         cannonSound = new CannonSounds();
         GridMaths.setGridManager(this);
-        Marker.createModels(loader);
+        Marker.createModels();
     }
 
     /**
@@ -153,7 +157,10 @@ public class GridManager {
     public void resizeGrid(Loader loader, int size) {
         initializeGrids(loader, size);
         shipManager.setGridSize(size);
+        Highlighter old = highlighter;
         highlighter = new Highlighter(loader, scale / (size + 1), this);
+        //delete the old highlighter after the new one was created, so their texture stays loaded
+        old.delete(loader);
     }
 
     /**
@@ -290,6 +297,80 @@ public class GridManager {
         markers.add(new Marker(ship ? 1 : 0, new Vector2f(index.x, index.y), grid));
     }
 
+    /**
+     * Removes all markers and fires and places them again for every cell that has been shot, in one pass over both grids.
+     * Needed after an online match was resumed from a snapshot, the ships keep their entities.
+     *
+     * @param own      Grid of the player.
+     * @param opponent Grid of the opponent.
+     */
+    public void rebuildMarkers(Grid own, Grid opponent) {
+        rebuild(own, opponent, false);
+    }
+
+    /**
+     * Creates all entities of a game from the grids, in one pass over both grids: the ships of the player,
+     * markers for every cell that has been shot and fires for every part of a ship of the player that has been hit.
+     * Needed after a game was loaded from a save file, because save files only contain the state of the logic.
+     *
+     * @param own      Grid of the player.
+     * @param opponent Grid of the opponent.
+     */
+    public void rebuildEntities(Grid own, Grid opponent) {
+        ships.clear();
+        rebuild(own, opponent, true);
+    }
+
+    /**
+     * Removes all markers and fires and places them again for every cell that has been shot, in one pass over both grids.
+     *
+     * @param own        Grid of the player.
+     * @param opponent   Grid of the opponent.
+     * @param placeShips {@code true} if entities should be created for all ships of the player that don't have one.
+     */
+    private void rebuild(Grid own, Grid opponent, boolean placeShips) {
+        markers.clear();
+        burningFires.clear();
+        for (List<Source> sounds : burningFireSounds.values()) {
+            for (Source s : sounds) {
+                s.delete();
+            }
+        }
+        burningFireSounds.clear();
+        //parts of sunk ships on an online grid are marked as shot, they are only known from the ship on the cell that sunk it
+        boolean[][] shipOnCell = new boolean[opponent.getSize()][opponent.getSize()];
+        for (int x = 1; x <= opponent.getSize(); x++) {
+            for (int y = 1; y <= opponent.getSize(); y++) {
+                Ship ship = opponent.getCell(x, y).ship;
+                if (ship == null)
+                    continue;
+                for (Cell c : ship.getOccupiedCells()) {
+                    shipOnCell[c.x][c.y] = true;
+                }
+            }
+        }
+        for (int x = 1; x <= own.getSize(); x++) {
+            for (int y = 1; y <= own.getSize(); y++) {
+                Vector2i index = new Vector2i(x, y);
+                Cell c = own.getCell(x, y);
+                if (placeShips && c.ship != null && c.ship.getGuiShip() == null) {
+                    //cell.x is the row and cell.y the column of the cell
+                    Cell stern = c.ship.getOccupiedCells().get(0);
+                    c.ship.setGuiShip(placeShip(new Vector2i(stern.y + 1, stern.x + 1), c.ship.getSize(), c.ship.getDirection(), OWNFIELD));
+                }
+                if (c.state == Grid.SHOT && c.ship != null)
+                    playFireEffect(GridMaths.convertIndextoCoords(new Vector2f(index), ownGrid), index);
+                else if (c.state == Grid.SHOT)
+                    placeMarker(false, index, OWNFIELD);
+                Cell o = opponent.getCell(x, y);
+                if (o.state == Grid.SHOT)
+                    placeMarker(shipOnCell[y - 1][x - 1], index, OPPONENTFIELD);
+                else if (o.state == OnlineGrid.ONLINESHIP || o.state == OnlineGrid.SHIPPROCESSED)
+                    placeMarker(true, index, OPPONENTFIELD);
+            }
+        }
+    }
+
     /**
      * Initialize the {@link GuiGrid}s of this GridManager.
      * One for the player and one for the opponent.
@@ -409,15 +490,6 @@ public class GridManager {
         return ships;
     }
 
-    /**
-     * Set the List for all ships on the players grid (when loading a game).
-     *
-     * @param ships List containing all Entities for the ships on the players grid.
-     */
-    public void setShips(List<Entity> ships) {
-        this.ships = ships;
-    }
-
     /**
      * @return List containing positions of all Fires on the grid grouped by the ships they are on.
      */
@@ -425,15 +497,6 @@ public class GridManager {
         return burningFires;
     }
 
-    /**
-     * Set the fires on the players grid (when loading a game).
-     *
-     * @param burningFires List containing new positions for the fires grouped by ships they are on.
-     */
-    public void setBurningFires(Map<Entity, List<Vector3f>> burningFires) {
-        this.burningFires = burningFires;
-    }
-
     /**
      * @return List containing positions of all Firesounds on the grid grouped by the ships they are on.
      */
@@ -441,15 +504,6 @@ public class GridManager {
         return burningFireSounds;
     }
 
-    /**
-     * Set the firesounds on the players grid (when loading a game).
-     *
-     * @param burningFireSounds List containing new positions for the firesounds grouped by ships they are on.
-     */
-    public void setBurningFireSounds(Map<Entity, List<Source>> burningFireSounds) {
-        this.burningFireSounds = burningFireSounds;
-    }
-
     /**
      * @return List containing Entities for all markers on the grids.
      */
@@ -457,15 +511,6 @@ public class GridManager {
         return markers;
     }
 
-    /**
-     * Set List containing Entities for the markers on the grids (when loading a game).
-     *
-     * @param markers List containing new entities for the markers.
-     */
-    public void setMarkers(List<Entity> markers) {
-        this.markers = markers;
-    }
-
     /**
      * @return The cannonball of this gridManager.
      */
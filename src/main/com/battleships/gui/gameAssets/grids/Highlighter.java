@@ -4,6 +4,7 @@ import com.battleships.gui.entities.Entity;
 import com.battleships.gui.models.ModelTexture;
 import com.battleships.gui.models.TexturedModel;
 import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector2f;
 import org.joml.Vector2i;
 import org.joml.Vector3f;
@@ -58,18 +59,30 @@ public class Highlighter extends Entity {
      * @param gridManager GridManager this highlighter is on.
      */
     public Highlighter(Loader loader, float scale, GridManager gridManager) {
-        super(new TexturedModel(loader.loadToVAO(VERTICES, TEXTURECOORDS, NORMALS, INDICES), new ModelTexture(loader.loadTexture(highlightTexturePath))),
+        super(new TexturedModel(loader.loadToVAO(VERTICES, TEXTURECOORDS, NORMALS, INDICES), new ModelTexture(ResourceRegistry.acquireTexture(highlightTexturePath))),
                 new Vector3f(), new Vector3f(-90, 0, 0), scale);
         this.gridManager = gridManager;
         remove();
     }
 
+    /**
+     * Deletes the model of this highlighter and releases its texture, call when the highlighter is replaced.
+     *
+     * @param loader Loader the highlighter was created with.
+     */
+    public void delete(Loader loader) {
+        loader.deleteVAO(getModel().getRawModel().getVaoID());
+        ResourceRegistry.release(ResourceRegistry.TEXTURE, highlightTexturePath);
+    }
+
     /**
      * Removes the highlighter by moving it under the terrain.
      * Used when the mouse isn't pointing at a cell.
      */
     private void remove() {
-        super.getPosition().y = -1000;
+        Vector3f position = super.getPosition();
+        position.y = -1000;
+        super.setPosition(position);
     }
 
     /**
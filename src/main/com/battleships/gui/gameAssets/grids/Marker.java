@@ -2,9 +2,9 @@ package com.battleships.gui.gameAssets.grids;
 
 import com.battleships.gui.entities.Entity;
 import com.battleships.gui.models.ModelTexture;
+import com.battleships.gui.models.RawModel;
 import com.battleships.gui.models.TexturedModel;
-import com.battleships.gui.renderingEngine.Loader;
-import com.battleships.gui.renderingEngine.OBJLoader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
@@ -54,14 +54,14 @@ public class Marker extends Entity {
 
     /**
      * Create the TexturedModel for the two marker types.
-     *
-     * @param loader Loader to load textures and models.
      */
-    public static void createModels(Loader loader) {
-        ModelTexture white = new ModelTexture(loader.loadTexture("white.png"));
-        ModelTexture red = new ModelTexture(loader.loadTexture("red.png"));
-        buoyModelWhite = new TexturedModel(OBJLoader.loadObjModel(buoyModelOBJ), white);
-        buoyModelRed = new TexturedModel(OBJLoader.loadObjModel(buoyModelOBJ), red);
+    public static void createModels() {
+        ModelTexture white = new ModelTexture(ResourceRegistry.acquireTexture("white.png"));
+        ModelTexture red = new ModelTexture(ResourceRegistry.acquireTexture("red.png"));
+        //both markers use the same model, only the texture is different
+        RawModel buoy = ResourceRegistry.acquireModel(buoyModelOBJ);
+        buoyModelWhite = new TexturedModel(buoy, white);
+        buoyModelRed = new TexturedModel(buoy, red);
     }
 
     /**
@@ -32,9 +32,18 @@ public class ShipManager {
     private static final Vector3f RED = new Vector3f(1, 0, 0);
     private static final float MIXPERCENTAGE = 0.5f;
     /**
-     * Array containing all the models for the different ship sizes.
+     * Names of the .obj files and textures of the models for the different ship sizes.
+     */
+    private static final String[] SHIPMODELS = {"ship2", "ship3", "ship4", "ship5new"};
+    private static final String[] SHIPTEXTURES = {"ship2.tga", "ship3.jpg", "ship4.tga", "ship5.jpg"};
+    /**
+     * Array containing all the models for the different ship sizes, a model is {@code null} until it is needed the first time.
      */
     private TexturedModel[] ships;
+    /**
+     * Loader the models of the ships are loaded with.
+     */
+    private Loader loader;
 
     /**
      * GridManager this ShipManager should place the ships with.
@@ -73,11 +82,20 @@ public class ShipManager {
         cursorShipAttached = false;
         this.gridManager = gridManager;
         gridSize = gridManager.getSize();
-        ships = new TexturedModel[4];
-        ships[0] = (loader.loadModelFromOBJ("ship2", "ship2.tga", 10, 1));
-        ships[1] = (loader.loadModelFromOBJ("ship3", "ship3.jpg", 10, 1));
-        ships[2] = (loader.loadModelFromOBJ("ship4", "ship4.tga", 10, 1));
-        ships[3] = (loader.loadModelFromOBJ("ship5new", "ship5.jpg", 10, 1));
+        this.loader = loader;
+        ships = new TexturedModel[SHIPMODELS.length];
+    }
+
+    /**
+     * Gets the model for a ship size, the model is loaded when it is needed the first time.
+     *
+     * @param size Size of the ship.
+     * @return The model of the ship.
+     */
+    private TexturedModel getShipModel(int size) {
+        if (ships[size - 2] == null)
+            ships[size - 2] = loader.loadModelFromOBJ(SHIPMODELS[size - 2], SHIPTEXTURES[size - 2], 10, 1);
+        return ships[size - 2];
     }
 
     /**
@@ -90,7 +108,7 @@ public class ShipManager {
      * @return Entity for a new ship with the specified size, position, rotation and scale.
      */
     public Entity placeShip(int size, Vector3f position, Vector3f rotation, float scale) {
-        return new Entity(ships[size - 2], position, rotation, scale);
+        return new Entity(getShipModel(size), position, rotation, scale);
     }
 
     /**
@@ -101,7 +119,7 @@ public class ShipManager {
     public void stickShipToCursor(int shipSize) {
         cursorShipSize = shipSize;
         cursorShipDirection = NORTH;
-        cursorShip = new Entity(ships[shipSize - 2], new Vector3f(), new Vector3f(), 1f);
+        cursorShip = new Entity(getShipModel(shipSize), new Vector3f(), new Vector3f(), 1f);
         cursorShipAttached = true;
     }
 
@@ -190,7 +208,9 @@ public class ShipManager {
             return;
         cursorShipDirection++;
         cursorShipDirection %= 4;
-        cursorShip.getRotation().y = GridMaths.calculateShipRotation(cursorShipDirection);
+        Vector3f rotation = cursorShip.getRotation();
+        rotation.y = GridMaths.calculateShipRotation(cursorShipDirection);
+        cursorShip.setRotation(rotation);
     }
 
     /**
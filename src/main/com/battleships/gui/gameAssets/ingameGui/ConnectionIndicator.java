@@ -0,0 +1,73 @@
+package com.battleships.gui.gameAssets.ingameGui;
+
+import com.battleships.gui.fontMeshCreator.GUIText;
+import com.battleships.gui.fontRendering.TextMaster;
+import com.battleships.gui.gameAssets.GameManager;
+import com.battleships.network.ConnectionQuality;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+
+/**
+ * Text in the top left corner during an online game, that shows the round trip time and jitter of the connection.
+ *
+ * @author agent
+ */
+public class ConnectionIndicator {
+
+    /**
+     * Time in milliseconds between two updates of the text.
+     */
+    private static final long UPDATE_INTERVAL = 500;
+    /**
+     * Color of the text.
+     */
+    private static final Vector3f GREY = new Vector3f(0.2f, 0.2f, 0.2f);
+
+    /**
+     * Text showing the connection quality.
+     */
+    private GUIText text;
+    /**
+     * String the text currently shows.
+     */
+    private String shown = "RTT - ms";
+    /**
+     * Time at which the text was updated last in milliseconds.
+     */
+    private long lastUpdate;
+
+    /**
+     * Creates the text showing the connection quality.
+     */
+    public ConnectionIndicator() {
+        text = new GUIText(shown, 1.5f, GameManager.getPirateFont(), new Vector2f(0.1f, 0.03f), 0.2f, true, GREY, 0, 0.1f, GREY, new Vector2f());
+    }
+
+    /**
+     * Updates the text with the current connection quality, but only every {@link #UPDATE_INTERVAL} milliseconds
+     * and only if the text has changed, because every change needs a new text mesh.
+     */
+    public void update() {
+        long time = System.currentTimeMillis();
+        if (time - lastUpdate < UPDATE_INTERVAL)
+            return;
+        lastUpdate = time;
+        ConnectionQuality quality = GameManager.getNetwork().getConnectionQuality();
+        if (quality == null)
+            return;
+        String s = quality.toString();
+        if (s.equals(shown))
+            return;
+        shown = s;
+        text.remove();
+        text.setTextString(s);
+        TextMaster.loadText(text);
+    }
+
+    /**
+     * Removes the text from the screen.
+     */
+    public void remove() {
+        text.remove();
+    }
+}
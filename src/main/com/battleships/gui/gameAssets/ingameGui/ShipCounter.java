@@ -6,7 +6,7 @@ import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.guis.GuiClickCallback;
 import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiTexture;
-import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
@@ -41,6 +41,10 @@ public class ShipCounter extends GuiClickCallback implements Runnable {
      * {@code true} if the shipCounter is currently visible, {@code false} if it's hidden.
      */
     private boolean visible = true;
+    /**
+     * {@code true} if this gui has been removed and its textures have been released.
+     */
+    private boolean removed;
     /**
      * GuiTexture for the Counter.
      */
@@ -73,17 +77,16 @@ public class ShipCounter extends GuiClickCallback implements Runnable {
     /**
      * Creates the gui, that shows the amount of enemy ships left.
      *
-     * @param loader     Loader to load textures.
      * @param guiManager Manager to handle gui's with click action
      * @param guis       List of guis, this one should be added to. This list needs to be
      *                   passed to a renderer, for this gui to show on the screen.
      */
-    public ShipCounter(Loader loader, GuiManager guiManager, List<GuiTexture> guis) {
+    public ShipCounter(GuiManager guiManager, List<GuiTexture> guis) {
         this.guiManager = guiManager;
         this.guis = guis;
-        gui = new GuiTexture(loader.loadTexture(texture), new Vector2f(0.5f, 0.15f));
+        gui = new GuiTexture(ResourceRegistry.acquireTexture(texture), new Vector2f(0.5f, 0.15f));
         guis.add(gui);
-        hideButton = new GuiTexture(loader.loadTexture(hider), new Vector2f(gui.getPositions().x + gui.getScale().x / 2 + 0.02f, 0.05f));
+        hideButton = new GuiTexture(ResourceRegistry.acquireTexture(hider), new Vector2f(gui.getPositions().x + gui.getScale().x / 2 + 0.02f, 0.05f));
         hideButton.getScale().x /= 2;
         hideButton.getScale().y /= 2;
         guis.add(hideButton);
@@ -170,5 +173,10 @@ public class ShipCounter extends GuiClickCallback implements Runnable {
         guis.remove(hideButton);
         for (GUIText t : texts)
             t.remove();
+        if (!removed) {
+            ResourceRegistry.release(ResourceRegistry.TEXTURE, texture);
+            ResourceRegistry.release(ResourceRegistry.TEXTURE, hider);
+        }
+        removed = true;
     }
 }
@@ -8,7 +8,7 @@ import com.battleships.gui.gameAssets.grids.ShipManager;
 import com.battleships.gui.guis.GuiClickCallback;
 import com.battleships.gui.guis.GuiManager;
 import com.battleships.gui.guis.GuiTexture;
-import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import com.battleships.logic.ShipAmountLoader;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -37,6 +37,11 @@ public class ShipSelector extends GuiClickCallback {
      * Color of the outline of all {@link GUIText}s oon this UI.
      */
     private static final Vector2f OUTLINEOFFSET = new Vector2f();
+    /**
+     * Textures of the background and the buttons.
+     */
+    private static final String[] TEXTURES = {"IngameGuiShipSelectBackground.png", "IngameGuiShipSelectShip1.png", "IngameGuiShipSelectShip2.png",
+            "IngameGuiShipSelectShip3.png", "IngameGuiShipSelectShip4.png", "deleteIcon.png", "randomizeIcon.png", "confirmIcon.png"};
 
     /**
      * Array containing the GuiTextures for all clickable elements of this UI.
@@ -78,6 +83,10 @@ public class ShipSelector extends GuiClickCallback {
      * {@code true} if this gui is currently hidden.
      */
     private boolean hidden;
+    /**
+     * {@code true} if this gui has been removed and its textures have been released.
+     */
+    private boolean removed;
 
     /**
      * Ship counts for the current grid size, so counts that show ships left to place can be reset to values of beginning.
@@ -87,31 +96,30 @@ public class ShipSelector extends GuiClickCallback {
     /**
      * Create the gui used for ship selecting.
      *
-     * @param loader      Loader needed to load textures.
      * @param guiManager  GuiManager needed to link click functions to the gui elements.
      * @param shipManager ShipManager of the current game, needed for the click functions.
      * @param guis        List of guis this gui should be saved to, this list needs to be rendered later to show this gui
      *                    on screen.
      */
-    public ShipSelector(Loader loader, GuiManager guiManager, ShipManager shipManager, List<GuiTexture> guis) {
+    public ShipSelector(GuiManager guiManager, ShipManager shipManager, List<GuiTexture> guis) {
         this.guiManager = guiManager;
         this.guis = guis;
         this.shipManager = shipManager;
         shipManager.setShipSelector(this);
-        background = new GuiTexture(loader.loadTexture("IngameGuiShipSelectBackground.png"), new Vector2f(0.5f, 0));
+        background = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[0]), new Vector2f(0.5f, 0));
         float space = 0.053125f;
         background.getPositions().y = 1 - background.getScale().y / 2;
-        GuiTexture ship1 = new GuiTexture(loader.loadTexture("IngameGuiShipSelectShip1.png"), new Vector2f(0, background.getPositions().y - 0.0204f));
+        GuiTexture ship1 = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[1]), new Vector2f(0, background.getPositions().y - 0.0204f));
         ship1.getPositions().x = background.getPositions().x - 1.5f * space - 1.5f * ship1.getScale().x;
-        GuiTexture ship2 = new GuiTexture(loader.loadTexture("IngameGuiShipSelectShip2.png"), new Vector2f(0, background.getPositions().y - 0.0204f));
+        GuiTexture ship2 = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[2]), new Vector2f(0, background.getPositions().y - 0.0204f));
         ship2.getPositions().x = background.getPositions().x - 0.5f * space - 0.5f * ship2.getScale().x;
-        GuiTexture ship3 = new GuiTexture(loader.loadTexture("IngameGuiShipSelectShip3.png"), new Vector2f(0, background.getPositions().y - 0.0204f));
+        GuiTexture ship3 = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[3]), new Vector2f(0, background.getPositions().y - 0.0204f));
         ship3.getPositions().x = background.getPositions().x + 0.5f * space + 0.5f * ship3.getScale().x;
-        GuiTexture ship4 = new GuiTexture(loader.loadTexture("IngameGuiShipSelectShip4.png"), new Vector2f(0, background.getPositions().y - 0.0204f));
+        GuiTexture ship4 = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[4]), new Vector2f(0, background.getPositions().y - 0.0204f));
         ship4.getPositions().x = background.getPositions().x + 1.5f * space + 1.5f * ship4.getScale().x;
-        GuiTexture delete = new GuiTexture(loader.loadTexture("deleteIcon.png"), new Vector2f(0.08f, 0.9f), new Vector2f(0.05f, 0.09f));
-        GuiTexture random = new GuiTexture(loader.loadTexture("randomizeIcon.png"), new Vector2f(0.08f, 0.78f), new Vector2f(0.05f, 0.09f));
-        GuiTexture confirm = new GuiTexture(loader.loadTexture("confirmIcon.png"), new Vector2f(0.08f, 0.66f), new Vector2f(0.05f, 0.09f));
+        GuiTexture delete = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[5]), new Vector2f(0.08f, 0.9f), new Vector2f(0.05f, 0.09f));
+        GuiTexture random = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[6]), new Vector2f(0.08f, 0.78f), new Vector2f(0.05f, 0.09f));
+        GuiTexture confirm = new GuiTexture(ResourceRegistry.acquireTexture(TEXTURES[7]), new Vector2f(0.08f, 0.66f), new Vector2f(0.05f, 0.09f));
         guis.add(background);
         buttons[0] = ship1;
         buttons[1] = ship2;
@@ -273,6 +281,11 @@ public class ShipSelector extends GuiClickCallback {
         }
         for (GUIText t : shipCountTexts)
             t.remove();
+        if (!removed) {
+            for (String texture : TEXTURES)
+                ResourceRegistry.release(ResourceRegistry.TEXTURE, texture);
+        }
+        removed = true;
     }
 
     /**
@@ -3,24 +3,33 @@ package com.battleships.gui.main;
 import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.MainMenuGui.MainMenuManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.gui.renderingEngine.ResourceRegistry;
 import com.battleships.gui.window.WindowManager;
 import org.lwjgl.glfw.GLFW;
 
+import java.util.Arrays;
+
 public class Main {
 
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains(StartupProfiler.FLAG))
+            StartupProfiler.enable();
+        WindowManager.setPrintStats(Arrays.asList(args).contains(WindowManager.RENDERSTATSFLAG));
+        ResourceRegistry.setReportEnabled(Arrays.asList(args).contains(ResourceRegistry.REPORTFLAG));
         GameManager.init();
 
         while (!GLFW.glfwWindowShouldClose(WindowManager.getWindow())) {
             if (GameManager.getLoading()) {
 
                 WindowManager.createLoadingScreen();
+                StartupProfiler.phase("loading screen");
 
                 GameManager.loadIngameScene();
                 GameManager.getGuis().clear();
                 GridManager.setIsBackground(true);
                 WindowManager.clearCallbacks();
                 MainMenuManager.LoadMainMenu();
+                StartupProfiler.phase("main menu");
 
                 WindowManager.destroyLoadingScreen();
                 continue;
@@ -30,6 +39,7 @@ public class Main {
             else
                 GameManager.updateScene();
             WindowManager.updateWindow();
+            StartupProfiler.finish();
 
         }
         GameManager.cleanUpIngameScene();
@@ -0,0 +1,75 @@
+package com.battleships.gui.main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long the phases of the start of the game take, until the first frame the user can interact with is shown.
+ * Only enabled if the game is started with {@value #FLAG}, the phases are printed when the first frame is shown.
+ *
+ * @author agent
+ */
+public class StartupProfiler {
+
+    /**
+     * Argument that enables the profiler.
+     */
+    public static final String FLAG = "--startup-profile";
+
+    /**
+     * {@code true} if the phases are measured.
+     */
+    private static boolean enabled;
+    /**
+     * Time the profiler was enabled and time the last phase ended at in nanoseconds.
+     */
+    private static long start, last;
+    /**
+     * Names of the measured phases.
+     */
+    private static List<String> phases = new ArrayList<>();
+    /**
+     * Durations of the measured phases in nanoseconds.
+     */
+    private static List<Long> durations = new ArrayList<>();
+
+    /**
+     * Starts measuring, the first phase starts now.
+     */
+    public static void enable() {
+        enabled = true;
+        start = System.nanoTime();
+        last = start;
+    }
+
+    /**
+     * Ends the current phase and starts the next one, does nothing if the profiler isn't enabled.
+     *
+     * @param name Name of the phase that ended.
+     */
+    public static void phase(String name) {
+        if (!enabled)
+            return;
+        long now = System.nanoTime();
+        phases.add(name);
+        durations.add(now - last);
+        last = now;
+    }
+
+    /**
+     * Ends the last phase when the first interactive frame was shown and prints all phases.
+     * Does nothing if the profiler isn't enabled or the phases have already been printed.
+     */
+    public static void finish() {
+        if (!enabled)
+            return;
+        phase("first frame");
+        enabled = false;
+        long total = last - start;
+        System.out.println("Startup profile:");
+        for (int i = 0; i < phases.size(); i++) {
+            System.out.printf("  %-28s %8.1f ms %5.1f %%%n", phases.get(i), durations.get(i) / 1e6, 100.0 * durations.get(i) / total);
+        }
+        System.out.printf("  %-28s %8.1f ms%n", "time to first frame", total / 1e6);
+    }
+}
@@ -0,0 +1,69 @@
+package com.battleships.gui.models;
+
+/**
+ * Class containing all the data read from an .obj file needed to create a {@link RawModel}.
+ *
+ * @author agent
+ */
+public class ModelData {
+
+    /**
+     * Positions of the vertices (x, y, z per vertex).
+     */
+    private float[] positions;
+    /**
+     * Texture coordinates of the vertices (u, v per vertex).
+     */
+    private float[] textureCoords;
+    /**
+     * Normals of the vertices (x, y, z per vertex).
+     */
+    private float[] normals;
+    /**
+     * Indices of the vertices, three per triangle.
+     */
+    private int[] indices;
+
+    /**
+     * Create a new ModelData for a model.
+     *
+     * @param positions     Positions of the vertices (x, y, z per vertex).
+     * @param textureCoords Texture coordinates of the vertices (u, v per vertex).
+     * @param normals       Normals of the vertices (x, y, z per vertex).
+     * @param indices       Indices of the vertices, three per triangle.
+     */
+    public ModelData(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        this.positions = positions;
+        this.textureCoords = textureCoords;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    /**
+     * @return Positions of the vertices (x, y, z per vertex).
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return Texture coordinates of the vertices (u, v per vertex).
+     */
+    public float[] getTextureCoords() {
+        return textureCoords;
+    }
+
+    /**
+     * @return Normals of the vertices (x, y, z per vertex).
+     */
+    public float[] getNormals() {
+        return normals;
+    }
+
+    /**
+     * @return Indices of the vertices, three per triangle.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+}
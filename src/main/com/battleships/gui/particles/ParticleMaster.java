@@ -19,18 +19,26 @@ public class ParticleMaster {
      */
     private static Map<ParticleTexture, List<Particle>> particles = new HashMap<>();
     /**
-     * Renderer that handles rendering.
+     * Renderer that handles rendering, {@code null} until the first particle is rendered.
      */
     private static ParticleRenderer renderer;
+    /**
+     * Loader and projectionMatrix the renderer is created with.
+     */
+    private static Loader loader;
+    private static Matrix4f projectionMatrix;
 
     /**
      * Initialize particle system.
+     * The ParticleRenderer (and its shader) is only created when the first particle is rendered,
+     * so it doesn't delay the start of the game.
      *
      * @param loader           loader to pass to ParticleRenderer
      * @param projectionMatrix projectionMatrix to pass to ParticleRenderer
      */
     public static void init(Loader loader, Matrix4f projectionMatrix) {
-        renderer = new ParticleRenderer(loader, projectionMatrix);
+        ParticleMaster.loader = loader;
+        ParticleMaster.projectionMatrix = projectionMatrix;
     }
 
     /**
@@ -72,6 +80,10 @@ public class ParticleMaster {
      * @param mode   mode to use for rendering 1 = add color of particles, 771 = render particles over each other
      */
     public static void renderParticles(Camera camera, int mode) {
+        if (particles.isEmpty())
+            return;
+        if (renderer == null)
+            renderer = new ParticleRenderer(loader, projectionMatrix);
         renderer.render(particles, camera);
     }
 
@@ -80,7 +92,9 @@ public class ParticleMaster {
      * Needs to be called on program exit.
      */
     public static void cleanUp() {
-        renderer.cleanUp();
+        if (renderer != null)
+            renderer.cleanUp();
+        renderer = null;
     }
 
     /**
@@ -0,0 +1,315 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.audio.AudioMaster;
+import com.battleships.gui.audio.WaveData;
+import com.battleships.gui.models.RawModel;
+import com.battleships.gui.terrains.Terrain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads the assets of a scene in parallel.
+ * <p>
+ * Requested assets are decoded by a pool of worker threads (images into mip chains from the {@link TextureCache},
+ * .obj files and terrains into meshes from the {@link MeshCache}, .wav files into samples), no OpenGL or OpenAL is used
+ * by the workers.
+ * The OpenGL thread then uploads the decoded assets with {@link #processUploads(Loader, long)}, which only uploads as
+ * many assets as fit into the time it is given, so the loading screen can be rendered between the uploads.
+ * The uploaded assets are taken by {@link Loader#loadTexture(String)}, {@link OBJLoader#loadObjModel(String, Loader)},
+ * {@link ResourceRegistry#acquireSound(String)} and the terrain instead of loading them again, every asset is only
+ * taken once.
+ *
+ * @author agent
+ */
+public class AssetPipeline {
+
+    /**
+     * Time in nanoseconds the OpenGL thread uploads assets before the loading screen is rendered again.
+     */
+    public static final long FRAME_BUDGET = 8_000_000L;
+    /**
+     * Amount of threads decoding assets, one core is left for the OpenGL thread.
+     */
+    public static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    /**
+     * Types of assets.
+     */
+    public static final int TEXTURE = 0, MODEL = 1, TERRAIN = 2, SOUND = 3;
+
+    /**
+     * Threads decoding the assets, {@code null} if no assets were requested yet.
+     */
+    private static ExecutorService decoders;
+    /**
+     * Assets that are decoded or being decoded but haven't been uploaded yet, in the order they were requested.
+     */
+    private static List<Asset> pending = new ArrayList<>();
+    /**
+     * Uploaded textures by their file name.
+     */
+    private static Map<String, Integer> textures = new HashMap<>();
+    /**
+     * Uploaded models by their file name.
+     */
+    private static Map<String, RawModel> models = new HashMap<>();
+    /**
+     * Loaded models of terrains by the file name of their height map.
+     */
+    private static Map<String, MeshCache.Mesh> terrains = new HashMap<>();
+    /**
+     * Uploaded sounds by their file name.
+     */
+    private static Map<String, Integer> sounds = new HashMap<>();
+    /**
+     * Amount of assets that were requested and that are finished (uploaded or failed) since the last {@link #clear()}.
+     */
+    private static int requested, finished;
+
+    /**
+     * Starts decoding a texture.
+     *
+     * @param fileName Path to the image, as it is given to {@link Loader#loadTexture(String)}.
+     */
+    public static void requestTexture(String fileName) {
+        request(TEXTURE, fileName);
+    }
+
+    /**
+     * Starts loading a model from its .obj file or the {@link MeshCache}.
+     *
+     * @param fileName Path to the .obj file, as it is given to {@link OBJLoader#loadObjModel(String, Loader)}.
+     */
+    public static void requestModel(String fileName) {
+        request(MODEL, fileName);
+    }
+
+    /**
+     * Starts loading the model of a terrain from the {@link MeshCache} or generating it from its height map.
+     *
+     * @param fileName Path to the height map in the textures folder.
+     */
+    public static void requestTerrain(String fileName) {
+        request(TERRAIN, fileName);
+    }
+
+    /**
+     * Starts reading a sound file.
+     *
+     * @param fileName Name of the sound file, as it is given to {@link ResourceRegistry#acquireSound(String)}.
+     */
+    public static void requestSound(String fileName) {
+        request(SOUND, fileName);
+    }
+
+    /**
+     * Gives an asset to the decoders.
+     *
+     * @param type     Type of the asset.
+     * @param fileName Path to the asset.
+     */
+    private static void request(int type, String fileName) {
+        if (decoders == null) {
+            decoders = Executors.newFixedThreadPool(THREADS, r -> {
+                Thread thread = new Thread(r, "AssetDecoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Future<Object> decoded = decoders.submit(() -> decode(type, fileName));
+        pending.add(new Asset(type, fileName, decoded));
+        requested++;
+    }
+
+    /**
+     * Decodes an asset, runs on a decoder thread.
+     *
+     * @param type     Type of the asset.
+     * @param fileName Path to the asset.
+     * @return The decoded asset.
+     */
+    private static Object decode(int type, String fileName) {
+        switch (type) {
+            case TEXTURE:
+                return TextureLoader.loadMipChain(fileName, true);
+            case MODEL:
+                return OBJLoader.loadMesh(fileName);
+            case SOUND:
+                return AudioMaster.decodeSound(fileName);
+            default:
+                return Terrain.loadMesh(fileName);
+        }
+    }
+
+    /**
+     * Uploads decoded assets, needs to be called by the OpenGL thread.
+     * Assets are uploaded in the order they were decoded until the time runs out, if no asset is decoded yet
+     * this waits for the next one at most until the time runs out.
+     *
+     * @param loader Loader the textures and models are created with.
+     * @param budget Time in nanoseconds that can be used.
+     * @return {@code true} if all requested assets have been uploaded.
+     */
+    public static boolean processUploads(Loader loader, long budget) {
+        long end = System.nanoTime() + budget;
+        while (!pending.isEmpty() && System.nanoTime() < end) {
+            Asset next = null;
+            for (Iterator<Asset> iterator = pending.iterator(); iterator.hasNext(); ) {
+                Asset asset = iterator.next();
+                if (asset.decoded.isDone()) {
+                    iterator.remove();
+                    next = asset;
+                    break;
+                }
+            }
+            if (next == null) {
+                //nothing is decoded yet, wait for the asset that was requested first
+                try {
+                    pending.get(0).decoded.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return false;
+                } catch (InterruptedException | ExecutionException e) {
+                    //failed assets are handled when they are uploaded
+                }
+                continue;
+            }
+            upload(loader, next);
+            finished++;
+        }
+        return pending.isEmpty();
+    }
+
+    /**
+     * Uploads one decoded asset.
+     * Assets that couldn't be decoded are skipped, they are then loaded again when they are needed, which shows the error.
+     *
+     * @param loader Loader the textures and models are created with.
+     * @param asset  The decoded asset.
+     */
+    private static void upload(Loader loader, Asset asset) {
+        Object decoded;
+        try {
+            decoded = asset.decoded.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Error while decoding " + asset.fileName + "!");
+            e.printStackTrace();
+            return;
+        }
+        switch (asset.type) {
+            case TEXTURE:
+                textures.put(asset.fileName, loader.uploadTexture((TextureCache.MipChain) decoded));
+                break;
+            case MODEL:
+                MeshCache.Mesh mesh = (MeshCache.Mesh) decoded;
+                models.put(asset.fileName, loader.loadToVAO(mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), mesh.getIndices()));
+                break;
+            case SOUND:
+                if (decoded != null)
+                    sounds.put(asset.fileName, AudioMaster.loadSound((WaveData) decoded));
+                break;
+            default:
+                //terrains are uploaded by the terrain, which also needs the heights of the model
+                terrains.put(asset.fileName, (MeshCache.Mesh) decoded);
+        }
+    }
+
+    /**
+     * @param fileName Path to the image, as it is given to {@link Loader#loadTexture(String)}.
+     * @return ID of the uploaded texture, {@code null} if it wasn't requested or was already taken.
+     */
+    static Integer takeTexture(String fileName) {
+        return textures.remove(fileName);
+    }
+
+    /**
+     * @param fileName Path to the .obj file, as it is given to {@link OBJLoader#loadObjModel(String, Loader)}.
+     * @return The uploaded model, {@code null} if it wasn't requested or was already taken.
+     */
+    static RawModel takeModel(String fileName) {
+        return models.remove(fileName);
+    }
+
+    /**
+     * @param fileName Name of the sound file, as it is given to {@link ResourceRegistry#acquireSound(String)}.
+     * @return ID of the buffer containing the uploaded sound, {@code null} if it wasn't requested or was already taken.
+     */
+    static Integer takeSound(String fileName) {
+        return sounds.remove(fileName);
+    }
+
+    /**
+     * @param fileName Path to the height map in the textures folder.
+     * @return The model of the terrain, {@code null} if it wasn't requested or was already taken.
+     */
+    public static MeshCache.Mesh takeTerrain(String fileName) {
+        return terrains.remove(fileName);
+    }
+
+    /**
+     * @return Part of the requested assets that has been uploaded (0-1), 1 if nothing was requested.
+     */
+    public static float getProgress() {
+        return requested == 0 ? 1 : (float) finished / requested;
+    }
+
+    /**
+     * Forgets all assets that weren't taken and stops the decoder threads, call after loading is done.
+     * Textures and models that weren't taken stay loaded and are deleted by the {@link Loader} they were created with,
+     * sounds by the {@link AudioMaster}.
+     */
+    public static void clear() {
+        for (Asset asset : pending) {
+            asset.decoded.cancel(false);
+        }
+        pending.clear();
+        textures.clear();
+        models.clear();
+        terrains.clear();
+        sounds.clear();
+        requested = 0;
+        finished = 0;
+        if (decoders != null)
+            decoders.shutdown();
+        decoders = null;
+    }
+
+    /**
+     * An asset that is being decoded.
+     */
+    private static class Asset {
+        /**
+         * Type of the asset.
+         */
+        private int type;
+        /**
+         * Path to the asset.
+         */
+        private String fileName;
+        /**
+         * The decoded asset, once it's done.
+         */
+        private Future<Object> decoded;
+
+        /**
+         * Creates a new asset that is being decoded.
+         *
+         * @param type     Type of the asset.
+         * @param fileName Path to the asset.
+         * @param decoded  The decoded asset, once it's done.
+         */
+        public Asset(int type, String fileName, Future<Object> decoded) {
+            this.type = type;
+            this.fileName = fileName;
+            this.decoded = decoded;
+        }
+    }
+}
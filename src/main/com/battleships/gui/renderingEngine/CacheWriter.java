@@ -0,0 +1,165 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.fontMeshCreator.MetaFile;
+import com.battleships.gui.shaders.ShaderCache;
+import com.battleships.logic.SaveWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Writes the files of the asset caches ({@link MeshCache}, {@link TextureCache}, {@link ShaderCache} and the compiled
+ * fonts of the {@link MetaFile}) on a background thread.
+ * <p>
+ * Cache files can always be created again, so they are written on a best effort basis, unlike saves which are
+ * written by the {@link SaveWriter}: files aren't forced to the disk, and if more than {@value #MAX_QUEUED_BYTES} bytes
+ * are waiting to be written, the file is dropped and created again the next time the asset is loaded.
+ * Every file is written to a temporary file first and then renamed, so a broken file is never read.
+ * The thread is a daemon, files that weren't written when the game is closed are dropped as well.
+ *
+ * @author agent
+ */
+public class CacheWriter {
+
+    /**
+     * Maximum amount of bytes waiting to be written, files that would exceed it are dropped.
+     */
+    public static final long MAX_QUEUED_BYTES = 64L * 1024 * 1024;
+    /**
+     * Suffix of the temporary file a cache file is written to before it is renamed.
+     */
+    public static final String TEMPSUFFIX = ".tmp";
+
+    /**
+     * Thread that writes the files.
+     */
+    private static ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "CacheWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Amount of bytes waiting to be written.
+     */
+    private static AtomicLong queuedBytes = new AtomicLong();
+    /**
+     * Amount of files that were written.
+     */
+    private static AtomicInteger written = new AtomicInteger();
+    /**
+     * Amount of files that were dropped, because too many bytes were waiting.
+     */
+    private static AtomicInteger dropped = new AtomicInteger();
+
+    /**
+     * Writes a cache file in the background, the file is dropped if too many bytes are waiting to be written.
+     *
+     * @param file File that should be written.
+     * @param data Content of the file from its position to its limit, mustn't be changed afterwards.
+     */
+    public static void write(File file, ByteBuffer data) {
+        write(file, data, null);
+    }
+
+    /**
+     * Writes a cache file in the background and runs a task after it was written.
+     * The file is dropped if too many bytes are waiting to be written.
+     *
+     * @param file    File that should be written.
+     * @param data    Content of the file from its position to its limit, mustn't be changed afterwards.
+     * @param written Task that is run on the writing thread after the file was written successfully, can be {@code null}.
+     */
+    public static void write(File file, ByteBuffer data, Runnable written) {
+        write(file, data.remaining(), () -> data, written);
+    }
+
+    /**
+     * Writes a cache file in the background, whose content is only created by the writing thread (for example because
+     * it needs to be compressed first), and runs a task after it was written.
+     * The file is dropped if too many bytes are waiting to be written.
+     *
+     * @param file    File that should be written.
+     * @param size    Amount of memory the data uses while it is waiting to be written.
+     * @param data    Creates the content of the file from its position to its limit, if it returns {@code null} the file
+     *                isn't written.
+     * @param written Task that is run on the writing thread after the file was written successfully, can be {@code null}.
+     */
+    public static void write(File file, long size, Supplier<ByteBuffer> data, Runnable written) {
+        long queued = queuedBytes.addAndGet(size);
+        if (queued > MAX_QUEUED_BYTES && queued != size) {
+            //a single file bigger than the limit is still written if nothing else is waiting
+            queuedBytes.addAndGet(-size);
+            dropped.incrementAndGet();
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                ByteBuffer content = data.get();
+                if (content != null)
+                    writeFile(file, content, written);
+            } finally {
+                queuedBytes.addAndGet(-size);
+            }
+        });
+    }
+
+    /**
+     * Writes a file to a temporary file and renames it to the real file.
+     *
+     * @param file    File that should be written.
+     * @param data    Content of the file.
+     * @param written Task that is run after the file was written, can be {@code null}.
+     */
+    private static void writeFile(File file, ByteBuffer data, Runnable written) {
+        Path target = file.toPath();
+        Path temp = new File(file.getPath() + TEMPSUFFIX).toPath();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            CacheWriter.written.incrementAndGet();
+            if (written != null)
+                written.run();
+        } catch (IOException e) {
+            System.err.println("Error while trying to write cache file " + file.getName() + "!");
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * @return Amount of files that were written.
+     */
+    public static int getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return Amount of files that were dropped, because too many bytes were waiting to be written.
+     */
+    public static int getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,102 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.entities.Entity;
+import com.battleships.gui.models.ModelTexture;
+import com.battleships.gui.models.RawModel;
+import com.battleships.gui.models.TexturedModel;
+import org.joml.Vector3f;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that rendering entities doesn't allocate anything per frame.
+ * <p>
+ * Runs the part of rendering entities that doesn't need OpenGL, like the {@link MasterRenderer} does it every frame:
+ * all entities are grouped by their model ({@link EntityBatches}) and their data is written into the buffer of the
+ * {@link EntityRenderer} ({@link EntityRenderer#storeInstances(List, int)}) in each of the three passes (reflection,
+ * refraction and the scene). Some of the entities are moved every frame, so their transformation matrices are
+ * calculated again. After warming up, the bytes allocated by the thread are measured over many frames.
+ * Exits with 1 if anything was allocated.
+ * <p>
+ * Usage: {@code EntityAllocationCheck [entities] [models] [frames]}
+ *
+ * @author agent
+ */
+public class EntityAllocationCheck {
+
+    /**
+     * Amount of render passes per frame.
+     */
+    private static final int PASSES = 3;
+    /**
+     * Every n-th entity is moved every frame.
+     */
+    private static final int MOVING = 10;
+
+    /**
+     * Start the check from the command line.
+     *
+     * @param args Command line arguments.
+     */
+    public static void main(String[] args) {
+        int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int modelCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.err.println("Measuring allocations isn't supported by this JVM!");
+            System.exit(2);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        //models only need IDs, nothing is uploaded
+        List<TexturedModel> models = new ArrayList<>();
+        for (int i = 0; i < modelCount; i++)
+            models.add(new TexturedModel(new RawModel(i + 1, 36), new ModelTexture(i + 1)));
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < entityCount; i++)
+            entities.add(new Entity(models.get(i % modelCount), new Vector3f(i, 0, -i), new Vector3f(0, i, 0), 1));
+        EntityBatches batches = new EntityBatches();
+
+        //warm up, so the measured frames run compiled code
+        for (int i = 0; i < frames; i++)
+            renderFrame(entities, batches);
+        long before = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            renderFrame(entities, batches);
+        long time = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        System.out.printf("%d entities, %d models, %d passes: %.1f bytes and %.1f us per frame%n", entityCount, modelCount,
+                PASSES, (double) allocated / frames, time / 1e3 / frames);
+        if (allocated > 0) {
+            System.err.println("Rendering entities allocates " + allocated + " bytes in " + frames + " frames!");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the part of rendering a frame that doesn't need OpenGL.
+     *
+     * @param entities All entities of the scene.
+     * @param batches  Batches the entities are grouped into.
+     */
+    private static void renderFrame(List<Entity> entities, EntityBatches batches) {
+        for (int i = 0; i < entities.size(); i += MOVING)
+            entities.get(i).increaseRotation(0, 1, 0);
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < entities.size(); i++)
+                batches.add(entities.get(i));
+            List<TexturedModel> models = batches.getModels();
+            for (int m = 0; m < models.size(); m++) {
+                List<Entity> batch = batches.getEntities().get(models.get(m));
+                for (int start = 0; start < batch.size(); start += EntityRenderer.storeInstances(batch, start)) ;
+            }
+            batches.clear();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.entities.Entity;
+import com.battleships.gui.models.TexturedModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entities that get rendered next, grouped by their {@link TexturedModel}, so all entities of one model can be
+ * rendered with one draw call by the {@link EntityRenderer}.
+ * The lists of the models are kept between frames, so adding the entities of a scene doesn't allocate anything
+ * once every model was rendered once.
+ *
+ * @author agent
+ */
+class EntityBatches {
+
+    /**
+     * Map containing all entities that get rendered next, grouped by their TexturedModels.
+     */
+    private Map<TexturedModel, List<Entity>> entities = new HashMap<>();
+    /**
+     * All TexturedModels that have a list in entities, so the lists can be iterated without creating an iterator every frame.
+     */
+    private List<TexturedModel> models = new ArrayList<>();
+
+    /**
+     * Add one entity to the list of its TexturedModel.
+     *
+     * @param entity Entity that should be added.
+     */
+    void add(Entity entity) {
+        TexturedModel entityModel = entity.getModel();
+        List<Entity> batch = entities.get(entityModel);
+
+        //if a list with the texturedModel of the entity already exists add entity to that list
+        //else create new list for the texturedModel of the entity
+        if (batch != null) {
+            batch.add(entity);
+        } else {
+            List<Entity> newBatch = new ArrayList<>();
+            newBatch.add(entity);
+            entities.put(entityModel, newBatch);
+            models.add(entityModel);
+        }
+    }
+
+    /**
+     * Removes all entities after they were rendered.
+     * The lists of the models that were rendered are kept, so they don't need to be created again next frame,
+     * the lists of models that weren't rendered are removed.
+     */
+    void clear() {
+        for (int i = models.size() - 1; i >= 0; i--) {
+            List<Entity> batch = entities.get(models.get(i));
+            if (batch.isEmpty())
+                entities.remove(models.remove(i));
+            else
+                batch.clear();
+        }
+    }
+
+    /**
+     * @return All TexturedModels that have a list, the list can be empty.
+     */
+    List<TexturedModel> getModels() {
+        return models;
+    }
+
+    /**
+     * @return All entities that get rendered next, grouped by their TexturedModels.
+     */
+    Map<TexturedModel, List<Entity>> getEntities() {
+        return entities;
+    }
+}
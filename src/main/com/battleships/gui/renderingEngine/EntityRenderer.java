@@ -5,37 +5,80 @@ import com.battleships.gui.models.ModelTexture;
 import com.battleships.gui.models.RawModel;
 import com.battleships.gui.models.TexturedModel;
 import com.battleships.gui.shaders.StaticShader;
-import com.battleships.gui.toolbox.Maths;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
 
+import java.nio.FloatBuffer;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Renderer used for rendering {@link Entity}.
  * Uses a {@link StaticShader}.
+ * All entities using the same {@link TexturedModel} are rendered with one instanced draw call, the data of each entity
+ * (transformation matrix, mix color and texture offset) is stored in a vbo that is added to the vao of the model as
+ * instanced attributes, like the {@link com.battleships.gui.particles.ParticleRenderer} does it.
  *
  * @author Tim Staudenmaier
  */
 public class EntityRenderer {
 
+    /**
+     * Maximum amount of entities that are rendered with one draw call, bigger batches are split.
+     */
+    private static final int MAX_INSTANCES = 10000;
+    /**
+     * Amount of floats per entity: transformation matrix (16), mix color and percentage (4) and texture offset (2).
+     */
+    private static final int INSTANCE_DATA_LENGTH = 22;
+    /**
+     * First attribute of the instanced data, the attributes before contain the positions, textureCoords and normals.
+     */
+    private static final int FIRST_INSTANCE_ATTRIBUTE = 3;
+    /**
+     * Last attribute of the instanced data.
+     */
+    private static final int LAST_INSTANCE_ATTRIBUTE = 8;
+
+    /**
+     * Buffer the data of the entities is written to before it's added to the vbo.
+     */
+    private static final FloatBuffer buffer = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
+
     /**
      * Shader used by this renderer.
      */
     private StaticShader shader;
+    /**
+     * Loader used to add the data of the entities to the vbo.
+     */
+    private Loader loader;
+    /**
+     * Vbo containing the data of the entities of the current draw call.
+     */
+    private int vbo;
+    /**
+     * Draw calls and rendered entities since the statistics were reset the last time.
+     */
+    private static int drawCalls, instances;
 
     /**
      * Create a new renderer-
      *
      * @param shader           A StaticShader for this renderer.
      * @param projectionMatrix The current projectionMatrix of the window.
+     * @param loader           Loader to create the vbo for the data of the entities.
      */
-    public EntityRenderer(StaticShader shader, Matrix4f projectionMatrix) {
+    public EntityRenderer(StaticShader shader, Matrix4f projectionMatrix, Loader loader) {
         this.shader = shader;
+        this.loader = loader;
+        this.vbo = loader.createEmptyVbo(INSTANCE_DATA_LENGTH * MAX_INSTANCES);
 
         shader.start();
         shader.loadProjectionMatrix(projectionMatrix);
@@ -46,20 +89,27 @@ public class EntityRenderer {
      * Renders all Entities in the given has Map. Entities are grouped by their TexturedModel
      * for faster rendering, because models with the same texture get rendered together.
      *
+     * @param models   All TexturedModels that have a list in entities.
      * @param entities HashMap containing all Entities that should be rendered grouped by their TexturedModels.
      */
-    public void render(Map<TexturedModel, List<Entity>> entities) {
+    public void render(List<TexturedModel> models, Map<TexturedModel, List<Entity>> entities) {
         shader.loadProjectionMatrix(MasterRenderer.getProjectionMatrix());
-        //prepare each textured model, then prepare each entity that uses this texturedModel and render that entity
-        //only needs to load each model and texture once even if it's used multiple times
-        //only entities need to be loaded one by one to get their transformationMatrix
+        //prepare each textured model, then write the data of all entities that use this texturedModel into the vbo
+        //and render all of them with one draw call
         //after rendering all entities of one texturedModel unbind that model
-        for (TexturedModel model : entities.keySet()) {
-            prepareTexturedModel(model);
+        //iterate with indices, so rendering doesn't allocate anything
+        for (int m = 0; m < models.size(); m++) {
+            TexturedModel model = models.get(m);
             List<Entity> batch = entities.get(model);
-            for (Entity entity : batch) {
-                prepareInstance(entity);
-                GL11.glDrawElements(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+            if (batch.isEmpty())
+                continue;
+            prepareTexturedModel(model);
+            for (int start = 0; start < batch.size(); start += MAX_INSTANCES) {
+                int count = storeInstances(batch, start);
+                loader.updateVbo(vbo, buffer);
+                GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0, count);
+                drawCalls++;
+                instances += count;
             }
             unbindTexturedModel();
         }
@@ -73,10 +123,20 @@ public class EntityRenderer {
      */
     private void prepareTexturedModel(TexturedModel texturedModel) {
         RawModel model = texturedModel.getRawModel();
+        //point the instanced attributes of the vao to the vbo, only once per vao (the loader forgets deleted vaos, whose IDs can be reused)
+        if (!loader.hasInstancedAttributes(model.getVaoID(), vbo)) {
+            for (int i = FIRST_INSTANCE_ATTRIBUTE; i <= LAST_INSTANCE_ATTRIBUTE; i++) {
+                //4 floats per attribute (the matrix takes 4 attributes), only the texture offset has 2
+                int size = i == LAST_INSTANCE_ATTRIBUTE ? 2 : 4;
+                loader.addInstancedAttribute(model.getVaoID(), vbo, i, size, INSTANCE_DATA_LENGTH, 4 * (i - FIRST_INSTANCE_ATTRIBUTE));
+            }
+        }
         GL30.glBindVertexArray(model.getVaoID()); //bind vaos of model to be loaded
         GL20.glEnableVertexAttribArray(0); //enable vao at index 0 (positions)
         GL20.glEnableVertexAttribArray(1);//enable vao at index 1 (textureCoords)
         GL20.glEnableVertexAttribArray(2);//enable vao at index 2 (normals)
+        for (int i = FIRST_INSTANCE_ATTRIBUTE; i <= LAST_INSTANCE_ATTRIBUTE; i++)
+            GL20.glEnableVertexAttribArray(i); //enable instanced data
         ModelTexture texture = texturedModel.getTexture();
         shader.loadNumberOfRows(texture.getNumberOfRows());
         if (texture.isHasTransparency()) { //Render backside of faces for transparent models
@@ -98,20 +158,62 @@ public class EntityRenderer {
         GL20.glDisableVertexAttribArray(0); //disable position vao
         GL20.glDisableVertexAttribArray(1); //disable textureCoords vao
         GL20.glDisableVertexAttribArray(2); //disable normals vao
+        for (int i = FIRST_INSTANCE_ATTRIBUTE; i <= LAST_INSTANCE_ATTRIBUTE; i++)
+            GL20.glDisableVertexAttribArray(i); //disable instanced data
         GL30.glBindVertexArray(0); //unbind vaos
     }
 
     /**
-     * Prepare the shader to render a specific Entity.
+     * Write the data of the entities of the next draw call into the buffer.
+     * Doesn't use OpenGL, so it can be checked by the {@link EntityAllocationCheck}.
+     *
+     * @param batch All entities using the same TexturedModel.
+     * @param start Index of the first entity of the next draw call.
+     * @return Amount of entities written to the buffer (at most {@value #MAX_INSTANCES}).
+     */
+    static int storeInstances(List<Entity> batch, int start) {
+        int count = Math.min(MAX_INSTANCES, batch.size() - start);
+        buffer.clear();
+        for (int i = start; i < start + count; i++)
+            storeInstance(batch.get(i));
+        buffer.flip();
+        return count;
+    }
+
+    /**
+     * Write the data of a specific Entity into the buffer.
      *
      * @param entity The entity that should get rendered next.
      */
-    private void prepareInstance(Entity entity) {
-        //create transfMatrix with current position rotation and scale of entity
-        Matrix4f transformationMatrix = Maths.createTransformationMatrix(entity.getPosition(), entity.getRotation(), entity.getScale());
-        shader.loadMixColor(entity.getAdditionalColor(), entity.getAdditionalColorPercentage());
-        shader.loadTransformationMatrix(transformationMatrix); //pass transfMatrix to shader
-        shader.loadOffset(entity.getTextureXOffset(), entity.getTextureYOffset());
+    private static void storeInstance(Entity entity) {
+        //transfMatrix is only calculated again if position, rotation or scale of the entity changed
+        entity.getTransformationMatrix().get(buffer.position(), buffer);
+        buffer.position(buffer.position() + 16);
+        Vector3f mixColor = entity.getAdditionalColor();
+        buffer.put(mixColor.x).put(mixColor.y).put(mixColor.z).put(entity.getAdditionalColorPercentage());
+        buffer.put(entity.getTextureXOffset()).put(entity.getTextureYOffset());
+    }
+
+    /**
+     * @return Amount of draw calls for entities since the last reset.
+     */
+    public static int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return Amount of rendered entities since the last reset (amount of draw calls without instancing).
+     */
+    public static int getInstances() {
+        return instances;
+    }
+
+    /**
+     * Resets the amount of draw calls and rendered entities.
+     */
+    public static void resetStatistics() {
+        drawCalls = 0;
+        instances = 0;
     }
 
 }
@@ -3,7 +3,6 @@ package com.battleships.gui.renderingEngine;
 import com.battleships.gui.entities.Entity;
 import com.battleships.gui.models.ModelTexture;
 import com.battleships.gui.models.RawModel;
-import com.battleships.gui.models.TextureData;
 import com.battleships.gui.models.TexturedModel;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.*;
@@ -11,7 +10,9 @@ import org.lwjgl.opengl.*;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Loader for loading any image to a texture and for loading and creating vbos, vaos, {@link RawModel}s and {@link Entity}.
@@ -33,6 +34,14 @@ public class Loader {
      * List of all currently loaded textures.
      */
     private List<Integer> textures = new ArrayList<>();
+    /**
+     * The vbos that store the data of each vao, by the ID of the vao.
+     */
+    private Map<Integer, List<Integer>> vaoBuffers = new HashMap<>();
+    /**
+     * The vbo the instanced attributes of each vao point to, by the ID of the vao.
+     */
+    private Map<Integer, Integer> instancedVbos = new HashMap<>();
 
     /**
      * Create empty vbo.
@@ -50,6 +59,20 @@ public class Loader {
         return vbo;
     }
 
+    /**
+     * Adds data to a vbo, all data that was in that vbo before is lost.
+     * The vbo is orphaned first, so the data of the last draw call can still be used by OpenGL while the new data is written.
+     *
+     * @param vbo    vbo the data should be added to
+     * @param buffer buffer containing the data from its position to its limit, needs to have the capacity the vbo was created with
+     */
+    public void updateVbo(int vbo, FloatBuffer buffer) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer.capacity() * 4L, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, buffer);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
     /**
      * Adds data to a vbo, all data that was in that vbo before is lost.
      *
@@ -93,6 +116,18 @@ public class Loader {
         //unbind vao and vbo
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
         GL30.glBindVertexArray(0);
+        instancedVbos.put(vao, vbo);
+    }
+
+    /**
+     * @param vao ID of a vao.
+     * @param vbo ID of a vbo.
+     * @return {@code true} if instanced attributes pointing to the vbo were added to the vao with
+     * {@link #addInstancedAttribute(int, int, int, int, int, int)}, {@code false} if the vao was deleted since then.
+     */
+    public boolean hasInstancedAttributes(int vao, int vbo) {
+        Integer instanced = instancedVbos.get(vao);
+        return instanced != null && instanced == vbo;
     }
 
     /**
@@ -105,13 +140,27 @@ public class Loader {
      * @return A {@link RawModel} containing all the loaded data for the model.
      */
     public RawModel loadToVAO(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        return loadToVAO(storeDataInFloatBuffer(positions), storeDataInFloatBuffer(textureCoords), storeDataInFloatBuffer(normals), storeDataInIntBuffer(indices));
+    }
+
+    /**
+     * Create a vao for a 3D object from buffers containing the data for the vertices in that vao.
+     * The buffers need to be direct buffers in native byte order, e.g. views on a mapped file from the {@link MeshCache}.
+     *
+     * @param positions     Positions of all vertices (x,y,z).
+     * @param textureCoords TextureCorrds of all vertices (x,y).
+     * @param normals       Normals of all vertices (x,y,z)
+     * @param indices       Indices indicating the order in which the vertices are connected.
+     * @return A {@link RawModel} containing all the loaded data for the model.
+     */
+    public RawModel loadToVAO(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals, IntBuffer indices) {
         int vaoID = createVAO();
         bindIndicesBuffer(indices);
         storeDataInAttributeList(0, 3, positions);
         storeDataInAttributeList(1, 2, textureCoords);
         storeDataInAttributeList(2, 3, normals);
         unbindVAO();
-        return new RawModel(vaoID, indices.length); //3 coords per vertex
+        return new RawModel(vaoID, indices.remaining()); //3 coords per vertex
     }
 
     /**
@@ -150,33 +199,36 @@ public class Loader {
      * @return ID of the loaded texture.
      */
     public int loadFontTexture(String fileName) {
-        ModelTexture texture = TextureLoader.loadPNGTexture(fileName);
-        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
-        GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, 0);
+        ModelTexture texture = TextureLoader.uploadTexture(TextureLoader.loadMipChain(fileName, true), 0);
         textures.add(texture.getID());
         return texture.getID();
     }
 
     /**
      * Load a standard texture from an image.
+     * The decoded image and its mipmaps are taken from the {@link TextureCache}.
      *
      * @param fileName Path to the image that contains the texture.
      *                 Recommended formats are .jpg, .png and .tga.
      * @return ID of the loaded texture.
      */
     public int loadTexture(String fileName) {
-        ModelTexture texture;
-
-        if (fileName.contains("png"))
-            texture = TextureLoader.loadPNGTexture(fileName);
-        else
-            texture = TextureLoader.loadTexture(fileName);
+        //textures that were decoded and uploaded by the asset pipeline during loading are only used once
+        Integer uploaded = AssetPipeline.takeTexture(fileName);
+        if (uploaded != null)
+            return uploaded;
+        return uploadTexture(TextureLoader.loadMipChain(fileName, true));
+    }
 
-        //use mipmap to render textures that are further away in lower resolution
-        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
-        GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, -1.5f);
+    /**
+     * Creates a texture from an image and its mipmaps that were loaded with {@link TextureLoader#loadMipChain(String, boolean)}.
+     *
+     * @param chain The image and its mipmaps.
+     * @return ID of the loaded texture.
+     */
+    int uploadTexture(TextureCache.MipChain chain) {
+        //the mipmaps are used to render textures that are further away in lower resolution
+        ModelTexture texture = TextureLoader.uploadTexture(chain, -1.5f);
         textures.add(texture.getID());
         return texture.getID();
     }
@@ -196,9 +248,9 @@ public class Loader {
 
         //load all images to opengl
         for (int i = 0; i < textureFiles.length; i++) {
-            TextureData data = TextureLoader.loadTextureData("/com/battleships/gui/res/textures/skybox/" + textureFiles[i] + ".png");
+            TextureCache.MipChain data = TextureLoader.loadMipChain("skybox/" + textureFiles[i] + ".png", false);
             GL11.glTexImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + i, 0, GL11.GL_RGBA,
-                    data.getWidth(), data.getHeight(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data.getBuffer());
+                    data.getWidth(0), data.getHeight(0), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data.getLevel(0));
         }
         GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
@@ -216,7 +268,7 @@ public class Loader {
      * @return A {@link TexturedModel} containing all the loaded data.
      */
     public TexturedModel loadModelFromOBJ(String objPath, String texturePath, float shineDamper, float reflectivity) {
-        RawModel model = OBJLoader.loadObjModel(objPath);
+        RawModel model = OBJLoader.loadObjModel(objPath, this);
         TexturedModel texturedModel = new TexturedModel(model, new ModelTexture(loadTexture(texturePath)));
         ModelTexture texture = texturedModel.getTexture();
         texture.setReflectivity(reflectivity);
@@ -224,6 +276,52 @@ public class Loader {
         return texturedModel;
     }
 
+    /**
+     * Deletes a texture that was loaded by this loader.
+     *
+     * @param texture ID of the texture.
+     */
+    public void deleteTexture(int texture) {
+        textures.remove(Integer.valueOf(texture));
+        GL11.glDeleteTextures(texture);
+    }
+
+    /**
+     * Deletes a vao that was created by this loader, together with the vbos storing its data.
+     *
+     * @param vao ID of the vao.
+     */
+    public void deleteVAO(int vao) {
+        List<Integer> buffers = vaoBuffers.remove(vao);
+        if (buffers != null) {
+            for (int vbo : buffers) {
+                vbos.remove(Integer.valueOf(vbo));
+                GL15.glDeleteBuffers(vbo);
+            }
+        }
+        vaos.remove(Integer.valueOf(vao));
+        //the ID can be reused by a new vao, which doesn't have the instanced attributes
+        instancedVbos.remove(vao);
+        GL30.glDeleteVertexArrays(vao);
+    }
+
+    /**
+     * @param vao ID of a vao that was created by this loader.
+     * @return Size of the data stored in the vbos of the vao in bytes.
+     */
+    public long getVAOSize(int vao) {
+        long size = 0;
+        List<Integer> buffers = vaoBuffers.get(vao);
+        if (buffers == null)
+            return 0;
+        for (int vbo : buffers) {
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+            size += GL15.glGetBufferParameteri(GL15.GL_ARRAY_BUFFER, GL15.GL_BUFFER_SIZE);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        return size;
+    }
+
     /**
      * Clean up all loaded vaos, vbos and textures.
      * Needs to be called on program exit.
@@ -233,6 +331,7 @@ public class Loader {
         for (int vao : vaos) {
             GL30.glDeleteVertexArrays(vao);
         }
+        instancedVbos.clear();
         //delete all vbos
         for (int vbo : vbos) {
             GL15.glDeleteBuffers(vbo);
@@ -251,6 +350,7 @@ public class Loader {
     private int createVAO() {
         int vaoID = GL30.glGenVertexArrays(); //create ID for a new vao
         vaos.add(vaoID);  //add vao to vao list, to keep track of all vaos to be able to unbind all on program exit
+        vaoBuffers.put(vaoID, new ArrayList<>());
         GL30.glBindVertexArray(vaoID);  //bind a vertex array to that id
         return vaoID;
     }
@@ -263,10 +363,21 @@ public class Loader {
      * @param data            Actual data that should be stored in the vao.
      */
     private void storeDataInAttributeList(int attributeNumber, int coordinateSize, float[] data) {
+        storeDataInAttributeList(attributeNumber, coordinateSize, storeDataInFloatBuffer(data));
+    }
+
+    /**
+     * Stores data from a buffer in a vao using vbos.
+     *
+     * @param attributeNumber Attribute number in the vao the data should be stored to.
+     * @param coordinateSize  How many float values in the data make up one coordinate (for 3D coordinates x,y,z 3 values).
+     * @param buffer          Direct buffer containing the data that should be stored in the vao.
+     */
+    private void storeDataInAttributeList(int attributeNumber, int coordinateSize, FloatBuffer buffer) {
         int vboID = GL15.glGenBuffers(); //generate new vbo
         vbos.add(vboID); //add vbo to vbo list, to keep track of all vbos to be able to unbind all on program exit
+        addToCurrentVAO(vboID);
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
-        FloatBuffer buffer = storeDataInFloatBuffer(data);
         GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW); //Static data, because it shouldn't be edited
         //create pointer to attribute with number attributeNumber, with the size 3 (x,y,z),
         // 0 -> no other data which needs to be skipped when reading array, 0 -> no offset start at index 0
@@ -275,6 +386,15 @@ public class Loader {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
 
+    /**
+     * Remembers that a vbo stores data of the vao that is currently being created, so they can be deleted together.
+     *
+     * @param vbo ID of the vbo.
+     */
+    private void addToCurrentVAO(int vbo) {
+        vaoBuffers.get(vaos.get(vaos.size() - 1)).add(vbo);
+    }
+
     /**
      * Unbind the currently bound vao.
      */
@@ -286,13 +406,13 @@ public class Loader {
      * Bind data from an IntBuffer to the currently bound vao.
      * Used for binding the indices of the vertices to a vao.
      *
-     * @param indices int array containing the indices of the vertices for the currently bound vao.
+     * @param buffer Direct buffer containing the indices of the vertices for the currently bound vao.
      */
-    private void bindIndicesBuffer(int[] indices) {
+    private void bindIndicesBuffer(IntBuffer buffer) {
         int vboID = GL15.glGenBuffers();
         vbos.add(vboID);
+        addToCurrentVAO(vboID);
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboID); //create indices array buffer
-        IntBuffer buffer = storeDataInIntBuffer(indices);
         GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);  //Static data, because it shouldn't be edited
     }
 
@@ -4,7 +4,6 @@ import com.battleships.gui.entities.Camera;
 import com.battleships.gui.entities.Entity;
 import com.battleships.gui.entities.Light;
 import com.battleships.gui.gameAssets.GameManager;
-import com.battleships.gui.models.TexturedModel;
 import com.battleships.gui.shaders.StaticShader;
 import com.battleships.gui.shaders.TerrainShader;
 import com.battleships.gui.skybox.SkyboxRenderer;
@@ -15,9 +14,7 @@ import org.joml.Vector4f;
 import org.lwjgl.opengl.GL11;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Renderer that controls the main renderers needed for rendering a scene {@link EntityRenderer}, {@link TerrainRenderer} and {@link SkyboxRenderer}.
@@ -69,9 +66,9 @@ public class MasterRenderer {
     private TerrainShader terrainShader = new TerrainShader();
 
     /**
-     * Map containing all Entities in the world, grouped by their TexturedModels.
+     * All Entities in the world, grouped by their TexturedModels.
      */
-    private Map<TexturedModel, List<Entity>> entities = new HashMap<>();
+    private EntityBatches entities = new EntityBatches();
     /**
      * List containing all terrains in the world.
      */
@@ -85,12 +82,12 @@ public class MasterRenderer {
     /**
      * Create new MasterRenderer, that is capable of rendering entities, terrains, skyboxes and lights.
      *
-     * @param loader Loader to pass to pass to skyboxRenderer to load it's CubeMap
+     * @param loader Loader to pass to pass to skyboxRenderer to load it's CubeMap and to the entityRenderer to create its vbo
      */
     public MasterRenderer(Loader loader) {
         enableCulling();
         updateProjectionMatrix();
-        renderer = new EntityRenderer(shader, projectionMatrix);
+        renderer = new EntityRenderer(shader, projectionMatrix, loader);
         terrainRenderer = new TerrainRenderer(terrainShader, projectionMatrix);
         skyboxRenderer = new SkyboxRenderer(loader, projectionMatrix);
     }
@@ -169,7 +166,7 @@ public class MasterRenderer {
         shader.loadSkyColor(RED, GREEN, BLUE);
         shader.loadLight(light);
         shader.loadViewMatrix(camera);
-        renderer.render(entities);
+        renderer.render(entities.getModels(), entities.getEntities());
         shader.stop();
         terrainShader.start();
         terrainShader.loadClipPlane(clipPlane);
@@ -194,33 +191,22 @@ public class MasterRenderer {
     }
 
     /**
-     * Add a List of entities to the HashMap of entities that get rendered when render() is called.
+     * Add a List of entities to the entities that get rendered when render() is called.
      *
      * @param entities List of entities that should be added.
      */
     public void processEntityList(List<Entity> entities) {
-        for (Entity e : entities)
-            processEntity(e);
+        for (int i = 0; i < entities.size(); i++)
+            processEntity(entities.get(i));
     }
 
     /**
-     * Add one entity to the HashMap of entities that get rendered when render() is called.
+     * Add one entity to the entities that get rendered when render() is called.
      *
      * @param entity Entity that should be added.
      */
     public void processEntity(Entity entity) {
-        TexturedModel entityModel = entity.getModel();
-        List<Entity> batch = entities.get(entityModel);
-
-        //if a list with the texturedModel of the entity already exists in entities add entity to that list
-        //else create new list in entities for the texturedModel of the entity
-        if (batch != null) {
-            batch.add(entity);
-        } else {
-            List<Entity> newBatch = new ArrayList<>();
-            newBatch.add(entity);
-            entities.put(entityModel, newBatch);
-        }
+        entities.add(entity);
     }
 
     /**
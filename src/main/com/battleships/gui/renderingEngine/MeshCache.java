@@ -0,0 +1,229 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.models.ModelData;
+import com.battleships.logic.SaveFileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Cache for models that were parsed from .obj files, so the files only need to be parsed once.
+ * <p>
+ * The data of every model is stored in its own file ({@code Cache/Models/<model>.mesh} next to the game) in little endian:
+ * <ul>
+ *     <li>Header ({@value #HEADER} bytes): magic number, version, hash of the .obj file, amount of floats of the positions,
+ *     texture coordinates and normals and amount of indices.</li>
+ *     <li>Positions, texture coordinates, normals (floats) and indices (ints).</li>
+ * </ul>
+ * The file is mapped into memory and its data is given to OpenGL without being copied into arrays first
+ * (all platforms the game has natives for are little endian).
+ * If the hash in the header doesn't match the .obj file (the model was changed), the model is parsed again and the
+ * file is replaced. Files are written in the background by the {@link CacheWriter}.
+ *
+ * @author agent
+ */
+public class MeshCache {
+
+    /**
+     * Magic number at the start of every file.
+     */
+    public static final int MAGIC = 0x424D5348;
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Suffix of the files.
+     */
+    public static final String SUFFIX = ".mesh";
+    /**
+     * Length of the header in bytes.
+     */
+    public static final int HEADER = 32;
+
+    /**
+     * Calculates the hash of an .obj file (length in the high and CRC32 in the low 32 bits).
+     *
+     * @param source The file, from its position to its limit, the position isn't changed.
+     * @return The hash of the file.
+     */
+    public static long hash(ByteBuffer source) {
+        CRC32 crc = new CRC32();
+        crc.update(source.duplicate());
+        return (long) source.remaining() << 32 | crc.getValue();
+    }
+
+    /**
+     * Loads a model from the cache.
+     *
+     * @param name Name of the model.
+     * @param hash Hash of the .obj file of the model ({@link #hash(ByteBuffer)}).
+     * @return The data of the model, {@code null} if the model isn't cached or was changed.
+     */
+    public static Mesh get(String name, long hash) {
+        File file = getFile(name);
+        if (file == null || !file.isFile())
+            return null;
+        ByteBuffer blob;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            System.err.println("Error loading cached model " + name + "!");
+            e.printStackTrace();
+            return null;
+        }
+        if (blob.limit() < HEADER || blob.getInt(0) != MAGIC || blob.getInt(4) != VERSION || blob.getLong(8) != hash)
+            return null;
+        long length = HEADER + 4L * ((long) blob.getInt(16) + blob.getInt(20) + blob.getInt(24) + blob.getInt(28));
+        if (blob.getInt(16) < 0 || blob.getInt(20) < 0 || blob.getInt(24) < 0 || blob.getInt(28) < 0 || length != blob.limit())
+            return null;
+        return new Mesh(blob);
+    }
+
+    /**
+     * Adds a model to the cache, the file is written in the background.
+     *
+     * @param name Name of the model.
+     * @param hash Hash of the .obj file of the model ({@link #hash(ByteBuffer)}).
+     * @param data Data of the model.
+     * @return The data of the model in the format of the cache.
+     */
+    public static Mesh put(String name, long hash, ModelData data) {
+        ByteBuffer blob = encode(hash, data);
+        File file = getFile(name);
+        if (file != null && (file.getParentFile().isDirectory() || file.getParentFile().mkdirs()))
+            CacheWriter.write(file, blob.duplicate());
+        return new Mesh(blob);
+    }
+
+    /**
+     * Converts a model into the format of the cache without caching it.
+     *
+     * @param data Data of the model.
+     * @return The data of the model in the format of the cache.
+     */
+    public static Mesh toMesh(ModelData data) {
+        return new Mesh(encode(0, data));
+    }
+
+    /**
+     * Converts a model into the format of the cache.
+     *
+     * @param hash Hash of the .obj file of the model ({@link #hash(ByteBuffer)}).
+     * @param data Data of the model.
+     * @return The model in the format of the cache, in little endian.
+     */
+    static ByteBuffer encode(long hash, ModelData data) {
+        int length = HEADER + 4 * (data.getPositions().length + data.getTextureCoords().length + data.getNormals().length + data.getIndices().length);
+        ByteBuffer blob = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+        blob.putInt(MAGIC);
+        blob.putInt(VERSION);
+        blob.putLong(hash);
+        blob.putInt(data.getPositions().length);
+        blob.putInt(data.getTextureCoords().length);
+        blob.putInt(data.getNormals().length);
+        blob.putInt(data.getIndices().length);
+        blob.asFloatBuffer().put(data.getPositions()).put(data.getTextureCoords()).put(data.getNormals());
+        blob.position(length - 4 * data.getIndices().length);
+        blob.asIntBuffer().put(data.getIndices());
+        blob.clear();
+        return blob;
+    }
+
+    /**
+     * @param name Name of the model.
+     * @return File the model is cached in, {@code null} if the path of the game couldn't be found.
+     */
+    private static File getFile(String name) {
+        try {
+            return new File(SaveFileManager.getJarPath() + "/Cache/Models/" + name.replace('/', '_') + SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Data of a model in the format of the cache, the buffers are views on the cached file.
+     *
+     * @author agent
+     */
+    public static class Mesh {
+
+        /**
+         * Positions (x, y, z), texture coordinates (u, v) and normals (x, y, z) of the vertices.
+         */
+        private FloatBuffer positions, textureCoords, normals;
+        /**
+         * Indices of the vertices, three per triangle.
+         */
+        private IntBuffer indices;
+
+        /**
+         * Creates views on the arrays of a model.
+         *
+         * @param blob The model in the format of the cache, in little endian.
+         */
+        Mesh(ByteBuffer blob) {
+            int position = HEADER;
+            positions = view(blob, position, blob.getInt(16)).asFloatBuffer();
+            position += 4 * blob.getInt(16);
+            textureCoords = view(blob, position, blob.getInt(20)).asFloatBuffer();
+            position += 4 * blob.getInt(20);
+            normals = view(blob, position, blob.getInt(24)).asFloatBuffer();
+            position += 4 * blob.getInt(24);
+            indices = view(blob, position, blob.getInt(28)).asIntBuffer();
+        }
+
+        /**
+         * Creates a view on one array of a model.
+         *
+         * @param blob     The model in the format of the cache.
+         * @param position Position of the array in bytes.
+         * @param length   Amount of values (4 bytes each) in the array.
+         * @return A view from the start to the end of the array, in little endian.
+         */
+        private static ByteBuffer view(ByteBuffer blob, int position, int length) {
+            ByteBuffer view = blob.duplicate();
+            view.position(position);
+            view.limit(position + 4 * length);
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @return Positions of the vertices (x, y, z per vertex).
+         */
+        public FloatBuffer getPositions() {
+            return positions;
+        }
+
+        /**
+         * @return Texture coordinates of the vertices (u, v per vertex).
+         */
+        public FloatBuffer getTextureCoords() {
+            return textureCoords;
+        }
+
+        /**
+         * @return Normals of the vertices (x, y, z per vertex).
+         */
+        public FloatBuffer getNormals() {
+            return normals;
+        }
+
+        /**
+         * @return Indices of the vertices, three per triangle.
+         */
+        public IntBuffer getIndices() {
+            return indices;
+        }
+    }
+}
@@ -1,143 +1,341 @@
 package com.battleships.gui.renderingEngine;
 
 
+import com.battleships.gui.models.ModelData;
 import com.battleships.gui.models.RawModel;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Loader that can convert a OBJFile into a {@link RawModel}.
+ * <p>
+ * The file is read into one buffer and parsed byte by byte, numbers are parsed in place and stored in primitive arrays,
+ * so no strings or vector objects are created per line.
+ * Only the parts of the format the game uses are read: {@code v}, {@code vt}, {@code vn} and triangles
+ * ({@code f v/vt/vn v/vt/vn v/vt/vn}), all other lines are skipped.
  *
  * @author Tim Staudenmaier
  */
 public class OBJLoader {
 
+    /**
+     * Powers of ten that can be represented exactly as double.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * The file that is parsed.
+     */
+    private ByteBuffer data;
+    /**
+     * Position of the next byte that is parsed.
+     */
+    private int pos;
+    /**
+     * Position after the last byte of the file.
+     */
+    private int limit;
+
+    /**
+     * Positions (x, y, z), texture coordinates (u, v) and normals (x, y, z) in the order they were read.
+     */
+    private float[] positions = new float[3 * 1024], textures = new float[2 * 1024], normals = new float[3 * 1024];
+    /**
+     * Amount of floats used in the arrays of positions, texture coordinates and normals.
+     */
+    private int positionCount, textureCount, normalCount;
+    /**
+     * Indices of the vertex, texture coordinates and normal of every corner of every triangle (read from the file, starting at 1).
+     */
+    private int[] corners = new int[9 * 1024];
+    /**
+     * Amount of ints used in the corners array.
+     */
+    private int cornerCount;
+
+    /**
+     * Create a new parser for a file, only {@link #parse(String, ByteBuffer)} creates parsers.
+     *
+     * @param data The file, from position 0 to its limit.
+     */
+    OBJLoader(ByteBuffer data) {
+        this.data = data;
+        limit = data.limit();
+    }
+
     /**
      * Loads all the data contained in the .obj file into a {@link RawModel}.
+     * The model is taken from the {@link AssetPipeline} if it was loaded during the loading screen, otherwise from the
+     * {@link MeshCache} if the .obj file hasn't changed since it was cached.
      *
      * @param fileName Path to the OBJFile.
+     * @param loader   Loader the vao of the model is created with, it deletes the vao on clean up.
      * @return A RawModel containing all the data from the .obj.
      */
-    public static RawModel loadObjModel(String fileName) {
+    public static RawModel loadObjModel(String fileName, Loader loader) {
+        RawModel uploaded = AssetPipeline.takeModel(fileName);
+        if (uploaded != null)
+            return uploaded;
+        MeshCache.Mesh mesh = loadMesh(fileName);
+        //return new RawModel
+        return loader.loadToVAO(mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), mesh.getIndices());
+    }
 
+    /**
+     * Loads the data of a model from the {@link MeshCache}, parses the .obj file and caches it if it isn't cached yet.
+     *
+     * @param fileName Path to the OBJFile.
+     * @return The data of the model, empty if the file couldn't be read.
+     */
+    public static MeshCache.Mesh loadMesh(String fileName) {
+        ByteBuffer source = readResource(fileName);
+        long hash = MeshCache.hash(source);
+        MeshCache.Mesh mesh = MeshCache.get(fileName, hash);
+        if (mesh != null)
+            return mesh;
+        ModelData data = parse(fileName, source);
+        //models that couldn't be parsed aren't cached, so they are parsed again after the file was fixed
+        if (data.getIndices().length == 0)
+            return MeshCache.toMesh(data);
+        return MeshCache.put(fileName, hash, data);
+    }
+
+    /**
+     * Reads the data of a model from an .obj file, without creating any OpenGL objects.
+     *
+     * @param fileName Path to the OBJFile.
+     * @return The data of the model, empty if the file couldn't be read.
+     */
+    public static ModelData loadObjData(String fileName) {
+        return parse(fileName, readResource(fileName));
+    }
+
+    /**
+     * Reads an .obj file from the resources.
+     *
+     * @param fileName Path to the OBJFile.
+     * @return The file, empty if it couldn't be read.
+     */
+    private static ByteBuffer readResource(String fileName) {
         InputStream is = OBJLoader.class.getResourceAsStream("/com/battleships/gui/res/models/" + fileName + ".obj");  //read file with file reader
         if (is == null)
             throw new RuntimeException("Resource not found: " + fileName);
+        try {
+            return readFully(is);
+        } catch (IOException e) {
+            System.err.println("Error while loading model " + fileName + "!");
+            e.printStackTrace();
+            return ByteBuffer.allocate(0);
+        }
+    }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(is)); //Create BufferedReader to be able to read line by line
-
-        String line;
-        List<Vector3f> vertices = new ArrayList<>(); //List to save vertices position coordinates (x,y,z)
-        List<Vector2f> textures = new ArrayList<>(); //List to save TextureCoordinates
-        List<Vector3f> normals = new ArrayList<>(); //List to save normal vectors of faces
-        List<Integer> indices = new ArrayList<>(); //List to save indices of which vertices are connected
+    /**
+     * Parses an .obj file.
+     *
+     * @param fileName Path to the OBJFile, used for error messages.
+     * @param source   The file, from position 0 to its limit.
+     * @return The data of the model, empty if the file couldn't be parsed.
+     */
+    private static ModelData parse(String fileName, ByteBuffer source) {
+        OBJLoader parser = new OBJLoader(source);
+        try {
+            parser.parse();
+            return parser.toModelData();
+        } catch (Exception e) {
+            System.err.println("Error while loading model " + fileName + "!");
+            e.printStackTrace();
+            return new ModelData(new float[0], new float[0], new float[0], new int[0]);
+        }
+    }
 
-        //arrays to later sort vertices, normals, textures and indices
-        float[] verticesArray = null;
-        float[] normalsArray = null;
-        float[] textureArray = null;
-        int[] indicesArray;
+    /**
+     * Reads a whole stream into a buffer and closes it.
+     *
+     * @param is Stream that should be read.
+     * @return Buffer containing the stream from position 0 to its limit.
+     * @throws IOException If the stream couldn't be read.
+     */
+    public static ByteBuffer readFully(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            byte[] buffer = new byte[Math.max(in.available() + 1, 1 << 16)];
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            return ByteBuffer.wrap(buffer, 0, length);
+        }
+    }
 
-        try {
-            int i = 0;
-            while (true) {
-                i++;
-                line = reader.readLine();  //read one line
-                String[] currentLine = line.split(" "); //split read line at whitespaces
-                if (line.startsWith("v ")) { //check if line are vertices
-                    Vector3f vertex = new Vector3f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]), Float.parseFloat(currentLine[3])); //convert line to vector
-                    vertices.add(vertex); //add vector to vertices list
-                } else if (line.startsWith("vt ")) {  //check if line are textureCoordinates
-                    Vector2f texture = new Vector2f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]));
-                    textures.add(texture);
-                } else if (line.startsWith("vn ")) {  //check if line are normalVectors
-                    Vector3f normal = new Vector3f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]), Float.parseFloat(currentLine[3])); //convert line to normalvector
-                    normals.add(normal); //add vector to normals list
-                } else if (line.startsWith("f")) {   //check if line is material --> following lines now show which vertex,texture and normal data go together, so all data has been read
-                    textureArray = new float[vertices.size() * 2];
-                    normalsArray = new float[vertices.size() * 3];
-                    break;
+    /**
+     * Reads all lines of the file.
+     */
+    void parse() {
+        while (pos < limit) {
+            byte c = data.get(pos);
+            byte next = pos + 1 < limit ? data.get(pos + 1) : 0;
+            if (c == 'v' && next == ' ') {
+                pos += 2;
+                if (positionCount + 3 > positions.length)
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                positions[positionCount++] = nextFloat();
+                positions[positionCount++] = nextFloat();
+                positions[positionCount++] = nextFloat();
+            } else if (c == 'v' && next == 't') {
+                pos += 2;
+                if (textureCount + 2 > textures.length)
+                    textures = Arrays.copyOf(textures, textures.length * 2);
+                textures[textureCount++] = nextFloat();
+                textures[textureCount++] = nextFloat();
+            } else if (c == 'v' && next == 'n') {
+                pos += 2;
+                if (normalCount + 3 > normals.length)
+                    normals = Arrays.copyOf(normals, normals.length * 2);
+                normals[normalCount++] = nextFloat();
+                normals[normalCount++] = nextFloat();
+                normals[normalCount++] = nextFloat();
+            } else if (c == 'f' && next == ' ') {
+                pos += 2;
+                if (cornerCount + 9 > corners.length)
+                    corners = Arrays.copyOf(corners, corners.length * 2);
+                //obj format: 77/5/2 (vertex index/texture index/normal index) with index pointing to the line where the data for that vertex/texture/normal is
+                for (int i = 0; i < 9; i++) {
+                    corners[cornerCount++] = nextInt();
                 }
             }
-            verticesArray = new float[vertices.size() * 3];
-            int vertexPointer = 0;
-            //convert vertexCoordinateVector from verticesList to verticesArray
-            for (Vector3f vertex : vertices) {
-                verticesArray[vertexPointer++] = vertex.x;
-                verticesArray[vertexPointer++] = vertex.y;
-                verticesArray[vertexPointer++] = vertex.z;
-            }
-            while (line != null) {
-                if (!line.startsWith("f ")) { //check if line really starts with f else read next
-                    line = reader.readLine();
-                    continue;
-                }
-
-                String[] currentLine = line.split(" "); //split line at white spaces
-
-                if (line.startsWith("f ")) {
-                    //split vertex indices from all 3 vertex, texture, normal combinations
-                    //obj format: 77/5/2 (vertex index/texture index/normal index) with index pointing to the line where the data for that vertex/texture/normal is
-                    String[] vertex1 = currentLine[1].split("/");
-                    String[] vertex2 = currentLine[2].split("/");
-                    String[] vertex3 = currentLine[3].split("/");
+            skipLine();
+        }
+    }
 
-                    processVertex(vertex1, indices, textures, normals, textureArray, normalsArray);
-                    processVertex(vertex2, indices, textures, normals, textureArray, normalsArray);
-                    processVertex(vertex3, indices, textures, normals, textureArray, normalsArray);
-                    line = reader.readLine();
-                }
+    /**
+     * Combines the right texture coordinates and normals for every vertex, because they are not stored in the same line in an .obj file.
+     * If a vertex is used with different texture coordinates or normals, the last ones are used.
+     *
+     * @return Data of the model, the texture coordinates and normals are in the order of the vertices.
+     */
+    ModelData toModelData() {
+        int vertexCount = positionCount / 3;
+        float[] textureArray = new float[vertexCount * 2];
+        float[] normalsArray = new float[vertexCount * 3];
+        int[] indicesArray = new int[cornerCount / 3];
+        for (int i = 0, corner = 0; corner < cornerCount; i++, corner += 3) {
+            int vertex = corners[corner] - 1; //-1 because obj lines start with 1 instead of 0
+            int texture = corners[corner + 1] - 1;
+            int normal = corners[corner + 2] - 1;
+            indicesArray[i] = vertex;
+            if (texture >= 0) {
+                textureArray[vertex * 2] = textures[texture * 2];
+                textureArray[vertex * 2 + 1] = 1 - textures[texture * 2 + 1]; //1- because blender starts at bottom left with textures, obj at top left (flip texture)
+            }
+            if (normal >= 0) {
+                normalsArray[vertex * 3] = normals[normal * 3];
+                normalsArray[vertex * 3 + 1] = normals[normal * 3 + 1];
+                normalsArray[vertex * 3 + 2] = normals[normal * 3 + 2];
             }
-            reader.close();
+        }
+        return new ModelData(Arrays.copyOf(positions, positionCount), textureArray, normalsArray, indicesArray);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Moves to the start of the next line.
+     */
+    private void skipLine() {
+        while (pos < limit && data.get(pos) != '\n') {
+            pos++;
         }
+        pos++;
+    }
 
-        //convert indices from List to indicesArray;
-        indicesArray = new int[indices.size()];
-        for (int i = 0; i < indices.size(); i++) {
-            indicesArray[i] = indices.get(i);
+    /**
+     * Skips spaces and tabs.
+     */
+    private void skipSpaces() {
+        while (pos < limit && (data.get(pos) == ' ' || data.get(pos) == '\t')) {
+            pos++;
         }
+    }
 
-        //return new RawModel
-        Loader loader = new Loader();
-        return loader.loadToVAO(verticesArray, textureArray, normalsArray, indicesArray);
+    /**
+     * Parses the next float of the current line.
+     * Numbers with up to 15 significant digits are calculated directly, longer numbers are parsed by {@link Float#parseFloat(String)}.
+     *
+     * @return The float, 0 if there is no number.
+     */
+    private float nextFloat() {
+        skipSpaces();
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && (data.get(pos) == '-' || data.get(pos) == '+')) {
+            negative = data.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        byte c;
+        while (pos < limit && (c = data.get(pos)) >= '0' && c <= '9') {
+            mantissa = mantissa * 10 + (c - '0');
+            if (mantissa != 0)
+                digits++;
+            pos++;
+        }
+        if (pos < limit && data.get(pos) == '.') {
+            pos++;
+            while (pos < limit && (c = data.get(pos)) >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0)
+                    digits++;
+                exponent--;
+                pos++;
+            }
+        }
+        if (pos < limit && (data.get(pos) == 'e' || data.get(pos) == 'E')) {
+            pos++;
+            exponent += nextSignedInt();
+        }
+        if (digits > 15 || exponent < -22 || exponent > 22)
+            return Float.parseFloat(new String(data.array(), data.arrayOffset() + start, pos - start, StandardCharsets.US_ASCII));
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return (float) (negative ? -value : value);
     }
 
     /**
-     * Combine the right textureCoords, index and normals for a vertex because they are not stored in the same line in an .obj file.
+     * Parses the next index of a face, skips the slash after it.
      *
-     * @param vertexData   String of the line in the .obj containing the index of the vertex and the indices for the texture and normals data of this vertex.
-     * @param indices      List the index of this vertex should be added to.
-     * @param textures     List of all read textureCoords from the .obj File
-     *                     sorted by the order in which they were read (first line at index 0, ...).
-     * @param normals      List of all read normals from the .obj File
-     *                     sorted by the order in which they were read (first line at index 0, ...).
-     * @param textureArray Array the texture coords for this array should be added to
-     * @param normalsArray Array the normals for this vertex should be added to
-     *                     both arrays contain the data for all vertices in the same order (ordered by indices)
-     */
-    //sort vertex, texture and normals in array in right order by giving indices to the element in the lists
-    private static void processVertex(String[] vertexData, List<Integer> indices, List<Vector2f> textures, List<Vector3f> normals, float[] textureArray, float[] normalsArray) {
-        int currentVertexPointer = Integer.parseInt(vertexData[0]) - 1; //get index for current vertex (-1 because obj lines start with 1 instead of 0)
-        indices.add(currentVertexPointer); //add vertex index to indices list, now in right order in which vertex should be connected
-
-        Vector2f currentTex = textures.get(Integer.parseInt(vertexData[1]) - 1); //get index for current texture and get corresponding texture
-        textureArray[currentVertexPointer * 2] = currentTex.x; //put texture in array, now sorted from first to last texture
-        textureArray[currentVertexPointer * 2 + 1] = 1 - currentTex.y; //1- because blender starts at bottom left with textures, obj at top left (flip texture)
-
-        Vector3f currentNorm = normals.get(Integer.parseInt(vertexData[2]) - 1); //get index for current normal and get corresponding normal
-        //add normals to normalsArray now in right order
-        normalsArray[currentVertexPointer * 3] = currentNorm.x;
-        normalsArray[currentVertexPointer * 3 + 1] = currentNorm.y;
-        normalsArray[currentVertexPointer * 3 + 2] = currentNorm.z;
+     * @return The index, 0 if the index is missing.
+     */
+    private int nextInt() {
+        skipSpaces();
+        int value = nextSignedInt();
+        if (pos < limit && data.get(pos) == '/')
+            pos++;
+        return value;
     }
 
+    /**
+     * Parses an integer at the current position.
+     *
+     * @return The integer, 0 if there are no digits.
+     */
+    private int nextSignedInt() {
+        boolean negative = false;
+        if (pos < limit && (data.get(pos) == '-' || data.get(pos) == '+')) {
+            negative = data.get(pos) == '-';
+            pos++;
+        }
+        int value = 0;
+        byte c;
+        while (pos < limit && (c = data.get(pos)) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
 }
@@ -0,0 +1,286 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.audio.AudioMaster;
+import com.battleships.gui.models.RawModel;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.opengl.GL11;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry for all textures, models and sounds that are loaded by their path.
+ * <p>
+ * Every resource is only loaded once, all further requests for the same path get the same handle and increase
+ * the reference count of the resource. When all references of a resource are released its OpenGL or OpenAL objects are
+ * deleted. When the scene is torn down all resources are deleted with {@link #releaseScene()}, no matter if they are
+ * still referenced.
+ * The registry also keeps track of the memory every resource uses, see {@link #printReport(PrintStream)}.
+ * Resources need to be acquired by the OpenGL thread, all methods of the registry are synchronized so it stays
+ * consistent if it's used by other threads as well.
+ *
+ * @author agent
+ */
+public class ResourceRegistry {
+
+    /**
+     * Types of resources.
+     */
+    public static final int TEXTURE = 0, MODEL = 1, SOUND = 2;
+    /**
+     * Names of the types of resources, used for the report.
+     */
+    private static final String[] TYPENAMES = {"texture", "model", "sound"};
+    /**
+     * Argument that enables printing the report of all resources when the game is closed.
+     */
+    public static final String REPORTFLAG = "--resource-report";
+
+    /**
+     * Loader the textures and models are loaded with and deleted by.
+     */
+    private static Loader loader;
+    /**
+     * All loaded resources by their type and path.
+     */
+    private static Map<String, Resource> resources = new LinkedHashMap<>();
+    /**
+     * {@code true} if the report should be printed when the game is closed.
+     */
+    private static boolean reportEnabled;
+
+    /**
+     * Initialize the registry, needs to be called before any resource can be loaded.
+     *
+     * @param loader Loader the textures and models are loaded with, needs to belong to the OpenGL context they are used in.
+     */
+    public static void init(Loader loader) {
+        ResourceRegistry.loader = loader;
+    }
+
+    /**
+     * Gets a texture and loads it if it isn't loaded yet.
+     *
+     * @param fileName Path to the image, as it is given to {@link Loader#loadTexture(String)}.
+     * @return ID of the texture.
+     */
+    public static synchronized int acquireTexture(String fileName) {
+        Resource resource = resources.get(key(TEXTURE, fileName));
+        if (resource == null) {
+            int texture = loader.loadTexture(fileName);
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+            long size = 4L * GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_WIDTH)
+                    * GL11.glGetTexLevelParameteri(GL11.GL_TEXTURE_2D, 0, GL11.GL_TEXTURE_HEIGHT);
+            //all textures of the loader have mipmaps, which need a third of the size of the texture
+            resource = register(TEXTURE, fileName, texture, null, size * 4 / 3, 0);
+        }
+        resource.references++;
+        return resource.handle;
+    }
+
+    /**
+     * Gets a model and loads it if it isn't loaded yet.
+     *
+     * @param fileName Path to the .obj file, as it is given to {@link OBJLoader#loadObjModel(String, Loader)}.
+     * @return The model.
+     */
+    public static synchronized RawModel acquireModel(String fileName) {
+        Resource resource = resources.get(key(MODEL, fileName));
+        if (resource == null) {
+            RawModel model = OBJLoader.loadObjModel(fileName, loader);
+            resource = register(MODEL, fileName, model.getVaoID(), model, loader.getVAOSize(model.getVaoID()), 0);
+        }
+        resource.references++;
+        return resource.model;
+    }
+
+    /**
+     * Gets a sound and loads it if it isn't loaded yet, needs to be called by the OpenGL thread.
+     * Sounds that were read and uploaded by the {@link AssetPipeline} are taken from it instead of loading them again.
+     * The samples of sounds are kept by OpenAL in the memory of the game, so they are counted as heap memory.
+     *
+     * @param fileName Name of the sound file, as it is given to {@link AudioMaster#loadSound(String)}.
+     * @return ID of the buffer containing the sound.
+     */
+    public static synchronized int acquireSound(String fileName) {
+        Resource resource = resources.get(key(SOUND, fileName));
+        if (resource == null) {
+            Integer uploaded = AssetPipeline.takeSound(fileName);
+            int buffer = uploaded != null ? uploaded : AudioMaster.loadSound(fileName);
+            resource = register(SOUND, fileName, buffer, null, 0, AL10.alGetBufferi(buffer, AL10.AL_SIZE));
+        }
+        resource.references++;
+        return resource.handle;
+    }
+
+    /**
+     * Releases one reference of a resource, the resource is deleted if it isn't referenced anymore.
+     *
+     * @param type     Type of the resource.
+     * @param fileName Path the resource was acquired with.
+     */
+    public static synchronized void release(int type, String fileName) {
+        Resource resource = resources.get(key(type, fileName));
+        if (resource == null)
+            return;
+        resource.references--;
+        if (resource.references <= 0) {
+            resources.remove(key(type, fileName));
+            delete(resource);
+        }
+    }
+
+    /**
+     * Deletes all resources, needs to be called when the scene is torn down, before the {@link Loader} and the
+     * {@link AudioMaster} are cleaned up.
+     * Resources that are still referenced are deleted as well, their handles can't be used anymore.
+     */
+    public static synchronized void releaseScene() {
+        for (Resource resource : resources.values()) {
+            delete(resource);
+        }
+        resources.clear();
+    }
+
+    /**
+     * @return Memory used by all resources on the graphics card in bytes.
+     */
+    public static synchronized long getGpuMemory() {
+        long sum = 0;
+        for (Resource resource : resources.values())
+            sum += resource.gpuBytes;
+        return sum;
+    }
+
+    /**
+     * @return Memory used by all resources in the memory of the game in bytes.
+     */
+    public static synchronized long getHeapMemory() {
+        long sum = 0;
+        for (Resource resource : resources.values())
+            sum += resource.heapBytes;
+        return sum;
+    }
+
+    /**
+     * Prints all loaded resources with their references and the memory they use.
+     *
+     * @param out Stream the report is printed to.
+     */
+    public static synchronized void printReport(PrintStream out) {
+        out.printf("%-8s %-40s %5s %10s %10s%n", "type", "resource", "refs", "gpu KiB", "heap KiB");
+        for (Resource resource : resources.values()) {
+            out.printf("%-8s %-40s %5d %10d %10d%n", TYPENAMES[resource.type], resource.fileName, resource.references,
+                    resource.gpuBytes / 1024, resource.heapBytes / 1024);
+        }
+        out.printf("%-8s %-40s %5d %10d %10d%n", "total", "", resources.size(), getGpuMemory() / 1024, getHeapMemory() / 1024);
+    }
+
+    /**
+     * @return {@code true} if the report should be printed when the game is closed.
+     */
+    public static boolean isReportEnabled() {
+        return reportEnabled;
+    }
+
+    /**
+     * @param reportEnabled {@code true} if the report should be printed when the game is closed.
+     */
+    public static void setReportEnabled(boolean reportEnabled) {
+        ResourceRegistry.reportEnabled = reportEnabled;
+    }
+
+    /**
+     * @param type     Type of a resource.
+     * @param fileName Path of the resource.
+     * @return Key of the resource in the registry.
+     */
+    private static String key(int type, String fileName) {
+        return type + ":" + fileName;
+    }
+
+    /**
+     * Adds a loaded resource to the registry, without any references.
+     *
+     * @param type      Type of the resource.
+     * @param fileName  Path of the resource.
+     * @param handle    OpenGL or OpenAL ID of the resource.
+     * @param model     The model, if the resource is a model.
+     * @param gpuBytes  Memory the resource uses on the graphics card.
+     * @param heapBytes Memory the resource uses in the memory of the game.
+     * @return The added resource.
+     */
+    private static Resource register(int type, String fileName, int handle, RawModel model, long gpuBytes, long heapBytes) {
+        Resource resource = new Resource(type, fileName, handle, model, gpuBytes, heapBytes);
+        resources.put(key(type, fileName), resource);
+        return resource;
+    }
+
+    /**
+     * Deletes the OpenGL or OpenAL objects of a resource.
+     *
+     * @param resource Resource to delete.
+     */
+    private static void delete(Resource resource) {
+        switch (resource.type) {
+            case TEXTURE:
+                loader.deleteTexture(resource.handle);
+                break;
+            case MODEL:
+                loader.deleteVAO(resource.handle);
+                break;
+            default:
+                AudioMaster.deleteSound(resource.handle);
+        }
+    }
+
+    /**
+     * A loaded resource.
+     */
+    private static class Resource {
+        /**
+         * Type of the resource.
+         */
+        private int type;
+        /**
+         * Path of the resource.
+         */
+        private String fileName;
+        /**
+         * OpenGL or OpenAL ID of the resource (ID of the vao for models).
+         */
+        private int handle;
+        /**
+         * The model, {@code null} if the resource isn't a model.
+         */
+        private RawModel model;
+        /**
+         * Memory the resource uses on the graphics card and in the memory of the game in bytes.
+         */
+        private long gpuBytes, heapBytes;
+        /**
+         * Amount of references to the resource that haven't been released yet.
+         */
+        private int references;
+
+        /**
+         * Creates a new resource without any references.
+         *
+         * @param type      Type of the resource.
+         * @param fileName  Path of the resource.
+         * @param handle    OpenGL or OpenAL ID of the resource.
+         * @param model     The model, if the resource is a model.
+         * @param gpuBytes  Memory the resource uses on the graphics card.
+         * @param heapBytes Memory the resource uses in the memory of the game.
+         */
+        public Resource(int type, String fileName, int handle, RawModel model, long gpuBytes, long heapBytes) {
+            this.type = type;
+            this.fileName = fileName;
+            this.handle = handle;
+            this.model = model;
+            this.gpuBytes = gpuBytes;
+            this.heapBytes = heapBytes;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.battleships.gui.renderingEngine;
+
+import com.battleships.gui.models.TextureData;
+import com.battleships.logic.SaveFileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cache for decoded images, so images only need to be decoded and their mipmaps only need to be calculated once.
+ * <p>
+ * Every image is stored in its own file ({@code Cache/Textures/<image>.tex} next to the game):
+ * <ul>
+ *     <li>Header ({@value #HEADER} bytes, little endian): magic number, version, hash of the image file
+ *     ({@link MeshCache#hash(ByteBuffer)}), width, height, amount of levels and the length of the compressed levels
+ *     (0 if the levels aren't compressed).</li>
+ *     <li>The levels in RGBA (4 bytes per pixel), level 0 is the image, every following level has half the width and
+ *     height of the level before (at least 1), down to 1x1 pixels. The levels are compressed with {@link Deflater} if
+ *     that makes them at least {@value #COMPRESSION_RATIO} times smaller, else they're stored as they are.</li>
+ * </ul>
+ * Files with uncompressed levels are mapped into memory and the levels are given to OpenGL without being copied first,
+ * so the most images (photos, which don't compress well) are loaded without any work. Compressed levels need to be
+ * inflated, which is still a lot faster than decoding the image.
+ * Images whose mip chain would need more than {@value #MAX_MIPMAPPED_SIZE} bytes only store level 0, their mipmaps are
+ * generated by OpenGL instead ({@link MipChain#isGenerateMipmaps()}). Files bigger than {@value #MAX_FILE_SIZE} bytes
+ * aren't written, and if all files together need more than {@value #MAX_TOTAL_SIZE} bytes, the files that weren't used
+ * for the longest time are deleted.
+ * If the hash in the header doesn't match the image (the image was changed), the image is decoded again and the file
+ * is replaced. Files are written in the background by the {@link CacheWriter}, which also compresses them.
+ *
+ * @author agent
+ */
+public class TextureCache {
+
+    /**
+     * Magic number at the start of every file.
+     */
+    public static final int MAGIC = 0x42544558;
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 2;
+    /**
+     * Suffix of the files.
+     */
+    public static final String SUFFIX = ".tex";
+    /**
+     * Length of the header in bytes.
+     */
+    public static final int HEADER = 32;
+    /**
+     * Maximum size of the full mip chain of an image in bytes, bigger images only store level 0.
+     */
+    public static final long MAX_MIPMAPPED_SIZE = 64L * 1024 * 1024;
+    /**
+     * Maximum size of the levels of an image in a file in bytes, bigger files aren't written.
+     */
+    public static final long MAX_FILE_SIZE = 64L * 1024 * 1024;
+    /**
+     * Maximum size of all files of the cache together in bytes.
+     */
+    public static final long MAX_TOTAL_SIZE = 256L * 1024 * 1024;
+    /**
+     * Levels are only stored compressed, if that makes them at least this many times smaller.
+     */
+    public static final int COMPRESSION_RATIO = 4;
+
+    /**
+     * Loads an image from the cache.
+     *
+     * @param name    Name of the image.
+     * @param hash    Hash of the image file ({@link MeshCache#hash(ByteBuffer)}).
+     * @param mipmaps {@code true} if the mipmaps of the image are needed.
+     * @return The image, {@code null} if the image isn't cached, was changed or was cached without mipmaps.
+     */
+    public static MipChain get(String name, long hash, boolean mipmaps) {
+        File file = getFile(name);
+        if (file == null || !file.isFile())
+            return null;
+        //files that are too big were written by older versions, they're never used again
+        if (file.length() > HEADER + MAX_FILE_SIZE) {
+            file.delete();
+            return null;
+        }
+        ByteBuffer blob;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            System.err.println("Error loading cached texture " + name + "!");
+            e.printStackTrace();
+            return null;
+        }
+        if (blob.limit() < HEADER || blob.getInt(0) != MAGIC || blob.getInt(4) != VERSION || blob.getLong(8) != hash)
+            return null;
+        int width = blob.getInt(16);
+        int height = blob.getInt(20);
+        int levels = blob.getInt(24);
+        int compressed = blob.getInt(28);
+        if (width <= 0 || height <= 0 || levels < 1 || levels > levelCount(width, height) || compressed < 0)
+            return null;
+        //images with a big mip chain only store level 0, OpenGL generates the mipmaps
+        boolean generateMipmaps = mipmaps && levels == 1 && !isMipmapped(width, height);
+        if (mipmaps && levels != levelCount(width, height) && !generateMipmaps)
+            return null;
+        long size = chainSize(width, height, levels);
+        if (blob.limit() != HEADER + (compressed == 0 ? size : compressed))
+            return null;
+        if (compressed != 0 && (blob = inflate(blob, size)) == null)
+            return null;
+        //the files that weren't used for the longest time are deleted first
+        file.setLastModified(System.currentTimeMillis());
+        return new MipChain(blob, generateMipmaps);
+    }
+
+    /**
+     * Adds an image to the cache, the file is compressed and written in the background.
+     * The mipmaps of images bigger than {@value #MAX_MIPMAPPED_SIZE} bytes aren't calculated, OpenGL generates them when
+     * the image is uploaded.
+     *
+     * @param name    Name of the image.
+     * @param hash    Hash of the image file ({@link MeshCache#hash(ByteBuffer)}).
+     * @param data    The decoded image in RGBA.
+     * @param mipmaps {@code true} if the mipmaps of the image should be calculated and stored as well.
+     * @return The image in the format of the cache.
+     */
+    public static MipChain put(String name, long hash, TextureData data, boolean mipmaps) {
+        boolean generateMipmaps = mipmaps && !isMipmapped(data.getWidth(), data.getHeight());
+        ByteBuffer blob = encode(hash, data, mipmaps && !generateMipmaps);
+        File file = getFile(name);
+        if (file != null && (file.getParentFile().isDirectory() || file.getParentFile().mkdirs()))
+            CacheWriter.write(file, blob.limit(), () -> compress(blob.duplicate()), () -> evict(file.getParentFile()));
+        return new MipChain(blob, generateMipmaps);
+    }
+
+    /**
+     * @param width  Width of an image.
+     * @param height Height of an image.
+     * @return {@code true} if the full mip chain of the image is stored, {@code false} if only level 0 is stored.
+     */
+    private static boolean isMipmapped(int width, int height) {
+        return chainSize(width, height, levelCount(width, height)) <= MAX_MIPMAPPED_SIZE;
+    }
+
+    /**
+     * Creates the content of the file of an image, runs on the thread of the {@link CacheWriter}.
+     * The levels are compressed, if that makes them at least {@value #COMPRESSION_RATIO} times smaller.
+     *
+     * @param blob The image in the format of the cache with uncompressed levels.
+     * @return The content of the file, {@code null} if it would be bigger than {@value #MAX_FILE_SIZE} bytes.
+     */
+    private static ByteBuffer compress(ByteBuffer blob) {
+        int size = blob.limit() - HEADER;
+        int maxCompressed = size / COMPRESSION_RATIO;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] input = new byte[1 << 16];
+        byte[] output = new byte[Math.min(maxCompressed, 1 << 20)];
+        int compressed = 0;
+        blob.position(HEADER);
+        try {
+            //the levels are given to the deflater in chunks, it stops as soon as compressing isn't worth it
+            while (!deflater.finished() && compressed < maxCompressed) {
+                if (deflater.needsInput()) {
+                    int length = Math.min(input.length, blob.remaining());
+                    blob.get(input, 0, length);
+                    deflater.setInput(input, 0, length);
+                    if (!blob.hasRemaining())
+                        deflater.finish();
+                }
+                if (compressed == output.length)
+                    output = Arrays.copyOf(output, Math.min(maxCompressed, 2 * output.length));
+                compressed += deflater.deflate(output, compressed, output.length - compressed);
+            }
+            if (!deflater.finished()) {
+                blob.clear();
+                return size > MAX_FILE_SIZE ? null : blob;
+            }
+        } finally {
+            deflater.end();
+        }
+        ByteBuffer file = ByteBuffer.allocate(HEADER + compressed).order(ByteOrder.LITTLE_ENDIAN);
+        blob.clear();
+        blob.limit(HEADER);
+        file.put(blob);
+        file.putInt(28, compressed);
+        file.put(output, 0, compressed);
+        file.flip();
+        return file;
+    }
+
+    /**
+     * Inflates the compressed levels of a file.
+     *
+     * @param blob Content of the file.
+     * @param size Size of the levels when they're inflated.
+     * @return The image in the format of the cache with uncompressed levels, {@code null} if the file is broken.
+     */
+    private static ByteBuffer inflate(ByteBuffer blob, long size) {
+        ByteBuffer inflated = ByteBuffer.allocateDirect(HEADER + (int) size).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer header = blob.duplicate();
+        header.limit(HEADER);
+        inflated.put(header);
+        inflated.putInt(28, 0);
+        byte[] input = new byte[blob.limit() - HEADER];
+        ByteBuffer levels = blob.duplicate();
+        levels.position(HEADER);
+        levels.get(input);
+        Inflater inflater = new Inflater();
+        inflater.setInput(input);
+        byte[] output = new byte[1 << 16];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(output, 0, Math.min(output.length, inflated.remaining()));
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary() || !inflated.hasRemaining()))
+                    return null;
+                inflated.put(output, 0, length);
+            }
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+        if (inflated.hasRemaining())
+            return null;
+        inflated.clear();
+        return inflated;
+    }
+
+    /**
+     * Deletes the files that weren't used for the longest time, until all files together need at most
+     * {@value #MAX_TOTAL_SIZE} bytes. Runs on the thread of the {@link CacheWriter} after a file was written.
+     *
+     * @param folder Folder containing the files of the cache.
+     */
+    private static void evict(File folder) {
+        File[] files = folder.listFiles((dir, fileName) -> fileName.endsWith(SUFFIX));
+        if (files == null)
+            return;
+        long total = 0;
+        for (File file : files)
+            total += file.length();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length && total > MAX_TOTAL_SIZE; i++) {
+            long length = files[i].length();
+            if (files[i].delete())
+                total -= length;
+        }
+    }
+
+    /**
+     * Converts an image into the format of the cache and calculates its mipmaps.
+     *
+     * @param hash    Hash of the image file ({@link MeshCache#hash(ByteBuffer)}).
+     * @param data    The decoded image in RGBA.
+     * @param mipmaps {@code true} if the mipmaps of the image should be calculated.
+     * @return The image in the format of the cache.
+     */
+    static ByteBuffer encode(long hash, TextureData data, boolean mipmaps) {
+        int width = data.getWidth();
+        int height = data.getHeight();
+        int levels = mipmaps ? levelCount(width, height) : 1;
+        ByteBuffer blob = ByteBuffer.allocateDirect(HEADER + (int) chainSize(width, height, levels)).order(ByteOrder.LITTLE_ENDIAN);
+        blob.putInt(MAGIC);
+        blob.putInt(VERSION);
+        blob.putLong(hash);
+        blob.putInt(width);
+        blob.putInt(height);
+        blob.putInt(levels);
+        blob.putInt(0);
+        ByteBuffer image = data.getBuffer().duplicate();
+        image.limit(image.position() + 4 * width * height);
+        blob.put(image);
+        int position = HEADER;
+        for (int level = 1; level < levels; level++) {
+            int nextWidth = Math.max(1, width / 2);
+            int nextHeight = Math.max(1, height / 2);
+            downsample(blob, position, width, height, blob.position(), nextWidth, nextHeight);
+            position = blob.position();
+            blob.position(position + 4 * nextWidth * nextHeight);
+            width = nextWidth;
+            height = nextHeight;
+        }
+        blob.clear();
+        return blob;
+    }
+
+    /**
+     * Calculates the next level of a mip chain, every pixel is the average of the 2x2 pixels it covers in the level before
+     * (pixels outside of the level are clamped to its edge, for levels with an odd width or height).
+     *
+     * @param blob         Buffer containing both levels.
+     * @param source       Position of the level that is reduced.
+     * @param width        Width of the level that is reduced.
+     * @param height       Height of the level that is reduced.
+     * @param target       Position the reduced level is written to.
+     * @param targetWidth  Width of the reduced level.
+     * @param targetHeight Height of the reduced level.
+     */
+    private static void downsample(ByteBuffer blob, int source, int width, int height, int target, int targetWidth, int targetHeight) {
+        for (int y = 0; y < targetHeight; y++) {
+            int row0 = source + 4 * width * Math.min(2 * y, height - 1);
+            int row1 = source + 4 * width * Math.min(2 * y + 1, height - 1);
+            for (int x = 0; x < targetWidth; x++) {
+                int column0 = 4 * Math.min(2 * x, width - 1);
+                int column1 = 4 * Math.min(2 * x + 1, width - 1);
+                for (int c = 0; c < 4; c++) {
+                    int sum = (blob.get(row0 + column0 + c) & 0xFF) + (blob.get(row0 + column1 + c) & 0xFF)
+                            + (blob.get(row1 + column0 + c) & 0xFF) + (blob.get(row1 + column1 + c) & 0xFF);
+                    blob.put(target++, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param width  Width of an image.
+     * @param height Height of an image.
+     * @return Amount of levels of the full mip chain of the image (down to 1x1 pixels).
+     */
+    static int levelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    /**
+     * @param width  Width of an image.
+     * @param height Height of an image.
+     * @param levels Amount of levels.
+     * @return Size of the levels of the image in bytes.
+     */
+    private static long chainSize(int width, int height, int levels) {
+        long size = 0;
+        for (int level = 0; level < levels; level++) {
+            size += 4L * Math.max(1, width >> level) * Math.max(1, height >> level);
+        }
+        return size;
+    }
+
+    /**
+     * @param name Name of the image.
+     * @return File the image is cached in, {@code null} if the path of the game couldn't be found.
+     */
+    private static File getFile(String name) {
+        try {
+            return new File(SaveFileManager.getJarPath() + "/Cache/Textures/" + name.replace('/', '_') + SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * A decoded image with its mipmaps in the format of the cache, the levels are views on the cached file.
+     *
+     * @author agent
+     */
+    public static class MipChain {
+
+        /**
+         * Width and height of level 0.
+         */
+        private int width, height;
+        /**
+         * The levels in RGBA.
+         */
+        private ByteBuffer[] levels;
+        /**
+         * {@code true} if the mipmaps are needed but only level 0 is contained.
+         */
+        private boolean generateMipmaps;
+
+        /**
+         * Creates views on the levels of an image.
+         *
+         * @param blob            The image in the format of the cache.
+         * @param generateMipmaps {@code true} if the mipmaps are needed but only level 0 is contained.
+         */
+        MipChain(ByteBuffer blob, boolean generateMipmaps) {
+            this.generateMipmaps = generateMipmaps;
+            width = blob.getInt(16);
+            height = blob.getInt(20);
+            levels = new ByteBuffer[blob.getInt(24)];
+            int position = HEADER;
+            for (int level = 0; level < levels.length; level++) {
+                int length = 4 * getWidth(level) * getHeight(level);
+                ByteBuffer view = blob.duplicate();
+                view.position(position);
+                view.limit(position + length);
+                levels[level] = view.slice();
+                position += length;
+            }
+        }
+
+        /**
+         * @param level A level of the mip chain.
+         * @return Width of the level in pixels.
+         */
+        public int getWidth(int level) {
+            return Math.max(1, width >> level);
+        }
+
+        /**
+         * @param level A level of the mip chain.
+         * @return Height of the level in pixels.
+         */
+        public int getHeight(int level) {
+            return Math.max(1, height >> level);
+        }
+
+        /**
+         * @return Amount of levels, 1 if the image was cached without mipmaps.
+         */
+        public int getLevels() {
+            return levels.length;
+        }
+
+        /**
+         * @param level A level of the mip chain.
+         * @return The pixels of the level in RGBA.
+         */
+        public ByteBuffer getLevel(int level) {
+            return levels[level];
+        }
+
+        /**
+         * @return {@code true} if the mip chain of the image is too big to be stored, so OpenGL needs to generate its
+         * mipmaps after level 0 was uploaded.
+         */
+        public boolean isGenerateMipmaps() {
+            return generateMipmaps;
+        }
+    }
+}
@@ -5,16 +5,16 @@ import com.battleships.gui.models.TextureData;
 import de.matthiasmann.twl.utils.PNGDecoder;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL30;
 import org.lwjgl.stb.STBImage;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
 
 /**
  * Loader for converting images to textures formatted for OpenGL.
@@ -24,23 +24,54 @@ import java.nio.channels.ReadableByteChannel;
 public class TextureLoader {
 
     /**
-     * Load a texture from an image (.jpg or .tga images).
-     *
-     * @param filename Path to the image for the texture.
-     * @return A ModelTexture containing the loaded image converted into a texture.
+     * Path of the folder containing all textures.
      */
-    static ModelTexture loadTexture(String filename) {
+    public static final String TEXTUREFOLDER = "/com/battleships/gui/res/textures/";
 
-        //create usable TextureLoader for OpenGl from image
-        InputStream is = TextureLoader.class.getResourceAsStream("/com/battleships/gui/res/textures/" + filename);
+    /**
+     * Loads an image and its mipmaps from the {@link TextureCache}, decodes the image and caches it if it isn't cached yet.
+     * Doesn't use OpenGL so it can be called by any thread.
+     *
+     * @param filename Path to the image in the textures folder.
+     * @param mipmaps  {@code true} if the mipmaps of the image are needed.
+     * @return The image and its mipmaps (only level 0 if no mipmaps are needed).
+     */
+    static TextureCache.MipChain loadMipChain(String filename, boolean mipmaps) {
+        InputStream is = TextureLoader.class.getResourceAsStream(TEXTUREFOLDER + filename);
         if (is == null)
             throw new RuntimeException("Resource not found: " + filename);
-        ByteBuffer rawBytes;
+        ByteBuffer source;
         try {
-            rawBytes = ioResourceToByteBuffer(is);
-        } catch (NullPointerException e) {
-            throw new RuntimeException(e);
+            source = OBJLoader.readFully(is);
+        } catch (IOException e) {
+            throw new RuntimeException("Image file '" + filename + "' could not be read", e);
         }
+        long hash = MeshCache.hash(source);
+        TextureCache.MipChain chain = TextureCache.get(filename, hash, mipmaps);
+        if (chain != null)
+            return chain;
+        TextureData data = decodeTexture(filename, source);
+        chain = TextureCache.put(filename, hash, data, mipmaps);
+        if (!filename.contains("png"))
+            STBImage.stbi_image_free(data.getBuffer());
+        return chain;
+    }
+
+    /**
+     * Decodes an image into RGBA, .png images are decoded with the {@link PNGDecoder}, all other images with STB.
+     *
+     * @param filename Path to the image for the texture.
+     * @param source   The image file, from its position to its limit.
+     * @return The decoded image, images decoded by STB need to be freed with {@link STBImage#stbi_image_free(ByteBuffer)}.
+     */
+    static TextureData decodeTexture(String filename, ByteBuffer source) {
+        if (filename.contains("png"))
+            return loadTextureData(filename, new ByteArrayInputStream(source.array(), source.arrayOffset() + source.position(), source.remaining()));
+
+        //create usable TextureLoader for OpenGl from image
+        ByteBuffer rawBytes = BufferUtils.createByteBuffer(source.remaining());
+        rawBytes.put(source.duplicate());
+        rawBytes.flip();
 
         IntBuffer w = BufferUtils.createIntBuffer(1);
         IntBuffer h = BufferUtils.createIntBuffer(1);
@@ -48,18 +79,40 @@ public class TextureLoader {
         ByteBuffer decodedImage = STBImage.stbi_load_from_memory(rawBytes, w, h, c, 4);
         if (decodedImage == null)
             throw new RuntimeException("Image file '" + filename + "' could not be loaded: " + STBImage.stbi_failure_reason());
+        return new TextureData(decodedImage, w.get(), h.get());
+    }
 
+    /**
+     * Creates a texture from an image and its mipmaps, needs to be called by the OpenGL thread.
+     * All levels of the mip chain are uploaded, so OpenGL doesn't need to generate the mipmaps, unless the mip chain of
+     * the image was too big to be stored ({@link TextureCache.MipChain#isGenerateMipmaps()}).
+     *
+     * @param chain   The image and its mipmaps.
+     * @param lodBias Bias that is added to the level of the mipmap that is used, negative values make textures sharper.
+     * @return A ModelTexture containing the loaded image converted into a texture.
+     */
+    static ModelTexture uploadTexture(TextureCache.MipChain chain, float lodBias) {
         //add texture to OpenGL
-        int width = w.get();
-        int height = h.get();
         int id = GL11.glGenTextures();
         GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, decodedImage);
-
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        for (int level = 0; level < chain.getLevels(); level++) {
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, chain.getWidth(level), chain.getHeight(level), 0,
+                    GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, chain.getLevel(level));
+        }
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-
-        STBImage.stbi_image_free(decodedImage);
+        int levels = chain.getLevels();
+        if (chain.isGenerateMipmaps()) {
+            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+            levels = TextureCache.levelCount(chain.getWidth(0), chain.getHeight(0));
+        }
+        if (levels == 1) {
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+            return new ModelTexture(id);
+        }
+        //use mipmap to render textures that are further away in lower resolution
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, levels - 1);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR_MIPMAP_LINEAR);
+        GL11.glTexParameterf(GL11.GL_TEXTURE_2D, GL14.GL_TEXTURE_LOD_BIAS, lodBias);
         return new ModelTexture(id);
     }
 
@@ -70,12 +123,22 @@ public class TextureLoader {
      * @return A TextureData containing all the data needed from the image.
      */
     public static TextureData loadTextureData(String fileName) {
+        return loadTextureData(fileName, TextureLoader.class.getResourceAsStream(fileName));
+    }
+
+    /**
+     * Load the data from a .png image needed to create a texture from it.
+     *
+     * @param fileName Path to the image, used for error messages.
+     * @param in       Stream containing the image, is closed afterwards.
+     * @return A TextureData containing all the data needed from the image.
+     */
+    private static TextureData loadTextureData(String fileName, InputStream in) {
 
         int width = 0;
         int height = 0;
         ByteBuffer buffer = null;
         try {
-            InputStream in = TextureLoader.class.getResourceAsStream(fileName);
             PNGDecoder decoder = new PNGDecoder(in);
             width = decoder.getWidth();
             height = decoder.getHeight();
@@ -90,63 +153,4 @@ public class TextureLoader {
         }
         return new TextureData(buffer, width, height);
     }
-
-    /**
-     * Load a texture from an image (.png images).
-     *
-     * @param fileName Path to the image for the texture.
-     * @return A ModelTexture containing the loaded image converted into a texture.
-     */
-    public static ModelTexture loadPNGTexture(String fileName) {
-        TextureData data = loadTextureData("/com/battleships/gui/res/textures/" + fileName);
-        int id = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, data.getWidth(), data.getHeight(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data.getBuffer());
-
-        return new ModelTexture(id);
-    }
-
-    /**
-     * Loads all the data an InputStream contains into a ByteBuffer.
-     *
-     * @param source InputStream containing the data.
-     * @return A ByteBuffer containing all the bytes from the InputStream.
-     * @throws NullPointerException If the passed InputStream doesn't exist.
-     */
-    private static ByteBuffer ioResourceToByteBuffer(InputStream source) throws NullPointerException {
-        ByteBuffer buffer;
-
-        try (ReadableByteChannel rbc = Channels.newChannel(source)) {
-            buffer = BufferUtils.createByteBuffer(16384);
-
-            while (true) {
-                int bytes = rbc.read(buffer);
-                if (bytes == -1)
-                    break;
-                if (buffer.remaining() == 0)
-                    buffer = resizeBuffer(buffer, buffer.capacity() * 2);
-
-            }
-        } catch (Throwable t) {
-            throw new NullPointerException("Input Stream not valid!");
-        }
-
-        buffer.flip();
-        return buffer;
-    }
-
-    /**
-     * Increases the size of a byteBuffer if the buffer was to small for the data
-     * that should be written to it.
-     *
-     * @param buffer      The buffer whose size should be increased.
-     * @param newCapacity The new size the buffer should have.
-     * @return A buffer containing all the data from the buffer that was passed with a new size.
-     */
-    private static ByteBuffer resizeBuffer(ByteBuffer buffer, int newCapacity) {
-        ByteBuffer newBuffer = BufferUtils.createByteBuffer(newCapacity);
-        buffer.flip();
-        newBuffer.put(buffer);
-        return newBuffer;
-    }
 }
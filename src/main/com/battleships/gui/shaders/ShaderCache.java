@@ -0,0 +1,171 @@
+package com.battleships.gui.shaders;
+
+import com.battleships.gui.renderingEngine.CacheWriter;
+import com.battleships.gui.renderingEngine.MeshCache;
+import com.battleships.logic.SaveFileManager;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cache for linked shader programs, so the shaders only need to be compiled and linked once.
+ * <p>
+ * Every program is stored in its own file ({@code Cache/Shaders/<vertex shader>.bin} next to the game):
+ * <ul>
+ *     <li>Header ({@value #HEADER} bytes, little endian): magic number, version, hash of the source code of both shaders,
+ *     hash of the driver, format of the binary and length of the binary.</li>
+ *     <li>The binary of the program as it was returned by {@code glGetProgramBinary}.</li>
+ * </ul>
+ * Binaries can only be used by the driver that created them, so the cache is ignored if the vendor, renderer or
+ * version of OpenGL changed, or if the source code of one of the shaders changed. In that case the program is compiled
+ * from its source code again and the file is replaced. Files are written in the background by the {@link CacheWriter}.
+ * If the driver doesn't support program binaries (no OpenGL 4.1 or ARB_get_program_binary, or no binary formats),
+ * the cache isn't used at all.
+ *
+ * @author agent
+ */
+public class ShaderCache {
+
+    /**
+     * Magic number at the start of every file.
+     */
+    public static final int MAGIC = 0x42534852;
+    /**
+     * Version of the file format.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Suffix of the files.
+     */
+    public static final String SUFFIX = ".bin";
+    /**
+     * Length of the header in bytes.
+     */
+    public static final int HEADER = 32;
+
+    /**
+     * {@code null} until the driver was checked, then {@code true} if program binaries are supported.
+     */
+    private static Boolean supported;
+    /**
+     * Hash of the vendor, renderer and version of the driver.
+     */
+    private static long driverHash;
+
+    /**
+     * @return {@code true} if the driver of the current OpenGL context supports program binaries.
+     */
+    public static boolean isSupported() {
+        if (supported == null) {
+            supported = GL.getCapabilities().glProgramBinary != 0L && GL11.glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+            String driver = GL11.glGetString(GL11.GL_VENDOR) + "|" + GL11.glGetString(GL11.GL_RENDERER) + "|" + GL11.glGetString(GL11.GL_VERSION);
+            driverHash = hash(driver);
+        }
+        return supported;
+    }
+
+    /**
+     * Calculates the hash of the source code of a shader program.
+     *
+     * @param vertexSource   Source code of the vertex shader.
+     * @param fragmentSource Source code of the fragment shader.
+     * @return The hash of the source code.
+     */
+    public static long hash(String vertexSource, String fragmentSource) {
+        return hash(vertexSource) * 31 + hash(fragmentSource);
+    }
+
+    /**
+     * Loads the binary of a program from the cache into a program.
+     *
+     * @param programID  ID of the program the binary should be loaded into, needs to be created but not linked.
+     * @param name       Name of the program.
+     * @param sourceHash Hash of the source code of the program ({@link #hash(String, String)}).
+     * @return {@code true} if the binary was loaded and the program is linked, {@code false} if the program isn't
+     * cached, was changed, was cached by another driver or the driver rejected the binary.
+     */
+    public static boolean load(int programID, String name, long sourceHash) {
+        if (!isSupported())
+            return false;
+        File file = getFile(name);
+        if (file == null || !file.isFile())
+            return false;
+        ByteBuffer blob;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            System.err.println("Error loading cached shader " + name + "!");
+            e.printStackTrace();
+            return false;
+        }
+        if (blob.limit() < HEADER || blob.getInt(0) != MAGIC || blob.getInt(4) != VERSION || blob.getLong(8) != sourceHash
+                || blob.getLong(16) != driverHash || blob.limit() != HEADER + blob.getInt(28))
+            return false;
+        blob.position(HEADER);
+        GL41.glProgramBinary(programID, blob.getInt(24), blob.slice());
+        return GL20.glGetProgrami(programID, GL20.GL_LINK_STATUS) == GL11.GL_TRUE;
+    }
+
+    /**
+     * Adds the binary of a linked program to the cache, the file is written in the background.
+     * The program needs to be linked with {@link GL41#GL_PROGRAM_BINARY_RETRIEVABLE_HINT} set.
+     *
+     * @param programID  ID of the linked program.
+     * @param name       Name of the program.
+     * @param sourceHash Hash of the source code of the program ({@link #hash(String, String)}).
+     */
+    public static void put(int programID, String name, long sourceHash) {
+        if (!isSupported() || GL20.glGetProgrami(programID, GL20.GL_LINK_STATUS) != GL11.GL_TRUE)
+            return;
+        int length = GL20.glGetProgrami(programID, GL41.GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0)
+            return;
+        ByteBuffer blob = BufferUtils.createByteBuffer(HEADER + length).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer format = BufferUtils.createIntBuffer(1);
+        blob.position(HEADER);
+        GL41.glGetProgramBinary(programID, null, format, blob.slice());
+        blob.putInt(0, MAGIC);
+        blob.putInt(4, VERSION);
+        blob.putLong(8, sourceHash);
+        blob.putLong(16, driverHash);
+        blob.putInt(24, format.get(0));
+        blob.putInt(28, length);
+        blob.clear();
+        File file = getFile(name);
+        if (file != null && (file.getParentFile().isDirectory() || file.getParentFile().mkdirs()))
+            CacheWriter.write(file, blob);
+    }
+
+    /**
+     * @param text A text.
+     * @return Hash of the text ({@link MeshCache#hash(ByteBuffer)} of its bytes).
+     */
+    private static long hash(String text) {
+        return MeshCache.hash(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param name Name of the program.
+     * @return File the program is cached in, {@code null} if the path of the game couldn't be found.
+     */
+    private static File getFile(String name) {
+        try {
+            return new File(SaveFileManager.getJarPath() + "/Cache/Shaders/" + name + SUFFIX);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.joml.Vector4f;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -29,44 +30,54 @@ public abstract class ShaderProgram {
      */
     private int programID;
     /**
-     * ID of the vertex shader of this program.
+     * ID of the vertex shader of this program, 0 if the program was loaded from the {@link ShaderCache}.
      */
     private int vertexShaderID;
     /**
-     * ID of the fragment shader of this program.
+     * ID of the fragment shader of this program, 0 if the program was loaded from the {@link ShaderCache}.
      */
     private int fragmentShaderID;
 
     /**
      * Create a new OpenGL Shader program that uses the two specified shader files.
+     * If the program was linked before with the same source code and driver, the linked program is loaded from the
+     * {@link ShaderCache}, else the shaders are compiled and the linked program is added to the cache.
      *
      * @param vertexFile   Path to the vertex file the shader should use.
      * @param fragmentFile Path to the fragment file the shader should use.
      */
     public ShaderProgram(String vertexFile, String fragmentFile) {
-        //get shader ids
-        vertexShaderID = loadShader(vertexFile, GL20.GL_VERTEX_SHADER);
-        fragmentShaderID = loadShader(fragmentFile, GL20.GL_FRAGMENT_SHADER);
+        String vertexSource = readShader(vertexFile);
+        String fragmentSource = readShader(fragmentFile);
+        String name = vertexFile.substring(vertexFile.lastIndexOf('/') + 1).replace(".glsl", "");
+        long sourceHash = ShaderCache.hash(vertexSource, fragmentSource);
         //create new program with the id programID
         programID = GL20.glCreateProgram();
-        //attack shaders to new program
-        GL20.glAttachShader(programID, vertexShaderID);
-        GL20.glAttachShader(programID, fragmentShaderID);
+        if (!ShaderCache.load(programID, name, sourceHash)) {
+            //get shader ids
+            vertexShaderID = loadShader(vertexSource, GL20.GL_VERTEX_SHADER);
+            fragmentShaderID = loadShader(fragmentSource, GL20.GL_FRAGMENT_SHADER);
+            //attack shaders to new program
+            GL20.glAttachShader(programID, vertexShaderID);
+            GL20.glAttachShader(programID, fragmentShaderID);
 
-        bindAttributes();
-        GL20.glLinkProgram(programID);
+            bindAttributes();
+            if (ShaderCache.isSupported())
+                GL41.glProgramParameteri(programID, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+            GL20.glLinkProgram(programID);
+            ShaderCache.put(programID, name, sourceHash);
+        }
         GL20.glValidateProgram(programID);
         getAllUniformLocations();
     }
 
     /**
-     * Load a shader from a shader file.
+     * Read the source code of a shader from a shader file.
      *
      * @param file File containing the shader.
-     * @param type OpenGl type of the shader.
-     * @return ID of the loaded shader.
+     * @return Source code of the shader.
      */
-    private static int loadShader(String file, int type) {
+    private static String readShader(String file) {
         StringBuilder shaderSource = new StringBuilder();
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(ShaderProgram.class.getResourceAsStream(file)));
@@ -79,6 +90,17 @@ public abstract class ShaderProgram {
             e.printStackTrace();
             System.exit(-1);
         }
+        return shaderSource.toString();
+    }
+
+    /**
+     * Compile a shader.
+     *
+     * @param shaderSource Source code of the shader.
+     * @param type         OpenGl type of the shader.
+     * @return ID of the compiled shader.
+     */
+    private static int loadShader(String shaderSource, int type) {
         int shaderID = GL20.glCreateShader(type);
         GL20.glShaderSource(shaderID, shaderSource);
         GL20.glCompileShader(shaderID);
@@ -132,10 +154,12 @@ public abstract class ShaderProgram {
     public void cleanUp() {
         //stop shaders, detach them and delete shaders and this program
         stop();
-        GL20.glDetachShader(programID, vertexShaderID);
-        GL20.glDetachShader(programID, fragmentShaderID);
-        GL20.glDeleteShader(vertexShaderID);
-        GL20.glDeleteShader(fragmentShaderID);
+        if (vertexShaderID != 0) {
+            GL20.glDetachShader(programID, vertexShaderID);
+            GL20.glDetachShader(programID, fragmentShaderID);
+            GL20.glDeleteShader(vertexShaderID);
+            GL20.glDeleteShader(fragmentShaderID);
+        }
         GL20.glDeleteProgram(programID);
     }
 
@@ -4,7 +4,6 @@ import com.battleships.gui.entities.Camera;
 import com.battleships.gui.entities.Light;
 import com.battleships.gui.toolbox.Maths;
 import org.joml.Matrix4f;
-import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
@@ -47,12 +46,17 @@ public class StaticShader extends ShaderProgram {
      * 3 attributes for a model, these need to be in the same order as the attributes this shader uses.
      * The attributes are then passed to the vertexShader as "in values", so it can process them.
      * The first attribute in the vao will be treated as the position for the entity, the second as textureCorrds, ...
+     * The attributes after them contain the data of each entity, they are added to the vao by the {@link com.battleships.gui.renderingEngine.EntityRenderer}.
      */
     @Override
     protected void bindAttributes() {
         super.bindAttribute(0, "position");
         super.bindAttribute(1, "textureCoords");
         super.bindAttribute(2, "normal");
+        //per instance data, the transformation matrix uses the attributes 3 to 6 (one for each column)
+        super.bindAttribute(3, "transformationMatrix");
+        super.bindAttribute(7, "mixColor");
+        super.bindAttribute(8, "offset");
     }
 
     /**
@@ -64,8 +68,8 @@ public class StaticShader extends ShaderProgram {
      */
     @Override
     protected void getAllUniformLocations() {
-        String[] uniformNames = {"transformationMatrix", "projectionMatrix", "viewMatrix", "lightPosition", "lightColor", "shineDamper",
-                "reflectivity", "useFakeLighting", "skyColor", "numberOfRows", "offset", "plane", "mixPercentage", "mixColor"};
+        String[] uniformNames = {"projectionMatrix", "viewMatrix", "lightPosition", "lightColor", "shineDamper",
+                "reflectivity", "useFakeLighting", "skyColor", "numberOfRows", "plane"};
         uniformLocations = new HashMap<>();
 
         for (String s : uniformNames) {
@@ -73,18 +77,6 @@ public class StaticShader extends ShaderProgram {
         }
     }
 
-    /**
-     * Load additional color values for a entity, that are mixed with the given
-     * percentage with the normal color of the entity. Can be used for graying of objects for example.
-     *
-     * @param color      The color the entities color should be mixed with.
-     * @param percentage How much of this color should be used (0-1).
-     */
-    public void loadMixColor(Vector3f color, float percentage) {
-        super.loadVector(uniformLocations.get("mixColor"), color);
-        super.loadFloat(uniformLocations.get("mixPercentage"), percentage);
-    }
-
     /**
      * Load ClipPlane vector to shader.
      * All vertices of entities that are on the opposite site the normal vector of the clip plane is
@@ -107,16 +99,6 @@ public class StaticShader extends ShaderProgram {
         super.loadFloat(uniformLocations.get("numberOfRows"), numberOfRows);
     }
 
-    /**
-     * Load the offset of the texture that should be used in a texture atlas into the uniform variable.
-     *
-     * @param x column of the texture that should be used (0 if it's a normal texture).
-     * @param y row of the texture (0 if it's a normal texture).
-     */
-    public void loadOffset(float x, float y) {
-        super.load2DVector(uniformLocations.get("offset"), new Vector2f(x, y));
-    }
-
     /**
      * Loads the color that the shader should use for the sky into the uniform variable.
      *
@@ -149,15 +131,6 @@ public class StaticShader extends ShaderProgram {
         super.loadVector(uniformLocations.get("lightColor"), light.getColor());
     }
 
-    /**
-     * Loads the transformation Matrix of the currently rendered entity to the uniform variable.
-     *
-     * @param matrix transformation matrix of the entity, containing position, rotation and scale.
-     */
-    public void loadTransformationMatrix(Matrix4f matrix) {
-        super.loadMatrix(uniformLocations.get("transformationMatrix"), matrix);
-    }
-
     /**
      * Loads the current view matrix into the uniform variable.
      *
@@ -7,6 +7,7 @@ in vec3 surfaceNormal;
 in vec3 toLightVector;
 in vec3 toCameraVector;
 in float visibility;
+flat in vec4 pass_mixColor; //color in rgb, percentage it is mixed in with in a
 
 out vec4 out_Color;
 
@@ -15,8 +16,6 @@ uniform vec3 lightColor;
 uniform float shineDamper;
 uniform float reflectivity;
 uniform vec3 skyColor;
-uniform float mixPercentage;
-uniform vec3 mixColor;
 
 void main(){
 
@@ -44,5 +43,5 @@ void main(){
 
     out_Color = vec4(diffuse,1.0) * textureColor + vec4(finalSpecular,1.0); //return color of pixel at coordinates
     out_Color = mix(vec4(skyColor, 1.0), out_Color, visibility); //mix skyColor (fog Color( and object color depending on visibility
-    out_Color = mix(out_Color, vec4(mixColor, 1.0), mixPercentage);
+    out_Color = mix(out_Color, vec4(pass_mixColor.rgb, 1.0), pass_mixColor.a);
 }
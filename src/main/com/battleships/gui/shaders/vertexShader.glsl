@@ -5,14 +5,18 @@
 in vec3 position;
 in vec2 textureCoords;
 in vec3 normal;
+//per instance data
+in mat4 transformationMatrix;
+in vec4 mixColor; //color in rgb, percentage it is mixed in with in a
+in vec2 offset;
 
 out vec2 pass_textureCoords;
 out vec3 surfaceNormal;
 out vec3 toLightVector;
 out vec3 toCameraVector;
 out float visibility; //how foggy a object is, 0 for invisible (only fog) 1 for no fog
+flat out vec4 pass_mixColor;
 
-uniform mat4 transformationMatrix;
 uniform mat4 projectionMatrix;
 uniform mat4 viewMatrix;
 uniform vec3 lightPosition;
@@ -20,7 +24,6 @@ uniform vec3 lightPosition;
 uniform float useFakeLighting;
 
 uniform float numberOfRows;
-uniform vec2 offset;
 
 const float density = 0.0015; //density of fog (how far objects need to be from camera before they get foggy)
 const float gradient = 3.0; //how fast objects get foggy once they are in fog range
@@ -36,6 +39,7 @@ void main(){
     vec4 positionRelativeToCam = viewMatrix * worldPosition;
     gl_Position = projectionMatrix * positionRelativeToCam;  //convert position of model in 3D space to a displayable form on a 2D screen
     pass_textureCoords = (textureCoords/numberOfRows) + offset; //pass textureCoords to fragment shader after calculating right spot if texture atlas is used
+    pass_mixColor = mixColor;
 
     vec3 actualNormal = normal; //if fake lighting is used make all normals point upwards
     if(useFakeLighting > 0.5){
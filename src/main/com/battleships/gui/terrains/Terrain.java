@@ -1,14 +1,23 @@
 package com.battleships.gui.terrains;
 
+import com.battleships.gui.models.ModelData;
 import com.battleships.gui.models.RawModel;
+import com.battleships.gui.renderingEngine.AssetPipeline;
 import com.battleships.gui.renderingEngine.Loader;
+import com.battleships.gui.renderingEngine.MeshCache;
+import com.battleships.gui.renderingEngine.OBJLoader;
+import com.battleships.gui.renderingEngine.TextureLoader;
 import com.battleships.gui.toolbox.Maths;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
 
 /**
  * A terrain that can be placed in the world.
@@ -30,6 +39,10 @@ public class Terrain {
      * Maximum color a pixel on the terrain can have (white).
      */
     private static final float MAX_PIXEL_COLOR = 256 * 256 * 256;
+    /**
+     * Prefix of the names the models of terrains are cached with in the {@link MeshCache}.
+     */
+    private static final String CACHENAME = "terrain/";
 
     /**
      * X position of the middle of the terrain.
@@ -75,7 +88,19 @@ public class Terrain {
         this.texturePack = texturePack;
         this.x = gridX * SIZE;
         this.z = gridZ * SIZE;
-        this.model = generateTerrain(loader, heightMap);
+        //the model was usually loaded by the asset pipeline during the loading screen
+        MeshCache.Mesh mesh = AssetPipeline.takeTerrain(heightMap);
+        if (mesh == null)
+            mesh = loadMesh(heightMap);
+        this.model = loader.loadToVAO(mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), mesh.getIndices());
+        //store heights in 2D array for fast access for collision detection
+        int vertexCount = (int) Math.round(Math.sqrt(mesh.getPositions().remaining() / 3));
+        heights = new float[vertexCount][vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            for (int j = 0; j < vertexCount; j++) {
+                heights[j][i] = mesh.getPositions().get((i * vertexCount + j) * 3 + 1);
+            }
+        }
     }
 
     /**
@@ -158,24 +183,43 @@ public class Terrain {
     }
 
     /**
-     * Generate the model for this terrain from it's heightMap.
+     * Loads the model of a terrain from the {@link MeshCache}, generates it from the height map and caches it if it isn't cached yet.
+     * Doesn't use OpenGL so it can be called by any thread.
      *
-     * @param loader    Loader to load the model.
-     * @param heightMap Path to the image containing the height map of this terrain.
-     * @return The model this terrain needs to use to match the height map.
+     * @param heightMap Path to the image in the textures folder containing the height map of the terrain.
+     * @return The data of the model, empty if the height map couldn't be read.
      */
-    private RawModel generateTerrain(Loader loader, String heightMap) {
-
-        //load height map
-        BufferedImage image = null;
+    public static MeshCache.Mesh loadMesh(String heightMap) {
         try {
-            image = ImageIO.read(getClass().getResource("/com/battleships/gui/res/textures/" + heightMap));
+            InputStream is = Terrain.class.getResourceAsStream(TextureLoader.TEXTUREFOLDER + heightMap);
+            if (is == null)
+                throw new IOException("Resource not found: " + heightMap);
+            ByteBuffer source = OBJLoader.readFully(is);
+            //the size and maximum height are part of the key, so the cached model is generated again if they are changed
+            long hash = MeshCache.hash(source) ^ (31L * Float.floatToIntBits(SIZE) + Float.floatToIntBits(MAX_HEIGHT));
+            MeshCache.Mesh mesh = MeshCache.get(CACHENAME + heightMap, hash);
+            if (mesh != null)
+                return mesh;
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(source.array(), source.arrayOffset() + source.position(), source.remaining()));
+            return MeshCache.put(CACHENAME + heightMap, hash, generateTerrain(image));
         } catch (IOException e) {
+            System.err.println("Error while loading terrain " + heightMap + "!");
             e.printStackTrace();
+            return MeshCache.toMesh(new ModelData(new float[0], new float[0], new float[0], new int[0]));
         }
+    }
+
+    /**
+     * Generate the model for a terrain from it's heightMap.
+     * The heights are read from the image once, the rows of vertices are then generated in parallel.
+     *
+     * @param image Image containing the height map of the terrain.
+     * @return The model a terrain needs to use to match the height map.
+     */
+    static ModelData generateTerrain(BufferedImage image) {
         //get vertex count from image size in pixels
         int VERTEX_COUNT = image.getHeight();
-        heights = new float[VERTEX_COUNT][VERTEX_COUNT];
+        float[] heightField = readHeights(image, VERTEX_COUNT);
 
         //total count of vertices
         int count = VERTEX_COUNT * VERTEX_COUNT;
@@ -186,20 +230,18 @@ public class Terrain {
         float[] textureCoords = new float[count * 2];
         int[] indices = new int[6 * (VERTEX_COUNT - 1) * (VERTEX_COUNT - 1)];
 
-        //double loop to loop through every vertex
-        int vertexPointer = 0;
-        for (int i = 0; i < VERTEX_COUNT; i++) {
+        //every row only writes its own part of the arrays, so the rows can be generated at the same time
+        IntStream.range(0, VERTEX_COUNT).parallel().forEach(i -> {
+            Vector3f normal = new Vector3f();
             for (int j = 0; j < VERTEX_COUNT; j++) {
+                int vertexPointer = i * VERTEX_COUNT + j;
                 //store vertex Coordinates (x,y,z)
                 vertices[vertexPointer * 3] = (float) j / ((float) VERTEX_COUNT - 1) * SIZE;
-                float height = getHeight(j, i, image);
-                //also store height in 2D array for fast access for collision detection
-                heights[j][i] = height;
-                vertices[vertexPointer * 3 + 1] = height;
+                vertices[vertexPointer * 3 + 1] = getHeight(j, i, heightField, VERTEX_COUNT);
                 vertices[vertexPointer * 3 + 2] = (float) i / ((float) VERTEX_COUNT - 1) * SIZE;
 
                 //store normal vector of vertex in array
-                Vector3f normal = calculateNormal(j, i, image);
+                calculateNormal(j, i, heightField, VERTEX_COUNT, normal);
                 normals[vertexPointer * 3] = normal.x;
                 normals[vertexPointer * 3 + 1] = normal.y;
                 normals[vertexPointer * 3 + 2] = normal.z;
@@ -207,17 +249,15 @@ public class Terrain {
                 //store textureCoords of vertex in array
                 textureCoords[vertexPointer * 2] = (float) j / ((float) VERTEX_COUNT - 1);
                 textureCoords[vertexPointer * 2 + 1] = (float) i / ((float) VERTEX_COUNT - 1);
-
-                //continue with next vertex
-                vertexPointer++;
             }
-        }
-        int pointer = 0;
-        for (int gz = 0; gz < VERTEX_COUNT - 1; gz++) {
+            if (i == VERTEX_COUNT - 1)
+                return;
+            //two triangles for every square between this row and the next one
+            int pointer = 6 * i * (VERTEX_COUNT - 1);
             for (int gx = 0; gx < VERTEX_COUNT - 1; gx++) {
-                int topLeft = (gz * VERTEX_COUNT) + gx;
+                int topLeft = (i * VERTEX_COUNT) + gx;
                 int topRight = topLeft + 1;
-                int bottomLeft = ((gz + 1) * VERTEX_COUNT) + gx;
+                int bottomLeft = ((i + 1) * VERTEX_COUNT) + gx;
                 int bottomRight = bottomLeft + 1;
                 indices[pointer++] = topLeft;
                 indices[pointer++] = bottomLeft;
@@ -226,47 +266,64 @@ public class Terrain {
                 indices[pointer++] = bottomLeft;
                 indices[pointer++] = bottomRight;
             }
+        });
+        return new ModelData(vertices, textureCoords, normals, indices);
+    }
+
+    /**
+     * Converts all pixels of the height map into heights, depending on how dark the pixels are.
+     * The darker the lower the terrain.
+     *
+     * @param image       Image containing the height map of this terrain.
+     * @param vertexCount Amount of vertices in each row and column of the terrain.
+     * @return The heights of all pixels, row by row.
+     */
+    private static float[] readHeights(BufferedImage image, int vertexCount) {
+        int[] pixels = image.getRGB(0, 0, vertexCount, vertexCount, null, 0, vertexCount);
+        float[] heightField = new float[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            float height = pixels[i];
+            height += MAX_PIXEL_COLOR / 2f;
+            height /= MAX_PIXEL_COLOR / 2f;
+            height *= MAX_HEIGHT;
+            heightField[i] = height;
         }
-        return loader.loadToVAO(vertices, textureCoords, normals, indices);
+        return heightField;
     }
 
     /**
      * Calculate in which direction the normal vector needs to face at a specific point on the terrain.
      *
-     * @param x     x coordinate of the pixel on the image of the point he normal should be calculated for.
-     * @param y     y coordinate of the pixel on the image of the point he normal should be calculated for.
-     * @param image Image containing the height map of this terrain.
-     * @return The normal vector the terrain needs to have at the passed pixel.
+     * @param x           x coordinate of the pixel on the image of the point he normal should be calculated for.
+     * @param y           y coordinate of the pixel on the image of the point he normal should be calculated for.
+     * @param heightField Heights of all pixels of the height map.
+     * @param vertexCount Amount of vertices in each row and column of the terrain.
+     * @param normal      Vector the normal vector the terrain needs to have at the passed pixel is stored in.
      */
-    private Vector3f calculateNormal(int x, int y, BufferedImage image) {
+    private static void calculateNormal(int x, int y, float[] heightField, int vertexCount, Vector3f normal) {
         //calculate height of 4 Pixels around the pixel the normal is calculated for
-        float heightL = getHeight(x - 1, y, image);
-        float heightR = getHeight(x + 1, y, image);
-        float heightD = getHeight(x, y - 1, image);
-        float heightU = getHeight(x, y + 1, image);
+        float heightL = getHeight(x - 1, y, heightField, vertexCount);
+        float heightR = getHeight(x + 1, y, heightField, vertexCount);
+        float heightD = getHeight(x, y - 1, heightField, vertexCount);
+        float heightU = getHeight(x, y + 1, heightField, vertexCount);
         //calculate normal relative to near pixels
-        Vector3f normal = new Vector3f(heightL - heightR, 2f, heightD - heightU);
+        normal.set(heightL - heightR, 2f, heightD - heightU);
         normal.normalize();
-        return normal;
     }
 
     /**
-     * Converts a pixel on the height map image into an actual height value depending on how dark the pixel is.
-     * The darker the lower the terrain.
+     * The height of the terrain at a pixel of the height map.
      *
-     * @param x     x coordinate of the pixel on the image the height should be calculated for.
-     * @param y     y coordinate of the pixel on the image the height should be calculated for.
-     * @param image image containing the height map of this terrain.
-     * @return The height the terrain needs to have at the the passed pixel.
+     * @param x           x coordinate of the pixel on the image the height should be returned for.
+     * @param y           y coordinate of the pixel on the image the height should be returned for.
+     * @param heightField Heights of all pixels of the height map.
+     * @param vertexCount Amount of vertices in each row and column of the terrain.
+     * @return The height the terrain needs to have at the the passed pixel, 0 outside of the height map.
      */
-    private float getHeight(int x, int y, BufferedImage image) {
-        if (x < 0 || x >= image.getHeight() || y < 0 || y >= image.getHeight()) {
+    private static float getHeight(int x, int y, float[] heightField, int vertexCount) {
+        if (x < 0 || x >= vertexCount || y < 0 || y >= vertexCount) {
             return 0;
         }
-        float height = image.getRGB(x, y);
-        height += MAX_PIXEL_COLOR / 2f;
-        height /= MAX_PIXEL_COLOR / 2f;
-        height *= MAX_HEIGHT;
-        return height;
+        return heightField[y * vertexCount + x];
     }
 }
@@ -54,7 +54,19 @@ public class Maths {
      * @return A matrix containing the position, rotation and scale of the object, corresponds to the transformation matrix of the object.
      */
     public static Matrix4f createTransformationMatrix(Vector3f translation, Vector3f rotation, float scale) {
-        Matrix4f matrix = new Matrix4f();
+        return createTransformationMatrix(translation, rotation, scale, new Matrix4f());
+    }
+
+    /**
+     * Calculates a OpenGL Transformation matrix containing the position, rotation and scale of an object into an existing matrix.
+     *
+     * @param translation Position of the object this transformation matrix should be calculated for.
+     * @param rotation    Rotation of the object this transformation matrix should be calculated for.
+     * @param scale       Scale of the object this transformation matrix should be calculated for.
+     * @param matrix      Matrix the transformation matrix is stored in, its old values are overwritten.
+     * @return The passed matrix.
+     */
+    public static Matrix4f createTransformationMatrix(Vector3f translation, Vector3f rotation, float scale, Matrix4f matrix) {
         matrix.identity(); //reset matrix
         matrix.translate(translation);
         matrix.scale(scale);
@@ -6,6 +6,7 @@ import com.battleships.gui.gameAssets.MainMenuGui.MainMenuManager;
 import com.battleships.gui.guis.GuiRenderer;
 import com.battleships.gui.guis.GuiTexture;
 import com.battleships.gui.models.TextureData;
+import com.battleships.gui.renderingEngine.EntityRenderer;
 import com.battleships.gui.renderingEngine.Loader;
 import com.battleships.gui.renderingEngine.TextureLoader;
 import com.battleships.gui.water.WaterFrameBuffers;
@@ -35,6 +36,10 @@ public class WindowManager {
      * Standard width and height for this window in pixels.
      */
     private static final int StandardWIDTH = 1280, StandardHEIGHT = 720; //To reset Width + Height to standard
+    /**
+     * Argument that enables printing the render statistics every second.
+     */
+    public static final String RENDERSTATSFLAG = "--render-stats";
     /**
      * OpenGl ID of this window
      */
@@ -71,6 +76,14 @@ public class WindowManager {
      * List containing the texture for the loading screen.
      */
     private static List<GuiTexture> loadingScreenGui;
+    /**
+     * Bar on the loading screen showing how much of the scene has been loaded.
+     */
+    private static GuiTexture loadingBar;
+    /**
+     * Position of the left end and width of the loading bar if everything is loaded (screen coordinates).
+     */
+    public static final float LOADINGBARSTART = 0.3f, LOADINGBARWIDTH = 0.4f;
 
     /**
      * Renderer to render the loading screen.
@@ -81,6 +94,11 @@ public class WindowManager {
 
     private static float time;
 
+    /**
+     * {@code true} if the frames per second, the frame time and the draw calls for entities are printed every second.
+     */
+    private static boolean printStats;
+
 
     /**
      * Initialize the main window the game is played in.
@@ -134,6 +152,8 @@ public class WindowManager {
         Loader loader = new Loader();
         loadingScreenRenderer = new GuiRenderer(loader);
         loadingScreenGui.add(new GuiTexture(loader.loadTexture("StartIcon.png"), new Vector2f(0.5f, 0.5f), new Vector2f(0.5f, 0.5f)));
+        loadingBar = new GuiTexture(loader.loadTexture("WoodenSlider.jpg"), new Vector2f(LOADINGBARSTART, 0.85f), new Vector2f(0, 0.02f));
+        loadingScreenGui.add(loadingBar);
 
         GLFW.glfwShowWindow(loadingScreen);
         loadingScreenRenderer.render(loadingScreenGui);
@@ -145,11 +165,15 @@ public class WindowManager {
     /**
      * Renders the loading screen. Needs to be called to keep
      * program responsive during loading.
+     *
+     * @param progress Part of the scene that has been loaded (0-1), shown by the loading bar.
      */
-    public static void updateLoadingScreen() {
+    public static void updateLoadingScreen(float progress) {
+        loadingBar.getScale().x = LOADINGBARWIDTH * progress;
+        loadingBar.getPositions().x = LOADINGBARSTART + loadingBar.getScale().x / 2;
         GLFW.glfwMakeContextCurrent(loadingScreen);
         loadingScreenRenderer.render(loadingScreenGui);
-        GLFW.glfwSwapBuffers(window);
+        GLFW.glfwSwapBuffers(loadingScreen);
         GLFW.glfwMakeContextCurrent(window);
     }
 
@@ -160,6 +184,7 @@ public class WindowManager {
         GLFW.glfwDestroyWindow(loadingScreen);
         GLFW.glfwShowWindow(window);
         loadingScreenGui = null;
+        loadingBar = null;
         loadingScreenRenderer = null;
     }
 
@@ -200,12 +225,22 @@ public class WindowManager {
         test += 1;
         time += deltaTime;
         if (time >= 1) {
-            //System.out.println("FPS: " + test);
+            if (printStats)
+                System.out.printf("FPS: %d, frame time: %.2f ms, entity draw calls: %.1f for %.1f entities per frame%n", test, 1000f * time / test,
+                        (float) EntityRenderer.getDrawCalls() / test, (float) EntityRenderer.getInstances() / test);
+            EntityRenderer.resetStatistics();
             time = 0;
             test = 0;
         }
     }
 
+    /**
+     * @param printStats {@code true} if the frames per second, the frame time and the draw calls for entities should be printed every second.
+     */
+    public static void setPrintStats(boolean printStats) {
+        WindowManager.printStats = printStats;
+    }
+
     /**
      * @return Time that has passed since last frame finished rendering in seconds.
      */
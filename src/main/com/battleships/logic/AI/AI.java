@@ -1,7 +1,9 @@
 package com.battleships.logic.AI;
 
+import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.logic.LogicManager;
+import org.joml.Vector2i;
 
 import java.util.Random;
 
@@ -29,6 +31,11 @@ public abstract class AI {
      * Random number generator for determining cell that gets shot next.
      */
     Random random = new Random();
+    /**
+     * Handler that executes the shots of this AI.
+     * Is {@code null} while the standard handler is used (not saved, so loaded games always use the gui).
+     */
+    private transient ShotHandler shotHandler;
 
     /**
      * Creates a new AI.
@@ -68,10 +75,78 @@ public abstract class AI {
      */
     public abstract void makeTurn();
 
+    /**
+     * Restores the state of this AI from the grid of its opponent, after a game was loaded.
+     * The standard AI doesn't remember anything, so nothing needs to be restored.
+     */
+    public void restore() {
+    }
+
     /**
      * This AI places it's ships.
      */
     public void placeShips() {
         manager.placeRandomShips(team);
     }
+
+    /**
+     * Shoots a cell on the grid of the opponent using the {@link ShotHandler} of this AI.
+     *
+     * @param index Index of the cell that should be shot (1-size).
+     * @return {@code true} if the shot could be made, {@code false} else.
+     */
+    protected boolean shoot(Vector2i index) {
+        return getShotHandler().shoot(team, index);
+    }
+
+    /**
+     * @return {@code true} if this AI plays online and only gets to know what a shot hit through the network.
+     */
+    protected boolean isOnline() {
+        return getShotHandler().isOnline();
+    }
+
+    /**
+     * @return The handler that executes the shots of this AI, creates the standard handler if none is set.
+     */
+    private ShotHandler getShotHandler() {
+        if (shotHandler == null)
+            shotHandler = new GuiShotHandler();
+        return shotHandler;
+    }
+
+    /**
+     * Set the handler that executes the shots of this AI (standard handler passes shots to the gui).
+     *
+     * @param shotHandler Handler that should execute the shots of this AI.
+     */
+    public void setShotHandler(ShotHandler shotHandler) {
+        this.shotHandler = shotHandler;
+    }
+
+    /**
+     * Standard {@link ShotHandler} that passes all shots to the {@link GameManager}.
+     */
+    private static class GuiShotHandler implements ShotHandler {
+
+        /**
+         * Shoots a cell through the {@link GameManager}, so the shot is shown in the gui.
+         *
+         * @param team  Team of the AI that makes the shot.
+         * @param index Index of the cell that should be shot (1-size).
+         * @return {@code true} if the shot could be made, {@code false} else.
+         */
+        @Override
+        public boolean shoot(int team, Vector2i index) {
+            return GameManager.shoot(team, index);
+        }
+
+        /**
+         * @return {@code true} if the current game is played online.
+         */
+        @Override
+        public boolean isOnline() {
+            return GameManager.getSettings().isOnline();
+        }
+    }
 }
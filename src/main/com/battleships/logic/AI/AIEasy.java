@@ -1,6 +1,5 @@
 package com.battleships.logic.AI;
 
-import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.logic.LogicManager;
 
@@ -26,7 +25,7 @@ public class AIEasy extends AI {
      */
     public AIEasy(int team, int gridSize, LogicManager manager) {
         super(team, gridSize, manager);
-        pattern = new PatternRandom(gridSize, team);
+        pattern = new PatternRandom(gridSize, team, manager);
     }
 
     /**
@@ -35,6 +34,6 @@ public class AIEasy extends AI {
      * If that cell can't be shoot the cell to the right is tried next until one gets found that can be shot.
      */
     public void makeTurn() {
-        while (!GameManager.shoot(team, pattern.nextIndex())) ;
+        while (!shoot(pattern.nextIndex())) ;
     }
 }
@@ -36,6 +36,6 @@ public class AIHard extends AIMedium {
         if (!(pattern instanceof PatternChess))
             pattern = new PatternChess(gridSize);
         else
-            pattern = new PatternRandom(gridSize, team);
+            pattern = new PatternRandom(gridSize, team, manager);
     }
 }
@@ -1,9 +1,10 @@
 package com.battleships.logic.AI;
 
-import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.logic.Cell;
 import com.battleships.logic.Grid;
 import com.battleships.logic.LogicManager;
+import com.battleships.logic.OnlineGrid;
 import org.joml.Vector2i;
 
 import java.util.ArrayList;
@@ -124,6 +125,31 @@ public class AIMedium extends AI {
         }
     }
 
+    /**
+     * Finds all cells on the grid of the opponent where a ship was hit that hasn't been sunk yet,
+     * so the AI continues to sink that ship after a game was loaded.
+     */
+    @Override
+    public void restore() {
+        opponentGrid = team == GridManager.OWNFIELD ? manager.getOpponentGrid() : manager.getPlayerGrid();
+        hitCells.clear();
+        lastTried = foundShipDir = UNKNOWN;
+        for (int y = 1; y <= gridSize; y++) {
+            for (int x = 1; x <= gridSize; x++) {
+                Cell c = opponentGrid.getCell(x, y);
+                if (c.state == OnlineGrid.ONLINESHIP || (c.state == Grid.SHOT && c.ship != null && !c.ship.isSunk()))
+                    hitCells.add(new Vector2i(x, y));
+            }
+        }
+        if (hitCells.size() > 1)
+            foundShipDir = hitCells.get(0).y == hitCells.get(1).y ? HORIZONTAL : VERTICAL;
+        if (!hitCells.isEmpty())
+            lastShot = new Vector2i(hitCells.get(hitCells.size() - 1));
+        else if (lastShot == null)
+            //the first index of the pattern might have been shot already, so the AI continues with the next indices
+            lastShot = pattern.firstIndex();
+    }
+
     /**
      * AI tries to sink a ship. For this method the AI needs to already know the direction of the ship.
      * To sink a ship the AI tries to shoot the cells around the last shot in the direction the ship lies in.
@@ -193,13 +219,13 @@ public class AIMedium extends AI {
         if (cell.x < 1 || cell.y < 1 || cell.x > gridSize || cell.y > gridSize) {
             return ERROR;
         }
-        if (GameManager.getSettings().isOnline()) {
-            return GameManager.shoot(team, cell) ? WATER : NA;
+        if (isOnline()) {
+            return shoot(cell) ? WATER : NA;
         }
         if (opponentGrid.getCell(cell.x, cell.y).state == Grid.SHIP) {
-            return GameManager.shoot(team, cell) ? SHIP : NA;
+            return shoot(cell) ? SHIP : NA;
         } else
-            return GameManager.shoot(team, cell) ? WATER : NA;
+            return shoot(cell) ? WATER : NA;
     }
 
     /**
@@ -218,7 +244,7 @@ public class AIMedium extends AI {
                 lastShot = toShoot;
                 return true;
             case WATER:
-                if (GameManager.getSettings().isOnline())
+                if (isOnline())
                     lastTried = HORIZONTAL;
                 return false;
             case NA:
@@ -232,7 +258,7 @@ public class AIMedium extends AI {
                 lastShot = toShoot;
                 return true;
             case WATER:
-                if (GameManager.getSettings().isOnline())
+                if (isOnline())
                     lastTried = HORIZONTAL;
                 return false;
             case NA:
@@ -247,7 +273,7 @@ public class AIMedium extends AI {
                 lastShot = toShoot;
                 return true;
             case WATER:
-                if (GameManager.getSettings().isOnline())
+                if (isOnline())
                     lastTried = VERTICAL;
                 return false;
             case NA:
@@ -261,7 +287,7 @@ public class AIMedium extends AI {
                 lastShot = toShoot;
                 return true;
             case WATER:
-                if (GameManager.getSettings().isOnline())
+                if (isOnline())
                     lastTried = VERTICAL;
                 return false;
             case NA:
@@ -274,7 +300,7 @@ public class AIMedium extends AI {
      * Updates the pattern this AI uses after the first one is finished.
      */
     protected void updatePattern() {
-        pattern = new PatternRandom(gridSize, team);
+        pattern = new PatternRandom(gridSize, team, manager);
     }
 
     /**
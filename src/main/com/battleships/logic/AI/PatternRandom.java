@@ -2,6 +2,7 @@ package com.battleships.logic.AI;
 
 import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.logic.LogicManager;
 import org.joml.Vector2i;
 
 import java.util.Random;
@@ -21,6 +22,11 @@ public class PatternRandom implements Pattern {
      * Team this pattern is used for.
      */
     private int team;
+    /**
+     * LogicManager of the game this pattern is used in.
+     * Is {@code null} for patterns loaded from older save files, these use the LogicManager of the {@link GameManager}.
+     */
+    private LogicManager manager;
     /**
      * Random number generator for generating random indices.
      */
@@ -31,10 +37,12 @@ public class PatternRandom implements Pattern {
      *
      * @param size Size of the grid this pattern is used on.
      * @param team Team this grid is used for.
+     * @param manager LogicManager of the game this pattern is used in.
      */
-    public PatternRandom(int size, int team) {
+    public PatternRandom(int size, int team, LogicManager manager) {
         this.size = size;
         this.team = team;
+        this.manager = manager;
     }
 
     /**
@@ -44,7 +52,9 @@ public class PatternRandom implements Pattern {
     public Vector2i nextIndex() {
         int x = random.nextInt(size) + 1;
         int y = random.nextInt(size) + 1;
-        while (GameManager.getLogic().hasBeenShot(x, y, team == GridManager.OWNFIELD ? GridManager.OPPONENTFIELD : GridManager.OWNFIELD)) {
+        if (manager == null)
+            manager = GameManager.getLogic();
+        while (manager.hasBeenShot(x, y, team == GridManager.OWNFIELD ? GridManager.OPPONENTFIELD : GridManager.OWNFIELD)) {
             y += x / size;
             y %= size + 1;
             if (y == 0)
@@ -0,0 +1,28 @@
+package com.battleships.logic.AI;
+
+import org.joml.Vector2i;
+
+/**
+ * Executes the shots an AI decides to make.
+ * By default AIs pass their shots to the {@link com.battleships.gui.gameAssets.GameManager}, so they are shown in the gui.
+ * Players without a gui (e.g. headless bots) can use their own implementation.
+ *
+ * @author agent
+ */
+public interface ShotHandler {
+
+    /**
+     * Shoot a cell on the grid of the opponent of the AI.
+     *
+     * @param team  Team of the AI that makes the shot (0 or 1 as in {@link com.battleships.gui.gameAssets.grids.GridManager}).
+     * @param index Index of the cell that should be shot (1-size).
+     * @return {@code true} if the shot could be made, {@code false} if the cell can't be shot.
+     */
+    boolean shoot(int team, Vector2i index);
+
+    /**
+     * @return {@code true} if the result of a shot is sent back later through the network, so the AI
+     * doesn't know it at the time of the shot.
+     */
+    boolean isOnline();
+}
@@ -0,0 +1,168 @@
+package com.battleships.logic;
+
+/**
+ * Compact copy of the ships of one player, used by an authoritative server to resolve shots itself.
+ * The ships and the shots are stored as bitboards ({@code long} words, cell at bit {@code (y - 1) * size + (x - 1)}),
+ * so resolving a shot only needs a few bit operations and no objects.
+ * <p>
+ * The fleet is sent as text ({@link #encode(Grid)}): one {@code x,y,size,direction} group per ship, separated by spaces,
+ * x and y are the index of the stern (1-size). {@link #decode(int, String)} only accepts fleets that follow the rules
+ * of the game (right amount of ships of each size, ships inside the grid and not touching each other).
+ *
+ * @author agent
+ */
+public class FleetBoard {
+
+    /**
+     * Results of a shot, the same values that are sent as answer in the online protocol.
+     * {@link #INVALID} if the cell is outside the grid or was already shot.
+     */
+    public static final int INVALID = -1, WATER = 0, HIT = 1, SUNK = 2;
+
+    /**
+     * Size of the grid.
+     */
+    private int size;
+    /**
+     * Bitboard of all cells that contain a ship.
+     */
+    private long[] ships;
+    /**
+     * Bitboard of all cells that have been shot.
+     */
+    private long[] shots;
+    /**
+     * Index of the ship on each cell, only valid for cells that contain a ship.
+     */
+    private byte[] shipOnCell;
+    /**
+     * Amount of cells of each ship that haven't been hit yet.
+     */
+    private byte[] remaining;
+    /**
+     * Amount of ships that haven't been sunk yet.
+     */
+    private int shipsAlive;
+
+    /**
+     * Creates a fleet from the ships on a grid.
+     *
+     * @param grid Grid containing the ships.
+     */
+    public FleetBoard(Grid grid) {
+        size = grid.getSize();
+        int words = (size * size + 63) >>> 6;
+        ships = new long[words];
+        shots = new long[words];
+        shipOnCell = new byte[size * size];
+        remaining = new byte[grid.getShips().size()];
+        for (Ship ship : grid.getShips()) {
+            for (Cell cell : ship.getOccupiedCells()) {
+                //cell.x is the row and cell.y the column of the cell
+                int bit = cell.x * size + cell.y;
+                ships[bit >>> 6] |= 1L << bit;
+                shipOnCell[bit] = (byte) shipsAlive;
+            }
+            remaining[shipsAlive++] = (byte) ship.getSize();
+        }
+    }
+
+    /**
+     * Resolves a shot on this fleet.
+     *
+     * @param x X index of the cell that was shot (1-size).
+     * @param y Y index of the cell that was shot (1-size).
+     * @return {@link #WATER}, {@link #HIT} or {@link #SUNK}, {@link #INVALID} if the shot isn't allowed.
+     */
+    public int shoot(int x, int y) {
+        if (x < 1 || x > size || y < 1 || y > size)
+            return INVALID;
+        int bit = (y - 1) * size + (x - 1);
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        if ((shots[word] & mask) != 0)
+            return INVALID;
+        shots[word] |= mask;
+        if ((ships[word] & mask) == 0)
+            return WATER;
+        if (--remaining[shipOnCell[bit]] > 0)
+            return HIT;
+        shipsAlive--;
+        return SUNK;
+    }
+
+    /**
+     * @return {@code true} if any cell of this fleet has been shot.
+     */
+    public boolean hasBeenShot() {
+        for (long word : shots) {
+            if (word != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if all ships of this fleet have been sunk.
+     */
+    public boolean isDefeated() {
+        return shipsAlive == 0;
+    }
+
+    /**
+     * @return Size of the grid.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Encodes the ships on a grid, so they can be sent to a server.
+     *
+     * @param grid Grid containing the ships.
+     * @return The ships as text, one {@code x,y,size,direction} group per ship.
+     */
+    public static String encode(Grid grid) {
+        StringBuilder builder = new StringBuilder();
+        for (Ship ship : grid.getShips()) {
+            Cell stern = ship.getOccupiedCells().get(0);
+            if (builder.length() > 0)
+                builder.append(' ');
+            builder.append(stern.y + 1).append(',').append(stern.x + 1).append(',').append(ship.getSize()).append(',').append(ship.getDirection());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads a fleet that was encoded with {@link #encode(Grid)} and tests if it follows the rules of the game.
+     * The ships are placed on a headless grid, so the same rules apply as when the player placed them.
+     *
+     * @param size  Size of the grid.
+     * @param fleet The encoded ships.
+     * @return The fleet, {@code null} if the text is invalid or the ships don't follow the rules.
+     */
+    public static FleetBoard decode(int size, String fleet) {
+        int[] amounts = ShipAmountLoader.getShipAmounts(size);
+        if (amounts == null)
+            return null;
+        Grid grid = new Grid(size, 0, true);
+        try {
+            for (String group : fleet.trim().split(" ")) {
+                String[] values = group.split(",");
+                int shipSize = Integer.parseInt(values[2]);
+                int direction = Integer.parseInt(values[3]);
+                if (shipSize < 2 || shipSize > 5 || direction < 0 || direction > 3 || --amounts[shipSize - 2] < 0)
+                    return null;
+                if (!grid.placeShip(Integer.parseInt(values[0]), Integer.parseInt(values[1]), shipSize, direction, null))
+                    return null;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+        for (int amount : amounts) {
+            if (amount != 0)
+                return null;
+        }
+        return new FleetBoard(grid);
+    }
+}
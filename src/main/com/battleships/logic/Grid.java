@@ -45,6 +45,10 @@ public class Grid {
      * Array containing amount of ships still alive on this grid, ordered by size from small to large.
      */
     private int[] shipsAlive;
+    /**
+     * {@code true} if this grid isn't shown in the gui (e.g. for headless bots), so no markers get placed for it.
+     */
+    private boolean headless;
 
     /**
      * Creates a new grid.
@@ -53,7 +57,19 @@ public class Grid {
      * @param owner ID of the owner this grid is created for.
      */
     public Grid(int size, int owner) {
+        this(size, owner, false);
+    }
+
+    /**
+     * Creates a new grid.
+     *
+     * @param size     Size this grid should have.
+     * @param owner    ID of the owner this grid is created for.
+     * @param headless {@code true} if this grid isn't shown in the gui, so no markers get placed for it.
+     */
+    public Grid(int size, int owner, boolean headless) {
         this.owner = owner;
+        this.headless = headless;
         grid = new Cell[size][size];
         for (int i = 0; i < grid.length; i++) {
             for (int j = 0; j < grid[i].length; j++) {
@@ -219,7 +235,7 @@ public class Grid {
         int[] toBlock = {x - 1, y - 1, x, y - 1, x + 1, y - 1, x - 1, y, x + 1, y, x - 1, y + 1, x, y + 1, x + 1, y + 1};
         for (int i = 0; i < toBlock.length; i += 2) {
             if (toBlock[i] >= 0 && toBlock[i] < grid.length && toBlock[i + 1] >= 0 && toBlock[i + 1] < grid.length && grid[toBlock[i + 1]][toBlock[i]].state != SHIP) {
-                if (visible && grid[toBlock[i + 1]][toBlock[i]].state != SHOT && grid[toBlock[i + 1]][toBlock[i]].state != OnlineGrid.SHIPPROCESSED)
+                if (visible && !headless && grid[toBlock[i + 1]][toBlock[i]].state != SHOT && grid[toBlock[i + 1]][toBlock[i]].state != OnlineGrid.SHIPPROCESSED)
                     GameManager.placeMarker(false, new Vector2i(toBlock[i] + 1, toBlock[i + 1] + 1), GameManager.getLogic().getGridID(this));
                 grid[toBlock[i + 1]][toBlock[i]].state = blockType;
             }
@@ -313,6 +329,34 @@ public class Grid {
         return shipsAlive;
     }
 
+    /**
+     * @return {@code true} if this grid isn't shown in the gui.
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * @param headless {@code true} if this grid isn't shown in the gui, so no markers get placed for it.
+     */
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    /**
+     * @return List containing all ships that are placed on this grid.
+     */
+    public List<Ship> getShips() {
+        List<Ship> ships = new ArrayList<>();
+        for (Cell[] row : grid) {
+            for (Cell c : row) {
+                if (c.ship != null && !ships.contains(c.ship))
+                    ships.add(c.ship);
+            }
+        }
+        return ships;
+    }
+
     /**
      * @return Size of this grid.
      */
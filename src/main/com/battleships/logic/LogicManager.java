@@ -4,11 +4,12 @@ import com.battleships.gui.entities.Entity;
 import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.gui.gameAssets.grids.ShipManager;
-import com.battleships.logic.AI.AIEasy;
-import com.battleships.logic.AI.AIHard;
-import com.battleships.logic.AI.AIMedium;
+import com.battleships.logic.store.GameStore;
+import com.battleships.logic.store.MatchRecord;
 import org.joml.Vector2i;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
 /**
@@ -39,6 +40,19 @@ public class LogicManager {
      * Class containing stats for this logic/game.
      */
     private Stats stats;
+    /**
+     * Journal the current match is recorded in, {@code null} if no match is recorded.
+     */
+    private MatchJournal journal;
+    /**
+     * Record of the current match that is added to the {@link GameStore} when the match is finished,
+     * {@code null} if the match isn't recorded. Contains only the shots made after the match was started or loaded.
+     */
+    private MatchRecord matchRecord;
+    /**
+     * {@code true} while a recorded match is replayed, no journal is written for replays.
+     */
+    private boolean replaying;
 
     /**
      * Initialize this logic using the information from the given settings.
@@ -50,32 +64,7 @@ public class LogicManager {
             opponentGrid = new OnlineGrid(settings.getSize(), GridManager.OPPONENTFIELD);
         else
             opponentGrid = new Grid(settings.getSize(), GridManager.OPPONENTFIELD);
-        switch (settings.getAiLevelO()) {
-            case -1:
-                turnHandler.removeOpponentAI();
-                break;
-            case Settings.EASY:
-                turnHandler.setOpponentAI(new AIEasy(GridManager.OPPONENTFIELD, settings.getSize(), this));
-                break;
-            case Settings.MEDIUM:
-                turnHandler.setOpponentAI(new AIMedium(GridManager.OPPONENTFIELD, settings.getSize(), this));
-                break;
-            case Settings.HARD:
-                turnHandler.setOpponentAI(new AIHard(GridManager.OPPONENTFIELD, settings.getSize(), this));
-        }
-        switch (settings.getAiLevelP()) {
-            case -1:
-                turnHandler.removePlayerAI();
-                break;
-            case Settings.EASY:
-                turnHandler.setPlayerAI(new AIEasy(GridManager.OWNFIELD, settings.getSize(), this));
-                break;
-            case Settings.MEDIUM:
-                turnHandler.setPlayerAI(new AIMedium(GridManager.OWNFIELD, settings.getSize(), this));
-                break;
-            case Settings.HARD:
-                turnHandler.setPlayerAI(new AIHard(GridManager.OWNFIELD, settings.getSize(), this));
-        }
+        turnHandler.initAIs(settings.getAiLevelP(), settings.getAiLevelO(), settings.getSize(), this);
         stats = new Stats();
         stats.init();
     }
@@ -94,11 +83,48 @@ public class LogicManager {
             stats.addRound();
         if (x < 1 || y < 1 || x > playerGrid.getSize() || y > playerGrid.getSize())
             return false;
+        Grid target;
         if (grid == GridManager.OWNFIELD)
-            return playerGrid.shoot(x, y);
-        if (grid == GridManager.OPPONENTFIELD)
-            return opponentGrid.shoot(x, y);
-        return false;
+            target = playerGrid;
+        else if (grid == GridManager.OPPONENTFIELD)
+            target = opponentGrid;
+        else
+            return false;
+        //shots on an online grid are recorded when the answer of the opponent arrives
+        boolean record = (journal != null || matchRecord != null) && !(target instanceof OnlineGrid) && target.canBeShot(x, y);
+        boolean shipHit = target.shoot(x, y);
+        if (record)
+            recordShot(grid, x, y, !shipHit ? FleetBoard.WATER : target.getCell(x, y).ship.isSunk() ? FleetBoard.SUNK : FleetBoard.HIT);
+        return shipHit;
+    }
+
+    /**
+     * Processes the answer of the opponent to a shot of the player in an online match.
+     *
+     * @param x      X index of the cell that was shot (1-size).
+     * @param y      Y index of the cell that was shot (1-size).
+     * @param answer Answer of the opponent ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or {@link FleetBoard#SUNK}).
+     */
+    public void processShotAnswer(int x, int y, int answer) {
+        if (!(opponentGrid instanceof OnlineGrid))
+            return;
+        ((OnlineGrid) opponentGrid).processShot(x, y, answer);
+        recordShot(GridManager.OPPONENTFIELD, x, y, answer);
+    }
+
+    /**
+     * Adds a shot to the journal and to the record of the current match.
+     *
+     * @param grid   ID of the grid that was shot (one of constants in {@link GridManager}).
+     * @param x      X index of the cell that was shot (1-size).
+     * @param y      Y index of the cell that was shot (1-size).
+     * @param result Result of the shot ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or {@link FleetBoard#SUNK}).
+     */
+    private void recordShot(int grid, int x, int y, int result) {
+        if (journal != null)
+            journal.recordShot(grid, x, y, result, playerGrid, opponentGrid);
+        if (matchRecord != null)
+            matchRecord.addShot(grid, x, y, result);
     }
 
     /**
@@ -110,11 +136,13 @@ public class LogicManager {
     public boolean testEndOfGame() {
         int[] shipsAlive = playerGrid.getShipsAlive();
         if (shipsAlive[0] + shipsAlive[1] + shipsAlive[2] + shipsAlive[3] == 0) {
+            finishJournal(false);
             GameManager.finishGame(false);
             return true;
         }
         shipsAlive = opponentGrid.getShipsAlive();
         if (shipsAlive[0] + shipsAlive[1] + shipsAlive[2] + shipsAlive[3] == 0) {
+            finishJournal(true);
             GameManager.finishGame(true);
             return true;
         }
@@ -145,7 +173,7 @@ public class LogicManager {
     /**
      * Places ships at random spots on a grid.
      * Clears grid before placing ships.
-     * Places ships also in gui if they are placed on players grid.
+     * Places ships also in gui if they are placed on players grid and that grid is shown in the gui.
      *
      * @param gridNum ID of the grid the ships should be placed on (one of constants in {@link GridManager}.
      */
@@ -178,7 +206,7 @@ public class LogicManager {
                     if (x == 0)
                         x += 1;
                 }
-                if (gridNum == GridManager.OWNFIELD)
+                if (gridNum == GridManager.OWNFIELD && !grid.isHeadless())
                     GameManager.placeShip(new Vector2i(x, y), i, dir, gridNum);
                 else
                     placeShip(x, y, i, dir, null, gridNum);
@@ -233,8 +261,10 @@ public class LogicManager {
                 break;
             case GameManager.SHIPLACING:
                 GameManager.startPlayPhase();
+                startJournal();
                 break;
             case GameManager.SHOOTING:
+                closeJournal();
         }
         gameState++;
         gameState %= 3;
@@ -321,6 +351,94 @@ public class LogicManager {
         return gameState;
     }
 
+    /**
+     * Rebuilds the grids from a snapshot of an online match, after the match was resumed.
+     * The ships of the player stay on their cells, all shots are replayed from the snapshot.
+     *
+     * @param snapshot Snapshot of the match.
+     */
+    public void resume(MatchSnapshot snapshot) {
+        Grid[] grids = snapshot.createGrids(playerGrid);
+        grids[MatchSnapshot.OWN].setHeadless(false);
+        grids[MatchSnapshot.OPPONENT].setHeadless(false);
+        playerGrid = grids[MatchSnapshot.OWN];
+        opponentGrid = grids[MatchSnapshot.OPPONENT];
+        turnHandler.setPlayerTurn(snapshot.isMyTurn());
+        if (snapshot.isShooting() && gameState != GameManager.SHOOTING)
+            setGameState(GameManager.SHOOTING);
+        else if (journal != null)
+            journal.resync(playerGrid, opponentGrid, snapshot.isMyTurn());
+    }
+
+    /**
+     * Shows a recorded match instead of playing one.
+     * The grids of the replay are used, no AI plays and no journal is written.
+     *
+     * @param replay Replay of the match.
+     */
+    public void startReplay(MatchReplay replay) {
+        closeJournal();
+        replaying = true;
+        GameManager.getSettings().setGameSettings(new Settings(replay.getSize(), false, -1, -1));
+        playerGrid = replay.getPlayerGrid();
+        opponentGrid = replay.getOpponentGrid();
+        turnHandler = new TurnHandler();
+        turnHandler.setPlayerTurn(replay.isPlayerTurn());
+        stats = new Stats();
+        stats.init();
+        setGameState(GameManager.SHOOTING);
+    }
+
+    /**
+     * Starts a new journal and record for the current match, the journal of the last match is closed.
+     */
+    private void startJournal() {
+        closeJournal();
+        if (replaying)
+            return;
+        matchRecord = new MatchRecord(playerGrid, opponentGrid);
+        try {
+            File file = MatchJournal.createFile();
+            if (file != null)
+                journal = new MatchJournal(file, playerGrid, opponentGrid, GameManager.getSettings().isOnline(), isPlayerTurn());
+        } catch (IOException e) {
+            System.err.println("Error while creating match journal, match isn't recorded!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the result of the match into the journal and closes it.
+     * The stats are updated and the match is added to the {@link GameStore}.
+     *
+     * @param won {@code true} if the player has won.
+     */
+    private void finishJournal(boolean won) {
+        if (journal != null)
+            journal.finish(won);
+        journal = null;
+        if (matchRecord != null) {
+            stats.updateStats();
+            Settings settings = GameManager.getSettings();
+            matchRecord.finish(won, stats, settings.getAiLevelP(), settings.getAiLevelO(), settings.isOnline());
+            GameStore store = GameStore.getDefault();
+            if (store != null)
+                store.append(matchRecord);
+        }
+        matchRecord = null;
+    }
+
+    /**
+     * Closes the journal of the current match, if the match is recorded.
+     * A match that wasn't finished isn't added to the {@link GameStore}.
+     */
+    public void closeJournal() {
+        if (journal != null)
+            journal.close();
+        journal = null;
+        matchRecord = null;
+    }
+
     /**
      * Sets gameState to a specific state and updates GUI correspondingly.
      *
@@ -330,12 +448,17 @@ public class LogicManager {
         this.gameState = gameState;
         switch (gameState) {
             case GameManager.MENU:
+                closeJournal();
+                if (replaying)
+                    GameManager.stopReplay();
+                replaying = false;
                 break;
             case GameManager.SHIPLACING:
                 GameManager.startShipPlacementPhase();
                 break;
             case GameManager.SHOOTING:
                 GameManager.startPlayPhase();
+                startJournal();
         }
     }
 
@@ -347,6 +470,20 @@ public class LogicManager {
         return grid == playerGrid ? 0 : 1;
     }
 
+    /**
+     * @return Journal the current match is recorded in, {@code null} if no match is recorded.
+     */
+    public MatchJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return {@code true} while a recorded match is replayed.
+     */
+    public boolean isReplaying() {
+        return replaying;
+    }
+
     /**
      * @return Stats of this logic/game.
      */
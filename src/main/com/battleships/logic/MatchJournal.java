@@ -0,0 +1,377 @@
+package com.battleships.logic;
+
+import com.battleships.gui.gameAssets.grids.GridManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Append-only journal of a match, every placement, shot and answer is written to the end of the file
+ * and nothing that was written is ever changed. A match can be replayed from its journal with {@link MatchReplay}.
+ * <p>
+ * Format of a journal:
+ * <ul>
+ *     <li>Header: magic number (int), version, size of the grid, flags (online), checkpoint interval, 1 byte each.</li>
+ *     <li>{@link #PLACE}: grid, x and y index of the stern, size and direction of a ship.</li>
+ *     <li>{@link #SHOT}: grid, x and y index of the cell, result ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or
+ *     {@link FleetBoard#SUNK}). Shots on an online grid are written when the answer of the opponent arrives.</li>
+ *     <li>{@link #CHECKPOINT}: amount of shots before the checkpoint (int), length of the checkpoint (int), flags
+ *     (players turn, resync) and both grids in the same format as in a {@link SaveFile}.</li>
+ *     <li>{@link #END}: 1 if the player has won, 0 else.</li>
+ * </ul>
+ * A checkpoint is written at the start of the match and after every {@value #CHECKPOINT_INTERVAL} shots,
+ * so a replay never needs to apply more shots than that to reach any turn.
+ * If the grids were replaced by something that isn't in the journal (e.g. a resumed online match), a resync checkpoint is written.
+ * Records are collected in a buffer that is written at every checkpoint and when the journal is closed.
+ * Shots are recorded by the game thread and by the network thread, so all methods that record are synchronized.
+ * Only the newest {@value #MAX_JOURNALS} journals are kept, the oldest ones are deleted when a new journal is created.
+ *
+ * @author agent
+ */
+public class MatchJournal {
+
+    /**
+     * Magic number at the start of every journal ("BJNL").
+     */
+    public static final int MAGIC = 0x424A4E4C;
+    /**
+     * Version of the format, needs to be increased if the format changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Suffix of journal files.
+     */
+    public static final String SUFFIX = ".journal";
+    /**
+     * Amount of shots after which a checkpoint is written.
+     */
+    public static final int CHECKPOINT_INTERVAL = 16;
+    /**
+     * Maximum amount of journals that are kept in the journal folder.
+     */
+    public static final int MAX_JOURNALS = 50;
+    /**
+     * Types of the records in a journal.
+     */
+    public static final int PLACE = 1, SHOT = 2, CHECKPOINT = 3, END = 4;
+    /**
+     * Length of the header of a journal in bytes.
+     */
+    static final int HEADER = 8;
+    /**
+     * Length of the records in bytes (including the type), checkpoints additionally contain the grids.
+     */
+    static final int PLACE_LENGTH = 6, SHOT_LENGTH = 5, CHECKPOINT_LENGTH = 9, END_LENGTH = 2;
+    /**
+     * Bit of the flags byte in the header.
+     */
+    static final int ONLINE = 1;
+    /**
+     * Bits of the flags byte of a checkpoint.
+     */
+    static final int PLAYERTURN = 1, RESYNC = 2;
+    /**
+     * Size of the buffer the records are collected in, before they are written.
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * File this journal is written to.
+     */
+    private File file;
+    /**
+     * Channel to the file, {@code null} after the journal was closed.
+     */
+    private FileChannel channel;
+    /**
+     * Records that haven't been written yet.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /**
+     * Amount of shots in this journal.
+     */
+    private int shots;
+    /**
+     * Amount of shots since the last checkpoint.
+     */
+    private int shotsSinceCheckpoint;
+
+    /**
+     * Creates a new journal and writes the ships of both grids and the first checkpoint.
+     *
+     * @param file         File the journal should be written to, mustn't exist yet.
+     * @param playerGrid   Grid of the player.
+     * @param opponentGrid Grid of the opponent.
+     * @param online       {@code true} if the match is played online.
+     * @param playerTurn   {@code true} if it is the turn of the player.
+     * @throws IOException If the file couldn't be created.
+     */
+    public MatchJournal(File file, Grid playerGrid, Grid opponentGrid, boolean online, boolean playerTurn) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) playerGrid.getSize());
+        buffer.put((byte) (online ? ONLINE : 0));
+        buffer.put((byte) CHECKPOINT_INTERVAL);
+        putShips(GridManager.OWNFIELD, playerGrid.getShips());
+        putShips(GridManager.OPPONENTFIELD, getSavedShips(opponentGrid));
+        writeCheckpoint(playerGrid, opponentGrid, playerTurn, false);
+    }
+
+    /**
+     * Adds a shot to the journal, writes a checkpoint after every {@value #CHECKPOINT_INTERVAL} shots.
+     *
+     * @param grid         ID of the grid that was shot (one of constants in {@link GridManager}).
+     * @param x            X index of the cell that was shot (1-size).
+     * @param y            Y index of the cell that was shot (1-size).
+     * @param result       Result of the shot ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or {@link FleetBoard#SUNK}).
+     * @param playerGrid   Grid of the player after the shot.
+     * @param opponentGrid Grid of the opponent after the shot.
+     */
+    public synchronized void recordShot(int grid, int x, int y, int result, Grid playerGrid, Grid opponentGrid) {
+        if (channel == null)
+            return;
+        try {
+            ensureSpace(SHOT_LENGTH);
+            buffer.put((byte) SHOT);
+            buffer.put((byte) grid);
+            buffer.put((byte) x);
+            buffer.put((byte) y);
+            buffer.put((byte) result);
+            shots++;
+            if (++shotsSinceCheckpoint >= CHECKPOINT_INTERVAL)
+                writeCheckpoint(playerGrid, opponentGrid, isPlayerTurnAfter(grid, result), false);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes a checkpoint, after the grids were replaced with a state that isn't contained in the journal.
+     * A replay loads this checkpoint instead of applying the shots before it.
+     *
+     * @param playerGrid   Grid of the player.
+     * @param opponentGrid Grid of the opponent.
+     * @param playerTurn   {@code true} if it is the turn of the player.
+     */
+    public synchronized void resync(Grid playerGrid, Grid opponentGrid, boolean playerTurn) {
+        if (channel == null)
+            return;
+        try {
+            writeCheckpoint(playerGrid, opponentGrid, playerTurn, true);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Ends the journal with the result of the match and closes it.
+     *
+     * @param won {@code true} if the player has won.
+     */
+    public synchronized void finish(boolean won) {
+        if (channel == null)
+            return;
+        try {
+            ensureSpace(END_LENGTH);
+            buffer.put((byte) END);
+            buffer.put((byte) (won ? 1 : 0));
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        close();
+    }
+
+    /**
+     * Writes all records that haven't been written yet and closes the file.
+     */
+    public synchronized void close() {
+        if (channel == null)
+            return;
+        try {
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error while closing match journal " + file.getName() + "!");
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * Writes a checkpoint containing both grids, all records before it are written to the file.
+     *
+     * @param playerGrid   Grid of the player.
+     * @param opponentGrid Grid of the opponent.
+     * @param playerTurn   {@code true} if it is the turn of the player.
+     * @param resync       {@code true} if the state of the grids can't be reached with the shots in the journal.
+     * @throws IOException If the journal couldn't be written.
+     */
+    private void writeCheckpoint(Grid playerGrid, Grid opponentGrid, boolean playerTurn, boolean resync) throws IOException {
+        List<Ship> playerShips = playerGrid.getShips();
+        List<Ship> opponentShips = getSavedShips(opponentGrid);
+        int length = 1 + SaveFile.getGridLength(playerGrid, playerShips) + SaveFile.getGridLength(opponentGrid, opponentShips);
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_LENGTH + length);
+        checkpoint.put((byte) CHECKPOINT);
+        checkpoint.putInt(shots);
+        checkpoint.putInt(length);
+        checkpoint.put((byte) ((playerTurn ? PLAYERTURN : 0) | (resync ? RESYNC : 0)));
+        SaveFile.putGrid(checkpoint, playerGrid, playerShips);
+        SaveFile.putGrid(checkpoint, opponentGrid, opponentShips);
+        checkpoint.flip();
+        flush();
+        while (checkpoint.hasRemaining()) {
+            channel.write(checkpoint);
+        }
+        shotsSinceCheckpoint = 0;
+    }
+
+    /**
+     * Adds a placement record for every ship of a grid.
+     *
+     * @param grid  ID of the grid the ships are on (one of constants in {@link GridManager}).
+     * @param ships Ships on that grid.
+     * @throws IOException If the journal couldn't be written.
+     */
+    private void putShips(int grid, List<Ship> ships) throws IOException {
+        for (Ship ship : ships) {
+            //cell.x is the row and cell.y the column of the cell
+            Cell stern = ship.getOccupiedCells().get(0);
+            ensureSpace(PLACE_LENGTH);
+            buffer.put((byte) PLACE);
+            buffer.put((byte) grid);
+            buffer.put((byte) (stern.y + 1));
+            buffer.put((byte) (stern.x + 1));
+            buffer.put((byte) ship.getSize());
+            buffer.put((byte) ship.getDirection());
+        }
+    }
+
+    /**
+     * Writes the buffer if there isn't enough space for the next record.
+     *
+     * @param length Length of the next record in bytes.
+     * @throws IOException If the journal couldn't be written.
+     */
+    private void ensureSpace(int length) throws IOException {
+        if (buffer.remaining() < length)
+            flush();
+    }
+
+    /**
+     * Writes all records in the buffer to the file.
+     *
+     * @throws IOException If the journal couldn't be written.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Stops recording after the journal couldn't be written, the match itself goes on.
+     *
+     * @param e Exception that occurred while writing.
+     */
+    private void fail(IOException e) {
+        System.err.println("Error while writing match journal " + file.getName() + ", recording stopped!");
+        e.printStackTrace();
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+        channel = null;
+    }
+
+    /**
+     * @param grid Grid whose ships are needed.
+     * @return Ships of the grid that are known, ships on an online grid aren't known.
+     */
+    private static List<Ship> getSavedShips(Grid grid) {
+        return grid instanceof OnlineGrid ? Collections.emptyList() : grid.getShips();
+    }
+
+    /**
+     * @param grid   ID of the grid that was shot (one of constants in {@link GridManager}).
+     * @param result Result of the shot ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or {@link FleetBoard#SUNK}).
+     * @return {@code true} if it is the turn of the player after that shot, a player that hit a ship can shoot again.
+     */
+    public static boolean isPlayerTurnAfter(int grid, int result) {
+        return (grid == GridManager.OPPONENTFIELD) == (result != FleetBoard.WATER);
+    }
+
+    /**
+     * Creates a file for a new journal in the journal folder, named after the current date and time.
+     *
+     * @return The file, {@code null} if the journal folder couldn't be created.
+     * @throws UnsupportedEncodingException If jar Path can't be read.
+     */
+    public static File createFile() throws UnsupportedEncodingException {
+        File folder = getFolder();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            System.err.println("Error creating match journal folder!");
+            return null;
+        }
+        prune(folder, MAX_JOURNALS - 1);
+        String name = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+        File file = new File(folder, name + SUFFIX);
+        for (int i = 1; file.exists(); i++) {
+            file = new File(folder, name + "(" + i + ")" + SUFFIX);
+        }
+        return file;
+    }
+
+    /**
+     * Deletes the oldest journals in a folder, until only the specified amount is left.
+     *
+     * @param folder Folder the journals are in.
+     * @param keep   Amount of journals that should be kept.
+     */
+    private static void prune(File folder, int keep) {
+        File[] journals = folder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (journals == null || journals.length <= keep)
+            return;
+        Arrays.sort(journals, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < journals.length - keep; i++) {
+            if (!journals[i].delete())
+                System.err.println("Error deleting old match journal " + journals[i].getName() + "!");
+        }
+    }
+
+    /**
+     * @return Folder the journals are written to.
+     * @throws UnsupportedEncodingException If jar Path can't be read.
+     */
+    public static File getFolder() throws UnsupportedEncodingException {
+        return new File(SaveFileManager.getJarPath() + "/SaveFiles/Journals/");
+    }
+
+    /**
+     * @return File this journal is written to.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return Amount of shots in this journal.
+     */
+    public int getShots() {
+        return shots;
+    }
+}
@@ -0,0 +1,357 @@
+package com.battleships.logic;
+
+import com.battleships.gui.gameAssets.grids.GridManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replays a match from its {@link MatchJournal} on headless grids.
+ * <p>
+ * The journal is mapped into memory and scanned once when it is opened, to find the position of every checkpoint.
+ * To reach a turn the grids are loaded from the last checkpoint before it and only the shots after that checkpoint
+ * are applied, so seeking needs at most {@value MatchJournal#CHECKPOINT_INTERVAL} shots, no matter how long the match is.
+ * A journal that ends with an incomplete record (e.g. because the game crashed) is replayed up to the last complete record.
+ *
+ * @author agent
+ */
+public class MatchReplay {
+
+    /**
+     * The mapped journal, limited to the complete records.
+     */
+    private ByteBuffer data;
+    /**
+     * Size of the grids.
+     */
+    private int size;
+    /**
+     * {@code true} if the match was played online.
+     */
+    private boolean online;
+    /**
+     * Amount of shots before each checkpoint, in the order of the checkpoints.
+     */
+    private int[] checkpointShots = new int[16];
+    /**
+     * Position of each checkpoint in the journal.
+     */
+    private int[] checkpointPositions = new int[16];
+    /**
+     * Amount of checkpoints in the journal.
+     */
+    private int checkpoints;
+    /**
+     * Amount of shots in the journal.
+     */
+    private int shotCount;
+    /**
+     * {@code true} if the journal contains the end of the match.
+     */
+    private boolean finished;
+    /**
+     * {@code true} if the player has won the match, only valid if the match is finished.
+     */
+    private boolean won;
+
+    /**
+     * Grid of the player at the current position.
+     */
+    private Grid playerGrid;
+    /**
+     * Grid of the opponent at the current position.
+     */
+    private Grid opponentGrid;
+    /**
+     * {@code true} if it is the turn of the player at the current position.
+     */
+    private boolean playerTurn;
+    /**
+     * Position of the next record in the journal.
+     */
+    private int position;
+    /**
+     * Amount of shots that have been applied to the grids.
+     */
+    private int shot;
+
+    /**
+     * Create a new replay, only {@link #open(File)} creates replays.
+     *
+     * @param data The mapped journal.
+     */
+    MatchReplay(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Opens a journal and moves the replay to the start of the match.
+     *
+     * @param file Journal that should be replayed.
+     * @return The replay, {@code null} if the file isn't a valid journal.
+     */
+    public static MatchReplay open(File file) {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            System.err.println("Error loading match journal " + file.getName() + "!");
+            e.printStackTrace();
+            return null;
+        }
+        if (data.limit() < MatchJournal.HEADER || data.getInt(0) != MatchJournal.MAGIC || data.get(4) != MatchJournal.VERSION)
+            return null;
+        MatchReplay replay = new MatchReplay(data);
+        replay.size = data.get(5);
+        replay.online = (data.get(6) & MatchJournal.ONLINE) != 0;
+        if (replay.size < 5 || replay.size > 30)
+            return null;
+        replay.scan();
+        if (replay.checkpoints == 0 || !replay.seek(0))
+            return null;
+        return replay;
+    }
+
+    /**
+     * Reads the type and length of every record once, to find the checkpoints and count the shots.
+     * The journal is limited to the last complete record.
+     */
+    private void scan() {
+        int pos = MatchJournal.HEADER;
+        int limit = data.limit();
+        out:
+        while (pos < limit) {
+            int length;
+            switch (data.get(pos)) {
+                case MatchJournal.PLACE:
+                    length = MatchJournal.PLACE_LENGTH;
+                    break;
+                case MatchJournal.SHOT:
+                    length = MatchJournal.SHOT_LENGTH;
+                    break;
+                case MatchJournal.CHECKPOINT:
+                    if (pos + MatchJournal.CHECKPOINT_LENGTH > limit)
+                        break out;
+                    length = MatchJournal.CHECKPOINT_LENGTH + data.getInt(pos + 5);
+                    break;
+                case MatchJournal.END:
+                    length = MatchJournal.END_LENGTH;
+                    break;
+                default:
+                    break out;
+            }
+            if (length < 0 || pos + length > limit)
+                break;
+            switch (data.get(pos)) {
+                case MatchJournal.SHOT:
+                    shotCount++;
+                    break;
+                case MatchJournal.CHECKPOINT:
+                    addCheckpoint(pos);
+                    break;
+                case MatchJournal.END:
+                    finished = true;
+                    won = data.get(pos + 1) != 0;
+            }
+            pos += length;
+        }
+        data.limit(pos);
+    }
+
+    /**
+     * Remembers the position of a checkpoint.
+     *
+     * @param pos Position of the checkpoint in the journal.
+     */
+    private void addCheckpoint(int pos) {
+        if (checkpoints == checkpointShots.length) {
+            checkpointShots = Arrays.copyOf(checkpointShots, checkpoints * 2);
+            checkpointPositions = Arrays.copyOf(checkpointPositions, checkpoints * 2);
+        }
+        checkpointShots[checkpoints] = shotCount;
+        checkpointPositions[checkpoints] = pos;
+        checkpoints++;
+    }
+
+    /**
+     * Moves the replay to the state after a specific amount of shots.
+     * Loads the last checkpoint before that shot and applies the shots after it.
+     *
+     * @param target Amount of shots that should have been made (0 for the start of the match).
+     * @return {@code true} if the replay is at that shot, {@code false} if the checkpoint couldn't be loaded.
+     */
+    public boolean seek(int target) {
+        target = Math.max(0, Math.min(target, shotCount));
+        //last checkpoint with at most target shots, the checkpoints are ordered by their amount of shots
+        int low = 0, high = checkpoints - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (checkpointShots[mid] <= target)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        if (!loadCheckpoint(checkpointPositions[low]))
+            return false;
+        while (shot < target) {
+            if (!step())
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the next shot of the journal to the grids.
+     * If a resync checkpoint comes before that shot, the grids are replaced by the ones from the checkpoint.
+     *
+     * @return {@code true} if a shot was applied, {@code false} if the end of the journal was reached.
+     */
+    public boolean step() {
+        while (position < data.limit()) {
+            switch (data.get(position)) {
+                case MatchJournal.SHOT:
+                    applyShot(data.get(position + 1), data.get(position + 2), data.get(position + 3), data.get(position + 4));
+                    position += MatchJournal.SHOT_LENGTH;
+                    shot++;
+                    readCheckpoints();
+                    return true;
+                case MatchJournal.CHECKPOINT:
+                    readCheckpoints();
+                    break;
+                case MatchJournal.PLACE:
+                    position += MatchJournal.PLACE_LENGTH;
+                    break;
+                default:
+                    position += MatchJournal.END_LENGTH;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the checkpoints at the current position, a resync checkpoint replaces the grids.
+     * Regular checkpoints contain the state that was already reached with the shots before them, so they are skipped.
+     */
+    private void readCheckpoints() {
+        while (position < data.limit() && data.get(position) == MatchJournal.CHECKPOINT) {
+            if ((data.get(position + MatchJournal.CHECKPOINT_LENGTH) & MatchJournal.RESYNC) == 0 || !loadCheckpoint(position))
+                position += MatchJournal.CHECKPOINT_LENGTH + data.getInt(position + 5);
+        }
+    }
+
+    /**
+     * Replaces the grids with the ones from a checkpoint.
+     *
+     * @param pos Position of the checkpoint in the journal.
+     * @return {@code true} if the checkpoint could be loaded.
+     */
+    private boolean loadCheckpoint(int pos) {
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(pos + MatchJournal.CHECKPOINT_LENGTH);
+        int flags = buffer.get();
+        Grid player = SaveFile.getGrid(buffer, size, GridManager.OWNFIELD);
+        Grid opponent = SaveFile.getGrid(buffer, size, GridManager.OPPONENTFIELD);
+        if (player == null || opponent == null)
+            return false;
+        //the shots after the checkpoint are applied without placing any markers
+        player.setHeadless(true);
+        opponent.setHeadless(true);
+        playerGrid = player;
+        opponentGrid = opponent;
+        playerTurn = (flags & MatchJournal.PLAYERTURN) != 0;
+        shot = data.getInt(pos + 1);
+        position = pos + MatchJournal.CHECKPOINT_LENGTH + data.getInt(pos + 5);
+        return true;
+    }
+
+    /**
+     * Applies a shot from the journal to the grids.
+     *
+     * @param grid   ID of the grid that was shot (one of constants in {@link GridManager}).
+     * @param x      X index of the cell that was shot (1-size).
+     * @param y      Y index of the cell that was shot (1-size).
+     * @param result Result of the shot ({@link FleetBoard#WATER}, {@link FleetBoard#HIT} or {@link FleetBoard#SUNK}).
+     */
+    private void applyShot(int grid, int x, int y, int result) {
+        Grid target = grid == GridManager.OWNFIELD ? playerGrid : opponentGrid;
+        if (target instanceof OnlineGrid)
+            ((OnlineGrid) target).processShot(x, y, result);
+        else
+            target.shoot(x, y);
+        playerTurn = MatchJournal.isPlayerTurnAfter(grid, result);
+    }
+
+    /**
+     * @return Grid of the player at the current position.
+     */
+    public Grid getPlayerGrid() {
+        return playerGrid;
+    }
+
+    /**
+     * @return Grid of the opponent at the current position.
+     */
+    public Grid getOpponentGrid() {
+        return opponentGrid;
+    }
+
+    /**
+     * @return {@code true} if it is the turn of the player at the current position.
+     */
+    public boolean isPlayerTurn() {
+        return playerTurn;
+    }
+
+    /**
+     * @return Amount of shots that have been applied to the grids.
+     */
+    public int getShot() {
+        return shot;
+    }
+
+    /**
+     * @return Amount of shots in the journal.
+     */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * @return Amount of checkpoints in the journal.
+     */
+    public int getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * @return Size of the grids.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if the match was played online.
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * @return {@code true} if the journal contains the end of the match.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return {@code true} if the player has won the match, only valid if the match is finished.
+     */
+    public boolean hasPlayerWon() {
+        return won;
+    }
+}
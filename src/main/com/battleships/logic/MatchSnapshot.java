@@ -0,0 +1,320 @@
+package com.battleships.logic;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.BitSet;
+
+/**
+ * Compact state of an online match, used to resume a match after the connection was lost.
+ * Contains the shots on both grids as bitsets, the cells at which ships were sunk, whose turn it is and
+ * the sequence number of the last message of the player that is included in this snapshot.
+ * Messages the player missed while disconnected are sent separately after the snapshot.
+ * <p>
+ * Grid {@link #OWN} is the grid of the player that receives the snapshot (shots of the opponent),
+ * grid {@link #OPPONENT} is the grid of the opponent (shots of the player).
+ * Cells are stored at bit {@code (y - 1) * size + (x - 1)}.
+ *
+ * @author agent
+ */
+public class MatchSnapshot {
+
+    /**
+     * Version of the binary format, needs to be increased if the format changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Constants for the two grids in a snapshot.
+     */
+    public static final int OWN = 0, OPPONENT = 1;
+    /**
+     * Bits of the flags byte.
+     */
+    private static final int MYTURN = 1, SHOOTING = 2, HOST = 4;
+
+    /**
+     * Size of the grids.
+     */
+    private int size;
+    /**
+     * Number of messages the player receiving this snapshot has sent, that arrived at the server.
+     * If the player has sent more messages, the last one got lost and needs to be sent again.
+     */
+    private int sequence;
+    /**
+     * Cell on the grid of the opponent the player has shot, but not yet received an answer for
+     * (stored as bit index, -1 if there is no such shot).
+     */
+    private int pendingShot = -1;
+    /**
+     * {@code true} if it is the turn of the player receiving this snapshot.
+     */
+    private boolean myTurn;
+    /**
+     * {@code true} if both players have confirmed their ships, so the shooting phase has started.
+     */
+    private boolean shooting;
+    /**
+     * {@code true} if the player receiving this snapshot hosts the match.
+     */
+    private boolean host;
+    /**
+     * Cells that have been shot on each grid.
+     */
+    private BitSet[] shots = {new BitSet(), new BitSet()};
+    /**
+     * Cells on each grid where a ship was hit.
+     */
+    private BitSet[] hits = {new BitSet(), new BitSet()};
+    /**
+     * Cells on each grid at which the shot was made that sunk a ship.
+     */
+    private BitSet[] sunk = {new BitSet(), new BitSet()};
+
+    /**
+     * Create a new empty snapshot.
+     *
+     * @param size Size of the grids.
+     */
+    public MatchSnapshot(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Save a shot and its answer in this snapshot.
+     *
+     * @param grid   Grid the shot was made on ({@value OWN} or {@value OPPONENT}).
+     * @param x      X index of the shot (1-size).
+     * @param y      Y index of the shot (1-size).
+     * @param answer Answer to the shot (0 for water, 1 for ship hit, 2 for hit and sunk).
+     */
+    public void addShot(int grid, int x, int y, int answer) {
+        int bit = (y - 1) * size + (x - 1);
+        shots[grid].set(bit);
+        if (answer > 0)
+            hits[grid].set(bit);
+        if (answer == 2)
+            sunk[grid].set(bit);
+    }
+
+    /**
+     * Writes this snapshot into a byte array.
+     * Format: version, size, flags (1 byte each), sequence, pending shot (int each), then for each grid the shot, hit and sunk bitsets
+     * each with a fixed length of {@code ceil(size * size / 8)} bytes.
+     *
+     * @return The encoded snapshot.
+     */
+    public byte[] encode() {
+        int bitsetLength = (size * size + 7) / 8;
+        ByteBuffer buffer = ByteBuffer.allocate(11 + 6 * bitsetLength);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) size);
+        buffer.put((byte) ((myTurn ? MYTURN : 0) | (shooting ? SHOOTING : 0) | (host ? HOST : 0)));
+        buffer.putInt(sequence);
+        buffer.putInt(pendingShot);
+        for (int grid = OWN; grid <= OPPONENT; grid++) {
+            putBitSet(buffer, shots[grid], bitsetLength);
+            putBitSet(buffer, hits[grid], bitsetLength);
+            putBitSet(buffer, sunk[grid], bitsetLength);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a snapshot from a byte array created by {@link #encode()}.
+     *
+     * @param data Encoded snapshot.
+     * @return The decoded snapshot, or {@code null} if the data has a different version.
+     */
+    public static MatchSnapshot decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.get() != VERSION)
+            return null;
+        MatchSnapshot snapshot = new MatchSnapshot(buffer.get());
+        int flags = buffer.get();
+        snapshot.myTurn = (flags & MYTURN) != 0;
+        snapshot.shooting = (flags & SHOOTING) != 0;
+        snapshot.host = (flags & HOST) != 0;
+        snapshot.sequence = buffer.getInt();
+        snapshot.pendingShot = buffer.getInt();
+        int bitsetLength = (snapshot.size * snapshot.size + 7) / 8;
+        for (int grid = OWN; grid <= OPPONENT; grid++) {
+            snapshot.shots[grid] = getBitSet(buffer, bitsetLength);
+            snapshot.hits[grid] = getBitSet(buffer, bitsetLength);
+            snapshot.sunk[grid] = getBitSet(buffer, bitsetLength);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return The encoded snapshot as Base64 String, so it can be sent in one line of the text protocol.
+     */
+    public String encodeToString() {
+        return Base64.getEncoder().encodeToString(encode());
+    }
+
+    /**
+     * Reads a snapshot from a String created by {@link #encodeToString()}.
+     *
+     * @param data Encoded snapshot.
+     * @return The decoded snapshot, or {@code null} if the String isn't a valid snapshot.
+     */
+    public static MatchSnapshot decode(String data) {
+        try {
+            return decode(Base64.getDecoder().decode(data.trim()));
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a bitset with a fixed length into a buffer.
+     *
+     * @param buffer Buffer to write into.
+     * @param bits   Bitset to write.
+     * @param length Length in bytes the bitset should have in the buffer.
+     */
+    private static void putBitSet(ByteBuffer buffer, BitSet bits, int length) {
+        byte[] bytes = bits.toByteArray();
+        buffer.put(bytes, 0, Math.min(bytes.length, length));
+        for (int i = bytes.length; i < length; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Reads a bitset with a fixed length from a buffer.
+     *
+     * @param buffer Buffer to read from.
+     * @param length Length of the bitset in bytes.
+     * @return The bitset that was read.
+     */
+    private static BitSet getBitSet(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    /**
+     * Creates the grids of a player from this snapshot.
+     * The ships of the player are taken from the old grid of the player, so they keep their gui entities.
+     * The returned grids are headless, so no markers are placed while the shots are replayed.
+     *
+     * @param oldPlayerGrid Grid of the player before the connection was lost, containing the ships of the player.
+     * @return Array containing the new grid of the player at {@value OWN} and the grid of the opponent at {@value OPPONENT}.
+     */
+    public Grid[] createGrids(Grid oldPlayerGrid) {
+        Grid own = new Grid(size, 0, true);
+        for (Ship ship : oldPlayerGrid.getShips()) {
+            Cell stern = ship.getOccupiedCells().get(0);
+            own.placeShip(stern.y + 1, stern.x + 1, ship.getSize(), ship.getDirection(), ship.getGuiShip());
+        }
+        for (int bit = shots[OWN].nextSetBit(0); bit >= 0; bit = shots[OWN].nextSetBit(bit + 1)) {
+            own.shoot(bit % size + 1, bit / size + 1);
+        }
+        OnlineGrid opponent = new OnlineGrid(size, 1, true);
+        //sunk ships can only be processed after all their parts have been marked as hit
+        for (int bit = shots[OPPONENT].nextSetBit(0); bit >= 0; bit = shots[OPPONENT].nextSetBit(bit + 1)) {
+            if (!sunk[OPPONENT].get(bit))
+                opponent.processShot(bit % size + 1, bit / size + 1, hits[OPPONENT].get(bit) ? 1 : 0);
+        }
+        for (int bit = sunk[OPPONENT].nextSetBit(0); bit >= 0; bit = sunk[OPPONENT].nextSetBit(bit + 1)) {
+            opponent.processShot(bit % size + 1, bit / size + 1, 2);
+        }
+        return new Grid[]{own, opponent};
+    }
+
+    /**
+     * @return Size of the grids.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Save a shot the player has made, but not received an answer for yet.
+     *
+     * @param x X index of the shot (1-size).
+     * @param y Y index of the shot (1-size).
+     */
+    public void setPendingShot(int x, int y) {
+        pendingShot = (y - 1) * size + (x - 1);
+    }
+
+    /**
+     * @return {@code true} if the player has made a shot that hasn't been answered yet.
+     */
+    public boolean hasPendingShot() {
+        return pendingShot >= 0;
+    }
+
+    /**
+     * @return X index of the shot that hasn't been answered yet (1-size).
+     */
+    public int getPendingShotX() {
+        return pendingShot % size + 1;
+    }
+
+    /**
+     * @return Y index of the shot that hasn't been answered yet (1-size).
+     */
+    public int getPendingShotY() {
+        return pendingShot / size + 1;
+    }
+
+    /**
+     * @return Number of messages the player has sent, that arrived at the server.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @param sequence Number of messages the player has sent, that arrived at the server.
+     */
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return {@code true} if it is the turn of the player receiving this snapshot.
+     */
+    public boolean isMyTurn() {
+        return myTurn;
+    }
+
+    /**
+     * @param myTurn {@code true} if it is the turn of the player receiving this snapshot.
+     */
+    public void setMyTurn(boolean myTurn) {
+        this.myTurn = myTurn;
+    }
+
+    /**
+     * @return {@code true} if the shooting phase has started.
+     */
+    public boolean isShooting() {
+        return shooting;
+    }
+
+    /**
+     * @param shooting {@code true} if the shooting phase has started.
+     */
+    public void setShooting(boolean shooting) {
+        this.shooting = shooting;
+    }
+
+    /**
+     * @return {@code true} if the player receiving this snapshot hosts the match.
+     */
+    public boolean isHost() {
+        return host;
+    }
+
+    /**
+     * @param host {@code true} if the player receiving this snapshot hosts the match.
+     */
+    public void setHost(boolean host) {
+        this.host = host;
+    }
+}
@@ -13,6 +13,10 @@ public class OnlineGrid extends Grid {
         super(size, owner);
     }
 
+    public OnlineGrid(int size, int owner, boolean headless) {
+        super(size, owner, headless);
+    }
+
     public void processShot(int x, int y, int answer) {
         getCell(x, y).state = SHOT;
         switch (answer) {
@@ -0,0 +1,652 @@
+package com.battleships.logic;
+
+import com.battleships.gui.gameAssets.GameManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog of all save files, stored in the file {@value #FILENAME} next to the save file folder.
+ * Contains the size, state, opponent, time and a summary of the stats of every save file,
+ * so save files can be listed and checked without opening them.
+ * <p>
+ * The catalog is only appended to: every save adds a record with the information of that save, a newer record
+ * for the same name replaces the older one. If the catalog contains more than twice as many records as save files,
+ * it is written again with only the current records. Save files that were added or removed without the game
+ * (or saved by an older version) are found with {@link #sync()}, which only lists the folder and opens just the new files.
+ * <p>
+ * Format: magic number (int), version (1 byte), followed by the records: type ({@link #PUT} or {@link #REMOVE}),
+ * length of the name (short), name (UTF-8), put records also contain time (long), length of the file (int),
+ * size, game state, flags (online, players turn), level of the AI of the player and of the opponent,
+ * rounds (int), played time in seconds (int), ships left of the player and of the opponent.
+ *
+ * @author agent
+ */
+public class SaveCatalog {
+
+    /**
+     * Name of the catalog file.
+     */
+    public static final String FILENAME = "SaveFiles.catalog";
+    /**
+     * Magic number at the start of the catalog ("BCAT").
+     */
+    public static final int MAGIC = 0x42434154;
+    /**
+     * Version of the format, needs to be increased if the format changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Types of the records in the catalog.
+     */
+    public static final int PUT = 1, REMOVE = 2;
+    /**
+     * Length of the header of the catalog in bytes.
+     */
+    private static final int HEADER = 5;
+    /**
+     * Length of a put record without the name in bytes.
+     */
+    private static final int ENTRY_LENGTH = 27;
+    /**
+     * Bits of the flags byte.
+     */
+    private static final int ONLINE = 1, PLAYERTURN = 2;
+
+    /**
+     * Current entry of every save file by name, {@code null} until the catalog was read.
+     */
+    private static Map<String, Entry> entries;
+    /**
+     * Amount of records in the catalog file.
+     */
+    private static int records;
+    /**
+     * The save file folder, {@code null} until it is needed.
+     */
+    private static File folder;
+
+    /**
+     * Adds a save file to the catalog after it was written, replaces the entry of a save file with the same name.
+     * The time and length of the entry are taken from the written file.
+     *
+     * @param entry Entry of the save file ({@link Entry#Entry(String, SaveFile)}).
+     * @param file  The written save file.
+     */
+    public static synchronized void put(Entry entry, File file) {
+        entry.time = file.lastModified();
+        entry.length = file.length();
+        load();
+        entries.remove(entry.name);
+        entries.put(entry.name, entry);
+        if (records >= 2 * entries.size() + 16)
+            compact();
+        else
+            append(entry, PUT);
+    }
+
+    /**
+     * Removes a save file from the catalog.
+     *
+     * @param name Name of the save file (without suffix).
+     */
+    public static synchronized void remove(String name) {
+        load();
+        Entry entry = entries.remove(name);
+        if (entry != null)
+            append(entry, REMOVE);
+    }
+
+    /**
+     * Returns the entry of a save file. Save files that aren't in the catalog yet are added.
+     *
+     * @param name Name of the save file (without suffix).
+     * @return The entry, {@code null} if there is no valid save file with that name.
+     */
+    public static synchronized Entry get(String name) {
+        load();
+        Entry entry = entries.get(name);
+        if (entry != null && entry.isValid())
+            return entry;
+        return refresh(name);
+    }
+
+    /**
+     * Save files that were changed or removed since they were added to the catalog are updated first.
+     *
+     * @return Entries of all save files in the catalog, the newest save first.
+     */
+    public static synchronized List<Entry> list() {
+        load();
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (!entry.isValid())
+                refresh(entry.name);
+        }
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::getTime).reversed());
+        return list;
+    }
+
+    /**
+     * Replaces the entry of a save file with a new one read from the file.
+     * The old entry is always removed, so it is never returned again, also if the file can't be read anymore.
+     *
+     * @param name Name of the save file (without suffix).
+     * @return The new entry, {@code null} if there is no valid save file with that name.
+     */
+    private static Entry refresh(String name) {
+        Entry entry = entries.remove(name);
+        if (entry != null)
+            append(entry, REMOVE);
+        //the file may have been added or changed without the game
+        entry = describe(name);
+        if (entry != null) {
+            entries.put(name, entry);
+            append(entry, PUT);
+        }
+        return entry;
+    }
+
+    /**
+     * Brings the catalog up to date with the save file folder. Adds save files that aren't in the catalog
+     * and removes entries of save files that don't exist anymore. Only the new or changed files are opened.
+     */
+    public static synchronized void sync() {
+        load();
+        File saveFolder = getFolder();
+        File[] files = saveFolder == null ? null : saveFolder.listFiles();
+        if (files == null)
+            return;
+        Map<String, Boolean> found = new LinkedHashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SaveFileManager.SUFFIX))
+                found.put(name.substring(0, name.length() - SaveFileManager.SUFFIX.length()), true);
+            else if (name.endsWith(SaveFileManager.XMLSUFFIX))
+                found.putIfAbsent(name.substring(0, name.length() - SaveFileManager.XMLSUFFIX.length()), false);
+        }
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (!found.containsKey(entry.name))
+                remove(entry.name);
+        }
+        for (String name : found.keySet()) {
+            Entry entry = entries.get(name);
+            if (entry == null || !entry.isValid())
+                get(name);
+        }
+        if (records > 2 * entries.size() + 16)
+            compact();
+    }
+
+    /**
+     * Reads the catalog file, if it hasn't been read yet. Records after a damaged record are ignored.
+     */
+    private static void load() {
+        if (entries != null)
+            return;
+        entries = new LinkedHashMap<>();
+        records = 0;
+        File file = getFile();
+        if (file == null || !file.exists())
+            return;
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            buffer.flip();
+        } catch (IOException e) {
+            System.err.println("Error while trying to read the save file catalog!");
+            e.printStackTrace();
+            return;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                System.err.println("Save file catalog is from a different version, it is created again!");
+                compact();
+                return;
+            }
+            while (buffer.hasRemaining()) {
+                int type = buffer.get();
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                String key = new String(name, StandardCharsets.UTF_8);
+                if (type == PUT) {
+                    entries.remove(key);
+                    entries.put(key, Entry.read(key, buffer));
+                } else if (type == REMOVE) {
+                    entries.remove(key);
+                } else {
+                    break;
+                }
+                records++;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            //the game was closed while a record was written
+            compact();
+        }
+    }
+
+    /**
+     * Appends a record to the catalog file.
+     *
+     * @param entry Entry the record is for.
+     * @param type  Type of the record ({@link #PUT} or {@link #REMOVE}).
+     */
+    private static void append(Entry entry, int type) {
+        File file = getFile();
+        if (file == null)
+            return;
+        if (!file.exists()) {
+            compact();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(getLength(entry));
+            entry.write(buffer, type);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            records++;
+        } catch (IOException e) {
+            System.err.println("Error while trying to write the save file catalog!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the catalog file again with only the current entries, the old file is replaced in one step.
+     */
+    private static void compact() {
+        File file = getFile();
+        if (file == null)
+            return;
+        int length = HEADER;
+        for (Entry entry : entries.values()) {
+            length += getLength(entry);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        for (Entry entry : entries.values()) {
+            entry.write(buffer, PUT);
+        }
+        buffer.flip();
+        File temp = new File(file.getPath() + SaveWriter.TEMPSUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            records = entries.size();
+        } catch (IOException e) {
+            System.err.println("Error while trying to write the save file catalog!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates the entry of a save file that isn't in the catalog by opening it.
+     * Binary save files are preferred, like when loading a game.
+     *
+     * @param name Name of the save file (without suffix).
+     * @return The entry, {@code null} if there is no valid save file with that name.
+     */
+    private static Entry describe(String name) {
+        File saveFolder = getFolder();
+        if (saveFolder == null)
+            return null;
+        File file = new File(saveFolder, name + SaveFileManager.SUFFIX);
+        SaveFile save;
+        if (file.exists()) {
+            save = SaveFileManager.loadBinaryFile(file, new LogicManager());
+        } else {
+            file = new File(saveFolder, name + SaveFileManager.XMLSUFFIX);
+            if (!file.exists())
+                return null;
+            save = SaveFileManager.loadXMLFile(file);
+        }
+        if (save == null || save.getSettings() == null || save.getPlayerGrid() == null || save.getOpponentGrid() == null)
+            return null;
+        return new Entry(name, file.lastModified(), file.length(), save);
+    }
+
+    /**
+     * @param entry Entry of a save file.
+     * @return Length of the record of that entry in bytes.
+     */
+    private static int getLength(Entry entry) {
+        return 3 + entry.name.getBytes(StandardCharsets.UTF_8).length + ENTRY_LENGTH;
+    }
+
+    /**
+     * @return The catalog file, {@code null} if the path of the jar can't be read.
+     */
+    private static File getFile() {
+        try {
+            return new File(SaveFileManager.getJarPath(), FILENAME);
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The save file folder, {@code null} if the path of the jar can't be read.
+     */
+    private static File getFolder() {
+        if (folder == null) {
+            try {
+                folder = new File(SaveFileManager.getJarPath() + "/SaveFiles/");
+            } catch (UnsupportedEncodingException e) {
+                e.printStackTrace();
+            }
+        }
+        return folder;
+    }
+
+    /**
+     * Information about one save file in the catalog.
+     */
+    public static class Entry {
+        /**
+         * Name of the save file (without suffix).
+         */
+        private String name;
+        /**
+         * Time the save file was written at (modification time of the file, milliseconds since 1970).
+         */
+        private long time;
+        /**
+         * Length of the save file in bytes.
+         */
+        private long length;
+        /**
+         * Size of the grids.
+         */
+        private int size;
+        /**
+         * State the game was in (see constants in {@link GameManager}).
+         */
+        private int gameState;
+        /**
+         * {@code true} if the game was played online.
+         */
+        private boolean online;
+        /**
+         * {@code true} if it was the turn of the player.
+         */
+        private boolean playerTurn;
+        /**
+         * Level of the AI of the player and of the opponent (constants in {@link Settings}), -1 if no AI is used.
+         */
+        private int aiLevelP, aiLevelO;
+        /**
+         * Amount of rounds that were played.
+         */
+        private int rounds;
+        /**
+         * Time the game was played in seconds.
+         */
+        private int playTime;
+        /**
+         * Amount of ships left of the player and of the opponent.
+         */
+        private int playerShipsLeft, opponentShipsLeft;
+
+        /**
+         * Creates an entry from a saved game.
+         *
+         * @param name   Name of the save file (without suffix).
+         * @param time   Time the game was saved at (milliseconds since 1970).
+         * @param length Length of the save file in bytes.
+         * @param save   The saved game.
+         */
+        Entry(String name, long time, long length, SaveFile save) {
+            this.name = name;
+            this.time = time;
+            this.length = length;
+            size = save.getPlayerGrid().getSize();
+            gameState = save.getGameState();
+            online = save.getSettings().isOnline();
+            playerTurn = save.getTurnHandler() == null || save.getTurnHandler().isPlayerTurn();
+            aiLevelP = save.getSettings().getAiLevelP();
+            aiLevelO = save.getSettings().getAiLevelO();
+            rounds = save.getStats() == null ? 0 : save.getStats().getRounds();
+            playTime = save.getStats() == null ? 0 : save.getStats().getPlayTime();
+            playerShipsLeft = sum(save.getPlayerGrid().getShipsAlive());
+            opponentShipsLeft = sum(save.getOpponentGrid().getShipsAlive());
+        }
+
+        /**
+         * Creates an entry from a saved game, that hasn't been written yet.
+         * The time and length are set when it is added to the catalog after the file was written.
+         *
+         * @param name Name of the save file (without suffix).
+         * @param save The saved game.
+         */
+        Entry(String name, SaveFile save) {
+            this(name, 0, 0, save);
+        }
+
+        /**
+         * Creates an empty entry, only used while reading the catalog.
+         *
+         * @param name Name of the save file (without suffix).
+         */
+        Entry(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Writes a record for this entry.
+         *
+         * @param buffer Buffer to write into.
+         * @param type   Type of the record ({@link #PUT} or {@link #REMOVE}).
+         */
+        void write(ByteBuffer buffer, int type) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buffer.put((byte) type);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+            if (type != PUT)
+                return;
+            buffer.putLong(time);
+            buffer.putInt((int) length);
+            buffer.put((byte) size);
+            buffer.put((byte) gameState);
+            buffer.put((byte) ((online ? ONLINE : 0) | (playerTurn ? PLAYERTURN : 0)));
+            buffer.put((byte) aiLevelP);
+            buffer.put((byte) aiLevelO);
+            buffer.putInt(rounds);
+            buffer.putInt(playTime);
+            buffer.put((byte) playerShipsLeft);
+            buffer.put((byte) opponentShipsLeft);
+        }
+
+        /**
+         * Reads the rest of a put record.
+         *
+         * @param name   Name of the save file (without suffix).
+         * @param buffer Buffer to read from, positioned after the name.
+         * @return The entry that was read.
+         */
+        static Entry read(String name, ByteBuffer buffer) {
+            Entry entry = new Entry(name);
+            entry.time = buffer.getLong();
+            entry.length = buffer.getInt() & 0xFFFFFFFFL;
+            entry.size = buffer.get();
+            entry.gameState = buffer.get();
+            int flags = buffer.get();
+            entry.online = (flags & ONLINE) != 0;
+            entry.playerTurn = (flags & PLAYERTURN) != 0;
+            entry.aiLevelP = buffer.get();
+            entry.aiLevelO = buffer.get();
+            entry.rounds = buffer.getInt();
+            entry.playTime = buffer.getInt();
+            entry.playerShipsLeft = buffer.get();
+            entry.opponentShipsLeft = buffer.get();
+            return entry;
+        }
+
+        /**
+         * Tests if the save file of this entry exists and has the length and modification time that are in the catalog.
+         *
+         * @return {@code true} if the save file matches this entry.
+         */
+        public boolean isValid() {
+            File saveFolder = getFolder();
+            if (saveFolder == null)
+                return false;
+            File file = new File(saveFolder, name + SaveFileManager.SUFFIX);
+            //the length is 0 if the file doesn't exist
+            long fileLength = file.length();
+            if (fileLength == 0) {
+                file = new File(saveFolder, name + SaveFileManager.XMLSUFFIX);
+                fileLength = file.length();
+            }
+            return fileLength == length && file.lastModified() == time;
+        }
+
+        /**
+         * @return Short description of the opponent ("online", or the level of the AI).
+         */
+        public String getOpponentType() {
+            if (online)
+                return "online";
+            switch (aiLevelO) {
+                case Settings.EASY:
+                    return "AI easy";
+                case Settings.MEDIUM:
+                    return "AI medium";
+                case Settings.HARD:
+                    return "AI hard";
+                default:
+                    return "player";
+            }
+        }
+
+        /**
+         * @param values Values to add.
+         * @return Sum of all values.
+         */
+        private static int sum(int[] values) {
+            int sum = 0;
+            for (int value : values) {
+                sum += value;
+            }
+            return sum;
+        }
+
+        /**
+         * @return Name of the save file (without suffix).
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Time the game was saved at (milliseconds since 1970).
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return Length of the save file in bytes.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return Size of the grids.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return State the game was in (see constants in {@link GameManager}).
+         */
+        public int getGameState() {
+            return gameState;
+        }
+
+        /**
+         * @return {@code true} if the game was played online.
+         */
+        public boolean isOnline() {
+            return online;
+        }
+
+        /**
+         * @return {@code true} if it was the turn of the player.
+         */
+        public boolean isPlayerTurn() {
+            return playerTurn;
+        }
+
+        /**
+         * @return Level of the AI of the player (constants in {@link Settings}), -1 if no AI is used.
+         */
+        public int getAiLevelP() {
+            return aiLevelP;
+        }
+
+        /**
+         * @return Level of the AI of the opponent (constants in {@link Settings}), -1 if no AI is used.
+         */
+        public int getAiLevelO() {
+            return aiLevelO;
+        }
+
+        /**
+         * @return Amount of rounds that were played.
+         */
+        public int getRounds() {
+            return rounds;
+        }
+
+        /**
+         * @return Time the game was played in seconds.
+         */
+        public int getPlayTime() {
+            return playTime;
+        }
+
+        /**
+         * @return Amount of ships left of the player.
+         */
+        public int getPlayerShipsLeft() {
+            return playerShipsLeft;
+        }
+
+        /**
+         * @return Amount of ships left of the opponent.
+         */
+        public int getOpponentShipsLeft() {
+            return opponentShipsLeft;
+        }
+    }
+}
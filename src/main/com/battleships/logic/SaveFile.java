@@ -1,22 +1,62 @@
 package com.battleships.logic;
 
-import com.battleships.gui.audio.Source;
-import com.battleships.gui.entities.Entity;
 import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
-import org.joml.Vector3f;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Class containing all information of a game that needs to be saved
  * so the game can be continued at a later point in time.
+ * Only the state of the logic is saved, all entities, markers and fires in the gui are created again
+ * from the grids when the game is loaded ({@link GridManager#rebuildEntities(Grid, Grid)}).
+ * <p>
+ * Save files are written in a compact binary format ({@link #encode()}):
+ * <ul>
+ *     <li>Header: magic number (int), version, size, game state, flags (online, players turn),
+ *     level of the AI of the player and of the opponent, ships left to place (4), 1 byte each.</li>
+ *     <li>Both grids: type ({@value #GRID} or {@value #ONLINEGRID}), amount of ships, for each ship
+ *     x and y index of the stern, size and direction, followed by the bitset of the shot cells,
+ *     online grids also contain the bitsets of the hit cells and of the cells at which ships were sunk.
+ *     Bitsets are stored with {@code ceil(size * size / 8)} bytes, the cell x,y is at bit {@code (y - 1) * size + (x - 1)}.</li>
+ *     <li>Stats ({@value Stats#BYTES} bytes).</li>
+ * </ul>
+ * The grids are rebuilt by placing the ships and replaying the shots.
+ * Older save files were written as .xml with XStream and can still be loaded, the entities they contain are skipped.
  *
  * @author Tim Staudenmaier
  */
 public class SaveFile {
 
+    /**
+     * Magic number at the start of every binary save file ("BSAV").
+     */
+    public static final int MAGIC = 0x42534156;
+    /**
+     * Version of the binary format, needs to be increased if the format changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Types of grids in a binary save file.
+     */
+    public static final int GRID = 0, ONLINEGRID = 1;
+    /**
+     * Bits of the flags byte.
+     */
+    private static final int ONLINE = 1, PLAYERTURN = 2;
+    /**
+     * Length of the header of a binary save file in bytes.
+     */
+    private static final int HEADER = 14;
+    /**
+     * Cells that are stored in a bitset of a binary save file.
+     */
+    private static final int SHOT_CELLS = 0, HIT_CELLS = 1, SUNK_CELLS = 2;
+
     /**
      * Logic grid of the player.
      */
@@ -37,22 +77,6 @@ public class SaveFile {
      * GameState this game was in. (see constants in {@link GameManager}.
      */
     private int gameState;
-    /**
-     * All ship entities on the players grid.
-     */
-    private List<Entity> ships;
-    /**
-     * All marker entities that were on the grids.
-     */
-    private List<Entity> markers;
-    /**
-     * List containing all positions for fire effects on the players grid grouped by the ships on which the fires are burning.
-     */
-    private Map<Entity, List<Vector3f>> burningFires;
-    /**
-     * List containing all sources for fire sounds on the players grid grouped by the ships on which the fires are burning.
-     */
-    private Map<Entity, List<Source>> burningFireSounds;
 
     /**
      * Settings of the saved game.
@@ -75,76 +99,261 @@ public class SaveFile {
         turnHandler = logic.getTurnHandler();
         gameState = logic.getGameState();
         stats.saveTime();
-        GridManager gridManager = GameManager.getGridManager();
-        ships = gridManager.getShips();
-        markers = gridManager.getMarkers();
-        burningFires = gridManager.getBurningFires();
-        burningFireSounds = gridManager.getBurningFireSounds();
         settings = GameManager.getSettings();
         shipsLeftPlacing = GameManager.getShipSelector().getShipCounts();
     }
 
     /**
-     * @return Saved grid of the player.
+     * Create a SaveFile from a loaded binary save file.
+     *
+     * @param playerGrid       Logic grid of the player.
+     * @param opponentGrid     Logic grid of the opponent.
+     * @param stats            Stats of the game.
+     * @param turnHandler      TurnHandler of the game.
+     * @param gameState        GameState the game was in.
+     * @param settings         Settings of the saved game.
+     * @param shipsLeftPlacing Ships that still need to be placed ordered by size.
      */
-    public Grid getPlayerGrid() {
-        return playerGrid;
+    SaveFile(Grid playerGrid, Grid opponentGrid, Stats stats, TurnHandler turnHandler, int gameState, Settings settings, int[] shipsLeftPlacing) {
+        this.playerGrid = playerGrid;
+        this.opponentGrid = opponentGrid;
+        this.stats = stats;
+        this.turnHandler = turnHandler;
+        this.gameState = gameState;
+        this.settings = settings;
+        this.shipsLeftPlacing = shipsLeftPlacing;
     }
 
     /**
-     * @return Saved grid of the opponent.
+     * Writes this save file in the binary format into one buffer, that has exactly the needed size.
+     *
+     * @return Buffer containing the save file, ready to be written.
      */
-    public Grid getOpponentGrid() {
-        return opponentGrid;
+    public ByteBuffer encode() {
+        int size = playerGrid.getSize();
+        List<Ship> playerShips = playerGrid.getShips();
+        List<Ship> opponentShips = opponentGrid instanceof OnlineGrid ? Collections.emptyList() : opponentGrid.getShips();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + getGridLength(playerGrid, playerShips) + getGridLength(opponentGrid, opponentShips) + Stats.BYTES);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) size);
+        buffer.put((byte) gameState);
+        buffer.put((byte) ((settings.isOnline() ? ONLINE : 0) | (turnHandler.isPlayerTurn() ? PLAYERTURN : 0)));
+        buffer.put((byte) settings.getAiLevelP());
+        buffer.put((byte) settings.getAiLevelO());
+        for (int i = 0; i < 4; i++) {
+            buffer.put((byte) (shipsLeftPlacing == null ? 0 : shipsLeftPlacing[i]));
+        }
+        putGrid(buffer, playerGrid, playerShips);
+        putGrid(buffer, opponentGrid, opponentShips);
+        stats.write(buffer);
+        buffer.flip();
+        return buffer;
     }
 
     /**
-     * @return Saved stats of the game.
+     * Reads a save file that was written with {@link #encode()}.
+     * The grids are headless while the shots are replayed, so no entities are created.
+     *
+     * @param buffer Buffer containing the save file.
+     * @param logic  LogicManager the AIs of the loaded game should use.
+     * @return The loaded save file, {@code null} if the data isn't a valid save file of this version.
      */
-    public Stats getStats() {
-        return stats;
+    public static SaveFile decode(ByteBuffer buffer, LogicManager logic) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION)
+                return null;
+            int size = buffer.get();
+            if (size < 5 || size > 30)
+                return null;
+            int gameState = buffer.get();
+            int flags = buffer.get();
+            Settings settings = new Settings(size, (flags & ONLINE) != 0, buffer.get(), buffer.get());
+            int[] shipsLeftPlacing = new int[4];
+            for (int i = 0; i < 4; i++) {
+                shipsLeftPlacing[i] = buffer.get();
+            }
+            Grid playerGrid = getGrid(buffer, size, GridManager.OWNFIELD);
+            Grid opponentGrid = getGrid(buffer, size, GridManager.OPPONENTFIELD);
+            if (playerGrid == null || opponentGrid == null)
+                return null;
+            Stats stats = Stats.read(buffer);
+            TurnHandler turnHandler = new TurnHandler();
+            turnHandler.initAIs(settings.getAiLevelP(), settings.getAiLevelO(), size, logic);
+            turnHandler.setPlayerTurn((flags & PLAYERTURN) != 0);
+            return new SaveFile(playerGrid, opponentGrid, stats, turnHandler, gameState, settings, shipsLeftPlacing);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
     }
 
     /**
-     * @return Saved TurnHandler of the game.
+     * @param grid  Grid that should be saved.
+     * @param ships Ships on that grid that need to be saved.
+     * @return Amount of bytes the grid needs in a binary save file.
      */
-    public TurnHandler getTurnHandler() {
-        return turnHandler;
+    static int getGridLength(Grid grid, List<Ship> ships) {
+        int bitsetLength = (grid.getSize() * grid.getSize() + 7) / 8;
+        return 2 + 4 * ships.size() + (grid instanceof OnlineGrid ? 3 : 1) * bitsetLength;
     }
 
     /**
-     * @return Saved state the game was in.
+     * Writes a grid into a binary save file.
+     *
+     * @param buffer Buffer to write into.
+     * @param grid   Grid to write.
+     * @param ships  Ships on that grid that need to be saved.
      */
-    public int getGameState() {
-        return gameState;
+    static void putGrid(ByteBuffer buffer, Grid grid, List<Ship> ships) {
+        boolean online = grid instanceof OnlineGrid;
+        buffer.put((byte) (online ? ONLINEGRID : GRID));
+        buffer.put((byte) ships.size());
+        for (Ship ship : ships) {
+            //cell.x is the row and cell.y the column of the cell
+            Cell stern = ship.getOccupiedCells().get(0);
+            buffer.put((byte) (stern.y + 1));
+            buffer.put((byte) (stern.x + 1));
+            buffer.put((byte) ship.getSize());
+            buffer.put((byte) ship.getDirection());
+        }
+        putCells(buffer, grid, SHOT_CELLS);
+        if (online) {
+            putCells(buffer, grid, HIT_CELLS);
+            putCells(buffer, grid, SUNK_CELLS);
+        }
     }
 
     /**
-     * @return Saved entities of all ships on the players grid.
+     * Reads a grid from a binary save file, by placing the ships and replaying all shots on a headless grid.
+     *
+     * @param buffer Buffer to read from.
+     * @param size   Size of the grid.
+     * @param owner  ID of the owner of the grid.
+     * @return The grid, {@code null} if the ships couldn't be placed.
      */
-    public List<Entity> getShips() {
-        return ships;
+    static Grid getGrid(ByteBuffer buffer, int size, int owner) {
+        boolean online = buffer.get() == ONLINEGRID;
+        Grid grid = online ? new OnlineGrid(size, owner, true) : new Grid(size, owner, true);
+        int ships = buffer.get();
+        for (int i = 0; i < ships; i++) {
+            if (!grid.placeShip(buffer.get(), buffer.get(), buffer.get(), buffer.get(), null))
+                return null;
+        }
+        BitSet shots = getCells(buffer, size);
+        if (online) {
+            BitSet hits = getCells(buffer, size);
+            BitSet sunk = getCells(buffer, size);
+            //sunk ships can only be processed after all their parts have been marked as hit
+            for (int bit = shots.nextSetBit(0); bit >= 0; bit = shots.nextSetBit(bit + 1)) {
+                if (!sunk.get(bit))
+                    ((OnlineGrid) grid).processShot(bit % size + 1, bit / size + 1, hits.get(bit) ? 1 : 0);
+            }
+            for (int bit = sunk.nextSetBit(0); bit >= 0; bit = sunk.nextSetBit(bit + 1)) {
+                ((OnlineGrid) grid).processShot(bit % size + 1, bit / size + 1, 2);
+            }
+        } else {
+            for (int bit = shots.nextSetBit(0); bit >= 0; bit = shots.nextSetBit(bit + 1)) {
+                grid.shoot(bit % size + 1, bit / size + 1);
+            }
+        }
+        grid.setHeadless(false);
+        return grid;
     }
 
     /**
-     * @return Saved entities of all markers on the grids.
+     * Writes a bitset of the cells of a grid that have a specific state.
+     *
+     * @param buffer Buffer to write into.
+     * @param grid   Grid the cells are on.
+     * @param type   Cells that should be set in the bitset ({@link #SHOT_CELLS}, {@link #HIT_CELLS} or {@link #SUNK_CELLS}).
      */
-    public List<Entity> getMarkers() {
-        return markers;
+    private static void putCells(ByteBuffer buffer, Grid grid, int type) {
+        int size = grid.getSize();
+        byte[] bytes = new byte[(size * size + 7) / 8];
+        for (int y = 1; y <= size; y++) {
+            for (int x = 1; x <= size; x++) {
+                Cell c = grid.getCell(x, y);
+                boolean set;
+                switch (type) {
+                    case SHOT_CELLS:
+                        set = c.state == Grid.SHOT || c.state == OnlineGrid.ONLINESHIP || c.state == OnlineGrid.SHIPPROCESSED;
+                        break;
+                    case HIT_CELLS:
+                        set = c.state == OnlineGrid.ONLINESHIP || c.state == OnlineGrid.SHIPPROCESSED;
+                        break;
+                    default:
+                        set = c.ship != null;
+                }
+                if (set)
+                    setBit(bytes, (y - 1) * size + (x - 1));
+                //parts of sunk ships are marked as shot on online grids, they are only known from the ship on the cell that sunk it
+                if (type == HIT_CELLS && c.ship != null) {
+                    for (Cell part : c.ship.getOccupiedCells()) {
+                        //cell.x is the row and cell.y the column of the cell
+                        setBit(bytes, part.x * size + part.y);
+                    }
+                }
+            }
+        }
+        buffer.put(bytes);
     }
 
     /**
-     * @return Saved positions for all fires on the players grid.
+     * Sets a bit in a bitset.
+     *
+     * @param bytes Bytes of the bitset.
+     * @param bit   Index of the bit.
      */
-    public Map<Entity, List<Vector3f>> getBurningFires() {
-        return burningFires;
+    private static void setBit(byte[] bytes, int bit) {
+        bytes[bit >>> 3] |= 1 << (bit & 7);
     }
 
     /**
-     * @return Saved Sources for all fire sounds on the players grid.
+     * Reads a bitset of cells that was written with {@link #putCells(ByteBuffer, Grid, int)}.
+     *
+     * @param buffer Buffer to read from.
+     * @param size   Size of the grid.
+     * @return The bitset that was read.
      */
-    public Map<Entity, List<Source>> getBurningFireSounds() {
-        return burningFireSounds;
+    private static BitSet getCells(ByteBuffer buffer, int size) {
+        byte[] bytes = new byte[(size * size + 7) / 8];
+        buffer.get(bytes);
+        return BitSet.valueOf(bytes);
+    }
+
+    /**
+     * @return Saved grid of the player.
+     */
+    public Grid getPlayerGrid() {
+        return playerGrid;
+    }
+
+    /**
+     * @return Saved grid of the opponent.
+     */
+    public Grid getOpponentGrid() {
+        return opponentGrid;
+    }
+
+    /**
+     * @return Saved stats of the game.
+     */
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return Saved TurnHandler of the game.
+     */
+    public TurnHandler getTurnHandler() {
+        return turnHandler;
+    }
+
+    /**
+     * @return Saved state the game was in.
+     */
+    public int getGameState() {
+        return gameState;
     }
 
     /**
@@ -5,49 +5,82 @@ import com.battleships.gui.gameAssets.grids.GridManager;
 import com.thoughtworks.xstream.XStream;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Class that handles saving and loading files.
- * Uses .xml Files for saving and loading.
+ * Games are saved as binary .sav Files (format in {@link SaveFile}), older .xml Files can still be loaded.
  *
  * @author Tim Staudenmaier
  */
 public class SaveFileManager {
 
+    /**
+     * Suffix of save files in the binary format.
+     */
+    public static final String SUFFIX = ".sav";
+    /**
+     * Suffix of save files from older versions, that were saved as xml.
+     */
+    public static final String XMLSUFFIX = ".xml";
+
+    /**
+     * Name of the file the game is autosaved to.
+     */
+    public static final String AUTOSAVE = "autosave";
+    /**
+     * Amount of turns of the player after which the game is autosaved.
+     */
+    public static final int AUTOSAVE_TURNS = 5;
+
+    /**
+     * Amount of turns of the player since the game was autosaved last.
+     */
+    private static int turnsSinceAutosave;
+
     /**
      * Creates a new {@link SaveFile} with the specified name and tries to save it
      * to the saveFiles folder located in the same folder as the jar is.
-     * Files are saved as .xml Files.
+     * Files are saved as binary .sav Files, the game is encoded on the calling thread and the file is written
+     * in the background by the {@link SaveWriter}.
+     * The name {@value AUTOSAVE} belongs to the autosave, a game saved with that name gets a number like a name that is taken.
      *
      * @param name Name of the file the game should be saved in (without suffix).
-     * @return {@code true} if the file was saved, {@code false} if an error occurred.
+     * @return {@code true} if the game was saved and the file is being written, {@code false} if an error occurred.
      */
     public static boolean saveToFile(String name) {
-        SaveFile saveFile = new SaveFile();
-        XStream xstream = new XStream();
-        xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
-        xstream.autodetectAnnotations(true);
+        File reservation = null;
         try {
-            File saveFolder = new File(getJarPath() + "/SaveFiles/");
-            if (!saveFolder.isDirectory()) {
-                if (!saveFolder.mkdir()) {
-                    System.err.println("Error creating save game folder!");
-                    return false;
-                }
-            }
-            File saveXML = new File(saveFolder, name + ".xml");
+            File saveFolder = getSaveFolder();
+            if (saveFolder == null)
+                return false;
+            SaveFile saveFile = new SaveFile();
+            ByteBuffer data = saveFile.encode();
+            //files that are still being written don't exist yet, so they are reserved until they are written
+            String fileName = name;
             int i = 1;
-            while (saveXML.exists()) {
-                saveXML = new File(saveFolder, name + "(" + i + ").xml");
+            while (fileName.equalsIgnoreCase(AUTOSAVE) || new File(saveFolder, fileName + SUFFIX).exists()
+                    || new File(saveFolder, fileName + XMLSUFFIX).exists() || !SaveWriter.reserve(new File(saveFolder, fileName + SUFFIX))) {
+                fileName = name + "(" + i + ")";
                 i++;
             }
-            xstream.toXML(saveFile, new FileOutputStream(saveXML));
+            File file = new File(saveFolder, fileName + SUFFIX);
+            reservation = file;
+            //the catalog only gets the save after it was written, the entry is created now while the game doesn't change
+            SaveCatalog.Entry entry = new SaveCatalog.Entry(fileName, saveFile);
+            //the writer ends the reservation once the file was written
+            reservation = null;
+            SaveWriter.write(file, data, () -> SaveCatalog.put(entry, file));
         } catch (Exception e) {
-            System.err.println("Error while trying to safe game to saveGame.xml!");
+            if (reservation != null)
+                SaveWriter.release(reservation);
+            System.err.println("Error while trying to safe game to " + name + SUFFIX + "!");
             e.printStackTrace(System.err);
             return false;
         }
@@ -55,37 +88,114 @@ public class SaveFileManager {
     }
 
     /**
-     * Load the {@link SaveFile} class from a saved .xml file.
+     * Needs to be called every time it becomes the turn of the player.
+     * Saves offline games every {@value AUTOSAVE_TURNS} turns to the file {@value AUTOSAVE}, the last autosave is replaced.
+     * Online games aren't autosaved, they are resumed through the server if the connection is lost.
+     */
+    public static void turnFinished() {
+        if (GameManager.getSettings().isOnline() || ++turnsSinceAutosave < AUTOSAVE_TURNS)
+            return;
+        turnsSinceAutosave = 0;
+        try {
+            File saveFolder = getSaveFolder();
+            if (saveFolder == null)
+                return;
+            SaveFile saveFile = new SaveFile();
+            ByteBuffer data = saveFile.encode();
+            SaveCatalog.Entry entry = new SaveCatalog.Entry(AUTOSAVE, saveFile);
+            File file = new File(saveFolder, AUTOSAVE + SUFFIX);
+            SaveWriter.writeAutosave(file, data, () -> SaveCatalog.put(entry, file));
+        } catch (Exception e) {
+            System.err.println("Error while trying to autosave game!");
+            e.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * @return The folder the save files are in, it is created if it doesn't exist. {@code null} if it couldn't be created.
+     * @throws UnsupportedEncodingException If jar Path can't be read.
+     */
+    private static File getSaveFolder() throws UnsupportedEncodingException {
+        File saveFolder = new File(getJarPath() + "/SaveFiles/");
+        if (!saveFolder.isDirectory()) {
+            if (!saveFolder.mkdir()) {
+                System.err.println("Error creating save game folder!");
+                return null;
+            }
+        }
+        return saveFolder;
+    }
+
+    /**
+     * Load the {@link SaveFile} class from a saved file.
+     * Binary .sav files are preferred, if there is none with that name an older .xml file is loaded.
      *
-     * @param fileName Name of the saved file that should be loaded.
+     * @param fileName Name of the saved file that should be loaded (without suffix).
      * @return The loaded {@link SaveFile} if it worked, else {@code null}.
      */
     public static SaveFile loadFromFile(String fileName) {
-        SaveFile saveFile = null;
         File saveGame;
+        File saveXML;
         try {
-            saveGame = new File(getJarPath() + "/SaveFiles/" + fileName + ".xml");
+            saveGame = new File(getJarPath() + "/SaveFiles/" + fileName + SUFFIX);
+            saveXML = new File(getJarPath() + "/SaveFiles/" + fileName + XMLSUFFIX);
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
             System.err.println("Error loading saveFile!");
             return null;
         }
-        if (saveGame.exists()) {
-            XStream xstream = new XStream();
-            xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
-            xstream.alias("SaveFile", SaveFile.class);
-            try {
-                saveFile = (SaveFile) xstream.fromXML(saveGame);
-                System.out.println("Successfully loaded saveGame.xml!");
-            } catch (Exception e) {
-                System.err.println("Error while trying to load saveGame.xml!");
-                e.printStackTrace(System.err);
-                return null;
-            }
-        } else {
-            System.err.println("File doesn't exists!");
+        if (saveGame.exists())
+            return loadBinaryFile(saveGame, GameManager.getLogic());
+        if (saveXML.exists())
+            return loadXMLFile(saveXML);
+        System.err.println("File doesn't exists!");
+        return null;
+    }
+
+    /**
+     * Load a {@link SaveFile} from a binary .sav file.
+     *
+     * @param saveGame The file that should be loaded.
+     * @param logic    LogicManager the AIs of the loaded game should use.
+     * @return The loaded {@link SaveFile} if it worked, else {@code null}.
+     */
+    static SaveFile loadBinaryFile(File saveGame, LogicManager logic) {
+        try (FileChannel channel = FileChannel.open(saveGame.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            buffer.flip();
+            SaveFile saveFile = SaveFile.decode(buffer, logic);
+            if (saveFile == null)
+                System.err.println("Error while trying to load " + saveGame.getName() + ", file is damaged or from a different version!");
+            return saveFile;
+        } catch (IOException e) {
+            System.err.println("Error while trying to load " + saveGame.getName() + "!");
+            e.printStackTrace(System.err);
+            return null;
+        }
+    }
+
+    /**
+     * Load a {@link SaveFile} from an .xml file, that was saved by an older version of the game.
+     *
+     * @param saveXML The file that should be loaded.
+     * @return The loaded {@link SaveFile} if it worked, else {@code null}.
+     */
+    static SaveFile loadXMLFile(File saveXML) {
+        XStream xstream = new XStream();
+        xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
+        xstream.alias("SaveFile", SaveFile.class);
+        //entities, markers and fires of older files are skipped, they are created again from the grids
+        xstream.ignoreUnknownElements();
+        try {
+            SaveFile saveFile = (SaveFile) xstream.fromXML(saveXML);
+            System.out.println("Successfully loaded " + saveXML.getName() + "!");
+            return saveFile;
+        } catch (Exception e) {
+            System.err.println("Error while trying to load " + saveXML.getName() + "!");
+            e.printStackTrace(System.err);
+            return null;
         }
-        return saveFile;
     }
 
     /**
@@ -105,7 +215,7 @@ public class SaveFileManager {
      * @param saveFile SaveFile the data should be loaded from.
      */
     public static void loadSaveFile(SaveFile saveFile) {
-        GameManager.setSettings(saveFile.getSettings());
+        GameManager.getSettings().setGameSettings(saveFile.getSettings());
         LogicManager logic = GameManager.getLogic();
         GridManager gridManager = GameManager.getGridManager();
 
@@ -120,10 +230,8 @@ public class SaveFileManager {
             GameManager.getShipSelector().setShipCounts(saveFile.getShipsLeftPlacing());
             GameManager.getShipSelector().updateCounts();
         }
-        gridManager.setShips(saveFile.getShips());
-        gridManager.setMarkers(saveFile.getMarkers());
-        gridManager.setBurningFires(saveFile.getBurningFires());
-        gridManager.setBurningFireSounds(saveFile.getBurningFireSounds());
         GameManager.resizeGrid();
+        gridManager.rebuildEntities(logic.getPlayerGrid(), logic.getOpponentGrid());
+        logic.getTurnHandler().restoreAIs();
     }
 }
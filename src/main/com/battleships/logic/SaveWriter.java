@@ -0,0 +1,277 @@
+package com.battleships.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes save files on a background thread, so saving never stalls the game loop.
+ * The game thread only encodes the game into a buffer ({@link SaveFile#encode()}), that buffer isn't changed afterwards,
+ * so it can be written while the game goes on.
+ * <p>
+ * Every file is first written to a temporary file, forced to the disk and then renamed to its real name.
+ * The rename replaces the old file in one step, so a crash while saving never leaves a broken save file behind.
+ * <p>
+ * At most {@value #QUEUE_SIZE} saves wait to be written, if more are queued the game thread writes the save itself.
+ * Only the latest autosave is kept, an autosave that hasn't been written yet is replaced by a newer one.
+ * Files can be reserved until they are written ({@link #reserve(File)}), so two saves never get the same free name.
+ * The thread isn't a daemon, so saves that were queued are still written if the game is closed.
+ *
+ * @author agent
+ */
+public class SaveWriter {
+
+    /**
+     * Maximum amount of saves waiting to be written.
+     */
+    public static final int QUEUE_SIZE = 4;
+    /**
+     * Suffix of the temporary file a save is written to before it is renamed.
+     */
+    public static final String TEMPSUFFIX = ".tmp";
+
+    /**
+     * Thread that writes the files, stops after a second without work.
+     */
+    private static ThreadPoolExecutor writer = createWriter();
+    /**
+     * Autosave that hasn't been written yet, {@code null} if there is none.
+     */
+    private static AtomicReference<PendingSave> pendingAutosave = new AtomicReference<>();
+    /**
+     * Files that were reserved for a save and haven't been written yet.
+     */
+    private static Set<File> reserved = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Amount of files that were written.
+     */
+    private static AtomicInteger written = new AtomicInteger();
+    /**
+     * Amount of autosaves that were replaced by a newer one before they were written.
+     */
+    private static AtomicInteger replaced = new AtomicInteger();
+    /**
+     * Amount of files that couldn't be written.
+     */
+    private static AtomicInteger failed = new AtomicInteger();
+    /**
+     * Time in nanoseconds the last file needed to be written.
+     */
+    private static AtomicLong lastWriteTime = new AtomicLong();
+
+    /**
+     * @return Executor with one thread and a bounded queue for writing the files.
+     */
+    private static ThreadPoolExecutor createWriter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> new Thread(r, "SaveWriter"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Writes a save file in the background.
+     * If too many saves are waiting, the file is written by the calling thread.
+     *
+     * @param file File the save should be written to.
+     * @param data Encoded save file, mustn't be changed afterwards.
+     */
+    public static void write(File file, ByteBuffer data) {
+        write(file, data, null);
+    }
+
+    /**
+     * Writes a save file in the background and runs a task after it was written.
+     * If too many saves are waiting, the file is written by the calling thread.
+     *
+     * @param file    File the save should be written to.
+     * @param data    Encoded save file, mustn't be changed afterwards.
+     * @param written Task that is run on the writing thread after the file was written successfully, can be {@code null}.
+     */
+    public static void write(File file, ByteBuffer data, Runnable written) {
+        PendingSave save = new PendingSave(file, data, written);
+        try {
+            writer.execute(() -> writeFile(save));
+        } catch (RejectedExecutionException e) {
+            writeFile(save);
+        }
+    }
+
+    /**
+     * Reserves a file for a save, that is written with {@link #write(File, ByteBuffer)} afterwards.
+     * The file only exists after it was written, the reservation ends at that time (also if the file couldn't be written).
+     * If the save isn't written after all, the reservation needs to be ended with {@link #release(File)}.
+     *
+     * @param file File the save will be written to.
+     * @return {@code true} if the file was reserved, {@code false} if it is already reserved by another save.
+     */
+    public static boolean reserve(File file) {
+        return reserved.add(file.getAbsoluteFile());
+    }
+
+    /**
+     * Ends the reservation of a file, if the save it was reserved for won't be written.
+     *
+     * @param file File that was reserved with {@link #reserve(File)}.
+     */
+    public static void release(File file) {
+        reserved.remove(file.getAbsoluteFile());
+    }
+
+    /**
+     * Writes an autosave in the background. If the last autosave hasn't been written yet, it is replaced by this one.
+     *
+     * @param file    File the autosave should be written to.
+     * @param data    Encoded save file, mustn't be changed afterwards.
+     * @param written Task that is run on the writing thread after the file was written successfully, can be {@code null}.
+     */
+    public static void writeAutosave(File file, ByteBuffer data, Runnable written) {
+        if (pendingAutosave.getAndSet(new PendingSave(file, data, written)) != null) {
+            replaced.incrementAndGet();
+            return;
+        }
+        try {
+            writer.execute(() -> {
+                PendingSave save = pendingAutosave.getAndSet(null);
+                if (save != null)
+                    writeFile(save);
+            });
+        } catch (RejectedExecutionException e) {
+            //the queue is full, the autosave is skipped and the next one is written instead
+            pendingAutosave.set(null);
+            replaced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes a save to a temporary file, forces it to the disk and renames it to the real file.
+     *
+     * @param save Save that should be written.
+     */
+    private static void writeFile(PendingSave save) {
+        long start = System.nanoTime();
+        Path target = save.file.toPath();
+        Path temp = new File(save.file.getPath() + TEMPSUFFIX).toPath();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (save.data.hasRemaining()) {
+                    channel.write(save.data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            written.incrementAndGet();
+            lastWriteTime.set(System.nanoTime() - start);
+            if (save.written != null)
+                save.written.run();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.err.println("Error while trying to write " + save.file.getName() + "!");
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignore) {
+            }
+        } finally {
+            reserved.remove(save.file.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Waits until all queued saves have been written.
+     *
+     * @param timeout Maximum time to wait in milliseconds.
+     * @return {@code true} if all saves have been written, {@code false} if the time ran out.
+     */
+    public static boolean awaitWritten(long timeout) {
+        long end = System.currentTimeMillis() + timeout;
+        while (writer.getActiveCount() > 0 || !writer.getQueue().isEmpty() || pendingAutosave.get() != null) {
+            if (System.currentTimeMillis() > end)
+                return false;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Amount of files that were written.
+     */
+    public static int getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return Amount of autosaves that were replaced by a newer one before they were written.
+     */
+    public static int getReplaced() {
+        return replaced.get();
+    }
+
+    /**
+     * @return Amount of files that couldn't be written.
+     */
+    public static int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return Time in nanoseconds the last file needed to be written (including forcing it to the disk).
+     */
+    public static long getLastWriteTime() {
+        return lastWriteTime.get();
+    }
+
+    /**
+     * A save file waiting to be written.
+     */
+    private static class PendingSave {
+        /**
+         * File the save should be written to.
+         */
+        private File file;
+        /**
+         * Encoded save file.
+         */
+        private ByteBuffer data;
+        /**
+         * Task that is run after the file was written, {@code null} if there is none.
+         */
+        private Runnable written;
+
+        /**
+         * Creates a new save waiting to be written.
+         *
+         * @param file    File the save should be written to.
+         * @param data    Encoded save file.
+         * @param written Task that is run after the file was written, can be {@code null}.
+         */
+        public PendingSave(File file, ByteBuffer data, Runnable written) {
+            this.file = file;
+            this.data = data;
+            this.written = written;
+        }
+    }
+}
@@ -7,11 +7,18 @@ import com.battleships.gui.window.WindowManager;
 import com.thoughtworks.xstream.XStream;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class containing all currently set settings.
+ * <p>
+ * The settings of the player (sound, volume, animations and resolution) are saved in a {@link SettingsSaveFile}.
+ * Changes are saved in the background: the first change starts a timer of {@value #SAVEDELAY} ms, all changes
+ * until then are written together, so a slider that changes the volume every frame only causes one write.
  */
 public class Settings {
 
@@ -64,14 +71,65 @@ public class Settings {
      */
     private int resWidth = -1, resHeight = -1;
 
+    /**
+     * Time in milliseconds changed settings wait before they are written, changes in that time are written together.
+     */
+    public static final long SAVEDELAY = 500;
+    /**
+     * Thread that starts the writing of changed settings, the file itself is written by the {@link SaveWriter}.
+     */
+    private static ScheduledThreadPoolExecutor saver = createSaver();
+    /**
+     * Settings that have changed but haven't been written yet, {@code null} if there are none.
+     */
+    private static AtomicReference<SettingsSaveFile> pendingSave = new AtomicReference<>();
+
+    /**
+     * {@code true} if these are the settings of the player, that are saved when they change.
+     */
+    private boolean persistent;
+    /**
+     * Settings of the player that were loaded or saved last, {@code null} if there are none.
+     */
+    private SettingsSaveFile saved;
+
     /**
      * Creates new settings.
-     * Tries to load existing settings.
+     * Tries to load existing settings, changes to these settings are saved.
      */
     public Settings() {
+        persistent = true;
         loadSettings();
     }
 
+    /**
+     * Creates settings of a saved game, without loading the saved settings of the player.
+     *
+     * @param size     Size of the grids.
+     * @param online   {@code true} if the game is played online.
+     * @param aiLevelP Level of the AI of the player, -1 if no AI is used.
+     * @param aiLevelO Level of the AI of the opponent, -1 if no AI is used.
+     */
+    Settings(int size, boolean online, int aiLevelP, int aiLevelO) {
+        this.size = size;
+        this.online = online;
+        this.aiLevelP = aiLevelP;
+        this.aiLevelO = aiLevelO;
+    }
+
+    /**
+     * Takes the settings of a saved game (size, online and AI levels) from other settings.
+     * Sound, volume, animations and resolution are settings of the player and stay as they are.
+     *
+     * @param saved Settings of the saved game.
+     */
+    void setGameSettings(Settings saved) {
+        size = saved.size;
+        online = saved.online;
+        aiLevelP = saved.aiLevelP;
+        aiLevelO = saved.aiLevelO;
+    }
+
     /**
      * @return {@code true} if the game is played online, {@code false} if the game is played offline.
      */
@@ -159,6 +217,7 @@ public class Settings {
             AudioMaster.changeVolume(volume);
         else
             AudioMaster.changeVolume(0);
+        settingsChanged();
     }
 
     /**
@@ -175,6 +234,7 @@ public class Settings {
      */
     public void setAnimation(boolean animation) {
         this.animation = animation;
+        settingsChanged();
     }
 
     /**
@@ -188,6 +248,7 @@ public class Settings {
             PostProcessing.changeResolution(WindowManager.getWidth(), WindowManager.getHeight());
             resWidth = SCREENRESOLUTION;
             resHeight = SCREENRESOLUTION;
+            settingsChanged();
             return;
         }
         resWidth = width;
@@ -195,6 +256,7 @@ public class Settings {
         if (GameManager.getSettings() != null)
             GameManager.getWaterFbos().updateFrameBuffers();
         PostProcessing.changeResolution(width, height);
+        settingsChanged();
     }
 
     /**
@@ -212,6 +274,7 @@ public class Settings {
     public void setVolume(float volume) {
         AudioMaster.changeVolume(volume);
         this.volume = volume;
+        settingsChanged();
     }
 
     /**
@@ -230,31 +293,31 @@ public class Settings {
 
     /**
      * Loads the settings saved after exiting the game last time.
+     * Settings that were saved as XML by older versions are converted to the new file.
      *
      * @return {@code true} if settings could be loaded {@code false} else.
      */
     public boolean loadSettings() {
-        SettingsSaveFile saveFile = null;
-        File settings;
-        try {
-            settings = new File(SaveFileManager.getJarPath() + "/Settings/settings.xml");
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-            System.err.println("Error loading settings File!");
+        SettingsSaveFile saveFile;
+        File folder = getSettingsFolder();
+        if (folder == null)
             return false;
-        }
+        File settings = new File(folder, SettingsSaveFile.FILENAME);
+        File xml = new File(folder, "settings.xml");
+        boolean converted = false;
         if (settings.exists()) {
-            XStream xstream = new XStream();
-            xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
-            xstream.alias("SettingsFile", SettingsSaveFile.class);
             try {
-                saveFile = (SettingsSaveFile) xstream.fromXML(settings);
-                System.out.println("Successfully loaded settings.xml!");
-            } catch (Exception e) {
-                System.err.println("Error while trying to load settings.xml!");
-                e.printStackTrace(System.err);
+                saveFile = SettingsSaveFile.read(settings);
+            } catch (IOException e) {
+                System.err.println("Error while trying to load " + SettingsSaveFile.FILENAME + "!");
+                e.printStackTrace();
                 return false;
             }
+        } else if (xml.exists()) {
+            saveFile = loadXMLSettings(xml);
+            if (saveFile == null)
+                return false;
+            converted = true;
         } else
             return false;
         volume = saveFile.getVolume();
@@ -265,35 +328,116 @@ public class Settings {
         animation = saveFile.isAnimation();
         resWidth = saveFile.getResWidth();
         resHeight = saveFile.getResHeight();
+        //converted settings are written into the new file, loaded ones don't need to be written again
+        saved = converted ? null : saveFile;
         changeResolution(resWidth, resHeight);
         return true;
     }
 
     /**
-     * Saves the settings into a file, so they can be loaded when the game is started next time.
+     * Loads settings that were saved as XML by older versions of the game.
      *
-     * @return {@code true} if the settings were saved, {@code false} if an error occurred during saving.
+     * @param xml File the settings were saved in.
+     * @return The saved settings, {@code null} if they couldn't be loaded.
      */
-    public boolean saveSettings() {
-        SettingsSaveFile saveFile = new SettingsSaveFile(sound, volume, animation, resWidth, resHeight);
+    private SettingsSaveFile loadXMLSettings(File xml) {
         XStream xstream = new XStream();
         xstream.setMode(XStream.XPATH_RELATIVE_REFERENCES);
-        xstream.autodetectAnnotations(true);
+        xstream.alias("SettingsFile", SettingsSaveFile.class);
         try {
-            File saveFolder = new File(SaveFileManager.getJarPath() + "/Settings/");
-            if (!saveFolder.isDirectory()) {
-                if (!saveFolder.mkdir()) {
-                    System.err.println("Error creating settings folder!");
-                    return false;
-                }
-            }
-            File saveXML = new File(saveFolder, "settings.xml");
-            xstream.toXML(saveFile, new FileOutputStream(saveXML));
+            SettingsSaveFile saveFile = (SettingsSaveFile) xstream.fromXML(xml);
+            System.out.println("Successfully loaded settings.xml!");
+            return saveFile;
         } catch (Exception e) {
-            System.err.println("Error while trying to safe settings to settings.xml!");
+            System.err.println("Error while trying to load settings.xml!");
             e.printStackTrace(System.err);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the settings into a file, so they can be loaded when the game is started next time.
+     * Changes that are waiting to be written are replaced by these settings, waits until the file was written.
+     *
+     * @return {@code true} if the settings were saved, {@code false} if an error occurred during saving.
+     */
+    public boolean saveSettings() {
+        SettingsSaveFile saveFile = new SettingsSaveFile(sound, volume, animation, resWidth, resHeight);
+        pendingSave.set(null);
+        saved = saveFile;
+        int failed = SaveWriter.getFailed();
+        if (!writeSettings(saveFile))
+            return false;
+        return SaveWriter.awaitWritten(1000) && SaveWriter.getFailed() == failed;
+    }
+
+    /**
+     * Saves the settings in the background if they have changed since they were loaded or saved.
+     * Only the settings of the player are saved, not the settings of a loaded game.
+     */
+    private void settingsChanged() {
+        if (!persistent)
+            return;
+        SettingsSaveFile saveFile = new SettingsSaveFile(sound, volume, animation, resWidth, resHeight);
+        if (saveFile.equals(saved))
+            return;
+        saved = saveFile;
+        //only the first change starts the timer, later changes replace the pending settings
+        if (pendingSave.getAndSet(saveFile) == null)
+            saver.schedule(Settings::writePendingSettings, SAVEDELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the settings that have changed last, runs on the thread of the saver.
+     */
+    private static void writePendingSettings() {
+        SettingsSaveFile saveFile = pendingSave.getAndSet(null);
+        if (saveFile != null)
+            writeSettings(saveFile);
+    }
+
+    /**
+     * Writes settings into the settings file using the {@link SaveWriter}.
+     *
+     * @param saveFile Settings that should be written.
+     * @return {@code true} if the file is written, {@code false} if the settings folder couldn't be created.
+     */
+    private static boolean writeSettings(SettingsSaveFile saveFile) {
+        File folder = getSettingsFolder();
+        if (folder == null)
+            return false;
+        if (!folder.isDirectory() && !folder.mkdir()) {
+            System.err.println("Error creating settings folder!");
             return false;
         }
+        SaveWriter.write(new File(folder, SettingsSaveFile.FILENAME), saveFile.encode());
         return true;
     }
+
+    /**
+     * @return Folder the settings are saved in, {@code null} if the path of the game couldn't be found.
+     */
+    private static File getSettingsFolder() {
+        try {
+            return new File(SaveFileManager.getJarPath() + "/Settings/");
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            System.err.println("Error loading settings File!");
+            return null;
+        }
+    }
+
+    /**
+     * @return Executor with one daemon thread that writes changed settings after {@value #SAVEDELAY} ms.
+     */
+    private static ScheduledThreadPoolExecutor createSaver() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "SettingsSaver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
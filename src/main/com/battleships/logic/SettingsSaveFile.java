@@ -1,12 +1,30 @@
 package com.battleships.logic;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 /**
  * Class that contains all information of the settings that need to be saved when the game is exited.
+ * <p>
+ * The settings are saved as a small text file with one {@code key=value} pair per line, it is read without any
+ * reflection. Unknown keys are ignored and missing keys keep their default value, so keys can be added later on.
  *
  * @author Tim Staudenmaier
  */
 public class SettingsSaveFile {
 
+    /**
+     * Name of the file the settings are saved in.
+     */
+    public static final String FILENAME = "settings.cfg";
+    /**
+     * Keys of the saved values.
+     */
+    public static final String SOUND = "sound", ANIMATION = "animation", VOLUME = "volume", RESWIDTH = "resWidth", RESHEIGHT = "resHeight";
+
     /**
      * Saved value for Sound. {@code true} if sound is enabled, {@code false} else.
      */
@@ -44,6 +62,101 @@ public class SettingsSaveFile {
         this.resHeight = resHeight;
     }
 
+    /**
+     * Creates a file with the default settings.
+     */
+    SettingsSaveFile() {
+        this(true, 1, true, Settings.SCREENRESOLUTION, Settings.SCREENRESOLUTION);
+    }
+
+    /**
+     * Reads settings that were written with {@link #encode()}.
+     *
+     * @param file File the settings are saved in.
+     * @return The saved settings.
+     * @throws IOException If the file couldn't be read.
+     */
+    static SettingsSaveFile read(File file) throws IOException {
+        SettingsSaveFile saveFile = new SettingsSaveFile();
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            if (end < 0)
+                end = content.length();
+            int separator = content.indexOf('=', start);
+            if (separator > start && separator < end) {
+                String key = content.substring(start, separator).trim();
+                String value = content.substring(separator + 1, end).trim();
+                try {
+                    saveFile.set(key, value);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid value " + value + " for setting " + key + "!");
+                }
+            }
+            start = end + 1;
+        }
+        return saveFile;
+    }
+
+    /**
+     * Sets one saved value.
+     *
+     * @param key   Key of the value.
+     * @param value The value as text.
+     */
+    private void set(String key, String value) {
+        switch (key) {
+            case SOUND:
+                sound = Boolean.parseBoolean(value);
+                break;
+            case ANIMATION:
+                animation = Boolean.parseBoolean(value);
+                break;
+            case VOLUME:
+                volume = Float.parseFloat(value);
+                break;
+            case RESWIDTH:
+                resWidth = Integer.parseInt(value);
+                break;
+            case RESHEIGHT:
+                resHeight = Integer.parseInt(value);
+        }
+    }
+
+    /**
+     * @return These settings as the content of a settings file.
+     */
+    ByteBuffer encode() {
+        String content = SOUND + "=" + sound + "\n" +
+                ANIMATION + "=" + animation + "\n" +
+                VOLUME + "=" + volume + "\n" +
+                RESWIDTH + "=" + resWidth + "\n" +
+                RESHEIGHT + "=" + resHeight + "\n";
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param o Object to compare with.
+     * @return {@code true} if the other object is a settings file with the same values.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SettingsSaveFile))
+            return false;
+        SettingsSaveFile other = (SettingsSaveFile) o;
+        return sound == other.sound && animation == other.animation && volume == other.volume
+                && resWidth == other.resWidth && resHeight == other.resHeight;
+    }
+
+    /**
+     * @return Hash code of the saved values.
+     */
+    @Override
+    public int hashCode() {
+        return ((((sound ? 1 : 0) * 31 + (animation ? 1 : 0)) * 31 + Float.floatToIntBits(volume)) * 31 + resWidth) * 31 + resHeight;
+    }
+
     /**
      * @return Last saved value of sound.
      */
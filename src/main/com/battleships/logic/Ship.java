@@ -26,8 +26,9 @@ public class Ship {
     /**
      * Entity of this ship in the gui.
      * Is {@code null} if this ship isn't represented in the gui.
+     * Isn't saved, the entity is created again when a game is loaded.
      */
-    private Entity guiShip;
+    private transient Entity guiShip;
     /**
      * List containing all cells this ships parts are on.
      */
@@ -76,6 +77,13 @@ public class Ship {
         return guiShip;
     }
 
+    /**
+     * @param guiShip Entity of this ship in the gui, needed if the entity was created after the ship (e.g. after loading a game).
+     */
+    public void setGuiShip(Entity guiShip) {
+        this.guiShip = guiShip;
+    }
+
     /**
      * @return Size of this ship.
      */
@@ -12,17 +12,35 @@ import java.io.InputStreamReader;
  */
 public class ShipAmountLoader {
 
+    /**
+     * Ship amounts that were already read, indexed by grid size.
+     * Every grid needs these amounts, so the file is only read once for each size.
+     */
+    private static final int[][] loadedAmounts = new int[31][];
+
     /**
      * Reads amount of ships needed for specified size from file.
      *
      * @param gridSize Size of grid for which the ship amounts should be read.
      * @return Array containing ship amounts for each size ordered from small ships to large ships
      */
-    public static int[] getShipAmounts(int gridSize) {
+    public static synchronized int[] getShipAmounts(int gridSize) {
         if (gridSize < 5 || gridSize > 30) {
             System.err.println("Grid size has to be between 5 and 30 was " + gridSize + "!");
             return null;
         }
+        if (loadedAmounts[gridSize] == null)
+            loadedAmounts[gridSize] = readShipAmounts(gridSize);
+        return loadedAmounts[gridSize] == null ? null : loadedAmounts[gridSize].clone();
+    }
+
+    /**
+     * Reads amount of ships needed for specified size from file.
+     *
+     * @param gridSize Size of grid for which the ship amounts should be read (5-30).
+     * @return Array containing ship amounts for each size ordered from small ships to large ships
+     */
+    private static int[] readShipAmounts(int gridSize) {
         BufferedReader reader = new BufferedReader(new InputStreamReader(ShipAmountLoader.class.getResourceAsStream("/resources/schiffstabelle.csv")));
         for (int linesToRead = gridSize - 5; linesToRead > 0; linesToRead--) {
             try {
@@ -3,6 +3,7 @@ package com.battleships.logic;
 import com.battleships.gui.gameAssets.GameManager;
 import org.lwjgl.glfw.GLFW;
 
+import java.nio.ByteBuffer;
 import java.util.stream.IntStream;
 
 /**
@@ -12,6 +13,11 @@ import java.util.stream.IntStream;
  */
 public class Stats {
 
+    /**
+     * Amount of bytes the stats need in a binary save file.
+     */
+    public static final int BYTES = 40;
+
     /**
      * Tiem played in seconds
      */
@@ -78,14 +84,18 @@ public class Stats {
     public void saveTime() {
         endTime = (int) GLFW.glfwGetTime();
         playTime += endTime - startTime;
+        //the game goes on after it was saved, so the saved time mustn't be counted again
+        startTime = endTime;
     }
 
     /**
      * Updates the stats to match current game state.
+     * Can be called more than once, the played time is only counted once.
      */
     public void updateStats() {
         endTime = (int) GLFW.glfwGetTime();
         playTime += endTime - startTime;
+        startTime = endTime;
         shipsAlive = IntStream.of(GameManager.getLogic().getPlayerShipsLeft()).sum();
         shipsDestroyed = maxShipsSum - IntStream.of(GameManager.getLogic().getEnemyShipsLeft()).sum();
         int shipsHit = 0;
@@ -96,6 +106,43 @@ public class Stats {
         accuracy = (float) shipsHit / rounds;
     }
 
+    /**
+     * Writes these stats into a binary save file. The played time needs to be saved with {@link #saveTime()} before.
+     *
+     * @param buffer Buffer to write into, needs {@value BYTES} bytes remaining.
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putInt(playTime);
+        buffer.putInt(rounds);
+        buffer.putInt(maxShipsSum);
+        for (int ships : maxShips) {
+            buffer.putInt(ships);
+        }
+        buffer.putInt(shipsAlive);
+        buffer.putInt(shipsDestroyed);
+        buffer.putFloat(accuracy);
+    }
+
+    /**
+     * Reads stats that were written with {@link #write(ByteBuffer)}.
+     *
+     * @param buffer Buffer to read from.
+     * @return The stats that were read.
+     */
+    static Stats read(ByteBuffer buffer) {
+        Stats stats = new Stats();
+        stats.playTime = buffer.getInt();
+        stats.rounds = buffer.getInt();
+        stats.maxShipsSum = buffer.getInt();
+        for (int i = 0; i < stats.maxShips.length; i++) {
+            stats.maxShips[i] = buffer.getInt();
+        }
+        stats.shipsAlive = buffer.getInt();
+        stats.shipsDestroyed = buffer.getInt();
+        stats.accuracy = buffer.getFloat();
+        return stats;
+    }
+
     /**
      * Increments the round counter.
      */
@@ -1,7 +1,11 @@
 package com.battleships.logic;
 
 import com.battleships.gui.gameAssets.GameManager;
+import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.logic.AI.AI;
+import com.battleships.logic.AI.AIEasy;
+import com.battleships.logic.AI.AIHard;
+import com.battleships.logic.AI.AIMedium;
 
 /**
  * Class for handling turn order and ai turns during shooting phase.
@@ -34,12 +38,69 @@ public class TurnHandler {
      */
     private AI playerAI;
 
+    /**
+     * Creates the AIs for the player and the opponent.
+     *
+     * @param aiLevelP Level of the AI of the player (constants in {@link Settings}), -1 if the player isn't played by an AI.
+     * @param aiLevelO Level of the AI of the opponent (constants in {@link Settings}), -1 if the opponent isn't played by an AI.
+     * @param size     Size of the grids the AIs play on.
+     * @param manager  LogicManager the AIs should use to shoot and place ships.
+     */
+    public void initAIs(int aiLevelP, int aiLevelO, int size, LogicManager manager) {
+        AI ai = createAI(aiLevelO, GridManager.OPPONENTFIELD, size, manager);
+        if (ai == null)
+            removeOpponentAI();
+        else
+            setOpponentAI(ai);
+        ai = createAI(aiLevelP, GridManager.OWNFIELD, size, manager);
+        if (ai == null)
+            removePlayerAI();
+        else
+            setPlayerAI(ai);
+    }
+
+    /**
+     * Creates an AI.
+     *
+     * @param level   Level of the AI (constants in {@link Settings}).
+     * @param team    Team the AI plays for (constants in {@link GridManager}).
+     * @param size    Size of the grid the AI plays on.
+     * @param manager LogicManager the AI should use to shoot and place ships.
+     * @return The AI, {@code null} if the level is -1.
+     */
+    private static AI createAI(int level, int team, int size, LogicManager manager) {
+        switch (level) {
+            case Settings.EASY:
+                return new AIEasy(team, size, manager);
+            case Settings.MEDIUM:
+                return new AIMedium(team, size, manager);
+            case Settings.HARD:
+                return new AIHard(team, size, manager);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Lets all AIs find the ships they have hit but not yet sunk on the current grids.
+     * Needed after a game was loaded, because the AIs were created new and don't remember their last shots.
+     */
+    public void restoreAIs() {
+        if (opponentAIUsed)
+            opponentAI.restore();
+        if (playerAIUsed)
+            playerAI.restore();
+    }
+
     /**
      * Advances the turn order and executes AI turns if the next
-     * turn is an AI.
+     * turn is an AI. Lets the {@link SaveFileManager} autosave the game when it becomes the turn of the player.
      */
     public void advanceTurnOrder() {
         playerTurn = !playerTurn;
+        //saved before an AI makes its turn, so the saved game starts with the turn of the player
+        if (playerTurn)
+            SaveFileManager.turnFinished();
         makeAiTurns();
     }
 
@@ -0,0 +1,96 @@
+package com.battleships.logic.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One column of the {@link GameStore}, a file that is mapped into memory.
+ * The mapping is made larger than the data in it, so values can be appended without any system call.
+ * If the mapping is full, the file is mapped again with twice the size.
+ * A column can hold up to 2 GB, the amount of data that is used is stored by the {@link GameStore}.
+ *
+ * @author agent
+ */
+class Column {
+
+    /**
+     * Size of the mapping of a new column in bytes.
+     */
+    static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * File of this column.
+     */
+    private File file;
+    /**
+     * Channel to the file.
+     */
+    private FileChannel channel;
+    /**
+     * The mapped file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Opens a column, the file is created if it doesn't exist.
+     *
+     * @param file File of the column.
+     * @throws IOException If the file couldn't be opened or mapped.
+     */
+    Column(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(INITIAL_CAPACITY, channel.size()));
+    }
+
+    /**
+     * Maps the file with a specific size, the file grows if it is smaller.
+     *
+     * @param capacity Size of the mapping in bytes.
+     * @throws IOException If the file couldn't be mapped.
+     */
+    private void map(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE)
+            throw new IOException("Column " + file.getName() + " is full!");
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Makes sure the column can hold a specific amount of bytes.
+     *
+     * @param length Amount of bytes the column needs to hold.
+     * @return The mapped column, only absolute get and put methods should be used.
+     * @throws IOException If the file couldn't be mapped again.
+     */
+    MappedByteBuffer ensure(long length) throws IOException {
+        if (length > buffer.capacity())
+            map(Math.max(length, Math.min(2L * buffer.capacity(), Integer.MAX_VALUE)));
+        return buffer;
+    }
+
+    /**
+     * @return The mapped column, only absolute get methods should be used.
+     */
+    MappedByteBuffer get() {
+        return buffer;
+    }
+
+    /**
+     * Writes all changes of the column to the disk.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file, the mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException If the file couldn't be closed.
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,498 @@
+package com.battleships.logic.store;
+
+import com.battleships.gui.gameAssets.grids.ShipManager;
+import com.battleships.logic.FleetBoard;
+import com.battleships.logic.SaveFileManager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Store of all finished matches, used for statistics and to train the AI.
+ * <p>
+ * Every value of a match is stored in its own {@link Column} (one file per column in the folder of the store),
+ * so a query only reads the columns it needs, e.g. a heatmap of the shots for one grid size only reads the size,
+ * the offsets of the shots and the shots. Matches are only appended, the amount of matches in the store is written
+ * into the meta column after all columns of a match have been written, so a match that wasn't written completely
+ * is ignored.
+ * <p>
+ * Columns with one value per match:
+ * <ul>
+ *     <li>time: end of the match (long, milliseconds since 1970).</li>
+ *     <li>size: size of the grids (byte).</li>
+ *     <li>flags: {@link #WON} (byte).</li>
+ *     <li>players: type of the player in the low and of the opponent in the high 4 bits (byte, constants in {@link MatchRecord}).</li>
+ *     <li>ships: amount of ships of the player and of the opponent (2 bytes).</li>
+ *     <li>rounds, playtime (seconds), accuracy (int, int, float).</li>
+ *     <li>fleetend, shotend: end of the fleets and shots of the match in the fleets and shots columns (long).</li>
+ * </ul>
+ * The fleets and shots columns contain the fleets and shots of all matches, in the format of {@link MatchRecord}.
+ *
+ * @author agent
+ */
+public class GameStore {
+
+    /**
+     * Magic number at the start of the meta column.
+     */
+    public static final int MAGIC = 0x42475354;
+    /**
+     * Version of the store format.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * Name of the folder of the default store.
+     */
+    public static final String FOLDER = "GameStore";
+    /**
+     * Types of heatmaps: cells occupied by ships, cells that were shot and cells where a ship was hit.
+     */
+    public static final int SHIPS = 0, SHOTS = 1, HITS = 2;
+    /**
+     * Flag of a match the player has won.
+     */
+    public static final int WON = 1;
+    /**
+     * Position of the amount of matches in the meta column.
+     */
+    static final int COUNT = 8;
+
+    /**
+     * Store in the folder of the game, {@code null} if it wasn't opened yet.
+     */
+    private static GameStore defaultStore;
+
+    /**
+     * Columns of the store.
+     */
+    private Column meta, time, size, flags, players, ships, rounds, playTime, accuracy, fleetEnd, shotEnd, fleets, shots;
+    /**
+     * Amount of matches in the store.
+     */
+    private int count;
+    /**
+     * Bytes used in the fleets and shots columns.
+     */
+    private long fleetLength, shotLength;
+    /**
+     * {@code true} if the store was closed.
+     */
+    private boolean closed;
+
+    /**
+     * Opens a store, creates it if the folder is empty.
+     *
+     * @param folder Folder of the store.
+     * @throws IOException If the columns couldn't be opened or the folder contains no valid store.
+     */
+    public GameStore(File folder) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs())
+            throw new IOException("Couldn't create game store " + folder.getAbsolutePath() + "!");
+        meta = new Column(new File(folder, "meta"));
+        MappedByteBuffer header = meta.get();
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC);
+            header.put(4, VERSION);
+            header.putInt(COUNT, 0);
+        } else if (header.getInt(0) != MAGIC || header.get(4) != VERSION) {
+            meta.close();
+            throw new IOException("Invalid game store " + folder.getAbsolutePath() + "!");
+        }
+        time = new Column(new File(folder, "time"));
+        size = new Column(new File(folder, "size"));
+        flags = new Column(new File(folder, "flags"));
+        players = new Column(new File(folder, "players"));
+        ships = new Column(new File(folder, "ships"));
+        rounds = new Column(new File(folder, "rounds"));
+        playTime = new Column(new File(folder, "playtime"));
+        accuracy = new Column(new File(folder, "accuracy"));
+        fleetEnd = new Column(new File(folder, "fleetend"));
+        shotEnd = new Column(new File(folder, "shotend"));
+        fleets = new Column(new File(folder, "fleets"));
+        shots = new Column(new File(folder, "shots"));
+        count = header.getInt(COUNT);
+        if (count > 0) {
+            fleetLength = fleetEnd.get().getLong((count - 1) * 8);
+            shotLength = shotEnd.get().getLong((count - 1) * 8);
+        }
+    }
+
+    /**
+     * Opens the store in the folder of the game the first time it is needed.
+     *
+     * @return The store, {@code null} if it couldn't be opened.
+     */
+    public static synchronized GameStore getDefault() {
+        if (defaultStore == null) {
+            try {
+                defaultStore = new GameStore(new File(SaveFileManager.getJarPath() + "/" + FOLDER + "/"));
+            } catch (IOException e) {
+                System.err.println("Error opening game store!");
+                e.printStackTrace();
+            }
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Adds a finished match to the store.
+     *
+     * @param match The match, needs to be finished with {@link MatchRecord#finish}.
+     * @return {@code true} if the match was added.
+     */
+    public synchronized boolean append(MatchRecord match) {
+        if (closed)
+            return false;
+        try {
+            int i = count;
+            time.ensure(8L * (i + 1)).putLong(8 * i, match.getTime());
+            size.ensure(i + 1L).put(i, (byte) match.getSize());
+            flags.ensure(i + 1L).put(i, (byte) (match.isWon() ? WON : 0));
+            players.ensure(i + 1L).put(i, (byte) (match.getPlayer() | match.getOpponent() << 4));
+            MappedByteBuffer buffer = ships.ensure(2L * (i + 1));
+            buffer.put(2 * i, (byte) match.getPlayerShips());
+            buffer.put(2 * i + 1, (byte) match.getOpponentShips());
+            rounds.ensure(4L * (i + 1)).putInt(4 * i, match.getRounds());
+            playTime.ensure(4L * (i + 1)).putInt(4 * i, match.getPlayTime());
+            accuracy.ensure(4L * (i + 1)).putFloat(4 * i, match.getAccuracy());
+
+            byte[] fleet = match.getFleets();
+            buffer = fleets.ensure(fleetLength + fleet.length);
+            for (int b = 0; b < fleet.length; b++) {
+                buffer.put((int) fleetLength + b, fleet[b]);
+            }
+            short[] shot = match.getShots();
+            int shotCount = match.getShotCount();
+            buffer = shots.ensure(shotLength + 2L * shotCount);
+            for (int s = 0; s < shotCount; s++) {
+                buffer.putShort((int) shotLength + 2 * s, shot[s]);
+            }
+            fleetEnd.ensure(8L * (i + 1)).putLong(8 * i, fleetLength + fleet.length);
+            shotEnd.ensure(8L * (i + 1)).putLong(8 * i, shotLength + 2L * shotCount);
+
+            //the match only becomes part of the store after all columns have been written
+            meta.get().putInt(COUNT, i + 1);
+            fleetLength += fleet.length;
+            shotLength += 2L * shotCount;
+            count++;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error adding match to game store!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads a match from the store.
+     *
+     * @param index Index of the match (0 for the first match that was added).
+     * @return The match, {@code null} if there is no match with that index.
+     */
+    public synchronized MatchRecord get(int index) {
+        if (index < 0 || index >= count)
+            return null;
+        int fleetStart = index == 0 ? 0 : (int) fleetEnd.get().getLong(8 * (index - 1));
+        byte[] fleet = new byte[(int) fleetEnd.get().getLong(8 * index) - fleetStart];
+        for (int b = 0; b < fleet.length; b++) {
+            fleet[b] = fleets.get().get(fleetStart + b);
+        }
+        int shotStart = index == 0 ? 0 : (int) shotEnd.get().getLong(8 * (index - 1));
+        short[] shot = new short[((int) shotEnd.get().getLong(8 * index) - shotStart) / 2];
+        for (int s = 0; s < shot.length; s++) {
+            shot[s] = shots.get().getShort(shotStart + 2 * s);
+        }
+        MatchRecord match = new MatchRecord(size.get().get(index), ships.get().get(2 * index), ships.get().get(2 * index + 1), fleet, shot);
+        int type = players.get().get(index);
+        match.setResult(time.get().getLong(8 * index), (flags.get().get(index) & WON) != 0, type & 15, type >> 4 & 15,
+                rounds.get().getInt(4 * index), playTime.get().getInt(4 * index), accuracy.get().getFloat(4 * index));
+        return match;
+    }
+
+    /**
+     * Counts for every cell of a grid size how often it was occupied, shot or hit, over all matches with that size.
+     * Ships and shots of both grids are counted.
+     *
+     * @param gridSize Size of the grids.
+     * @param type     Type of the heatmap ({@link #SHIPS}, {@link #SHOTS} or {@link #HITS}).
+     * @return Count for every cell, the cell (x, y) is at index {@code (y - 1) * gridSize + (x - 1)}.
+     */
+    public synchronized long[] heatmap(int gridSize, int type) {
+        long[] map = new long[gridSize * gridSize];
+        MappedByteBuffer sizes = size.get();
+        MappedByteBuffer ends = (type == SHIPS ? fleetEnd : shotEnd).get();
+        MappedByteBuffer data = (type == SHIPS ? fleets : shots).get();
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = (int) ends.getLong(8 * i);
+            if (sizes.get(i) == gridSize) {
+                if (type == SHIPS) {
+                    for (int p = start; p < end; p += 4) {
+                        addShip(map, gridSize, data.get(p), data.get(p + 1), data.get(p + 2), data.get(p + 3));
+                    }
+                } else {
+                    for (int p = start; p < end; p += 2) {
+                        int shot = data.getShort(p);
+                        if (type == HITS && (shot >> MatchRecord.RESULT_SHIFT & MatchRecord.RESULT_MASK) == FleetBoard.WATER)
+                            continue;
+                        map[shot & MatchRecord.CELL_MASK]++;
+                    }
+                }
+            }
+            start = end;
+        }
+        return map;
+    }
+
+    /**
+     * Adds the cells of a ship to a heatmap, the cells are found the same way {@link com.battleships.logic.Grid#placeShip} does.
+     *
+     * @param map       The heatmap.
+     * @param gridSize  Size of the grid.
+     * @param x         X index of the stern of the ship (1-size).
+     * @param y         Y index of the stern of the ship (1-size).
+     * @param shipSize  Size of the ship.
+     * @param direction Direction of the ship (constants in {@link ShipManager}).
+     */
+    private void addShip(long[] map, int gridSize, int x, int y, int shipSize, int direction) {
+        int factor = direction == ShipManager.NORTH || direction == ShipManager.WEST ? -1 : 1;
+        boolean vertical = direction == ShipManager.NORTH || direction == ShipManager.SOUTH;
+        for (int i = 0; i < shipSize; i++) {
+            int cx = vertical ? x : x + factor * i;
+            int cy = vertical ? y + factor * i : y;
+            if (cx >= 1 && cy >= 1 && cx <= gridSize && cy <= gridSize)
+                map[(cy - 1) * gridSize + (cx - 1)]++;
+        }
+    }
+
+    /**
+     * Summarizes all matches of one type of player, matches are counted from the view of the player
+     * (the opponent of a match isn't counted).
+     *
+     * @param player Type of the player (constants in {@link MatchRecord}).
+     * @return Stats of that type of player.
+     */
+    public synchronized PlayerStats playerStats(int player) {
+        PlayerStats stats = new PlayerStats(player);
+        MappedByteBuffer types = players.get();
+        for (int i = 0; i < count; i++) {
+            if ((types.get(i) & 15) != player)
+                continue;
+            stats.matches++;
+            if ((flags.get().get(i) & WON) != 0)
+                stats.wins++;
+            stats.rounds += rounds.get().getInt(4 * i);
+            stats.playTime += playTime.get().getInt(4 * i);
+            stats.accuracy += accuracy.get().getFloat(4 * i);
+        }
+        return stats;
+    }
+
+    /**
+     * Writes all matches as CSV, one line per match. The matches are read one after the other,
+     * so the export never holds more than one match in memory.
+     * <p>
+     * Fleets are written as {@code x:y:size:direction} per ship (the ships of the player first),
+     * shots as {@code grid:x:y:result} with grid 0 for the grid of the player and 1 for the grid of the opponent.
+     *
+     * @param out Writer the CSV is written to, isn't closed.
+     * @throws IOException If the CSV couldn't be written.
+     */
+    public synchronized void export(Writer out) throws IOException {
+        out.write("time,size,won,player,opponent,rounds,playtime,accuracy,playerships,opponentships,fleets,shots\n");
+        StringBuilder line = new StringBuilder(1024);
+        for (int i = 0; i < count; i++) {
+            MatchRecord match = get(i);
+            int gridSize = match.getSize();
+            line.setLength(0);
+            line.append(match.getTime()).append(',').append(gridSize).append(',').append(match.isWon() ? 1 : 0)
+                    .append(',').append(match.getPlayer()).append(',').append(match.getOpponent())
+                    .append(',').append(match.getRounds()).append(',').append(match.getPlayTime())
+                    .append(',').append(match.getAccuracy()).append(',').append(match.getPlayerShips())
+                    .append(',').append(match.getOpponentShips()).append(',');
+            byte[] fleet = match.getFleets();
+            for (int b = 0; b < fleet.length; b += 4) {
+                if (b > 0)
+                    line.append(' ');
+                line.append(fleet[b]).append(':').append(fleet[b + 1]).append(':').append(fleet[b + 2]).append(':').append(fleet[b + 3]);
+            }
+            line.append(',');
+            short[] shot = match.getShots();
+            for (int s = 0; s < shot.length; s++) {
+                if (s > 0)
+                    line.append(' ');
+                int cell = shot[s] & MatchRecord.CELL_MASK;
+                line.append((shot[s] & MatchRecord.OPPONENT_SHOT) != 0 ? 1 : 0).append(':').append(cell % gridSize + 1)
+                        .append(':').append(cell / gridSize + 1).append(':').append(shot[s] >> MatchRecord.RESULT_SHIFT & MatchRecord.RESULT_MASK);
+            }
+            line.append('\n');
+            out.append(line);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes all columns to the disk.
+     */
+    public synchronized void force() {
+        for (Column column : new Column[]{time, size, flags, players, ships, rounds, playTime, accuracy, fleetEnd, shotEnd, fleets, shots, meta}) {
+            column.force();
+        }
+    }
+
+    /**
+     * Writes all columns to the disk and closes them, no matches can be added afterwards.
+     */
+    public synchronized void close() {
+        if (closed)
+            return;
+        force();
+        closed = true;
+        try {
+            for (Column column : new Column[]{time, size, flags, players, ships, rounds, playTime, accuracy, fleetEnd, shotEnd, fleets, shots, meta}) {
+                column.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing game store!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Amount of matches in the store.
+     */
+    public synchronized int getMatchCount() {
+        return count;
+    }
+
+    /**
+     * Prints stats or heatmaps of a store, or exports it as CSV.
+     * Usage: {@code GameStore <folder> stats|heatmap <size> [ships|shots|hits]|export}
+     *
+     * @param args Command line arguments.
+     * @throws IOException If the store couldn't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GameStore <folder> stats|heatmap <size> [ships|shots|hits]|export");
+            return;
+        }
+        GameStore store = new GameStore(new File(args[0]));
+        switch (args[1]) {
+            case "stats":
+                System.out.println(store.getMatchCount() + " matches");
+                for (int player = MatchRecord.HUMAN; player <= MatchRecord.ONLINE; player++) {
+                    PlayerStats stats = store.playerStats(player);
+                    if (stats.getMatches() > 0)
+                        System.out.printf("player %d: %d matches, %.1f%% won, %.1f rounds, %.0f s, accuracy %.3f%n", player, stats.getMatches(),
+                                stats.getWinRate() * 100, stats.getAverageRounds(), stats.getAveragePlayTime(), stats.getAverageAccuracy());
+                }
+                break;
+            case "heatmap":
+                int gridSize = Integer.parseInt(args[2]);
+                int type = args.length < 4 || args[3].equals("shots") ? SHOTS : args[3].equals("hits") ? HITS : SHIPS;
+                long[] map = store.heatmap(gridSize, type);
+                for (int y = 0; y < gridSize; y++) {
+                    StringBuilder row = new StringBuilder();
+                    for (int x = 0; x < gridSize; x++) {
+                        row.append(String.format("%8d", map[y * gridSize + x]));
+                    }
+                    System.out.println(row);
+                }
+                break;
+            case "export":
+                store.export(new BufferedWriter(new OutputStreamWriter(System.out)));
+                break;
+            default:
+                System.err.println("Unknown command " + args[1] + "!");
+        }
+        store.close();
+    }
+
+    /**
+     * Summary of all matches of one type of player.
+     *
+     * @author agent
+     */
+    public static class PlayerStats {
+
+        /**
+         * Type of the player (constants in {@link MatchRecord}).
+         */
+        private int player;
+        /**
+         * Amount of matches and of matches that were won.
+         */
+        private int matches, wins;
+        /**
+         * Sum of the rounds and of the play time in seconds of all matches.
+         */
+        private long rounds, playTime;
+        /**
+         * Sum of the accuracy of all matches.
+         */
+        private double accuracy;
+
+        /**
+         * Creates empty stats.
+         *
+         * @param player Type of the player (constants in {@link MatchRecord}).
+         */
+        PlayerStats(int player) {
+            this.player = player;
+        }
+
+        /**
+         * @return Type of the player (constants in {@link MatchRecord}).
+         */
+        public int getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return Amount of matches.
+         */
+        public int getMatches() {
+            return matches;
+        }
+
+        /**
+         * @return Amount of matches that were won.
+         */
+        public int getWins() {
+            return wins;
+        }
+
+        /**
+         * @return Part of the matches that were won (0-1).
+         */
+        public double getWinRate() {
+            return matches == 0 ? 0 : (double) wins / matches;
+        }
+
+        /**
+         * @return Average amount of rounds per match.
+         */
+        public double getAverageRounds() {
+            return matches == 0 ? 0 : (double) rounds / matches;
+        }
+
+        /**
+         * @return Average play time per match in seconds.
+         */
+        public double getAveragePlayTime() {
+            return matches == 0 ? 0 : (double) playTime / matches;
+        }
+
+        /**
+         * @return Average accuracy per match.
+         */
+        public double getAverageAccuracy() {
+            return matches == 0 ? 0 : accuracy / matches;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.battleships.logic.store;
+
+import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.logic.Cell;
+import com.battleships.logic.Grid;
+import com.battleships.logic.OnlineGrid;
+import com.battleships.logic.Ship;
+import com.battleships.logic.Stats;
+
+import java.util.Arrays;
+
+/**
+ * A match that is being played and gets added to the {@link GameStore} when it is finished.
+ * Contains the fleets at the start of the match and every shot in the order it was made.
+ * <p>
+ * Fleets are stored with 4 bytes per ship (x and y index of the stern, size, direction), the ships of the player first.
+ * Ships on an online grid aren't known, so they aren't stored.
+ * Every shot is stored in a short: bit 15 is set for shots at the opponent, bits 13 and 14 contain the result
+ * and bits 0 to 9 the cell ({@code (y - 1) * size + (x - 1)}).
+ *
+ * @author agent
+ */
+public class MatchRecord {
+
+    /**
+     * Types of players in the store, the AI levels are the constants in {@link com.battleships.logic.Settings} + 1.
+     */
+    public static final int HUMAN = 0, AI_EASY = 1, AI_MEDIUM = 2, AI_HARD = 3, ONLINE = 4;
+    /**
+     * Bit of a shot that is set for shots at the grid of the opponent.
+     */
+    public static final int OPPONENT_SHOT = 1 << 15;
+    /**
+     * Position and mask of the result in a shot.
+     */
+    public static final int RESULT_SHIFT = 13, RESULT_MASK = 3;
+    /**
+     * Mask of the cell in a shot.
+     */
+    public static final int CELL_MASK = (1 << 10) - 1;
+
+    /**
+     * Size of the grids.
+     */
+    private int size;
+    /**
+     * Amount of ships of the player and of the opponent in the fleets.
+     */
+    private int playerShips, opponentShips;
+    /**
+     * Fleets of both players.
+     */
+    private byte[] fleets;
+    /**
+     * Shots in the order they were made.
+     */
+    private short[] shots = new short[64];
+    /**
+     * Amount of shots.
+     */
+    private int shotCount;
+
+    /**
+     * Time the match ended at (milliseconds since 1970).
+     */
+    private long time;
+    /**
+     * {@code true} if the player has won.
+     */
+    private boolean won;
+    /**
+     * Type of the player and of the opponent (one of the constants in this class).
+     */
+    private int player, opponent;
+    /**
+     * Rounds the match lasted.
+     */
+    private int rounds;
+    /**
+     * Time the match was played in seconds.
+     */
+    private int playTime;
+    /**
+     * Accuracy of the player.
+     */
+    private float accuracy;
+
+    /**
+     * Starts recording a match.
+     *
+     * @param playerGrid   Grid of the player.
+     * @param opponentGrid Grid of the opponent.
+     */
+    public MatchRecord(Grid playerGrid, Grid opponentGrid) {
+        size = playerGrid.getSize();
+        playerShips = playerGrid.getShips().size();
+        opponentShips = opponentGrid instanceof OnlineGrid ? 0 : opponentGrid.getShips().size();
+        fleets = new byte[4 * (playerShips + opponentShips)];
+        int i = putFleet(playerGrid, 0, playerShips);
+        putFleet(opponentGrid, i, opponentShips);
+    }
+
+    /**
+     * Creates a record from the columns of a store.
+     *
+     * @param size          Size of the grids.
+     * @param playerShips   Amount of ships of the player in the fleets.
+     * @param opponentShips Amount of ships of the opponent in the fleets.
+     * @param fleets        Fleets of both players.
+     * @param shots         Shots in the order they were made.
+     */
+    MatchRecord(int size, int playerShips, int opponentShips, byte[] fleets, short[] shots) {
+        this.size = size;
+        this.playerShips = playerShips;
+        this.opponentShips = opponentShips;
+        this.fleets = fleets;
+        this.shots = shots;
+        shotCount = shots.length;
+    }
+
+    /**
+     * Adds the ships of a grid to the fleets.
+     *
+     * @param grid  Grid the ships are on.
+     * @param i     Index in the fleets the first ship is written to.
+     * @param ships Amount of ships to add.
+     * @return Index after the last ship.
+     */
+    private int putFleet(Grid grid, int i, int ships) {
+        for (int s = 0; s < ships; s++) {
+            Ship ship = grid.getShips().get(s);
+            //cell.x is the row and cell.y the column of the cell
+            Cell stern = ship.getOccupiedCells().get(0);
+            fleets[i++] = (byte) (stern.y + 1);
+            fleets[i++] = (byte) (stern.x + 1);
+            fleets[i++] = (byte) ship.getSize();
+            fleets[i++] = (byte) ship.getDirection();
+        }
+        return i;
+    }
+
+    /**
+     * Adds a shot to the match.
+     *
+     * @param grid   ID of the grid that was shot (one of constants in {@link GridManager}).
+     * @param x      X index of the cell that was shot (1-size).
+     * @param y      Y index of the cell that was shot (1-size).
+     * @param result Result of the shot (0 water, 1 hit, 2 sunk).
+     */
+    public void addShot(int grid, int x, int y, int result) {
+        if (shotCount == shots.length)
+            shots = Arrays.copyOf(shots, shotCount * 2);
+        shots[shotCount++] = (short) ((grid == GridManager.OPPONENTFIELD ? OPPONENT_SHOT : 0) | result << RESULT_SHIFT | (y - 1) * size + (x - 1));
+    }
+
+    /**
+     * Ends the match, call after the stats have been updated.
+     *
+     * @param won      {@code true} if the player has won.
+     * @param stats    Stats of the match.
+     * @param aiLevelP Level of the AI of the player, -1 if the player isn't an AI.
+     * @param aiLevelO Level of the AI of the opponent, -1 if the opponent isn't an AI.
+     * @param online   {@code true} if the match was played online.
+     */
+    public void finish(boolean won, Stats stats, int aiLevelP, int aiLevelO, boolean online) {
+        time = System.currentTimeMillis();
+        this.won = won;
+        player = aiLevelP < 0 ? HUMAN : aiLevelP + 1;
+        opponent = online ? ONLINE : aiLevelO < 0 ? HUMAN : aiLevelO + 1;
+        rounds = stats.getRounds();
+        playTime = stats.getPlayTime();
+        accuracy = stats.getAccuracy();
+    }
+
+    /**
+     * Sets the values that are stored in the fixed size columns.
+     *
+     * @param time     Time the match ended at (milliseconds since 1970).
+     * @param won      {@code true} if the player has won.
+     * @param player   Type of the player (one of the constants in this class).
+     * @param opponent Type of the opponent (one of the constants in this class).
+     * @param rounds   Rounds the match lasted.
+     * @param playTime Time the match was played in seconds.
+     * @param accuracy Accuracy of the player.
+     */
+    void setResult(long time, boolean won, int player, int opponent, int rounds, int playTime, float accuracy) {
+        this.time = time;
+        this.won = won;
+        this.player = player;
+        this.opponent = opponent;
+        this.rounds = rounds;
+        this.playTime = playTime;
+        this.accuracy = accuracy;
+    }
+
+    /**
+     * @return Size of the grids.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Amount of ships of the player in the fleets.
+     */
+    public int getPlayerShips() {
+        return playerShips;
+    }
+
+    /**
+     * @return Amount of ships of the opponent in the fleets, 0 if they aren't known.
+     */
+    public int getOpponentShips() {
+        return opponentShips;
+    }
+
+    /**
+     * @return Fleets of both players, 4 bytes per ship, the ships of the player first.
+     */
+    byte[] getFleets() {
+        return fleets;
+    }
+
+    /**
+     * @return Shots in the order they were made, only the first {@link #getShotCount()} are used.
+     */
+    short[] getShots() {
+        return shots;
+    }
+
+    /**
+     * @return Amount of shots.
+     */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * @return Time the match ended at (milliseconds since 1970).
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return {@code true} if the player has won.
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * @return Type of the player (one of the constants in this class).
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return Type of the opponent (one of the constants in this class).
+     */
+    public int getOpponent() {
+        return opponent;
+    }
+
+    /**
+     * @return Rounds the match lasted.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return Time the match was played in seconds.
+     */
+    public int getPlayTime() {
+        return playTime;
+    }
+
+    /**
+     * @return Accuracy of the player.
+     */
+    public float getAccuracy() {
+        return accuracy;
+    }
+}
@@ -0,0 +1,161 @@
+package com.battleships.network;
+
+/**
+ * Keeps track of the quality of one connection, measured with the {@value Protocol#PING} and
+ * {@value Protocol#PONG} messages of the heartbeat.
+ * <p>
+ * The round trip time is smoothed like the TCP retransmission timer does it (RFC 6298, new samples are weighted with 1/8),
+ * the jitter is the smoothed difference between two following round trip times (RFC 3550, weighted with 1/16).
+ * All values are thread safe, because the heartbeat and the reader of a connection run in different threads.
+ *
+ * @author agent
+ */
+public class ConnectionQuality {
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final float NANOS_PER_MILLI = 1000000f;
+
+    /**
+     * Smoothed round trip time in nanoseconds, -1 before the first sample.
+     */
+    private long smoothedRtt = -1;
+    /**
+     * Smoothed jitter in nanoseconds.
+     */
+    private long jitter;
+    /**
+     * Last round trip time that was measured in nanoseconds.
+     */
+    private long lastRtt;
+    /**
+     * Lowest round trip time that was measured in nanoseconds.
+     */
+    private long minRtt = Long.MAX_VALUE;
+    /**
+     * Highest round trip time that was measured in nanoseconds.
+     */
+    private long maxRtt;
+    /**
+     * Amount of round trip times that were measured.
+     */
+    private int samples;
+    /**
+     * Amount of pings that were sent.
+     */
+    private int pingsSent;
+    /**
+     * Time at which the last message was received in nanoseconds.
+     */
+    private volatile long lastReceived = System.nanoTime();
+
+    /**
+     * Needs to be called for every message that is received on the connection, so the connection doesn't time out.
+     */
+    public void received() {
+        lastReceived = System.nanoTime();
+    }
+
+    /**
+     * Needs to be called every time a ping is sent.
+     */
+    public synchronized void pingSent() {
+        pingsSent++;
+    }
+
+    /**
+     * Adds a round trip time that was measured with a {@value Protocol#PONG} message.
+     *
+     * @param sentAt Time in nanoseconds ({@link System#nanoTime()}) at which the ping was sent.
+     */
+    public synchronized void addSample(long sentAt) {
+        long rtt = System.nanoTime() - sentAt;
+        if (rtt < 0)
+            return;
+        if (smoothedRtt < 0) {
+            smoothedRtt = rtt;
+        } else {
+            smoothedRtt += (rtt - smoothedRtt) / 8;
+            jitter += (Math.abs(rtt - lastRtt) - jitter) / 16;
+        }
+        lastRtt = rtt;
+        minRtt = Math.min(minRtt, rtt);
+        maxRtt = Math.max(maxRtt, rtt);
+        samples++;
+    }
+
+    /**
+     * @return Time in milliseconds since the last message was received.
+     */
+    public long getIdleTime() {
+        return (System.nanoTime() - lastReceived) / 1000000;
+    }
+
+    /**
+     * @param timeout Time in milliseconds after which a connection counts as dead.
+     * @return {@code true} if nothing was received for longer than the timeout.
+     */
+    public boolean isIdle(int timeout) {
+        return getIdleTime() > timeout;
+    }
+
+    /**
+     * @return Smoothed round trip time in milliseconds, -1 if nothing was measured yet.
+     */
+    public synchronized float getRtt() {
+        return smoothedRtt < 0 ? -1 : smoothedRtt / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return Smoothed jitter in milliseconds.
+     */
+    public synchronized float getJitter() {
+        return jitter / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return Last round trip time that was measured in milliseconds.
+     */
+    public synchronized float getLastRtt() {
+        return lastRtt / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return Lowest round trip time that was measured in milliseconds, -1 if nothing was measured yet.
+     */
+    public synchronized float getMinRtt() {
+        return samples == 0 ? -1 : minRtt / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return Highest round trip time that was measured in milliseconds.
+     */
+    public synchronized float getMaxRtt() {
+        return maxRtt / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return Amount of round trip times that were measured.
+     */
+    public synchronized int getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return Amount of pings that haven't been answered (yet).
+     */
+    public synchronized int getLostPings() {
+        return Math.max(0, pingsSent - samples);
+    }
+
+    /**
+     * @return Short description of the connection quality, for example {@code "RTT 12 ms, jitter 3 ms"}.
+     */
+    @Override
+    public synchronized String toString() {
+        if (smoothedRtt < 0)
+            return "RTT - ms";
+        return "RTT " + Math.round(getRtt()) + " ms, jitter " + Math.round(getJitter()) + " ms";
+    }
+}
@@ -4,7 +4,8 @@ import com.battleships.gui.gameAssets.GameManager;
 import com.battleships.gui.gameAssets.grids.GridManager;
 import com.battleships.logic.AI.AI;
 import com.battleships.logic.AI.AIMedium;
-import com.battleships.logic.OnlineGrid;
+import com.battleships.logic.MatchSnapshot;
+import com.battleships.logic.SaveCatalog;
 import com.battleships.logic.SaveFile;
 import com.battleships.logic.SaveFileManager;
 import org.joml.Vector2i;
@@ -12,6 +13,10 @@ import org.joml.Vector2i;
 /**
  * This class can handle the Strings the network receives from the opponent.
  * Both networks (client and server) extend this class to be able to process the Strings they receive.
+ * <p>
+ * After the connection is established both networks send a {@value Protocol#PING} every
+ * {@value Protocol#HEARTBEAT_INTERVAL} milliseconds, the answers are used to measure the {@link ConnectionQuality}.
+ * If nothing was received for {@value Protocol#IDLE_TIMEOUT} milliseconds the connection counts as lost.
  *
  * @author Tim Staudenmaier
  */
@@ -20,36 +25,7 @@ public abstract class Network implements NetworkInterface {
     /**
      * Constants for the actions the logic may need to execute.
      */
-    private static final int NONE = -1, SHOOT = 0, CONFIRM = 1, SAVE = 2, LOAD = 3, SIZE = 4, CLOSE = 5;
-
-    /**
-     * String containing the word the network sends for a shoot command.
-     */
-    private String shoot = "shot ";
-    /**
-     * String containing the word the network sends to set the size (only client receives this message).
-     */
-    private String size = "size ";
-    /**
-     * String containing the word the network sends to confirm ship placement.
-     */
-    private String confirmed = "confirmed";
-    /**
-     * String containing the word the network sends to answer what a shot hit.
-     */
-    private String answer = "answer ";
-    /**
-     * String containing the word the network sends to save the game.
-     */
-    private String save = "save ";
-    /**
-     * String containing the word the network sends to load a game.
-     */
-    private String load = "load ";
-    /**
-     * String containing the word the network sends to do nothing.
-     */
-    private String pass = "pass";
+    private static final int NONE = -1, SHOOT = 0, CONFIRM = 1, SAVE = 2, LOAD = 3, SIZE = 4, CLOSE = 5, RESUME = 6, HOST = 7;
 
     /**
      * {@code true} if the player has already confirmed his ship placement.
@@ -73,10 +49,15 @@ public abstract class Network implements NetworkInterface {
      */
     private String ID;
 
+    /**
+     * Snapshot the game needs to be rebuilt from, after the match was resumed.
+     */
+    private MatchSnapshot snapshot;
+
     /**
      * Action the network needs to process. (One of the constants)
      */
-    private int action = -1;
+    private volatile int action = -1;
 
     /**
      * X index of the last shot this network sent to the opponent.
@@ -87,6 +68,19 @@ public abstract class Network implements NetworkInterface {
      */
     private int lastShotY;
 
+    /**
+     * Quality of the connection to the opponent.
+     */
+    private ConnectionQuality quality = new ConnectionQuality();
+    /**
+     * Thread that sends the pings, {@code null} if the heartbeat hasn't been started.
+     */
+    private Thread heartbeat;
+    /**
+     * {@code true} if the opponent is an authoritative server, that needs the fleet of the player.
+     */
+    private boolean authoritative;
+
     /**
      * Execute the last action this network received from the opponent.
      */
@@ -112,7 +106,9 @@ public abstract class Network implements NetworkInterface {
                 break;
             case LOAD:
                 action = NONE;
-                SaveFile file = SaveFileManager.loadFromFile(ID);
+                //the catalog tells if the save file exists and belongs to an online game without opening it
+                SaveCatalog.Entry entry = SaveCatalog.get(ID);
+                SaveFile file = entry != null && entry.isOnline() ? SaveFileManager.loadFromFile(ID) : null;
                 if (file == null) {
                     setStringFunction(null);
                     break;
@@ -127,6 +123,25 @@ public abstract class Network implements NetworkInterface {
                 GameManager.resizeGrid();
                 GameManager.getLogic().advanceGamePhase();
                 break;
+            case RESUME:
+                //wait for the shot of the opponent to land, its answer is already included in the snapshot
+                if (GameManager.getGridManager().getCannonball().isFlying() && !GameManager.getGridManager().getCannonball().isWaiting())
+                    return;
+                if (snapshot.getSize() == GameManager.getLogic().getPlayerGrid().getSize())
+                    GameManager.resumeGame(snapshot);
+                action = NONE;
+                break;
+            case HOST:
+                action = NONE;
+                //start the game like the server of a direct connection does after a client connected
+                GameManager.getNetwork().setHost();
+                GameManager.getSettings().setOnline(true);
+                GameManager.getMainMenuManager().clearAll();
+                GameManager.resizeGrid();
+                GameManager.getNetwork().sendSize(GameManager.getSettings().getSize());
+                GameManager.getLogic().advanceGamePhase();
+                GameManager.getLogic().getTurnHandler().setPlayerTurn(false);
+                break;
             case CLOSE:
                 action = NONE;
                 closeConnection();
@@ -151,30 +166,29 @@ public abstract class Network implements NetworkInterface {
             return;
         }
         text = text.toLowerCase();
-        if (text.contains(shoot)) {
-            text = text.replace(shoot, "");
+        if (text.contains(Protocol.SHOOT)) {
+            text = text.replace(Protocol.SHOOT, "");
             String[] temp = text.split(" ");
 
             col = Integer.parseInt(temp[0]);
             row = Integer.parseInt(temp[1]);
 
             action = SHOOT;
-        } else if (text.contains(size)) {
-            text = text.replace(size, "");
+        } else if (text.contains(Protocol.SIZE)) {
+            text = text.replace(Protocol.SIZE, "");
 
             GameManager.getSettings().setSize(Integer.parseInt(text));
             GameManager.getSettings().setOnline(true);
             action = SIZE;
-        } else if (text.contains(confirmed)) {
-            text = text.replace(confirmed, "");
+        } else if (text.contains(Protocol.CONFIRMED)) {
+            text = text.replace(Protocol.CONFIRMED, "");
             if (text.equals(""))
                 action = CONFIRM;
-        } else if (text.contains(answer)) {
-            text = text.replace(answer, "");
+        } else if (text.contains(Protocol.ANSWER)) {
+            text = text.replace(Protocol.ANSWER, "");
             if (Integer.parseInt(text) == 0) {
                 GameManager.processShootAnswer(false);
-                if (GameManager.getLogic().getOpponentGrid() instanceof OnlineGrid)
-                    ((OnlineGrid) GameManager.getLogic().getOpponentGrid()).processShot(lastShotX, lastShotY, 0);
+                GameManager.getLogic().processShotAnswer(lastShotX, lastShotY, 0);
                 GameManager.getNetwork().sendPass();
             }
             if (Integer.parseInt(text) == 1) {
@@ -182,33 +196,176 @@ public abstract class Network implements NetworkInterface {
                 if (ai instanceof AIMedium)
                     ((AIMedium) ai).processAnswer(new Vector2i(lastShotX, lastShotY));
                 GameManager.processShootAnswer(true);
-                if (GameManager.getLogic().getOpponentGrid() instanceof OnlineGrid)
-                    ((OnlineGrid) GameManager.getLogic().getOpponentGrid()).processShot(lastShotX, lastShotY, 1);
+                GameManager.getLogic().processShotAnswer(lastShotX, lastShotY, 1);
             } else if (Integer.parseInt(text) == 2) {
                 AI ai = GameManager.getLogic().getTurnHandler().getOnlineAI();
                 if (ai instanceof AIMedium)
                     ((AIMedium) ai).processAnswer(new Vector2i(lastShotX, lastShotY));
                 GameManager.processShootAnswer(true);
-                if (GameManager.getLogic().getOpponentGrid() instanceof OnlineGrid)
-                    ((OnlineGrid) GameManager.getLogic().getOpponentGrid()).processShot(lastShotX, lastShotY, 2);
+                GameManager.getLogic().processShotAnswer(lastShotX, lastShotY, 2);
             }
 
-        } else if (text.contains(save)) {
-            text = text.replace(save, "");
+        } else if (text.contains(Protocol.SAVE)) {
+            text = text.replace(Protocol.SAVE, "");
             ID = text;
             action = SAVE;
-        } else if (text.contains(load)) {
+        } else if (text.contains(Protocol.LOAD)) {
             GameManager.getSettings().setOnline(true);
-            text = text.replace(load, "");
+            text = text.replace(Protocol.LOAD, "");
             ID = text;
             action = LOAD;
-        } else if (text.contains(pass)) {
+        } else if (text.contains(Protocol.PASS)) {
 
         } else {
             System.err.println("Received faulty message from Network!");
         }
     }
 
+    /**
+     * Lets the game rebuild itself from a snapshot after the match was resumed.
+     * Blocks until the game has been rebuilt, so messages that are received after the snapshot are
+     * processed on the rebuilt game.
+     *
+     * @param snapshot Snapshot of the match, {@code null} if the snapshot couldn't be read.
+     */
+    protected void resumeFromSnapshot(MatchSnapshot snapshot) {
+        if (snapshot == null) {
+            System.err.println("Received faulty snapshot from Network!");
+            setStringFunction(null);
+            return;
+        }
+        this.snapshot = snapshot;
+        action = RESUME;
+        while (action == RESUME) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lets the player host the match, after a dedicated server sent {@value Protocol#HOST}.
+     * The player then chooses the size of the grid and shoots second.
+     */
+    protected void hostMatch() {
+        action = HOST;
+    }
+
+    /**
+     * Starts sending pings to the opponent, does nothing if the heartbeat is already running.
+     * Also restarts the idle time of the connection.
+     */
+    protected synchronized void startHeartbeat() {
+        quality.received();
+        if (heartbeat != null)
+            return;
+        heartbeat = new Thread(this::heartbeat, "Network-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+
+    /**
+     * Stops sending pings to the opponent.
+     */
+    protected synchronized void stopHeartbeat() {
+        if (heartbeat != null)
+            heartbeat.interrupt();
+        heartbeat = null;
+    }
+
+    /**
+     * Sends a ping every {@value Protocol#HEARTBEAT_INTERVAL} milliseconds until the heartbeat is stopped
+     * or the connection timed out.
+     */
+    private void heartbeat() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(Protocol.HEARTBEAT_INTERVAL);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (quality.isIdle(Protocol.IDLE_TIMEOUT)) {
+                System.err.println("Connection timed out, nothing received for " + quality.getIdleTime() + " ms!");
+                if (!connectionTimedOut())
+                    return;
+                quality.received();
+                continue;
+            }
+            quality.pingSent();
+            sendControl(Protocol.PING + System.nanoTime());
+        }
+    }
+
+    /**
+     * Processes a heartbeat message, answers pings and measures the round trip time with pongs.
+     * Must be called for every message that is received, so the connection doesn't time out.
+     *
+     * @param message Message that was received.
+     * @return {@code true} if the message was a heartbeat message and doesn't need to be processed anymore.
+     */
+    protected boolean processHeartbeat(String message) {
+        quality.received();
+        try {
+            if (message.startsWith(Protocol.PING)) {
+                sendControl(Protocol.PONG + message.substring(Protocol.PING.length()));
+                return true;
+            }
+            if (message.startsWith(Protocol.PONG)) {
+                quality.addSample(Long.parseLong(message.substring(Protocol.PONG.length()).trim()));
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Received faulty heartbeat from Network!");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called by the heartbeat if nothing was received for {@value Protocol#IDLE_TIMEOUT} milliseconds.
+     * Closes the game like a closed connection would.
+     *
+     * @return {@code true} if the heartbeat should keep running (because the connection is restored).
+     */
+    protected boolean connectionTimedOut() {
+        setStringFunction(null);
+        return false;
+    }
+
+    /**
+     * Sends a message that isn't part of the turns of the game (heartbeat or fleet) to the opponent.
+     * These messages are sent while the network waits for an answer too, so they can't be sent with {@link #sendMessage(String)}.
+     *
+     * @param message Message to send.
+     */
+    protected abstract void sendControl(String message);
+
+    /**
+     * Sends the fleet of the player to an authoritative server, does nothing if the opponent isn't one.
+     *
+     * @param fleet The encoded fleet (see {@link com.battleships.logic.FleetBoard#encode(com.battleships.logic.Grid)}).
+     */
+    public void sendFleet(String fleet) {
+        if (authoritative)
+            sendControl(Protocol.FLEET + fleet);
+    }
+
+    /**
+     * @param authoritative {@code true} if the opponent is an authoritative server, that needs the fleet of the player.
+     */
+    protected void setAuthoritative(boolean authoritative) {
+        this.authoritative = authoritative;
+    }
+
+    /**
+     * @return Quality of the connection to the opponent.
+     */
+    public ConnectionQuality getConnectionQuality() {
+        return quality;
+    }
+
     /**
      * Sets the value to true that indicates whether the opponent has confirmed the ship placement.
      * If both players have confirmed this processes the confirms and starts the shooting phase.
@@ -1,5 +1,8 @@
 package com.battleships.network;
 
+import com.battleships.logic.MatchSnapshot;
+import com.battleships.network.loopback.LoopbackNetwork;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -8,15 +11,14 @@ import java.net.Socket;
 
 /**
  * Network implementation for the client side.
+ * If the client is connected to a dedicated server that sends a session token, the client tries to
+ * resume the match after the connection was lost, also if the connection timed out.
+ * If the dedicated server sends {@value Protocol#HOST}, this client hosts the match like a {@link NetworkServer} would.
+ * Instead of a socket the client can also use a {@link LoopbackNetwork}, to simulate online games in one JVM.
  *
  * @author Tim Staudenmaier
  */
 public class NetworkClient extends Network implements Runnable {
-    /**
-     * Port this network uses.
-     */
-    private static final int PORT = 50000;
-
     /**
      * Reader to read the messages the server sends to this client.
      */
@@ -30,18 +32,53 @@ public class NetworkClient extends Network implements Runnable {
      * {@code true} while this network is waiting for a message from the server.
      * {@code false} while this network is able to send a message to the server.
      */
-    private boolean waitingForMessage;
+    private volatile boolean waitingForMessage;
 
     /**
      * Socket this client uses.
      */
     private Socket clientSocket;
+    /**
+     * In-memory network this client uses instead of a socket, {@code null} if it uses a socket.
+     */
+    private LoopbackNetwork loopback;
+
+    /**
+     * Address of the server this client is connected to.
+     */
+    private String adress;
+    /**
+     * Session token the server sent, {@code null} if the server doesn't support resuming matches.
+     */
+    private String sessionToken;
+    /**
+     * Amount of game messages this client has sent.
+     */
+    private int sentMessages;
+    /**
+     * Amount of game messages this client has received.
+     */
+    private int receivedMessages;
+    /**
+     * Last game message this client has sent, needs to be sent again if it got lost while resuming.
+     */
+    private String lastMessage;
+    /**
+     * {@code true} while this client waits for the snapshot after reconnecting, if the connection gets closed
+     * during that time the match can't be resumed anymore.
+     */
+    private boolean resuming;
+    /**
+     * {@code true} if the connection was closed by this client, so it doesn't need to be resumed.
+     */
+    private boolean closed;
 
     /**
      * Start a client that tries to connect to the server with the passed IP.
      * @param adress IP-Address of the server this client should connect to.
      */
     public NetworkClient(String adress) {
+        this.adress = adress;
         try {
             startClient(adress);
         } catch (IOException e) {
@@ -50,6 +87,17 @@ public class NetworkClient extends Network implements Runnable {
 
     }
 
+    /**
+     * Start a client that uses an in-memory network instead of a socket, needs to be started with {@link #run()}.
+     * Such a client can't resume a match, because there is no server.
+     *
+     * @param loopback In-memory network the client should use.
+     */
+    public NetworkClient(LoopbackNetwork loopback) {
+        this.loopback = loopback;
+        waitingForMessage = true;
+    }
+
     /**
      * Sends a message to the server.
      *
@@ -58,10 +106,15 @@ public class NetworkClient extends Network implements Runnable {
     public void sendMessage(String message) {
         if (!message.contains("save") && waitingForMessage)
             return;
-        toServer.println(message);
+        if (Protocol.isGameMessage(message)) {
+            lastMessage = message;
+            sentMessages++;
+        }
+        //wait before sending, the answer can arrive before this method returns
+        waitingForMessage = true;
+        sendRaw(message);
         System.out.println("\u001B[32m" + "Sent: " + message);
         System.out.println("\u001B[31m" + "now waiting");
-        waitingForMessage = true;
     }
 
     /**
@@ -71,16 +124,44 @@ public class NetworkClient extends Network implements Runnable {
         while(true) {
             String answer;
             try {
-                answer = fromServer.readLine();
+                answer = loopback != null ? loopback.receive() : fromServer.readLine();
                 if (answer == null) {
+                    if (resume())
+                        continue;
                     setStringFunction(null);
                     break;
                 }
+                //the heartbeat starts with the first message, a dedicated server only answers after the match has started
+                startHeartbeat();
+                if (processHeartbeat(answer))
+                    continue;
+                if (answer.startsWith(Protocol.SESSION)) {
+                    sessionToken = answer.substring(Protocol.SESSION.length()).trim();
+                    continue;
+                }
+                if (answer.equals(Protocol.HOST)) {
+                    //a dedicated server chose this client to host the match, so it sends the size of the grid first
+                    waitingForMessage = false;
+                    hostMatch();
+                    continue;
+                }
+                if (answer.equals(Protocol.AUTHORITATIVE)) {
+                    setAuthoritative(true);
+                    continue;
+                }
+                if (answer.startsWith(Protocol.SNAPSHOT)) {
+                    processSnapshot(MatchSnapshot.decode(answer.substring(Protocol.SNAPSHOT.length())));
+                    continue;
+                }
+                if (Protocol.isGameMessage(answer))
+                    receivedMessages++;
                 if (!answer.contains("save") && !waitingForMessage) {
                     continue;
                 }
                 System.out.println("\u001B[0m" + answer);
             } catch (IOException e) {
+                if (resume())
+                    continue;
                 System.err.println("Error receiving message from Server!");
                 break;
             }
@@ -90,6 +171,93 @@ public class NetworkClient extends Network implements Runnable {
         }
     }
 
+    /**
+     * Tries to resume the match after the connection to the server was lost.
+     * The server answers with a snapshot of the match followed by the messages this client missed.
+     *
+     * @return {@code true} if the client has reconnected, {@code false} if the match can't be resumed.
+     */
+    private boolean resume() {
+        if (sessionToken == null || closed || resuming || loopback != null)
+            return false;
+        resuming = true;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            try {
+                clientSocket.close();
+                clientSocket = new Socket(adress, Protocol.RESUME_PORT);
+                toServer = new PrintWriter(clientSocket.getOutputStream(), true);
+                fromServer = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+                toServer.println(Protocol.RESUME + sessionToken + " " + receivedMessages);
+                System.out.println("Resuming match...");
+                return true;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(200L << attempt);
+                } catch (InterruptedException ignore) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds the game from a snapshot the server sent after resuming the match.
+     * Sends the last message again, if it didn't arrive at the server.
+     *
+     * @param snapshot Snapshot of the match.
+     */
+    private void processSnapshot(MatchSnapshot snapshot) {
+        resuming = false;
+        resumeFromSnapshot(snapshot);
+        if (snapshot != null && snapshot.getSequence() < sentMessages) {
+            sendRaw(lastMessage);
+            System.out.println("\u001B[32m" + "Sent again: " + lastMessage);
+        }
+    }
+
+    /**
+     * Sends a message that isn't part of the turns to the server, if the client isn't reconnecting at the moment.
+     *
+     * @param message Message to send.
+     */
+    @Override
+    protected void sendControl(String message) {
+        //the first message on a resumed connection needs to be the resume message
+        if (!resuming)
+            sendRaw(message);
+    }
+
+    /**
+     * Sends a message to the server over the socket or the in-memory network.
+     *
+     * @param message Message to send.
+     */
+    private void sendRaw(String message) {
+        if (loopback != null)
+            loopback.sendMessage(message);
+        else
+            toServer.println(message);
+    }
+
+    /**
+     * Closes the socket, so the match gets resumed on a new connection if the server supports it,
+     * else the game is closed.
+     *
+     * @return {@code true} if the match can be resumed.
+     */
+    @Override
+    protected boolean connectionTimedOut() {
+        if (sessionToken == null || closed || loopback != null)
+            return super.connectionTimedOut();
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return true;
+    }
+
     /**
      * Start client and initialize all needed readers.
      * @param adress IP-Address of the server this client should connect to.
@@ -97,7 +265,7 @@ public class NetworkClient extends Network implements Runnable {
      */
     private void startClient(String adress) throws IOException {
         //System.out.println("Starting Client...");
-        clientSocket = new Socket(adress, PORT);
+        clientSocket = new Socket(adress, Protocol.PORT);
         toServer = new PrintWriter(clientSocket.getOutputStream(), true);
         fromServer = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
         waitingForMessage = true;
@@ -109,6 +277,12 @@ public class NetworkClient extends Network implements Runnable {
      * Close the connection of this client.
      */
     public void closeConnection() {
+        closed = true;
+        stopHeartbeat();
+        if (loopback != null) {
+            loopback.closeConnection();
+            return;
+        }
         try {
             clientSocket.close();
         } catch (IOException e) {
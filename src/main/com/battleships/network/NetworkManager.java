@@ -1,5 +1,8 @@
 package com.battleships.network;
 
+import com.battleships.gui.gameAssets.GameManager;
+import com.battleships.logic.FleetBoard;
+
 import java.io.IOException;
 
 /**
@@ -42,12 +45,20 @@ public class NetworkManager {
         return true;
     }
 
+    /**
+     * Lets a client act like the server of a direct connection, called if a dedicated server chose the player
+     * to host the match.
+     */
+    public void setHost() {
+        server = true;
+    }
+
     /**
      * Send a pass message to the opposing network.
      */
     public void sendPass() {
         if (player != null) {
-            player.sendMessage("pass");
+            player.sendMessage(Protocol.PASS);
         }
     }
 
@@ -57,7 +68,7 @@ public class NetworkManager {
      */
     public void sendSize(int size) {
         if (player != null)
-            player.sendMessage("size " + size);
+            player.sendMessage(Protocol.SIZE + size);
     }
 
     /**
@@ -68,13 +79,14 @@ public class NetworkManager {
      */
     public void sendShoot(int x, int y) {
         if (player != null) {
-            player.sendMessage("shot " + (y - 1) + " " + (x - 1));
+            player.sendMessage(Protocol.SHOOT + (y - 1) + " " + (x - 1));
             player.setLastShot(x, y);
         }
     }
 
     /**
      * Send a confirm message to the opposing network.
+     * An authoritative server gets the fleet of the player right before the confirm.
      */
     public void sendConfirm() {
         if (server && !player.isOpponentConfirm() && !confirmCanBeSent) {
@@ -83,7 +95,8 @@ public class NetworkManager {
         }
         confirmCanBeSent = false;
         if (player != null) {
-            player.sendMessage("confirmed");
+            player.sendFleet(FleetBoard.encode(GameManager.getLogic().getPlayerGrid()));
+            player.sendMessage(Protocol.CONFIRMED);
             player.setPlayerConfirm();
         }
     }
@@ -95,7 +108,7 @@ public class NetworkManager {
      */
     public void sendSave(String ID) {
         if (player != null)
-            player.sendMessage("save " + ID);
+            player.sendMessage(Protocol.SAVE + ID);
     }
 
     /**
@@ -105,7 +118,7 @@ public class NetworkManager {
      */
     public void sendLoad(String ID) {
         if (player != null)
-            player.sendMessage("load " + ID);
+            player.sendMessage(Protocol.LOAD + ID);
     }
 
     /**
@@ -115,7 +128,7 @@ public class NetworkManager {
      */
     public void sendAnswer(int a) {
         if (player != null)
-            player.sendMessage("answer " + a);
+            player.sendMessage(Protocol.ANSWER + a);
     }
 
     /**
@@ -143,6 +156,15 @@ public class NetworkManager {
             player.closeConnection();
     }
 
+    /**
+     * @return Quality of the connection to the opponent, {@code null} if no network was started.
+     */
+    public ConnectionQuality getConnectionQuality() {
+        if (player == null)
+            return null;
+        return player.getConnectionQuality();
+    }
+
     /**
      * @return {@code true} if the confirm of the player is ready to be sent.
      */
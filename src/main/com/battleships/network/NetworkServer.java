@@ -12,11 +12,6 @@ import java.net.Socket;
 import java.net.SocketException;
 
 public class NetworkServer extends Network implements Runnable {
-    /**
-     * Port this network uses.
-     */
-    public static final int PORT = 50000;
-
     /**
      * Writer to write messages to client.
      */
@@ -44,7 +39,7 @@ public class NetworkServer extends Network implements Runnable {
      * {@code true} while this network is waiting for a message from the client.
      * {@code false} while this network is able to send a message to the client.
      */
-    private boolean waitingForMessage;
+    private volatile boolean waitingForMessage;
 
     /**
      * Start a server that searches for a client to connect with.
@@ -71,10 +66,11 @@ public class NetworkServer extends Network implements Runnable {
     public void sendMessage(String message) {
         if (!message.contains("save") && waitingForMessage)
             return;
+        //wait before sending, the answer can arrive before this method returns
+        waitingForMessage = true;
         toClient.println(message);
         System.out.println("\u001B[32m" + "Sent: " + message);
         System.out.println("\u001B[31m" + "now waiting");
-        waitingForMessage = true;
     }
 
     /**
@@ -89,6 +85,8 @@ public class NetworkServer extends Network implements Runnable {
                     setStringFunction(null);
                     break;
                 }
+                if (processHeartbeat(answer))
+                    continue;
                 if(!answer.contains("save") && !waitingForMessage) {
                     continue;
                 }
@@ -108,7 +106,7 @@ public class NetworkServer extends Network implements Runnable {
      */
     private void startServer() {
         try {
-            serverSocket = new ServerSocket(PORT);
+            serverSocket = new ServerSocket(Protocol.PORT);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -134,12 +132,24 @@ public class NetworkServer extends Network implements Runnable {
         }
         Thread t = new Thread(this);
         t.start();
+        startHeartbeat();
+    }
+
+    /**
+     * Sends a message that isn't part of the turns to the client.
+     *
+     * @param message Message to send.
+     */
+    @Override
+    protected void sendControl(String message) {
+        toClient.println(message);
     }
 
     /**
      * Close the connection of this server.
      */
     public void closeConnection() {
+        stopHeartbeat();
         try {
             if (serverSocket != null)
                 serverSocket.close();
@@ -0,0 +1,140 @@
+package com.battleships.network;
+
+/**
+ * Words the networks use to communicate with each other.
+ * Every message is one line of text starting with one of these words.
+ *
+ * @author agent
+ */
+public class Protocol {
+
+    /**
+     * Word the network sends for a shoot command ("shot row col").
+     */
+    public static final String SHOOT = "shot ";
+    /**
+     * Word the network sends to set the size (only client receives this message).
+     */
+    public static final String SIZE = "size ";
+    /**
+     * Word the network sends to confirm ship placement.
+     */
+    public static final String CONFIRMED = "confirmed";
+    /**
+     * Word the network sends to answer what a shot hit (0 for water, 1 for ship hit, 2 for hit and sunk).
+     */
+    public static final String ANSWER = "answer ";
+    /**
+     * Word the network sends to save the game.
+     */
+    public static final String SAVE = "save ";
+    /**
+     * Word the network sends to load a game.
+     */
+    public static final String LOAD = "load ";
+    /**
+     * Word the network sends to do nothing.
+     */
+    public static final String PASS = "pass";
+    /**
+     * Word a dedicated {@link com.battleships.network.server.MatchServer} sends to the player that hosts a match,
+     * this player then needs to send the size of the grid.
+     */
+    public static final String HOST = "host";
+    /**
+     * Word a dedicated server sends to each player at the start of a match ("session token").
+     * The token can be used to resume the match after the connection was lost.
+     */
+    public static final String SESSION = "session ";
+    /**
+     * Word a player sends to the resume port of a dedicated server to resume a match
+     * ("resume token received", received is the amount of messages the player has received from the opponent).
+     */
+    public static final String RESUME = "resume ";
+    /**
+     * Word a dedicated server sends to a player that resumed a match, followed by the
+     * {@link com.battleships.logic.MatchSnapshot} of the match encoded as Base64.
+     */
+    public static final String SNAPSHOT = "snapshot ";
+    /**
+     * Word a spectator sends to the spectator port of a dedicated server to watch a match ("spectate [match id]").
+     */
+    public static final String SPECTATE = "spectate ";
+    /**
+     * Word a dedicated server sends to spectators for every shot ("event number shooter x y answer",
+     * shooter is 0 for the host and 1 for the client, x and y are the index of the cell 1-size).
+     */
+    public static final String EVENT = "event ";
+    /**
+     * Word a dedicated server sends to spectators after a match has ended.
+     */
+    public static final String END = "end";
+    /**
+     * Word an authoritative {@link com.battleships.network.server.MatchServer} sends to both players at the start of a match.
+     * The players then need to send their {@value #FLEET} before they confirm their ship placement.
+     */
+    public static final String AUTHORITATIVE = "authoritative";
+    /**
+     * Word a player sends to an authoritative server, followed by his ships ("fleet x,y,size,direction ...",
+     * see {@link com.battleships.logic.FleetBoard}). The server resolves the shots on that fleet itself, the fleet is
+     * never sent to the opponent.
+     */
+    public static final String FLEET = "fleet ";
+    /**
+     * Word a player sends to the lobby port of a dedicated server to get paired with an opponent
+     * ("join size [rating]"), after that the match starts like on the normal port.
+     */
+    public static final String JOIN = "join ";
+    /**
+     * Word both sides of a connection send regularly to test if the connection is still alive ("ping time"),
+     * the time is the {@link System#nanoTime()} of the sender.
+     */
+    public static final String PING = "ping ";
+    /**
+     * Word that is sent as answer to a {@value #PING} message, followed by the time of the ping ("pong time").
+     */
+    public static final String PONG = "pong ";
+
+    /**
+     * Answers that can be sent after a shot.
+     */
+    public static final int WATER = 0, HIT = 1, SUNK = 2;
+
+    /**
+     * Port the networks use.
+     */
+    public static final int PORT = 50000;
+    /**
+     * Port a dedicated server accepts players on, that want to resume a match.
+     */
+    public static final int RESUME_PORT = PORT + 2;
+    /**
+     * Port a dedicated server accepts spectators on.
+     */
+    public static final int SPECTATOR_PORT = PORT + 3;
+    /**
+     * Port a dedicated server accepts players on, that want to be paired by grid size and rating.
+     */
+    public static final int LOBBY_PORT = PORT + 4;
+
+    /**
+     * Time in milliseconds between two {@value #PING} messages.
+     */
+    public static final int HEARTBEAT_INTERVAL = 2000;
+    /**
+     * Time in milliseconds after which a connection counts as dead, if nothing was received on it.
+     */
+    public static final int IDLE_TIMEOUT = 5 * HEARTBEAT_INTERVAL;
+
+    /**
+     * Tests if a message is part of the game, so it needs to be counted for resuming a match.
+     * Save messages, heartbeat messages, fleets and messages of the dedicated server aren't part of the game.
+     *
+     * @param message Message to test.
+     * @return {@code true} if the message is part of the game.
+     */
+    public static boolean isGameMessage(String message) {
+        return !message.startsWith(SAVE) && !message.equals(HOST) && !message.startsWith(SESSION) && !message.startsWith(SNAPSHOT)
+                && !message.startsWith(PING) && !message.startsWith(PONG) && !message.equals(AUTHORITATIVE) && !message.startsWith(FLEET);
+    }
+}
@@ -0,0 +1,654 @@
+package com.battleships.network.bot;
+
+import com.battleships.gui.gameAssets.grids.GridManager;
+import com.battleships.logic.AI.AI;
+import com.battleships.logic.AI.AIEasy;
+import com.battleships.logic.AI.AIHard;
+import com.battleships.logic.AI.AIMedium;
+import com.battleships.logic.AI.ShotHandler;
+import com.battleships.logic.Cell;
+import com.battleships.logic.FleetBoard;
+import com.battleships.logic.Grid;
+import com.battleships.logic.LogicManager;
+import com.battleships.logic.MatchSnapshot;
+import com.battleships.logic.OnlineGrid;
+import com.battleships.logic.Settings;
+import com.battleships.network.NetworkInterface;
+import com.battleships.network.Protocol;
+import com.battleships.network.loopback.LoopbackNetwork;
+import org.joml.Vector2i;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Headless player that plays an online game using one of the AIs.
+ * Speaks the same protocol as {@link com.battleships.network.NetworkClient}, but doesn't need a gui,
+ * so it can be run from the command line or in large numbers by the {@link LoadGenerator}.
+ * <p>
+ * If the bot receives a {@value Protocol#HOST} message it hosts the game (sends the size and shoots second),
+ * else it waits for the size of the grid like a normal client. A bot can also join the lobby of the server
+ * with a rating, then it is paired with a bot that has the same grid size and a similar rating.
+ * <p>
+ * If the server sends a session token, the bot tries to resume the match after losing the connection.
+ * The bot answers the pings of the server, but doesn't send pings itself. An authoritative server gets the fleet of the bot.
+ * <p>
+ * Instead of a socket a bot can also use a {@link LoopbackNetwork}, so two bots can play against each other
+ * in the same JVM (see {@link LoopbackSimulation}).
+ *
+ * @author agent
+ */
+public class Bot implements NetworkInterface, ShotHandler, Runnable {
+
+    /**
+     * Address of the server this bot connects to.
+     */
+    private String address;
+    /**
+     * Port of the server this bot connects to.
+     */
+    private int port;
+    /**
+     * Level of the AI this bot uses (constants in {@link Settings}).
+     */
+    private int aiLevel;
+    /**
+     * Size of the grid, only used if this bot hosts the game.
+     */
+    private int size;
+    /**
+     * Port of the server this bot connects to, to resume a match.
+     */
+    private int resumePort = Protocol.RESUME_PORT;
+
+    /**
+     * Socket this bot uses.
+     */
+    private Socket socket;
+    /**
+     * Reader to read messages from the server.
+     */
+    private BufferedReader fromServer;
+    /**
+     * Writer to send messages to the server.
+     */
+    private PrintWriter toServer;
+
+    /**
+     * In-memory network this bot uses instead of a socket, {@code null} if the bot uses a socket.
+     */
+    private LoopbackNetwork loopback;
+
+    /**
+     * Logic this bot plays with, only contains the grids (no gui).
+     */
+    private LogicManager logic;
+    /**
+     * Grid containing the ships of this bot.
+     */
+    private Grid ownGrid;
+    /**
+     * Grid containing everything this bot knows about the grid of the opponent.
+     */
+    private OnlineGrid opponentGrid;
+    /**
+     * AI that decides which cells this bot shoots.
+     */
+    private AI ai;
+
+    /**
+     * {@code true} if this bot hosts the game.
+     */
+    private boolean host;
+    /**
+     * Index of the last shot this bot sent.
+     */
+    private int lastShotX, lastShotY;
+    /**
+     * {@code true} if the AI has made a shot during the current turn.
+     */
+    private boolean shotMade;
+    /**
+     * {@code true} if the game has been played to the end, {@code false} if the connection was lost before.
+     */
+    private boolean finished;
+    /**
+     * {@code true} if this bot has won the game.
+     */
+    private boolean won;
+
+    /**
+     * Time it took to connect to the server in nanoseconds.
+     */
+    private long connectTime;
+    /**
+     * Time at which the last shot was sent in nanoseconds.
+     */
+    private long shotSentAt;
+    /**
+     * Times between sending a shot and receiving the answer in nanoseconds.
+     */
+    private long[] roundTripTimes = new long[64];
+    /**
+     * Amount of values in {@link #roundTripTimes}.
+     */
+    private int roundTripCount;
+
+    /**
+     * Session token the server sent, {@code null} if the server doesn't support resuming matches.
+     */
+    private String sessionToken;
+    /**
+     * Amount of game messages this bot has sent.
+     */
+    private int sentMessages;
+    /**
+     * Amount of game messages this bot has received.
+     */
+    private int receivedMessages;
+    /**
+     * Last game message this bot has sent, needs to be sent again if it got lost while resuming.
+     */
+    private String lastMessage;
+    /**
+     * {@code true} while this bot waits for the snapshot after reconnecting, if the connection gets closed
+     * during that time the match can't be resumed anymore.
+     */
+    private boolean resuming;
+    /**
+     * Rating this bot joins the lobby of the server with, -1 if the bot doesn't use the lobby.
+     */
+    private int rating = -1;
+    /**
+     * {@code true} if the server is authoritative and needs the fleet of this bot.
+     */
+    private boolean authoritative;
+    /**
+     * Amount of game messages after which this bot drops its connection once, 0 to never drop it.
+     */
+    private int dropAfter;
+    /**
+     * Amount of times this bot has resumed the match.
+     */
+    private int resumes;
+
+    /**
+     * Create a new bot, needs to be started with {@link #run()}.
+     *
+     * @param address Address of the server this bot should connect to.
+     * @param port    Port of the server.
+     * @param aiLevel Level of the AI this bot should use (constants in {@link Settings}).
+     * @param size    Size of the grid if this bot hosts the game.
+     */
+    public Bot(String address, int port, int aiLevel, int size) {
+        this.address = address;
+        this.port = port;
+        this.aiLevel = aiLevel;
+        this.size = size;
+    }
+
+    /**
+     * Create a new bot that plays over an in-memory network, needs to be started with {@link #run()}.
+     *
+     * @param loopback In-memory network the bot should use.
+     * @param aiLevel  Level of the AI this bot should use (constants in {@link Settings}).
+     * @param size     Size of the grid if this bot hosts the game.
+     */
+    public Bot(LoopbackNetwork loopback, int aiLevel, int size) {
+        this.loopback = loopback;
+        this.aiLevel = aiLevel;
+        this.size = size;
+    }
+
+    /**
+     * Connects to the server and plays one game.
+     * Returns after the game has ended or the connection was lost and the match couldn't be resumed.
+     */
+    @Override
+    public void run() {
+        try {
+            long start = System.nanoTime();
+            if (loopback == null)
+                connect(port);
+            if (rating >= 0)
+                sendRaw(Protocol.JOIN + size + " " + rating);
+            connectTime = System.nanoTime() - start;
+            while (!finished) {
+                String message;
+                try {
+                    message = loopback != null ? loopback.receive() : fromServer.readLine();
+                } catch (IOException e) {
+                    message = null;
+                }
+                if (message != null)
+                    processMessage(message);
+                else if (finished || !resume())
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Bot couldn't connect to server: " + e.getMessage());
+        } finally {
+            closeConnection();
+        }
+        if (!finished)
+            System.err.println("Bot lost connection to server.");
+    }
+
+    /**
+     * Opens a connection to the server.
+     *
+     * @param port Port of the server.
+     * @throws IOException If the connection couldn't be opened.
+     */
+    private void connect(int port) throws IOException {
+        socket = new Socket(address, port);
+        socket.setTcpNoDelay(true);
+        toServer = new PrintWriter(socket.getOutputStream(), true);
+        fromServer = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    }
+
+    /**
+     * Tries to resume the match after the connection was lost.
+     * The server answers with a snapshot of the match followed by the messages this bot missed.
+     *
+     * @return {@code true} if the bot has reconnected, {@code false} if the match can't be resumed.
+     */
+    private boolean resume() {
+        if (sessionToken == null || resuming)
+            return false;
+        resuming = true;
+        closeConnection();
+        for (int attempt = 0; attempt < 5; attempt++) {
+            try {
+                connect(resumePort);
+                sendRaw(Protocol.RESUME + sessionToken + " " + receivedMessages);
+                return true;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException ignore) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuilds the grids of this bot from a snapshot the server sent after resuming the match.
+     * Sends the last message again, if it didn't arrive at the server.
+     *
+     * @param snapshot Snapshot of the match.
+     */
+    private void processSnapshot(MatchSnapshot snapshot) {
+        resuming = false;
+        resumes++;
+        if (snapshot == null || snapshot.getSize() != size) {
+            System.err.println("Bot received invalid snapshot!");
+            closeConnection();
+            return;
+        }
+        Grid[] grids = snapshot.createGrids(ownGrid);
+        ownGrid = grids[MatchSnapshot.OWN];
+        opponentGrid = (OnlineGrid) grids[MatchSnapshot.OPPONENT];
+        logic.setPlayerGrid(ownGrid);
+        logic.setOpponentGrid(opponentGrid);
+        if (snapshot.hasPendingShot()) {
+            lastShotX = snapshot.getPendingShotX();
+            lastShotY = snapshot.getPendingShotY();
+        }
+        if (snapshot.getSequence() < sentMessages)
+            sendRaw(lastMessage);
+    }
+
+    /**
+     * Process one message that was received from the opponent.
+     *
+     * @param text Message that was received.
+     */
+    private void processMessage(String text) {
+        if (text.startsWith(Protocol.SESSION)) {
+            sessionToken = text.substring(Protocol.SESSION.length()).trim();
+            return;
+        }
+        if (text.startsWith(Protocol.SNAPSHOT)) {
+            processSnapshot(MatchSnapshot.decode(text.substring(Protocol.SNAPSHOT.length())));
+            return;
+        }
+        if (text.startsWith(Protocol.PING)) {
+            sendRaw(Protocol.PONG + text.substring(Protocol.PING.length()));
+            return;
+        }
+        if (text.equals(Protocol.AUTHORITATIVE)) {
+            authoritative = true;
+            return;
+        }
+        text = text.toLowerCase();
+        if (Protocol.isGameMessage(text))
+            receivedMessages++;
+        if (text.equals(Protocol.HOST)) {
+            host = true;
+            startGame(size);
+            sendMessage(Protocol.SIZE + size);
+        } else if (text.startsWith(Protocol.SIZE)) {
+            startGame(Integer.parseInt(text.substring(Protocol.SIZE.length()).trim()));
+            confirm();
+        } else if (text.equals(Protocol.CONFIRMED)) {
+            if (host)
+                confirm();
+            else
+                makeTurn();
+        } else if (text.startsWith(Protocol.SHOOT)) {
+            String[] temp = text.substring(Protocol.SHOOT.length()).split(" ");
+            processShot(Integer.parseInt(temp[1]) + 1, Integer.parseInt(temp[0]) + 1);
+        } else if (text.startsWith(Protocol.ANSWER)) {
+            processAnswer(Integer.parseInt(text.substring(Protocol.ANSWER.length()).trim()));
+        } else if (text.equals(Protocol.PASS)) {
+            makeTurn();
+        } else {
+            System.err.println("Bot received faulty message from Network: " + text);
+        }
+    }
+
+    /**
+     * Confirms the ship placement, an authoritative server gets the fleet of this bot first.
+     */
+    private void confirm() {
+        if (authoritative)
+            sendRaw(Protocol.FLEET + FleetBoard.encode(ownGrid));
+        sendMessage(Protocol.CONFIRMED);
+    }
+
+    /**
+     * Creates the grids and the AI for a new game and places the ships.
+     *
+     * @param size Size of the grids.
+     */
+    private void startGame(int size) {
+        this.size = size;
+        logic = new LogicManager();
+        ownGrid = new Grid(size, GridManager.OWNFIELD, true);
+        opponentGrid = new OnlineGrid(size, GridManager.OPPONENTFIELD, true);
+        logic.setPlayerGrid(ownGrid);
+        logic.setOpponentGrid(opponentGrid);
+        ai = createAI(aiLevel, size, logic);
+        ai.setShotHandler(this);
+        ai.placeShips();
+    }
+
+    /**
+     * Shoots the cell the opponent has sent and answers with what was hit.
+     *
+     * @param x X index of the cell that was shot (1-size).
+     * @param y Y index of the cell that was shot (1-size).
+     */
+    private void processShot(int x, int y) {
+        ownGrid.shoot(x, y);
+        Cell c = ownGrid.getCell(x, y);
+        finished = allSunk(ownGrid);
+        if (c.ship == null)
+            sendMessage(Protocol.ANSWER + Protocol.WATER);
+        else if (!c.ship.isSunk())
+            sendMessage(Protocol.ANSWER + Protocol.HIT);
+        else
+            sendMessage(Protocol.ANSWER + Protocol.SUNK);
+    }
+
+    /**
+     * Processes the answer the opponent has sent to the last shot of this bot.
+     *
+     * @param answer Answer that was received (constants in {@link Protocol}).
+     */
+    private void processAnswer(int answer) {
+        addRoundTripTime(System.nanoTime() - shotSentAt);
+        opponentGrid.processShot(lastShotX, lastShotY, answer);
+        if (answer == Protocol.WATER) {
+            sendMessage(Protocol.PASS);
+            return;
+        }
+        if (ai instanceof AIMedium)
+            ((AIMedium) ai).processAnswer(new Vector2i(lastShotX, lastShotY));
+        if (allSunk(opponentGrid)) {
+            finished = true;
+            won = true;
+            return;
+        }
+        makeTurn();
+    }
+
+    /**
+     * The AI of this bot makes the next shot.
+     * If the AI doesn't find a cell to shoot, a random cell that hasn't been shot yet gets shot.
+     */
+    private void makeTurn() {
+        shotMade = false;
+        ai.makeTurn();
+        if (shotMade)
+            return;
+        Random random = new Random();
+        while (!shoot(GridManager.OWNFIELD, new Vector2i(random.nextInt(size) + 1, random.nextInt(size) + 1))) ;
+    }
+
+    /**
+     * Sends a shot to the opponent, called by the AI of this bot.
+     *
+     * @param team  Team of the AI that makes the shot.
+     * @param index Index of the cell that should be shot (1-size).
+     * @return {@code true} if the shot was sent, {@code false} if the cell can't be shot.
+     */
+    @Override
+    public boolean shoot(int team, Vector2i index) {
+        if (shotMade || index.x < 1 || index.y < 1 || index.x > size || index.y > size || !opponentGrid.canBeShot(index.x, index.y))
+            return false;
+        lastShotX = index.x;
+        lastShotY = index.y;
+        shotMade = true;
+        shotSentAt = System.nanoTime();
+        sendMessage(Protocol.SHOOT + (index.y - 1) + " " + (index.x - 1));
+        return true;
+    }
+
+    /**
+     * @return Always {@code true}, the bot only gets to know what it hit through the network.
+     */
+    @Override
+    public boolean isOnline() {
+        return true;
+    }
+
+    /**
+     * Sends a message to the server.
+     *
+     * @param message Message to send.
+     */
+    @Override
+    public void sendMessage(String message) {
+        lastMessage = message;
+        sentMessages++;
+        sendRaw(message);
+        //the last message of a game can't be resumed, because the bot stops reading after it
+        if (sentMessages == dropAfter && !finished)
+            closeConnection();
+    }
+
+    /**
+     * Sends a message to the server without counting it as game message.
+     *
+     * @param message Message to send.
+     */
+    private void sendRaw(String message) {
+        if (loopback != null)
+            loopback.sendMessage(message);
+        else
+            toServer.println(message);
+    }
+
+    /**
+     * Close the connection of this bot.
+     */
+    @Override
+    public void closeConnection() {
+        if (loopback != null) {
+            loopback.closeConnection();
+            return;
+        }
+        try {
+            if (socket != null)
+                socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Save a round trip time.
+     *
+     * @param time Round trip time in nanoseconds.
+     */
+    private void addRoundTripTime(long time) {
+        if (roundTripCount == roundTripTimes.length)
+            roundTripTimes = Arrays.copyOf(roundTripTimes, roundTripCount * 2);
+        roundTripTimes[roundTripCount++] = time;
+    }
+
+    /**
+     * @param grid Grid that should be tested.
+     * @return {@code true} if all ships on the grid have been sunk.
+     */
+    private static boolean allSunk(Grid grid) {
+        int[] shipsAlive = grid.getShipsAlive();
+        return shipsAlive[0] + shipsAlive[1] + shipsAlive[2] + shipsAlive[3] == 0;
+    }
+
+    /**
+     * Creates an AI with the specified level.
+     *
+     * @param level Level of the AI (constants in {@link Settings}).
+     * @param size  Size of the grid.
+     * @param logic Logic the AI plays with.
+     * @return The created AI.
+     */
+    private static AI createAI(int level, int size, LogicManager logic) {
+        switch (level) {
+            case Settings.EASY:
+                return new AIEasy(GridManager.OWNFIELD, size, logic);
+            case Settings.HARD:
+                return new AIHard(GridManager.OWNFIELD, size, logic);
+            default:
+                return new AIMedium(GridManager.OWNFIELD, size, logic);
+        }
+    }
+
+    /**
+     * Converts the name of an AI level to the constant in {@link Settings}.
+     *
+     * @param level Name ("easy", "medium", "hard") or number (0-2) of the level.
+     * @return The constant for that level.
+     */
+    public static int parseAiLevel(String level) {
+        switch (level.toLowerCase()) {
+            case "easy":
+            case "0":
+                return Settings.EASY;
+            case "hard":
+            case "2":
+                return Settings.HARD;
+            default:
+                return Settings.MEDIUM;
+        }
+    }
+
+    /**
+     * @return Time it took to connect to the server in nanoseconds.
+     */
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    /**
+     * @return Array containing all measured round trip times in nanoseconds.
+     */
+    public long[] getRoundTripTimes() {
+        return Arrays.copyOf(roundTripTimes, roundTripCount);
+    }
+
+    /**
+     * Let this bot drop its connection once during the match, to test resuming matches.
+     *
+     * @param dropAfter Amount of messages after which the connection is dropped, 0 to never drop it.
+     */
+    public void setDropAfter(int dropAfter) {
+        this.dropAfter = dropAfter;
+    }
+
+    /**
+     * @param resumePort Port of the server this bot connects to, to resume a match.
+     */
+    public void setResumePort(int resumePort) {
+        this.resumePort = resumePort;
+    }
+
+    /**
+     * Let this bot join the lobby of the server, the port of the bot needs to be the lobby port.
+     *
+     * @param rating Rating this bot joins the lobby with, -1 to not use the lobby.
+     */
+    public void setRating(int rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * @return Amount of times this bot has resumed the match.
+     */
+    public int getResumes() {
+        return resumes;
+    }
+
+    /**
+     * @return {@code true} if this bot has hosted the game.
+     */
+    public boolean isHost() {
+        return host;
+    }
+
+    /**
+     * @return {@code true} if the game has been played to the end.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return {@code true} if this bot has won the game.
+     */
+    public boolean hasWon() {
+        return won;
+    }
+
+    /**
+     * Start a single bot from the command line.
+     * Usage: {@code Bot <address> [ai level] [size] [port]}
+     *
+     * @param args Command line arguments.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: Bot <address> [easy|medium|hard] [size] [port]");
+            return;
+        }
+        int level = args.length > 1 ? parseAiLevel(args[1]) : Settings.MEDIUM;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : Protocol.PORT;
+        Bot bot = new Bot(args[0], port, level, size);
+        bot.run();
+        if (!bot.isFinished())
+            System.out.println("Game was aborted.");
+        else
+            System.out.println(bot.hasWon() ? "Bot has won the game." : "Bot has lost the game.");
+    }
+}
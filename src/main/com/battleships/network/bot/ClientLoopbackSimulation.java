@@ -0,0 +1,153 @@
+package com.battleships.network.bot;
+
+import com.battleships.logic.Settings;
+import com.battleships.network.ConnectionQuality;
+import com.battleships.network.NetworkClient;
+import com.battleships.network.Protocol;
+import com.battleships.network.loopback.LoopbackLink;
+import com.battleships.network.loopback.LoopbackNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays online matches through the {@link NetworkClient} the game uses, connected to a hosting {@link Bot} by a
+ * {@link LoopbackLink} instead of a socket. Unlike the {@link LoopbackSimulation} this runs the receiving, heartbeat and
+ * turn handling of the client of the game, so a message the client drops or sends at the wrong time stops the match.
+ * <p>
+ * The game itself needs a window, so the messages the client passes to the game are relayed to a second bot over
+ * another link, which plays for the player. Its messages are sent back through the client, like the game sends them.
+ * <p>
+ * Usage: {@code ClientLoopbackSimulation [matches] [ai level] [size] [latency ms] [jitter ms] [loss 0-1] [seed]}
+ *
+ * @author agent
+ */
+public class ClientLoopbackSimulation {
+
+    /**
+     * Start the simulation from the command line.
+     *
+     * @param args Command line arguments.
+     * @throws InterruptedException If the simulation was interrupted while waiting for the matches.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int matchCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int level = args.length > 1 ? Bot.parseAiLevel(args[1]) : Settings.MEDIUM;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        float latency = args.length > 3 ? Float.parseFloat(args[3]) : 0;
+        float jitter = args.length > 4 ? Float.parseFloat(args[4]) : 0;
+        float loss = args.length > 5 ? Float.parseFloat(args[5]) : 0;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+
+        List<Bot> bots = new ArrayList<>();
+        List<RelayClient> clients = new ArrayList<>();
+        //host, client, relay and player of a match all block while waiting for messages
+        ExecutorService executor = Executors.newFixedThreadPool(4 * matchCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < matchCount; i++) {
+            LoopbackLink link = new LoopbackLink(latency, jitter, loss, seed + i);
+            LoopbackLink game = new LoopbackLink();
+            Bot host = new Bot(link.getEndpoint(0), level, size);
+            Bot player = new Bot(game.getEndpoint(1), level, size);
+            RelayClient client = new RelayClient(link.getEndpoint(1), game.getEndpoint(0));
+            //there is no server, so the host message is delivered directly
+            link.getEndpoint(0).deliver(Protocol.HOST);
+            bots.add(host);
+            bots.add(player);
+            clients.add(client);
+            executor.execute(host);
+            executor.execute(player);
+            executor.execute(client);
+            executor.execute(client::relay);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int finished = 0;
+        int hostWins = 0;
+        for (int i = 0; i < bots.size(); i += 2) {
+            Bot host = bots.get(i);
+            Bot player = bots.get(i + 1);
+            if (host.isFinished() && player.isFinished()) {
+                finished++;
+                if (host.hasWon())
+                    hostWins++;
+            }
+        }
+        System.out.println("Matches: " + matchCount + ", finished: " + finished + ", won by host: " + hostWins);
+        System.out.printf("Time: %.2f s -> %.1f matches/s%n", seconds, matchCount / seconds);
+        for (int i = 0; i < clients.size(); i++) {
+            ConnectionQuality quality = clients.get(i).getConnectionQuality();
+            System.out.println("Client " + i + ": " + clients.get(i).getRelayed() + " messages to the game, " + quality);
+        }
+        if (finished < matchCount)
+            System.exit(1);
+    }
+
+    /**
+     * Client of the game, that passes the messages for the game to a bot instead of the game.
+     */
+    private static class RelayClient extends NetworkClient {
+        /**
+         * End of the link to the bot that plays for the player.
+         */
+        private LoopbackNetwork game;
+        /**
+         * Amount of messages that were passed to the game.
+         */
+        private int relayed;
+
+        /**
+         * Create a new client, needs to be started with {@link #run()} and {@link #relay()}.
+         *
+         * @param server End of the link to the opponent.
+         * @param game   End of the link to the bot that plays for the player.
+         */
+        public RelayClient(LoopbackNetwork server, LoopbackNetwork game) {
+            super(server);
+            this.game = game;
+        }
+
+        /**
+         * Passes a message the client received to the bot that plays for the player.
+         *
+         * @param text Text that was received, {@code null} if the connection was closed.
+         */
+        @Override
+        public void setStringFunction(String text) {
+            if (text == null) {
+                game.closeConnection();
+                return;
+            }
+            relayed++;
+            game.sendMessage(text);
+        }
+
+        /**
+         * Sends the messages of the bot that plays for the player through this client, until that bot has finished.
+         */
+        public void relay() {
+            String message;
+            while ((message = game.receive()) != null) {
+                if (message.startsWith(Protocol.PONG))
+                    continue;
+                if (message.startsWith(Protocol.FLEET))
+                    sendFleet(message.substring(Protocol.FLEET.length()));
+                else
+                    sendMessage(message);
+            }
+            closeConnection();
+        }
+
+        /**
+         * @return Amount of messages that were passed to the game.
+         */
+        public int getRelayed() {
+            return relayed;
+        }
+    }
+}
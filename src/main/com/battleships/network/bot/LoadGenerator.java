@@ -0,0 +1,212 @@
+package com.battleships.network.bot;
+
+import com.battleships.logic.Settings;
+import com.battleships.network.Protocol;
+import com.battleships.network.server.MatchServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts many {@link Bot}s against a {@link MatchServer} to measure how many matches the server can handle.
+ * Reports connection setup times, round trip times of shots, matches per second and the CPU time
+ * the server needed per match (read from the metrics port of the server).
+ * If a drop count is given, every bot drops its connection once after sending that many messages
+ * and resumes the match (the resume port is expected at the same offset from the port as {@link Protocol#RESUME_PORT}).
+ * If spectators are given, they watch the ten matches that were started last, each one waits the given delay
+ * after every line it reads (the spectator port is expected at the same offset as {@link Protocol#SPECTATOR_PORT}).
+ * If a rating range is given, the bots join the lobby of the server with a random rating in that range instead of
+ * being paired in the order they connect (the lobby port is expected at the same offset as {@link Protocol#LOBBY_PORT}).
+ * <p>
+ * Usage: {@code LoadGenerator <address> <bots> [concurrent bots] [ai level] [size] [port] [metrics port] [drop after]
+ * [spectators] [spectator delay] [rating range]}
+ *
+ * @author agent
+ */
+public class LoadGenerator {
+
+    /**
+     * Start the load generator from the command line.
+     *
+     * @param args Command line arguments.
+     * @throws InterruptedException If the generator was interrupted while waiting for the bots.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadGenerator <address> <bots> [concurrent bots] [easy|medium|hard] [size] [port] [metrics port] [drop after] [spectators] [spectator delay] [rating range]");
+            return;
+        }
+        String address = args[0];
+        int botCount = Integer.parseInt(args[1]);
+        int concurrent = args.length > 2 ? Integer.parseInt(args[2]) : botCount;
+        int level = args.length > 3 ? Bot.parseAiLevel(args[3]) : Settings.MEDIUM;
+        int size = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        int port = args.length > 5 ? Integer.parseInt(args[5]) : Protocol.PORT;
+        int metricsPort = args.length > 6 ? Integer.parseInt(args[6]) : MatchServer.METRICS_PORT;
+        int dropAfter = args.length > 7 ? Integer.parseInt(args[7]) : 0;
+        int spectatorCount = args.length > 8 ? Integer.parseInt(args[8]) : 0;
+        int spectatorDelay = args.length > 9 ? Integer.parseInt(args[9]) : 0;
+        int ratingRange = args.length > 10 ? Integer.parseInt(args[10]) : 0;
+        //bots are paired by the server, so there always need to be an even number of bots running
+        botCount += botCount % 2;
+        concurrent += concurrent % 2;
+
+        Map<String, Long> metricsBefore = readMetrics(address, metricsPort);
+        List<Bot> bots = new ArrayList<>();
+        Random random = new Random();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrent, botCount));
+        long start = System.nanoTime();
+        for (int i = 0; i < botCount; i++) {
+            Bot bot = new Bot(address, ratingRange > 0 ? port + Protocol.LOBBY_PORT - Protocol.PORT : port, level, size);
+            if (ratingRange > 0)
+                bot.setRating(random.nextInt(ratingRange));
+            bot.setResumePort(port + Protocol.RESUME_PORT - Protocol.PORT);
+            bot.setDropAfter(dropAfter);
+            bots.add(bot);
+            executor.execute(bot);
+        }
+        executor.shutdown();
+        List<Spectator> spectators = new ArrayList<>();
+        if (spectatorCount > 0) {
+            Thread.sleep(200);
+            ExecutorService spectatorExecutor = Executors.newFixedThreadPool(spectatorCount);
+            //without metrics the spectators watch whatever match was started last
+            Map<String, Long> metrics = readMetrics(address, metricsPort);
+            int lastMatch = metrics == null ? -1 : metrics.get("matchesStarted").intValue();
+            for (int i = 0; i < spectatorCount; i++) {
+                Spectator spectator = new Spectator(address, port + Protocol.SPECTATOR_PORT - Protocol.PORT, lastMatch < 0 ? -1 : Math.max(1, lastMatch - i % 10), spectatorDelay);
+                spectators.add(spectator);
+                spectatorExecutor.execute(spectator);
+            }
+            spectatorExecutor.shutdown();
+            spectatorExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Long> metricsAfter = readMetrics(address, metricsPort);
+
+        long[] connectTimes = new long[bots.size()];
+        List<long[]> allRoundTrips = new ArrayList<>();
+        int roundTripCount = 0;
+        int matches = 0;
+        int aborted = 0;
+        int resumes = 0;
+        for (int i = 0; i < bots.size(); i++) {
+            Bot bot = bots.get(i);
+            connectTimes[i] = bot.getConnectTime();
+            long[] roundTrips = bot.getRoundTripTimes();
+            allRoundTrips.add(roundTrips);
+            roundTripCount += roundTrips.length;
+            resumes += bot.getResumes();
+            if (!bot.isFinished())
+                aborted++;
+            else if (bot.isHost())
+                matches++;
+        }
+        long[] roundTrips = new long[roundTripCount];
+        int offset = 0;
+        for (long[] r : allRoundTrips) {
+            System.arraycopy(r, 0, roundTrips, offset, r.length);
+            offset += r.length;
+        }
+
+        System.out.println("Bots: " + botCount + " (" + concurrent + " concurrent), aborted: " + aborted + ", resumed: " + resumes);
+        System.out.printf("Matches: %d in %.2f s -> %.1f matches/s%n", matches, seconds, matches / seconds);
+        System.out.println("Connection setup " + formatPercentiles(connectTimes));
+        System.out.println("Shot round trip  " + formatPercentiles(roundTrips) + " (" + roundTripCount + " shots)");
+        if (spectatorCount > 0) {
+            int watched = 0;
+            long snapshots = 0;
+            long events = 0;
+            for (Spectator spectator : spectators) {
+                if (spectator.isFinished())
+                    watched++;
+                snapshots += spectator.getSnapshots();
+                events += spectator.getEvents();
+            }
+            System.out.println("Spectators: " + spectatorCount + ", watched until end: " + watched + ", snapshots: " + snapshots + ", new events: " + events);
+        }
+        if (metricsBefore != null && metricsAfter != null && metricsAfter.get("matchesFinished") > metricsBefore.get("matchesFinished")) {
+            double cpuPerMatch = (metricsAfter.get("cpuNanos") - metricsBefore.get("cpuNanos")) / 1e6 /
+                    (metricsAfter.get("matchesFinished") - metricsBefore.get("matchesFinished"));
+            System.out.printf("Server CPU per match: %.3f ms%n", cpuPerMatch);
+            if (spectatorCount > 0)
+                System.out.println("Server spectator lines: " + (metricsAfter.get("spectatorLines") - metricsBefore.get("spectatorLines")) +
+                        ", skips to snapshot: " + (metricsAfter.get("spectatorSkips") - metricsBefore.get("spectatorSkips")));
+            System.out.println("Server idle timeouts: " + (metricsAfter.get("idleTimeouts") - metricsBefore.get("idleTimeouts")));
+            if (ratingRange > 0)
+                System.out.println("Server lobby joins: " + (metricsAfter.get("lobbyJoins") - metricsBefore.get("lobbyJoins")) +
+                        ", widened pairs: " + (metricsAfter.get("lobbyWidenedPairs") - metricsBefore.get("lobbyWidenedPairs")) +
+                        ", wait p50 " + formatMicros(metricsAfter.get("lobbyWaitP50Micros")) + ", p90 " + formatMicros(metricsAfter.get("lobbyWaitP90Micros")) +
+                        ", p99 " + formatMicros(metricsAfter.get("lobbyWaitP99Micros")) + " (since server start)");
+            System.out.println("Server rejected shots: " + (metricsAfter.get("rejectedShots") - metricsBefore.get("rejectedShots")) +
+                    ", corrected answers: " + (metricsAfter.get("correctedAnswers") - metricsBefore.get("correctedAnswers")) +
+                    ", rejected fleets: " + (metricsAfter.get("rejectedFleets") - metricsBefore.get("rejectedFleets")));
+        } else {
+            System.out.println("Server CPU per match: unknown (metrics port not reachable)");
+        }
+    }
+
+    /**
+     * Reads the metrics from the metrics port of a {@link MatchServer}.
+     *
+     * @param address Address of the server.
+     * @param port    Metrics port of the server.
+     * @return Map containing all metrics of the server, {@code null} if the metrics couldn't be read.
+     */
+    private static Map<String, Long> readMetrics(String address, int port) {
+        try (Socket socket = new Socket(address, port)) {
+            String line = new BufferedReader(new InputStreamReader(socket.getInputStream())).readLine();
+            Map<String, Long> metrics = new HashMap<>();
+            for (String pair : line.split(" ")) {
+                String[] keyValue = pair.split("=");
+                metrics.put(keyValue[0], Long.parseLong(keyValue[1]));
+            }
+            return metrics;
+        } catch (IOException | NullPointerException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Formats the percentiles of measured times.
+     *
+     * @param times Times in nanoseconds.
+     * @return String containing p50, p90, p99 and max in milliseconds.
+     */
+    static String formatPercentiles(long[] times) {
+        if (times.length == 0)
+            return "no values";
+        Arrays.sort(times);
+        return String.format("p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                percentile(times, 0.5) / 1e6, percentile(times, 0.9) / 1e6, percentile(times, 0.99) / 1e6, times[times.length - 1] / 1e6);
+    }
+
+    /**
+     * @param micros Time in microseconds.
+     * @return The time in milliseconds as text.
+     */
+    private static String formatMicros(long micros) {
+        return String.format("<= %.3f ms", micros / 1e3);
+    }
+
+    /**
+     * @param sorted   Sorted values.
+     * @param fraction Percentile that is needed (0-1).
+     * @return The value at that percentile.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)))];
+    }
+}
@@ -0,0 +1,102 @@
+package com.battleships.network.bot;
+
+import com.battleships.logic.Settings;
+import com.battleships.network.Protocol;
+import com.battleships.network.loopback.LoopbackLink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many online matches between two {@link Bot}s in the same JVM, each pair is connected by a {@link LoopbackLink}
+ * instead of a socket. Measures how many matches per second the online protocol can handle without the network stack
+ * and how many messages and bytes a match needs. The links can simulate latency, jitter and loss.
+ * <p>
+ * Usage: {@code LoopbackSimulation <matches> [concurrent matches] [ai level] [size] [latency ms] [jitter ms] [loss 0-1] [seed]}
+ *
+ * @author agent
+ */
+public class LoopbackSimulation {
+
+    /**
+     * Start the simulation from the command line.
+     *
+     * @param args Command line arguments.
+     * @throws InterruptedException If the simulation was interrupted while waiting for the bots.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: LoopbackSimulation <matches> [concurrent matches] [easy|medium|hard] [size] [latency ms] [jitter ms] [loss 0-1] [seed]");
+            return;
+        }
+        int matchCount = Integer.parseInt(args[0]);
+        int concurrent = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int level = args.length > 2 ? Bot.parseAiLevel(args[2]) : Settings.MEDIUM;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        float latency = args.length > 4 ? Float.parseFloat(args[4]) : 0;
+        float jitter = args.length > 5 ? Float.parseFloat(args[5]) : 0;
+        float loss = args.length > 6 ? Float.parseFloat(args[6]) : 0;
+        long seed = args.length > 7 ? Long.parseLong(args[7]) : System.nanoTime();
+
+        List<LoopbackLink> links = new ArrayList<>();
+        List<Bot> bots = new ArrayList<>();
+        //both bots of a match need their own thread, they block while waiting for the opponent
+        ExecutorService executor = Executors.newFixedThreadPool(2 * Math.min(concurrent, matchCount));
+        long start = System.nanoTime();
+        for (int i = 0; i < matchCount; i++) {
+            LoopbackLink link = new LoopbackLink(latency, jitter, loss, seed + i);
+            Bot host = new Bot(link.getEndpoint(0), level, size);
+            Bot client = new Bot(link.getEndpoint(1), level, size);
+            //there is no server, so the host message is delivered directly
+            link.getEndpoint(0).deliver(Protocol.HOST);
+            links.add(link);
+            bots.add(host);
+            bots.add(client);
+            executor.execute(host);
+            executor.execute(client);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int finished = 0;
+        int hostWins = 0;
+        List<long[]> allRoundTrips = new ArrayList<>();
+        int roundTripCount = 0;
+        for (int i = 0; i < bots.size(); i += 2) {
+            Bot host = bots.get(i);
+            Bot client = bots.get(i + 1);
+            if (host.isFinished() && client.isFinished()) {
+                finished++;
+                if (host.hasWon())
+                    hostWins++;
+            }
+            for (int j = i; j < i + 2; j++) {
+                long[] roundTrips = bots.get(j).getRoundTripTimes();
+                allRoundTrips.add(roundTrips);
+                roundTripCount += roundTrips.length;
+            }
+        }
+        long[] roundTrips = new long[roundTripCount];
+        int offset = 0;
+        for (long[] r : allRoundTrips) {
+            System.arraycopy(r, 0, roundTrips, offset, r.length);
+            offset += r.length;
+        }
+        long messages = 0, bytes = 0, retransmissions = 0;
+        for (LoopbackLink link : links) {
+            messages += link.getMessages();
+            bytes += link.getBytes();
+            retransmissions += link.getRetransmissions();
+        }
+
+        System.out.println("Matches: " + matchCount + " (" + concurrent + " concurrent), finished: " + finished + ", won by host: " + hostWins);
+        System.out.printf("Time: %.2f s -> %.1f matches/s%n", seconds, matchCount / seconds);
+        System.out.printf("Messages per match: %.1f, bytes per match: %.1f, retransmissions: %d%n",
+                (double) messages / matchCount, (double) bytes / matchCount, retransmissions);
+        System.out.println("Shot round trip " + LoadGenerator.formatPercentiles(roundTrips) + " (" + roundTripCount + " shots)");
+    }
+}
@@ -0,0 +1,124 @@
+package com.battleships.network.bot;
+
+import com.battleships.logic.MatchSnapshot;
+import com.battleships.network.Protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+
+/**
+ * Headless spectator that watches one match on a {@link com.battleships.network.server.MatchServer}.
+ * Only counts what it receives, so many of them can be started by the {@link LoadGenerator}.
+ *
+ * @author agent
+ */
+public class Spectator implements Runnable {
+
+    /**
+     * Address of the server.
+     */
+    private String address;
+    /**
+     * Spectator port of the server.
+     */
+    private int port;
+    /**
+     * ID of the match to watch, -1 to watch the latest match.
+     */
+    private int matchId;
+    /**
+     * Time in milliseconds this spectator waits after every line, to simulate a slow connection.
+     */
+    private int delay;
+
+    /**
+     * Amount of snapshots this spectator has received.
+     */
+    private int snapshots;
+    /**
+     * Amount of shot events this spectator has received.
+     */
+    private int events;
+    /**
+     * Number of the last shot this spectator knows.
+     */
+    private int lastShot;
+    /**
+     * {@code true} if the match was watched until its end.
+     */
+    private boolean finished;
+
+    /**
+     * Create a new spectator, needs to be started with {@link #run()}.
+     *
+     * @param address Address of the server.
+     * @param port    Spectator port of the server.
+     * @param matchId ID of the match to watch, -1 to watch the latest match.
+     * @param delay   Time in milliseconds the spectator waits after every line.
+     */
+    public Spectator(String address, int port, int matchId, int delay) {
+        this.address = address;
+        this.port = port;
+        this.matchId = matchId;
+        this.delay = delay;
+    }
+
+    /**
+     * Connects to the server and watches the match until it ends.
+     */
+    @Override
+    public void run() {
+        try (Socket socket = new Socket(address, port)) {
+            new PrintWriter(socket.getOutputStream(), true).println(Protocol.SPECTATE + (matchId < 0 ? "" : matchId));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(Protocol.SNAPSHOT)) {
+                    MatchSnapshot snapshot = MatchSnapshot.decode(line.substring(Protocol.SNAPSHOT.length()));
+                    if (snapshot != null)
+                        lastShot = Math.max(lastShot, snapshot.getSequence());
+                    snapshots++;
+                } else if (line.startsWith(Protocol.EVENT)) {
+                    //events that are already included in the last snapshot are ignored
+                    int shot = Integer.parseInt(line.substring(Protocol.EVENT.length()).split(" ")[0]);
+                    if (shot > lastShot) {
+                        lastShot = shot;
+                        events++;
+                    }
+                } else if (line.equals(Protocol.END)) {
+                    finished = true;
+                }
+                if (delay > 0)
+                    Thread.sleep(delay);
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator lost connection to server: " + e.getMessage());
+        } catch (InterruptedException ignore) {
+            //spectator was stopped
+        }
+    }
+
+    /**
+     * @return Amount of snapshots this spectator has received.
+     */
+    public int getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return Amount of new shot events this spectator has received.
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * @return {@code true} if the match was watched until its end.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,157 @@
+package com.battleships.network.loopback;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory connection between two {@link LoopbackNetwork}s in the same JVM, used instead of a socket
+ * to play online games without the network stack.
+ * <p>
+ * The link can simulate a bad connection: every message is delayed by the latency plus a random part of the jitter.
+ * Like TCP the link never loses a message, a lost message is sent again after a retransmission timeout
+ * (doubled for every further loss) and all messages after it have to wait (messages always arrive in order).
+ *
+ * @author agent
+ */
+public class LoopbackLink {
+
+    /**
+     * Time in milliseconds after which a lost message is sent again (like the minimum retransmission timeout of TCP).
+     */
+    public static final int RETRANSMISSION_TIMEOUT = 200;
+
+    /**
+     * The two ends of this link.
+     */
+    private LoopbackNetwork[] endpoints = new LoopbackNetwork[2];
+    /**
+     * Time in nanoseconds every message is delayed by.
+     */
+    private long latency;
+    /**
+     * Maximum time in nanoseconds a message is delayed additionally to the latency.
+     */
+    private long jitter;
+    /**
+     * Probability that a message is lost and needs to be sent again (0-1).
+     */
+    private float loss;
+    /**
+     * Generator for the jitter and losses.
+     */
+    private Random random;
+
+    /**
+     * Amount of messages that were sent over this link.
+     */
+    private AtomicLong messages = new AtomicLong();
+    /**
+     * Amount of bytes that were sent over this link (one byte per character and one for the line break).
+     */
+    private AtomicLong bytes = new AtomicLong();
+    /**
+     * Amount of times a message was lost and had to be sent again.
+     */
+    private AtomicLong retransmissions = new AtomicLong();
+
+    /**
+     * Creates a link without any delay.
+     */
+    public LoopbackLink() {
+        this(0, 0, 0, System.nanoTime());
+    }
+
+    /**
+     * Creates a link that simulates a bad connection.
+     *
+     * @param latency Time in milliseconds every message is delayed by.
+     * @param jitter  Maximum time in milliseconds a message is delayed additionally to the latency.
+     * @param loss    Probability that a message is lost and needs to be sent again (0-1).
+     * @param seed    Seed for the random jitter and losses, the same seed always produces the same delays.
+     */
+    public LoopbackLink(float latency, float jitter, float loss, long seed) {
+        this.latency = (long) (latency * 1000000);
+        this.jitter = (long) (jitter * 1000000);
+        this.loss = loss;
+        random = new Random(seed);
+        endpoints[0] = new LoopbackNetwork(this);
+        endpoints[1] = new LoopbackNetwork(this);
+    }
+
+    /**
+     * Sends a message to the other end of the link.
+     *
+     * @param from    End the message is sent from.
+     * @param message Message to send.
+     */
+    void transmit(LoopbackNetwork from, String message) {
+        messages.incrementAndGet();
+        bytes.addAndGet(message.length() + 1);
+        getPeer(from).enqueue(message, System.nanoTime() + nextDelay());
+    }
+
+    /**
+     * Closes both ends of the link, messages that were already sent are still delivered.
+     */
+    void close() {
+        long now = System.nanoTime();
+        for (LoopbackNetwork endpoint : endpoints) {
+            endpoint.enqueue(null, now + latency);
+        }
+    }
+
+    /**
+     * @return Time in nanoseconds the next message is delayed by.
+     */
+    private synchronized long nextDelay() {
+        if (latency == 0 && jitter == 0 && loss == 0)
+            return 0;
+        long delay = latency;
+        if (jitter > 0)
+            delay += (long) (random.nextDouble() * jitter);
+        long timeout = RETRANSMISSION_TIMEOUT * 1000000L;
+        while (loss > 0 && random.nextFloat() < loss) {
+            retransmissions.incrementAndGet();
+            delay += timeout;
+            timeout *= 2;
+        }
+        return delay;
+    }
+
+    /**
+     * @param endpoint One end of this link.
+     * @return The other end of this link.
+     */
+    public LoopbackNetwork getPeer(LoopbackNetwork endpoint) {
+        return endpoints[0] == endpoint ? endpoints[1] : endpoints[0];
+    }
+
+    /**
+     * @param index Index of the end (0 or 1).
+     * @return That end of the link.
+     */
+    public LoopbackNetwork getEndpoint(int index) {
+        return endpoints[index];
+    }
+
+    /**
+     * @return Amount of messages that were sent over this link.
+     */
+    public long getMessages() {
+        return messages.get();
+    }
+
+    /**
+     * @return Amount of bytes that were sent over this link.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return Amount of times a message was lost and had to be sent again.
+     */
+    public long getRetransmissions() {
+        return retransmissions.get();
+    }
+}
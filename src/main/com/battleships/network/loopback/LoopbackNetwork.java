@@ -0,0 +1,134 @@
+package com.battleships.network.loopback;
+
+import com.battleships.network.NetworkInterface;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One end of a {@link LoopbackLink}. Sends messages like a network does, but the messages are only put
+ * into the queue of the other end in the same JVM, no socket is used.
+ *
+ * @author agent
+ */
+public class LoopbackNetwork implements NetworkInterface {
+
+    /**
+     * Link this network is one end of.
+     */
+    private LoopbackLink link;
+    /**
+     * Messages that were sent to this end and haven't been received yet.
+     */
+    private BlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    /**
+     * Time in nanoseconds the last message in the inbox gets delivered at, no message can be delivered earlier.
+     */
+    private long lastDelivery;
+    /**
+     * {@code true} after the end of the connection was received.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new end of a link, only the link creates its ends.
+     *
+     * @param link Link this network is one end of.
+     */
+    LoopbackNetwork(LoopbackLink link) {
+        this.link = link;
+    }
+
+    /**
+     * Sends a message to the other end of the link.
+     *
+     * @param message Message to send.
+     */
+    @Override
+    public void sendMessage(String message) {
+        link.transmit(this, message);
+    }
+
+    /**
+     * Puts a message into the inbox of this end, as if the other end had sent it.
+     * Can be used to play the part of a server, for example to send the {@value com.battleships.network.Protocol#HOST} message.
+     *
+     * @param message Message to receive.
+     */
+    public void deliver(String message) {
+        enqueue(message, System.nanoTime());
+    }
+
+    /**
+     * Waits for the next message, like reading a line from a socket.
+     *
+     * @return The next message, {@code null} if the connection was closed or the thread was interrupted.
+     */
+    public String receive() {
+        if (closed)
+            return null;
+        try {
+            Message message = inbox.take();
+            long wait = message.deliverAt - System.nanoTime();
+            if (wait > 0)
+                TimeUnit.NANOSECONDS.sleep(wait);
+            if (message.text == null)
+                closed = true;
+            return message.text;
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Puts a message into the inbox of this end. Messages are never delivered before the messages sent earlier.
+     *
+     * @param text      Message, {@code null} to close the connection.
+     * @param deliverAt Time in nanoseconds ({@link System#nanoTime()}) the message should be delivered at.
+     */
+    synchronized void enqueue(String text, long deliverAt) {
+        lastDelivery = Math.max(lastDelivery, deliverAt);
+        inbox.add(new Message(text, lastDelivery));
+    }
+
+    /**
+     * Closes the connection on both ends.
+     */
+    @Override
+    public void closeConnection() {
+        link.close();
+    }
+
+    /**
+     * @return Link this network is one end of.
+     */
+    public LoopbackLink getLink() {
+        return link;
+    }
+
+    /**
+     * A message in the inbox together with the time it gets delivered at.
+     */
+    private static class Message {
+        /**
+         * Text of the message, {@code null} if the connection was closed.
+         */
+        private String text;
+        /**
+         * Time in nanoseconds ({@link System#nanoTime()}) the message gets delivered at.
+         */
+        private long deliverAt;
+
+        /**
+         * Creates a new message.
+         *
+         * @param text      Text of the message, {@code null} if the connection was closed.
+         * @param deliverAt Time in nanoseconds the message gets delivered at.
+         */
+        public Message(String text, long deliverAt) {
+            this.text = text;
+            this.deliverAt = deliverAt;
+        }
+    }
+}
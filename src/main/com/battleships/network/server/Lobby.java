@@ -0,0 +1,379 @@
+package com.battleships.network.server;
+
+import com.battleships.network.Protocol;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Matchmaking lobby of a {@link MatchServer}.
+ * <p>
+ * A player connects to the lobby port and sends {@code "join size [rating]"}. Players are paired with a player that
+ * wants to play on the same grid size and has a rating in the same bucket of {@link #BUCKET_WIDTH} points.
+ * Every size and bucket has one slot for a waiting player, that is taken and filled with compare and set operations,
+ * so joins never wait for a lock. For every {@link #WIDEN_AFTER} milliseconds a player waits, he can also be paired
+ * with players one bucket further away, so the waiting time stays bounded if few players are online.
+ * <p>
+ * The time every player waited is recorded in a histogram with power of two buckets, the lobby reports the
+ * percentiles of the waiting times in the metrics of the server.
+ *
+ * @author agent
+ */
+public class Lobby {
+
+    /**
+     * Width of a rating bucket in rating points.
+     */
+    public static final int BUCKET_WIDTH = 200;
+    /**
+     * Rating of players that don't send a rating.
+     */
+    public static final int DEFAULT_RATING = 1000;
+    /**
+     * Time in milliseconds after which a waiting player can also be paired with players one bucket further away.
+     */
+    public static final int WIDEN_AFTER = 2000;
+    /**
+     * Time in milliseconds between two checks of the waiting players.
+     */
+    private static final int SWEEP_INTERVAL = 500;
+    /**
+     * Time in milliseconds a player has to send his join message after connecting.
+     */
+    private static final int JOIN_READ_TIMEOUT = 5000;
+
+    /**
+     * Server the matches are started on.
+     */
+    private MatchServer server;
+    /**
+     * Socket players connect to, to join the lobby.
+     */
+    private ServerSocket serverSocket;
+    /**
+     * Threads that read the join messages.
+     */
+    private ExecutorService readers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Lobby-join");
+        t.setDaemon(true);
+        return t;
+    });
+    /**
+     * Slot for the waiting player of each grid size and rating bucket (key from {@link #key(int, int)}).
+     */
+    private Map<Long, AtomicReference<Waiting>> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Amount of players that have joined the lobby.
+     */
+    private AtomicInteger joins = new AtomicInteger();
+    /**
+     * Amount of players that are currently waiting.
+     */
+    private AtomicInteger waiting = new AtomicInteger();
+    /**
+     * Amount of pairs that were made with other buckets.
+     */
+    private AtomicInteger widenedPairs = new AtomicInteger();
+    /**
+     * Histogram of the waiting times, entry i counts the waiting times below 2^i microseconds.
+     */
+    private AtomicLongArray waitHistogram = new AtomicLongArray(64);
+
+    /**
+     * Create a new lobby.
+     *
+     * @param server Server the matches are started on.
+     */
+    public Lobby(MatchServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starts accepting players on the lobby port.
+     *
+     * @param port Port players connect to, to join the lobby.
+     * @throws IOException If the port couldn't be opened.
+     */
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, MatchServer.BACKLOG);
+        new Thread(this::acceptPlayers, "Lobby-accept").start();
+        server.scheduleAtFixedRate(this::sweep, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Accept players as long as the lobby is running.
+     */
+    private void acceptPlayers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket player = serverSocket.accept();
+                player.setTcpNoDelay(true);
+                server.connected();
+                readers.execute(() -> readJoin(player));
+            } catch (SocketException ignore) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads the join message of a player and puts the player into the queue for his size and rating.
+     * Closes the connection if the message is invalid.
+     *
+     * @param player Socket of the player that joins.
+     */
+    private void readJoin(Socket player) {
+        try {
+            player.setSoTimeout(JOIN_READ_TIMEOUT);
+            String message = MatchServer.readFirstLine(player);
+            player.setSoTimeout(0);
+            if (message != null && message.startsWith(Protocol.JOIN)) {
+                String[] temp = message.substring(Protocol.JOIN.length()).trim().split(" ");
+                int size = Integer.parseInt(temp[0]);
+                int rating = temp.length > 1 ? Integer.parseInt(temp[1]) : DEFAULT_RATING;
+                if (size >= 5 && size <= 30) {
+                    join(new Waiting(player, size, Math.max(0, rating)));
+                    return;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Couldn't join lobby: " + e.getMessage());
+        }
+        server.close(player);
+    }
+
+    /**
+     * Pairs a player with the player waiting in his slot, or lets him wait in the slot if it is empty.
+     *
+     * @param player Player that joins.
+     */
+    private void join(Waiting player) {
+        joins.incrementAndGet();
+        AtomicReference<Waiting> slot = slots.computeIfAbsent(key(player.size, player.rating / BUCKET_WIDTH), k -> new AtomicReference<>());
+        while (true) {
+            Waiting opponent = slot.get();
+            if (opponent == null) {
+                if (slot.compareAndSet(null, player)) {
+                    waiting.incrementAndGet();
+                    return;
+                }
+            } else if (slot.compareAndSet(opponent, null)) {
+                waiting.decrementAndGet();
+                pair(opponent, player);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a match between two players, the player that waited longer hosts the match.
+     *
+     * @param host   Player that has waited.
+     * @param client Player that joined last.
+     */
+    private void pair(Waiting host, Waiting client) {
+        long now = System.nanoTime();
+        recordWait(now - host.since);
+        recordWait(now - client.since);
+        try {
+            server.startMatch(host.socket, client.socket);
+        } catch (IOException e) {
+            System.err.println("Couldn't start match from lobby: " + e.getMessage());
+            server.close(host.socket);
+            server.close(client.socket);
+        }
+    }
+
+    /**
+     * Checks all waiting players. Players whose connection is broken are removed. A player that has waited for
+     * n times {@link #WIDEN_AFTER} milliseconds is paired with a waiting player up to n buckets away, if there is one.
+     * The connection is tested with a {@value Protocol#PING}, the match ignores the pong later.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (AtomicReference<Waiting> slot : slots.values()) {
+            Waiting player = slot.get();
+            if (player == null)
+                continue;
+            player.writer.println(Protocol.PING + now);
+            if (player.writer.checkError()) {
+                if (slot.compareAndSet(player, null)) {
+                    waiting.decrementAndGet();
+                    server.close(player.socket);
+                }
+                continue;
+            }
+            long distance = (now - player.since) / (WIDEN_AFTER * 1000000L);
+            int bucket = player.rating / BUCKET_WIDTH;
+            for (int d = 1; d <= distance && slot.get() == player; d++) {
+                if (pairWithBucket(slot, player, bucket - d) || pairWithBucket(slot, player, bucket + d))
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Tries to pair a waiting player with the player waiting in another bucket.
+     * Both players need to be taken out of their slots, if the second one is gone the first one is put back.
+     *
+     * @param slot   Slot of the waiting player.
+     * @param player The waiting player.
+     * @param bucket Other rating bucket.
+     * @return {@code true} if the player isn't waiting in his slot anymore.
+     */
+    private boolean pairWithBucket(AtomicReference<Waiting> slot, Waiting player, int bucket) {
+        if (bucket < 0)
+            return false;
+        AtomicReference<Waiting> other = slots.get(key(player.size, bucket));
+        Waiting opponent = other == null ? null : other.get();
+        if (opponent == null)
+            return false;
+        if (!slot.compareAndSet(player, null))
+            return true;
+        if (other.compareAndSet(opponent, null)) {
+            waiting.addAndGet(-2);
+            widenedPairs.incrementAndGet();
+            pair(player, opponent);
+            return true;
+        }
+        if (!slot.compareAndSet(null, player)) {
+            //somebody joined the slot in the meantime, the player gets paired with him
+            waiting.decrementAndGet();
+            joins.decrementAndGet();
+            join(player);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the time a player has waited.
+     *
+     * @param nanos Waiting time in nanoseconds.
+     */
+    private void recordWait(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        waitHistogram.incrementAndGet(64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * @param fraction Percentile that is needed (0-1).
+     * @return Upper limit of the waiting time of that percentile in microseconds, 0 if no player has waited yet.
+     */
+    public long getWaitPercentile(double fraction) {
+        long total = 0;
+        long[] counts = new long[waitHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = waitHistogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+        long needed = (long) Math.ceil(fraction * total);
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += counts[i];
+            if (sum >= needed)
+                return 1L << i;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @param size   Size of the grid.
+     * @param bucket Rating bucket.
+     * @return Key of the slot for that size and bucket.
+     */
+    private static long key(int size, int bucket) {
+        return (long) size << 32 | (bucket & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return Amount of players that have joined the lobby.
+     */
+    public int getJoins() {
+        return joins.get();
+    }
+
+    /**
+     * @return Amount of players that are currently waiting.
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return Amount of pairs that were made with other buckets.
+     */
+    public int getWidenedPairs() {
+        return widenedPairs.get();
+    }
+
+    /**
+     * Stops accepting players.
+     */
+    public void stop() {
+        try {
+            if (serverSocket != null)
+                serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        readers.shutdownNow();
+    }
+
+    /**
+     * A player waiting in the lobby.
+     */
+    private static class Waiting {
+        /**
+         * Socket of the player.
+         */
+        private Socket socket;
+        /**
+         * Writer to send messages to the player.
+         */
+        private PrintWriter writer;
+        /**
+         * Size of the grid the player wants to play on.
+         */
+        private int size;
+        /**
+         * Rating of the player.
+         */
+        private int rating;
+        /**
+         * Time the player joined at in nanoseconds.
+         */
+        private long since = System.nanoTime();
+
+        /**
+         * Creates a new waiting player.
+         *
+         * @param socket Socket of the player.
+         * @param size   Size of the grid the player wants to play on.
+         * @param rating Rating of the player.
+         * @throws IOException If the stream of the socket couldn't be opened.
+         */
+        public Waiting(Socket socket, int size, int rating) throws IOException {
+            this.socket = socket;
+            this.size = size;
+            this.rating = rating;
+            writer = new PrintWriter(socket.getOutputStream(), true);
+        }
+    }
+}
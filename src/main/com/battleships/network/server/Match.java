@@ -0,0 +1,652 @@
+package com.battleships.network.server;
+
+import com.battleships.logic.FleetBoard;
+import com.battleships.logic.MatchSnapshot;
+import com.battleships.logic.ShipAmountLoader;
+import com.battleships.network.ConnectionQuality;
+import com.battleships.network.Protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One match between two players on a {@link MatchServer}.
+ * Forwards all messages between the players and writes them into a journal, so a player that lost the connection
+ * can resume the match with a {@link MatchSnapshot} and the messages he missed.
+ * <p>
+ * Each player gets a session token at the start of the match. If a player disconnects during the match,
+ * the match is kept for {@link #RESUME_TIMEOUT} seconds, so the player can reconnect with his token.
+ * <p>
+ * Every shot is also published to the spectators of the match through the {@link SpectatorHub} of the server.
+ * <p>
+ * The server answers the pings of the players itself and pings them with {@link #heartbeat()}, a player that hasn't
+ * sent anything for {@value Protocol#IDLE_TIMEOUT} milliseconds gets disconnected, so he can resume the match.
+ * <p>
+ * If the match is authoritative, both players send their fleet before confirming the ship placement.
+ * The match then resolves every shot on the {@link FleetBoard} of the target, drops shots that aren't allowed and
+ * replaces the answer of the target with its own result, so a player can't lie about his ships.
+ * A player that sends an invalid fleet or confirms without a fleet ends the match, shots are only forwarded once
+ * the target has a valid fleet. Saved games can't be loaded, the match doesn't know their fleets.
+ *
+ * @author agent
+ */
+public class Match {
+
+    /**
+     * Constants for the two players of a match.
+     */
+    public static final int HOST = 0, CLIENT = 1;
+    /**
+     * Time in seconds a player has to resume the match after losing the connection.
+     */
+    public static final int RESUME_TIMEOUT = 30;
+    /**
+     * Generator for the session tokens.
+     */
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Server this match runs on.
+     */
+    private MatchServer server;
+    /**
+     * ID of this match on the server, spectators use it to select the match.
+     */
+    private int id;
+    /**
+     * Sockets of the players, an entry is {@code null} while that player is disconnected.
+     */
+    private Socket[] players = new Socket[2];
+    /**
+     * Writers to send messages to the players.
+     */
+    private PrintWriter[] writers = new PrintWriter[2];
+    /**
+     * Session tokens of the players.
+     */
+    private String[] tokens = new String[2];
+    /**
+     * Tasks that end the match if a player doesn't resume in time.
+     */
+    private ScheduledFuture<?>[] timeouts = new ScheduledFuture<?>[2];
+    /**
+     * Quality of the connections to the players.
+     */
+    private ConnectionQuality[] qualities = {new ConnectionQuality(), new ConnectionQuality()};
+
+    /**
+     * All game messages that were sent during this match.
+     */
+    private List<String> journal = new ArrayList<>();
+    /**
+     * Bit is set if the message at that index in the journal was sent by the client.
+     */
+    private BitSet sentByClient = new BitSet();
+    /**
+     * Amount of messages in the journal sent by each player.
+     */
+    private int[] sentMessages = new int[2];
+    /**
+     * Amount of ships each player has placed, 0 while the size of the grid is unknown.
+     */
+    private int ships;
+    /**
+     * Amount of ships of each player that have been sunk.
+     */
+    private int[] shipsSunk = new int[2];
+    /**
+     * {@code true} for a player that has left the match after it was over.
+     */
+    private boolean[] left = new boolean[2];
+    /**
+     * Index of the last shot that was sent (1-size).
+     */
+    private int lastShotX, lastShotY;
+    /**
+     * Amount of shots that have been answered.
+     */
+    private int shots;
+    /**
+     * Time this match was created at in nanoseconds, pings that were sent before (by the lobby) aren't measured.
+     */
+    private long created = System.nanoTime();
+    /**
+     * {@code true} if this match resolves the shots itself.
+     */
+    private boolean authoritative;
+    /**
+     * Fleets the players have sent, an entry is {@code null} while that player hasn't sent a fleet.
+     */
+    private FleetBoard[] fleets = new FleetBoard[2];
+    /**
+     * Size of the grids, 0 while it is unknown.
+     */
+    private int size;
+    /**
+     * Player whose turn it is, the client shoots first.
+     */
+    private int shooter = CLIENT;
+    /**
+     * Result of the last shot as resolved by this match, -1 if the shot wasn't resolved by this match.
+     */
+    private int pendingResult = -1;
+
+    /**
+     * {@code false} if the match can't be resumed (after a saved game was loaded the journal doesn't
+     * contain the whole match).
+     */
+    private boolean resumable = true;
+    /**
+     * {@code true} if the match has ended.
+     */
+    private boolean ended;
+
+    /**
+     * Create a new match between two players.
+     *
+     * @param server Server this match runs on.
+     * @param id     ID of this match on the server.
+     * @param host   Player that hosts the match.
+     * @param client Player that joins the match.
+     * @param authoritative {@code true} if the match should resolve the shots itself.
+     */
+    public Match(MatchServer server, int id, Socket host, Socket client, boolean authoritative) {
+        this.server = server;
+        this.authoritative = authoritative;
+        this.id = id;
+        players[HOST] = host;
+        players[CLIENT] = client;
+    }
+
+    /**
+     * Starts the match by sending the session tokens to the players and forwarding their messages.
+     *
+     * @throws IOException If the streams of the players couldn't be opened.
+     */
+    public synchronized void start() throws IOException {
+        for (int player = HOST; player <= CLIENT; player++) {
+            writers[player] = new PrintWriter(players[player].getOutputStream(), true);
+            tokens[player] = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+            server.registerSession(tokens[player], this);
+        }
+        writers[HOST].println(Protocol.HOST);
+        for (int player = HOST; player <= CLIENT; player++) {
+            writers[player].println(Protocol.SESSION + tokens[player]);
+            if (authoritative)
+                writers[player].println(Protocol.AUTHORITATIVE);
+            startReading(player, players[player]);
+        }
+    }
+
+    /**
+     * Starts a thread that reads the messages of a player.
+     *
+     * @param player Player the messages are read from.
+     * @param socket Socket of that player.
+     */
+    private void startReading(int player, Socket socket) {
+        new Thread(() -> read(player, socket)).start();
+    }
+
+    /**
+     * Reads all messages of a player, until the connection of the player is closed.
+     *
+     * @param player Player the messages are read from.
+     * @param socket Socket of that player.
+     */
+    private void read(int player, Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            String message;
+            while ((message = in.readLine()) != null) {
+                receive(player, socket, message);
+            }
+        } catch (IOException ignore) {
+            //connection was closed
+        } finally {
+            //also if processing a message failed, else the match and the sockets would never be released
+            disconnected(player, socket);
+        }
+    }
+
+    /**
+     * Processes a message of a player and forwards it to the opponent.
+     *
+     * Messages from an old connection of a player that has already resumed are ignored, the snapshot
+     * the player got doesn't contain them, so the player sends them again.
+     *
+     * @param player  Player that sent the message.
+     * @param socket  Socket the message was received on.
+     * @param message Message that was sent.
+     */
+    private synchronized void receive(int player, Socket socket, String message) {
+        if (players[player] != socket)
+            return;
+        qualities[player].received();
+        if (processHeartbeat(player, message))
+            return;
+        String text = message.toLowerCase();
+        if (text.startsWith(Protocol.FLEET)) {
+            receiveFleet(player, text.substring(Protocol.FLEET.length()));
+            return;
+        }
+        if (Protocol.isGameMessage(text) && !isValid(text)) {
+            server.rejectedMessage();
+            return;
+        }
+        if (authoritative) {
+            text = resolve(player, text);
+            if (text == null)
+                return;
+            message = text;
+        }
+        if (Protocol.isGameMessage(text)) {
+            if (player == CLIENT)
+                sentByClient.set(journal.size());
+            journal.add(text);
+            sentMessages[player]++;
+            if (text.startsWith(Protocol.SIZE)) {
+                size = Integer.parseInt(text.substring(Protocol.SIZE.length()).trim());
+                //a later size message replaces the grid, so the amount of ships is counted again
+                int[] amounts = ShipAmountLoader.getShipAmounts(size);
+                ships = 0;
+                for (int i = 0; amounts != null && i < amounts.length; i++) {
+                    ships += amounts[i];
+                }
+                server.getSpectatorHub().publishSnapshot(this);
+            } else if (text.startsWith(Protocol.SHOOT)) {
+                String[] temp = text.substring(Protocol.SHOOT.length()).split(" ");
+                lastShotX = Integer.parseInt(temp[1]) + 1;
+                lastShotY = Integer.parseInt(temp[0]) + 1;
+            } else if (text.startsWith(Protocol.ANSWER)) {
+                int answer = Integer.parseInt(text.substring(Protocol.ANSWER.length()).trim());
+                if (answer == Protocol.SUNK)
+                    shipsSunk[player]++;
+                if (answer == Protocol.WATER)
+                    shooter = player;
+                shots++;
+                server.getSpectatorHub().publish(this, Protocol.EVENT + shots + " " + (1 - player) + " " + lastShotX + " " + lastShotY + " " + answer);
+            } else if (text.startsWith(Protocol.LOAD)) {
+                resumable = false;
+            }
+        }
+        if (writers[1 - player] != null)
+            writers[1 - player].println(message);
+    }
+
+    /**
+     * Tests if the numbers in a game message can be read, messages with missing or invalid numbers are dropped.
+     *
+     * @param text Message that was sent (lower case).
+     * @return {@code true} if the message is valid.
+     */
+    private boolean isValid(String text) {
+        try {
+            if (text.startsWith(Protocol.SIZE))
+                return ShipAmountLoader.getShipAmounts(Integer.parseInt(text.substring(Protocol.SIZE.length()).trim())) != null;
+            if (text.startsWith(Protocol.SHOOT)) {
+                String[] temp = text.substring(Protocol.SHOOT.length()).split(" ");
+                return temp.length == 2 && isIndex(Integer.parseInt(temp[0])) && isIndex(Integer.parseInt(temp[1]));
+            }
+            if (text.startsWith(Protocol.ANSWER)) {
+                int answer = Integer.parseInt(text.substring(Protocol.ANSWER.length()).trim());
+                return answer >= Protocol.WATER && answer <= Protocol.SUNK;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param index Index of a cell in a shot (0-(size-1)).
+     * @return {@code true} if the index is on the grid, if the size isn't known only negative indices are invalid.
+     */
+    private boolean isIndex(int index) {
+        return index >= 0 && (size == 0 || index < size);
+    }
+
+    /**
+     * Saves the fleet of a player, if it follows the rules. The fleet can be replaced until the first shot on it.
+     * Ends the match if the fleet doesn't follow the rules or was sent before the size of the grid.
+     *
+     * @param player Player that sent the fleet.
+     * @param fleet  The encoded fleet.
+     */
+    private void receiveFleet(int player, String fleet) {
+        if (!authoritative || fleets[player] != null && fleets[player].hasBeenShot())
+            return;
+        FleetBoard board = size == 0 ? null : FleetBoard.decode(size, fleet);
+        if (board == null) {
+            //the player can't be trusted anymore, so the match can't go on
+            server.rejectedFleet();
+            end();
+            return;
+        }
+        fleets[player] = board;
+    }
+
+    /**
+     * Resolves shots on the fleet of the target and replaces the answers of the target with the results.
+     * Shots on a target that hasn't sent a valid fleet yet are dropped. Ends the match if a player confirms
+     * the ship placement without a valid fleet or wants to load a saved game.
+     *
+     * @param player Player that sent the message.
+     * @param text   Message that was sent (lower case).
+     * @return The message that should be forwarded, {@code null} if the message isn't allowed.
+     */
+    private String resolve(int player, String text) {
+        if (text.trim().equals(Protocol.CONFIRMED) && fleets[player] == null) {
+            server.rejectedFleet();
+            end();
+            return null;
+        }
+        if (text.startsWith(Protocol.LOAD)) {
+            end();
+            return null;
+        }
+        if (text.startsWith(Protocol.SHOOT)) {
+            FleetBoard target = fleets[1 - player];
+            pendingResult = -1;
+            int result = FleetBoard.INVALID;
+            try {
+                String[] temp = text.substring(Protocol.SHOOT.length()).split(" ");
+                if (player == shooter && target != null)
+                    result = target.shoot(Integer.parseInt(temp[1]) + 1, Integer.parseInt(temp[0]) + 1);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignore) {
+                //result stays invalid
+            }
+            if (result == FleetBoard.INVALID) {
+                server.rejectedShot();
+                return null;
+            }
+            pendingResult = result;
+        } else if (text.startsWith(Protocol.ANSWER) && pendingResult >= 0) {
+            String result = Protocol.ANSWER + pendingResult;
+            pendingResult = -1;
+            if (!text.trim().equals(result)) {
+                server.correctedAnswer();
+                return result;
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Answers a ping of a player or measures the round trip time with a pong.
+     *
+     * @param player  Player that sent the message.
+     * @param message Message that was sent.
+     * @return {@code true} if the message was a heartbeat message, these aren't forwarded to the opponent.
+     */
+    private boolean processHeartbeat(int player, String message) {
+        try {
+            if (message.startsWith(Protocol.PING)) {
+                writers[player].println(Protocol.PONG + message.substring(Protocol.PING.length()));
+                return true;
+            }
+            if (message.startsWith(Protocol.PONG)) {
+                long sentAt = Long.parseLong(message.substring(Protocol.PONG.length()).trim());
+                if (sentAt - created >= 0)
+                    qualities[player].addSample(sentAt);
+                return true;
+            }
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sends a ping to every connected player and disconnects players that haven't sent anything
+     * for {@value Protocol#IDLE_TIMEOUT} milliseconds. Called by the server every {@value Protocol#HEARTBEAT_INTERVAL} milliseconds.
+     *
+     * @return Amount of players that were disconnected.
+     */
+    public synchronized int heartbeat() {
+        int timedOut = 0;
+        for (int player = HOST; player <= CLIENT; player++) {
+            if (players[player] == null)
+                continue;
+            if (qualities[player].isIdle(Protocol.IDLE_TIMEOUT)) {
+                //closing the socket ends the reader, the player then has time to resume
+                server.close(players[player]);
+                timedOut++;
+            } else {
+                qualities[player].pingSent();
+                writers[player].println(Protocol.PING + System.nanoTime());
+            }
+        }
+        return timedOut;
+    }
+
+    /**
+     * Called if the connection of a player was closed.
+     * Ends the match if it is over or can't be resumed, else the player has {@link #RESUME_TIMEOUT} seconds to resume.
+     *
+     * @param player Player that disconnected.
+     * @param socket Socket of the connection that was closed.
+     */
+    private synchronized void disconnected(int player, Socket socket) {
+        server.close(socket);
+        if (players[player] != socket)
+            return;
+        players[player] = null;
+        writers[player] = null;
+        if (ended)
+            return;
+        //if the opponent is disconnected he may still need to resume to receive the end of the match
+        if (!resumable || isOver() && (players[1 - player] != null || left[1 - player])) {
+            end();
+            return;
+        }
+        left[player] = isOver();
+        if (!left[player])
+            timeouts[player] = server.schedule(() -> timeout(player), RESUME_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ends the match if the player hasn't resumed in time.
+     *
+     * @param player Player that disconnected.
+     */
+    private synchronized void timeout(int player) {
+        if (players[player] == null)
+            end();
+    }
+
+    /**
+     * Resumes the match for a player that has reconnected.
+     * Sends a snapshot of the match and all messages the player missed.
+     *
+     * @param player   Player that reconnected.
+     * @param socket   New socket of that player.
+     * @param received Amount of messages the player has received from the opponent before losing the connection.
+     * @throws IOException If the streams of the new socket couldn't be opened.
+     */
+    public synchronized void resume(int player, Socket socket, int received) throws IOException {
+        if (ended) {
+            server.close(socket);
+            return;
+        }
+        if (players[player] != null)
+            server.close(players[player]);
+        if (timeouts[player] != null)
+            timeouts[player].cancel(false);
+        players[player] = socket;
+        writers[player] = new PrintWriter(socket.getOutputStream(), true);
+        qualities[player].received();
+
+        //the snapshot contains everything until the last message the player has seen (sent or received)
+        int end = 0;
+        int opponentMessages = 0;
+        for (int i = 0; i < journal.size(); i++) {
+            if (isSentBy(i, player)) {
+                end = i + 1;
+            } else if (opponentMessages < received) {
+                opponentMessages++;
+                end = i + 1;
+            }
+        }
+        writers[player].println(Protocol.SNAPSHOT + createSnapshot(player, end).encodeToString());
+        for (int i = end; i < journal.size(); i++) {
+            writers[player].println(journal.get(i));
+        }
+        server.resumed();
+        startReading(player, socket);
+    }
+
+    /**
+     * Creates a snapshot of the match by replaying the journal.
+     *
+     * @param player Player the snapshot is created for.
+     * @param end    Amount of messages from the journal that are included in the snapshot.
+     * @return The created snapshot.
+     */
+    private MatchSnapshot createSnapshot(int player, int end) {
+        MatchSnapshot snapshot = null;
+        int confirms = 0;
+        //the client shoots first
+        int shooter = CLIENT;
+        int shotX = 0, shotY = 0;
+        boolean shotPending = false;
+        for (int i = 0; i < end; i++) {
+            String message = journal.get(i);
+            boolean own = isSentBy(i, player);
+            if (message.startsWith(Protocol.SIZE)) {
+                snapshot = new MatchSnapshot(Integer.parseInt(message.substring(Protocol.SIZE.length()).trim()));
+            } else if (message.equals(Protocol.CONFIRMED)) {
+                confirms++;
+            } else if (message.startsWith(Protocol.SHOOT) && snapshot != null) {
+                String[] temp = message.substring(Protocol.SHOOT.length()).split(" ");
+                shotX = Integer.parseInt(temp[1]) + 1;
+                shotY = Integer.parseInt(temp[0]) + 1;
+                shotPending = true;
+                //shots on the own grid are known without the answer, the player knows his own ships
+                if (!own)
+                    snapshot.addShot(MatchSnapshot.OWN, shotX, shotY, Protocol.WATER);
+            } else if (message.startsWith(Protocol.ANSWER) && snapshot != null) {
+                int answer = Integer.parseInt(message.substring(Protocol.ANSWER.length()).trim());
+                snapshot.addShot(own ? MatchSnapshot.OWN : MatchSnapshot.OPPONENT, shotX, shotY, answer);
+                shotPending = false;
+                if (answer == Protocol.WATER)
+                    shooter = isSentBy(i, HOST) ? HOST : CLIENT;
+            }
+        }
+        if (snapshot == null)
+            snapshot = new MatchSnapshot(0);
+        snapshot.setSequence(sentMessages(player, end));
+        snapshot.setHost(player == HOST);
+        snapshot.setShooting(confirms >= 2);
+        snapshot.setMyTurn(shooter == player);
+        if (shotPending && shooter == player)
+            snapshot.setPendingShot(shotX, shotY);
+        return snapshot;
+    }
+
+    /**
+     * Creates a snapshot for spectators, it contains the whole match from the view of the host.
+     * The sequence of the snapshot is the amount of shots included, so spectators can ignore events they already know.
+     *
+     * @return The created snapshot.
+     */
+    public synchronized MatchSnapshot createSpectatorSnapshot() {
+        MatchSnapshot snapshot = createSnapshot(HOST, journal.size());
+        snapshot.setSequence(shots);
+        return snapshot;
+    }
+
+    /**
+     * @param player Player whose messages should be counted.
+     * @param end    Amount of messages from the journal that should be searched.
+     * @return Amount of messages the player has sent in that part of the journal.
+     */
+    private int sentMessages(int player, int end) {
+        int count = sentByClient.get(0, end).cardinality();
+        return player == CLIENT ? count : end - count;
+    }
+
+    /**
+     * @param index  Index of a message in the journal.
+     * @param player Player to test.
+     * @return {@code true} if the message was sent by that player.
+     */
+    private boolean isSentBy(int index, int player) {
+        return sentByClient.get(index) == (player == CLIENT);
+    }
+
+    /**
+     * @return {@code true} if all ships of one player have been sunk.
+     */
+    private boolean isOver() {
+        return ships > 0 && (shipsSunk[HOST] == ships || shipsSunk[CLIENT] == ships);
+    }
+
+    /**
+     * Ends the match and closes the connections of both players.
+     */
+    private void end() {
+        if (ended)
+            return;
+        ended = true;
+        for (int player = HOST; player <= CLIENT; player++) {
+            server.removeSession(tokens[player]);
+            if (timeouts[player] != null)
+                timeouts[player].cancel(false);
+            if (players[player] != null)
+                server.close(players[player]);
+        }
+        server.matchEnded(this);
+    }
+
+    /**
+     * @return ID of this match on the server.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param player Player whose connection is requested ({@link #HOST} or {@link #CLIENT}).
+     * @return Quality of the connection to that player.
+     */
+    public ConnectionQuality getConnectionQuality(int player) {
+        return qualities[player];
+    }
+
+    /**
+     * @param player Player to test ({@link #HOST} or {@link #CLIENT}).
+     * @return {@code true} if the player is currently connected.
+     */
+    public synchronized boolean isConnected(int player) {
+        return players[player] != null;
+    }
+
+    /**
+     * @return {@code true} if the match has ended.
+     */
+    public synchronized boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * @param token Session token of a player.
+     * @return The player with that token ({@link #HOST} or {@link #CLIENT}), -1 if no player in this match has that token.
+     */
+    public int getPlayer(String token) {
+        if (token.equals(tokens[HOST]))
+            return HOST;
+        if (token.equals(tokens[CLIENT]))
+            return CLIENT;
+        return -1;
+    }
+}
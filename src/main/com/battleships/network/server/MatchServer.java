@@ -0,0 +1,573 @@
+package com.battleships.network.server;
+
+import com.battleships.network.ConnectionQuality;
+import com.battleships.network.Protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated server that doesn't play itself, but connects two players with each other.
+ * Players are paired in the order they connect. The first player of a pair gets a {@value Protocol#HOST}
+ * message and then needs to send the size of the grid, after that all messages are forwarded to the other player.
+ * A player that left while waiting for an opponent is replaced by the next player that connects.
+ * <p>
+ * Players that lost the connection during a match can resume it on a third port ({@link Protocol#RESUME_PORT})
+ * with the session token they got at the start of the match (see {@link Match}).
+ * Spectators can watch the matches on a fourth port ({@link Protocol#SPECTATOR_PORT}, see {@link SpectatorHub}).
+ * Players that want an opponent with the same grid size and a similar rating connect to a fifth port
+ * ({@link Protocol#LOBBY_PORT}, see {@link Lobby}).
+ * <p>
+ * An authoritative server resolves all shots itself with the fleets the players commit at the start of a match,
+ * so players can't lie about hits (see {@link Match}).
+ * <p>
+ * On a second port ({@link #METRICS_PORT}) the server answers every connection with one line of metrics
+ * ({@code key=value} pairs) and then closes the connection. The metrics include the round trip times to the players,
+ * that are measured by the heartbeat every match sends (see {@link Match#heartbeat()}).
+ *
+ * @author agent
+ */
+public class MatchServer {
+
+    /**
+     * Port on which the server sends its metrics.
+     */
+    public static final int METRICS_PORT = Protocol.PORT + 1;
+    /**
+     * Maximum amount of connections that can wait to be accepted.
+     */
+    static final int BACKLOG = 4096;
+    /**
+     * Maximum length of the first message of a connection (join or resume message).
+     */
+    static final int MAX_FIRST_LINE = 256;
+    /**
+     * Time in milliseconds a player has to send his resume message after connecting to the resume port.
+     */
+    private static final int RESUME_READ_TIMEOUT = 5000;
+    /**
+     * Time in milliseconds the server waits for data, when it tests if a waiting player is still connected.
+     */
+    private static final int PROBE_TIMEOUT = 1;
+
+    /**
+     * Socket players connect to.
+     */
+    private ServerSocket serverSocket;
+    /**
+     * Socket metrics can be requested from.
+     */
+    private ServerSocket metricsSocket;
+    /**
+     * Socket players connect to, to resume a match.
+     */
+    private ServerSocket resumeSocket;
+    /**
+     * Player that is waiting for an opponent, {@code null} if no player is waiting.
+     */
+    private Socket waitingPlayer;
+    /**
+     * Matches that are currently running, mapped by the session tokens of their players.
+     */
+    private Map<String, Match> sessions = new ConcurrentHashMap<>();
+    /**
+     * Matches that are currently running, mapped by their IDs.
+     */
+    private Map<Integer, Match> matches = new ConcurrentHashMap<>();
+    /**
+     * Match that was started last, {@code null} if it has ended.
+     */
+    private volatile Match latestMatch;
+    /**
+     * Hub that streams the matches to spectators.
+     */
+    private SpectatorHub spectatorHub = new SpectatorHub(this);
+    /**
+     * Lobby that pairs players by grid size and rating.
+     */
+    private Lobby lobby = new Lobby(this);
+    /**
+     * Executor that ends matches if a player doesn't resume in time and sends the heartbeats.
+     */
+    private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MatchServer-timeouts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Amount of players that are currently connected.
+     */
+    private AtomicInteger connections = new AtomicInteger();
+    /**
+     * Amount of matches that have been started since the server was started.
+     */
+    private AtomicInteger matchesStarted = new AtomicInteger();
+    /**
+     * Amount of matches that have ended since the server was started.
+     */
+    private AtomicInteger matchesFinished = new AtomicInteger();
+    /**
+     * Amount of matches that have been resumed by a player since the server was started.
+     */
+    private AtomicInteger resumes = new AtomicInteger();
+    /**
+     * Amount of shots that were dropped by authoritative matches, because they weren't allowed.
+     */
+    private AtomicInteger rejectedShots = new AtomicInteger();
+    /**
+     * Amount of answers authoritative matches had to replace, because they didn't match the fleet of the player.
+     */
+    private AtomicInteger correctedAnswers = new AtomicInteger();
+    /**
+     * Amount of fleets that were rejected, because they didn't follow the rules.
+     */
+    private AtomicInteger rejectedFleets = new AtomicInteger();
+    /**
+     * Amount of messages that were dropped by matches, because their numbers couldn't be read.
+     */
+    private AtomicInteger rejectedMessages = new AtomicInteger();
+    /**
+     * {@code true} if the matches resolve the shots themselves.
+     */
+    private boolean authoritative;
+    /**
+     * Amount of connections that were closed, because nothing was received on them for {@value Protocol#IDLE_TIMEOUT} milliseconds.
+     */
+    private AtomicInteger idleTimeouts = new AtomicInteger();
+    /**
+     * Time the server was started at in milliseconds.
+     */
+    private long startTime;
+
+    /**
+     * Starts the server on the specified ports.
+     *
+     * @param port        Port players connect to.
+     * @param metricsPort Port metrics can be requested from.
+     * @param resumePort    Port players connect to, to resume a match.
+     * @param spectatorPort Port spectators connect to.
+     * @param lobbyPort     Port players connect to, to be paired by the lobby.
+     * @throws IOException If one of the ports couldn't be opened.
+     */
+    public void start(int port, int metricsPort, int resumePort, int spectatorPort, int lobbyPort) throws IOException {
+        startTime = System.currentTimeMillis();
+        serverSocket = new ServerSocket(port, BACKLOG);
+        metricsSocket = new ServerSocket(metricsPort);
+        resumeSocket = new ServerSocket(resumePort, BACKLOG);
+        new Thread(this::acceptPlayers, "MatchServer-accept").start();
+        new Thread(this::answerMetrics, "MatchServer-metrics").start();
+        new Thread(this::acceptResumes, "MatchServer-resume").start();
+        spectatorHub.start(spectatorPort);
+        lobby.start(lobbyPort);
+        scheduleAtFixedRate(this::heartbeat, Protocol.HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+        System.out.println((authoritative ? "Authoritative match" : "Match") + " server started on port " + port + " (metrics on port " + metricsPort +
+                ", resume on port " + resumePort + ", spectators on port " + spectatorPort + ", lobby on port " + lobbyPort + ")");
+    }
+
+    /**
+     * Accept players and pair them as long as the server is running.
+     */
+    private void acceptPlayers() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket player = serverSocket.accept();
+                player.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                if (waitingPlayer == null || !isWaiting(waitingPlayer)) {
+                    waitingPlayer = player;
+                } else {
+                    startMatch(waitingPlayer, player);
+                    waitingPlayer = null;
+                }
+            } catch (SocketException ignore) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Tests if the player that waits for an opponent is still connected, before a match is started with him.
+     * A waiting player doesn't send anything, so the connection is closed if the end of the stream was reached
+     * or anything was sent.
+     *
+     * @param player Socket of the waiting player.
+     * @return {@code true} if the player is still waiting, {@code false} if the connection was closed.
+     */
+    private boolean isWaiting(Socket player) {
+        if (player.isClosed())
+            return false;
+        try {
+            player.setSoTimeout(PROBE_TIMEOUT);
+            player.getInputStream().read();
+        } catch (SocketTimeoutException e) {
+            //nothing was received, so the player is still waiting
+            try {
+                player.setSoTimeout(0);
+                return true;
+            } catch (SocketException ignore) {
+                //connection was closed
+            }
+        } catch (IOException ignore) {
+            //connection was closed
+        }
+        close(player);
+        return false;
+    }
+
+    /**
+     * Starts a match between two players.
+     *
+     * @param host   Player that hosts the match.
+     * @param client Player that joins the match.
+     * @throws IOException If the streams of the players couldn't be opened.
+     */
+    void startMatch(Socket host, Socket client) throws IOException {
+        Match match = new Match(this, matchesStarted.incrementAndGet(), host, client, authoritative);
+        matches.put(match.getId(), match);
+        latestMatch = match;
+        match.start();
+    }
+
+    /**
+     * Called by the lobby after a player has connected.
+     */
+    void connected() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * Accept players that want to resume a match as long as the server is running.
+     */
+    private void acceptResumes() {
+        while (!resumeSocket.isClosed()) {
+            try {
+                Socket player = resumeSocket.accept();
+                player.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                new Thread(() -> resume(player)).start();
+            } catch (SocketException ignore) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads the resume message of a player and resumes the match of that player.
+     * Closes the connection if the message is invalid or the match doesn't exist anymore.
+     *
+     * @param player Socket of the player that wants to resume a match.
+     */
+    private void resume(Socket player) {
+        try {
+            player.setSoTimeout(RESUME_READ_TIMEOUT);
+            String message = readFirstLine(player);
+            player.setSoTimeout(0);
+            if (message != null && message.startsWith(Protocol.RESUME)) {
+                String[] temp = message.substring(Protocol.RESUME.length()).split(" ");
+                Match match = sessions.get(temp[0]);
+                if (match != null && temp.length > 1) {
+                    match.resume(match.getPlayer(temp[0]), player, Integer.parseInt(temp[1]));
+                    return;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Couldn't resume match: " + e.getMessage());
+        }
+        close(player);
+    }
+
+    /**
+     * Reads the first message of a connection byte by byte, so nothing after its line break is taken from the stream.
+     * A buffered reader would read ahead and the messages it buffered would be lost for the reader of the match.
+     *
+     * @param player Socket of the player.
+     * @return The message without the line break, {@code null} if the connection was closed before the line ended
+     * or the line is longer than {@value #MAX_FIRST_LINE} characters.
+     * @throws IOException If the message couldn't be read.
+     */
+    static String readFirstLine(Socket player) throws IOException {
+        InputStream in = player.getInputStream();
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                if (line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+                    line.setLength(line.length() - 1);
+                return line.toString();
+            }
+            if (line.length() == MAX_FIRST_LINE)
+                return null;
+            line.append((char) c);
+        }
+        return null;
+    }
+
+    /**
+     * Executes a task repeatedly.
+     *
+     * @param task  Task to execute.
+     * @param delay Delay after which the task is executed the first time and between the executions.
+     * @param unit  Unit of the delay.
+     */
+    void scheduleAtFixedRate(Runnable task, long delay, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(task, delay, delay, unit);
+    }
+
+    /**
+     * Sends the heartbeat of all running matches.
+     */
+    private void heartbeat() {
+        for (Match match : matches.values()) {
+            idleTimeouts.addAndGet(match.heartbeat());
+        }
+    }
+
+    /**
+     * Saves the session token of a player, so the player can resume the match with it.
+     *
+     * @param token Session token of the player.
+     * @param match Match the player plays in.
+     */
+    void registerSession(String token, Match match) {
+        sessions.put(token, match);
+    }
+
+    /**
+     * Removes a session token after the match has ended.
+     *
+     * @param token Session token of a player.
+     */
+    void removeSession(String token) {
+        sessions.remove(token);
+    }
+
+    /**
+     * Executes a task after a delay.
+     *
+     * @param task  Task to execute.
+     * @param delay Delay after which the task should be executed.
+     * @param unit  Unit of the delay.
+     * @return Future that can be used to cancel the task.
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduler.schedule(task, delay, unit);
+    }
+
+    /**
+     * Called by a match after it has ended.
+     *
+     * @param match Match that has ended.
+     */
+    void matchEnded(Match match) {
+        matches.remove(match.getId());
+        if (latestMatch == match)
+            latestMatch = null;
+        spectatorHub.matchEnded(match);
+        matchesFinished.incrementAndGet();
+    }
+
+    /**
+     * @param id ID of a match.
+     * @return The running match with that ID, {@code null} if there is no such match.
+     */
+    public Match getMatch(int id) {
+        return matches.get(id);
+    }
+
+    /**
+     * @return The match that was started last, {@code null} if it has ended.
+     */
+    public Match getLatestMatch() {
+        return latestMatch;
+    }
+
+    /**
+     * @return Hub that streams the matches to spectators.
+     */
+    public SpectatorHub getSpectatorHub() {
+        return spectatorHub;
+    }
+
+    /**
+     * Called by an authoritative match if it dropped a shot.
+     */
+    void rejectedShot() {
+        rejectedShots.incrementAndGet();
+    }
+
+    /**
+     * Called by an authoritative match if it replaced the answer of a player.
+     */
+    void correctedAnswer() {
+        correctedAnswers.incrementAndGet();
+    }
+
+    /**
+     * Called by a match if it dropped a message, because its numbers couldn't be read.
+     */
+    void rejectedMessage() {
+        rejectedMessages.incrementAndGet();
+    }
+
+    /**
+     * Called by an authoritative match if it rejected a fleet.
+     */
+    void rejectedFleet() {
+        rejectedFleets.incrementAndGet();
+    }
+
+    /**
+     * @param authoritative {@code true} if the matches should resolve the shots themselves, needs to be set before the server is started.
+     */
+    public void setAuthoritative(boolean authoritative) {
+        this.authoritative = authoritative;
+    }
+
+    /**
+     * Called by a match after a player has resumed it.
+     */
+    void resumed() {
+        resumes.incrementAndGet();
+    }
+
+    /**
+     * Answers every connection to the metrics port with the current metrics.
+     */
+    private void answerMetrics() {
+        while (!metricsSocket.isClosed()) {
+            try (Socket s = metricsSocket.accept()) {
+                new PrintWriter(s.getOutputStream(), true).println(getMetrics());
+            } catch (SocketException ignore) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return One line containing all metrics of this server as {@code key=value} pairs.
+     * Round trip times and jitter are in microseconds, averaged over all connected players.
+     */
+    public String getMetrics() {
+        long rtt = 0, maxRtt = 0, jitter = 0;
+        int measured = 0;
+        for (Match match : matches.values()) {
+            for (int player = Match.HOST; player <= Match.CLIENT; player++) {
+                ConnectionQuality quality = match.getConnectionQuality(player);
+                if (!match.isConnected(player) || quality.getSamples() == 0)
+                    continue;
+                rtt += quality.getRtt() * 1000;
+                maxRtt = Math.max(maxRtt, (long) (quality.getMaxRtt() * 1000));
+                jitter += quality.getJitter() * 1000;
+                measured++;
+            }
+        }
+        return "connections=" + connections.get() +
+                " matchesStarted=" + matchesStarted.get() +
+                " matchesFinished=" + matchesFinished.get() +
+                " sessions=" + sessions.size() +
+                " resumes=" + resumes.get() +
+                " spectators=" + spectatorHub.getSpectatorCount() +
+                " spectatorLines=" + spectatorHub.getLinesSent() +
+                " spectatorSkips=" + spectatorHub.getSkips() +
+                " rttMicros=" + (measured == 0 ? 0 : rtt / measured) +
+                " rttMaxMicros=" + maxRtt +
+                " jitterMicros=" + (measured == 0 ? 0 : jitter / measured) +
+                " idleTimeouts=" + idleTimeouts.get() +
+                " rejectedShots=" + rejectedShots.get() +
+                " correctedAnswers=" + correctedAnswers.get() +
+                " rejectedFleets=" + rejectedFleets.get() +
+                " rejectedMessages=" + rejectedMessages.get() +
+                " lobbyJoins=" + lobby.getJoins() +
+                " lobbyWaiting=" + lobby.getWaiting() +
+                " lobbyWidenedPairs=" + lobby.getWidenedPairs() +
+                " lobbyWaitP50Micros=" + lobby.getWaitPercentile(0.5) +
+                " lobbyWaitP90Micros=" + lobby.getWaitPercentile(0.9) +
+                " lobbyWaitP99Micros=" + lobby.getWaitPercentile(0.99) +
+                " cpuNanos=" + getProcessCpuTime() +
+                " uptimeMillis=" + (System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * @return CPU time this process has used in nanoseconds, or -1 if the JVM can't measure it.
+     */
+    private static long getProcessCpuTime() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        return -1;
+    }
+
+    /**
+     * Closes a player connection.
+     *
+     * @param player Socket of the player.
+     */
+    synchronized void close(Socket player) {
+        try {
+            if (!player.isClosed()) {
+                player.close();
+                connections.decrementAndGet();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+            metricsSocket.close();
+            resumeSocket.close();
+            spectatorHub.stop();
+            lobby.stop();
+            scheduler.shutdownNow();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Start a dedicated server from the command line.
+     * Usage: {@code MatchServer [port] [metrics port] [resume port] [spectator port] [authoritative (true|false)] [lobby port]}
+     *
+     * @param args Command line arguments.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Protocol.PORT;
+        int metricsPort = args.length > 1 ? Integer.parseInt(args[1]) : METRICS_PORT;
+        int resumePort = args.length > 2 ? Integer.parseInt(args[2]) : Protocol.RESUME_PORT;
+        int spectatorPort = args.length > 3 ? Integer.parseInt(args[3]) : Protocol.SPECTATOR_PORT;
+        int lobbyPort = args.length > 5 ? Integer.parseInt(args[5]) : Protocol.LOBBY_PORT;
+        try {
+            MatchServer server = new MatchServer();
+            server.setAuthoritative(args.length > 4 && Boolean.parseBoolean(args[4]));
+            server.start(port, metricsPort, resumePort, spectatorPort, lobbyPort);
+        } catch (IOException e) {
+            System.err.println("Couldn't start match server!");
+            e.printStackTrace();
+        }
+    }
+}
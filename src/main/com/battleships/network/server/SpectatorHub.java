@@ -0,0 +1,466 @@
+package com.battleships.network.server;
+
+import com.battleships.network.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the shots of running matches to spectators.
+ * <p>
+ * A spectator connects to the spectator port and sends {@code "spectate [match id]"} (without an id the
+ * latest match is watched). It then gets a {@value Protocol#SNAPSHOT} line with the current state of the match
+ * followed by one {@value Protocol#EVENT} line for every shot, and {@value Protocol#END} when the match is over.
+ * <p>
+ * Every line is encoded only once into a read only direct buffer. All spectators get a duplicate of that buffer,
+ * which shares the same memory, so writing to thousands of spectators doesn't copy or encode anything per spectator.
+ * All spectator connections are handled by one thread with non blocking channels. If a spectator can't keep up and
+ * more than {@link #MAX_PENDING} lines are waiting for it, the waiting lines are dropped and the spectator gets
+ * the latest snapshot of the match instead. The channels of all spectators stay registered for reading, so a spectator
+ * that disconnects is removed right away, even if its match has no events to send.
+ *
+ * @author agent
+ */
+public class SpectatorHub implements Runnable {
+
+    /**
+     * Maximum amount of lines that can wait to be sent to a spectator, before it skips to the latest snapshot.
+     */
+    public static final int MAX_PENDING = 32;
+    /**
+     * Maximum length of the message a spectator sends after connecting.
+     */
+    private static final int MAX_REQUEST = 64;
+
+    /**
+     * Server the matches run on.
+     */
+    private MatchServer server;
+    /**
+     * Selector all spectator channels are registered with.
+     */
+    private Selector selector;
+    /**
+     * Channel spectators connect to.
+     */
+    private ServerSocketChannel serverChannel;
+    /**
+     * Tasks the thread of this hub needs to execute, added by the threads of the matches.
+     */
+    private Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Spectators of each match, only used by the thread of this hub.
+     */
+    private Map<Match, List<Spectator>> spectators = new HashMap<>();
+    /**
+     * Encoded snapshot of each match, {@code null} if there was an event after the snapshot was encoded.
+     * Only used by the thread of this hub.
+     */
+    private Map<Match, ByteBuffer> snapshots = new HashMap<>();
+
+    /**
+     * Amount of spectators that are currently connected.
+     */
+    private AtomicInteger spectatorCount = new AtomicInteger();
+    /**
+     * Amount of lines that were written to spectators.
+     */
+    private AtomicLong linesSent = new AtomicLong();
+    /**
+     * Amount of times a spectator had to skip to the latest snapshot.
+     */
+    private AtomicLong skips = new AtomicLong();
+
+    /**
+     * Create a new hub for a server, needs to be started with {@link #start(int)}.
+     *
+     * @param server Server the matches run on.
+     */
+    public SpectatorHub(MatchServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Opens the spectator port and starts the thread of this hub.
+     *
+     * @param port Port spectators connect to.
+     * @throws IOException If the port couldn't be opened.
+     */
+    public void start(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 4096);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        new Thread(this, "MatchServer-spectators").start();
+    }
+
+    /**
+     * Handles all spectator connections until the hub is stopped.
+     */
+    @Override
+    public void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    if (key.isReadable())
+                        read((Spectator) key.attachment());
+                    if (key.isValid() && key.isWritable())
+                        flush((Spectator) key.attachment());
+                }
+            }
+        } catch (ClosedSelectorException ignore) {
+            //hub was stopped
+        } catch (IOException e) {
+            System.err.println("Spectator hub stopped!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Accepts a new spectator, the spectator first needs to send which match it wants to watch.
+     *
+     * @throws IOException If the connection couldn't be accepted.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Spectator spectator = new Spectator(channel);
+        spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+        spectatorCount.incrementAndGet();
+    }
+
+    /**
+     * Reads from the channel of a spectator. Until the request was read, the request is read and the spectator starts
+     * getting the match it wants to watch. After that everything the spectator sends is ignored, the channel is only
+     * read to notice when the spectator disconnects.
+     *
+     * @param spectator Spectator whose channel is readable.
+     */
+    private void read(Spectator spectator) {
+        try {
+            if (spectator.match != null) {
+                int read;
+                do {
+                    spectator.request.clear();
+                    read = spectator.channel.read(spectator.request);
+                } while (read > 0);
+                if (read < 0)
+                    close(spectator);
+                return;
+            }
+            if (spectator.channel.read(spectator.request) < 0) {
+                close(spectator);
+                return;
+            }
+        } catch (IOException e) {
+            close(spectator);
+            return;
+        }
+        String request = new String(spectator.request.array(), 0, spectator.request.position(), StandardCharsets.US_ASCII);
+        int lineEnd = request.indexOf('\n');
+        if (lineEnd < 0) {
+            if (!spectator.request.hasRemaining())
+                close(spectator);
+            return;
+        }
+        request = request.substring(0, lineEnd).trim();
+        Match match = null;
+        if (request.startsWith(Protocol.SPECTATE.trim())) {
+            String id = request.substring(Protocol.SPECTATE.trim().length()).trim();
+            try {
+                match = id.isEmpty() ? server.getLatestMatch() : server.getMatch(Integer.parseInt(id));
+            } catch (NumberFormatException ignore) {
+                //match stays null
+            }
+        }
+        if (match == null || match.hasEnded()) {
+            close(spectator);
+            return;
+        }
+        spectator.match = match;
+        spectators.computeIfAbsent(match, m -> new ArrayList<>()).add(spectator);
+        spectator.pending.add(getSnapshot(match).duplicate());
+        flush(spectator);
+    }
+
+    /**
+     * Sends an event of a match to all its spectators. Can be called from any thread.
+     *
+     * @param match Match the event happened in.
+     * @param line  Line that should be sent (without line break).
+     */
+    public void publish(Match match, String line) {
+        ByteBuffer buffer = encode(line);
+        execute(() -> {
+            snapshots.remove(match);
+            List<Spectator> list = spectators.get(match);
+            if (list == null)
+                return;
+            for (Spectator s : new ArrayList<>(list)) {
+                send(s, buffer);
+            }
+        });
+    }
+
+    /**
+     * Sends the latest snapshot of a match to all its spectators, instead of a single event.
+     * Can be called from any thread.
+     *
+     * @param match Match whose snapshot should be sent.
+     */
+    public void publishSnapshot(Match match) {
+        execute(() -> {
+            snapshots.remove(match);
+            List<Spectator> list = spectators.get(match);
+            if (list == null)
+                return;
+            ByteBuffer snapshot = getSnapshot(match);
+            for (Spectator s : new ArrayList<>(list)) {
+                send(s, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Sends {@value Protocol#END} to all spectators of a match and closes their connections after that.
+     * Can be called from any thread.
+     *
+     * @param match Match that has ended.
+     */
+    public void matchEnded(Match match) {
+        ByteBuffer buffer = encode(Protocol.END);
+        execute(() -> {
+            snapshots.remove(match);
+            List<Spectator> list = spectators.remove(match);
+            if (list == null)
+                return;
+            for (Spectator s : list) {
+                s.closing = true;
+                send(s, buffer);
+            }
+        });
+    }
+
+    /**
+     * Adds a line to the lines waiting for a spectator and tries to send them.
+     * If too many lines are waiting, the spectator skips to the latest snapshot.
+     *
+     * @param spectator Spectator the line is for.
+     * @param buffer    Shared buffer containing the line, only a duplicate of it is used.
+     */
+    private void send(Spectator spectator, ByteBuffer buffer) {
+        if (spectator.pending.size() >= MAX_PENDING && spectator.match != null) {
+            //a line that was partially sent needs to be finished, else the spectator gets a broken line
+            ByteBuffer current = spectator.pending.peek();
+            boolean started = current != null && current.position() > 0;
+            spectator.pending.clear();
+            if (started)
+                spectator.pending.add(current);
+            if (!spectator.closing)
+                spectator.pending.add(getSnapshot(spectator.match).duplicate());
+            skips.incrementAndGet();
+        }
+        spectator.pending.add(buffer.duplicate());
+        flush(spectator);
+    }
+
+    /**
+     * Writes as many waiting lines to a spectator as possible without blocking.
+     * If not all lines could be written, the hub also waits until the channel of the spectator is writable again.
+     *
+     * @param spectator Spectator whose lines should be written.
+     */
+    private void flush(Spectator spectator) {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = spectator.pending.peek()) != null) {
+                spectator.channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    spectator.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                spectator.pending.poll();
+                linesSent.incrementAndGet();
+            }
+            spectator.key.interestOps(SelectionKey.OP_READ);
+            if (spectator.closing)
+                close(spectator);
+        } catch (IOException e) {
+            close(spectator);
+        }
+    }
+
+    /**
+     * @param match Match the snapshot is needed for.
+     * @return Buffer containing the latest snapshot of the match, encoded only once after each event.
+     */
+    private ByteBuffer getSnapshot(Match match) {
+        ByteBuffer snapshot = snapshots.get(match);
+        if (snapshot == null) {
+            snapshot = encode(Protocol.SNAPSHOT + match.createSpectatorSnapshot().encodeToString());
+            if (!match.hasEnded())
+                snapshots.put(match, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Closes the connection of a spectator.
+     *
+     * @param spectator Spectator whose connection should be closed.
+     */
+    private void close(Spectator spectator) {
+        if (!spectator.channel.isOpen())
+            return;
+        spectator.key.cancel();
+        try {
+            spectator.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        spectatorCount.decrementAndGet();
+        List<Spectator> list = spectators.get(spectator.match);
+        if (list != null)
+            list.remove(spectator);
+    }
+
+    /**
+     * Executes a task on the thread of this hub.
+     *
+     * @param task Task to execute.
+     */
+    private void execute(Runnable task) {
+        if (selector == null)
+            return;
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Encodes a line into a read only direct buffer, that can be shared by all spectators.
+     *
+     * @param line Line to encode (without line break).
+     * @return The buffer containing the line.
+     */
+    private static ByteBuffer encode(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Stops the hub and closes all spectator connections.
+     */
+    public void stop() {
+        try {
+            if (serverChannel != null)
+                serverChannel.close();
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Amount of spectators that are currently connected.
+     */
+    public int getSpectatorCount() {
+        return spectatorCount.get();
+    }
+
+    /**
+     * @return Amount of lines that were written to spectators.
+     */
+    public long getLinesSent() {
+        return linesSent.get();
+    }
+
+    /**
+     * @return Amount of times a spectator had to skip to the latest snapshot.
+     */
+    public long getSkips() {
+        return skips.get();
+    }
+
+    /**
+     * Connection of one spectator.
+     */
+    private static class Spectator {
+        /**
+         * Channel of the spectator.
+         */
+        private SocketChannel channel;
+        /**
+         * Key of the channel in the selector.
+         */
+        private SelectionKey key;
+        /**
+         * Buffer for the request of the spectator, reused for discarding everything it sends after its request.
+         */
+        private ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST);
+        /**
+         * Match the spectator watches, {@code null} until the request was read.
+         */
+        private Match match;
+        /**
+         * Lines waiting to be sent to the spectator, each one a duplicate of a shared buffer.
+         */
+        private Queue<ByteBuffer> pending = new ArrayDeque<>();
+        /**
+         * {@code true} if the connection should be closed after all waiting lines were sent.
+         */
+        private boolean closing;
+
+        /**
+         * Create a new spectator connection.
+         *
+         * @param channel Channel of the spectator.
+         */
+        public Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}